@@ -17,6 +17,7 @@
 package com.google.gwt.dev.codeserver;
 
 import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.jjs.InliningPreset;
 import com.google.gwt.dev.jjs.JsOutputOption;
 import com.google.gwt.dev.util.arg.OptionOptimize;
 import com.google.gwt.dev.util.arg.SourceLevel;
@@ -65,6 +66,11 @@ class CompilerOptionsImpl extends UnmodifiableCompilerOptions {
     return compileDir.getGenDir();
   }
 
+  @Override
+  public InliningPreset getInliningPreset() {
+    return InliningPreset.BALANCED;
+  }
+
   /**
    * Number of threads to use to compile permutations.
    */
@@ -204,6 +210,11 @@ class CompilerOptionsImpl extends UnmodifiableCompilerOptions {
     return false;
   }
 
+  @Override
+  public boolean shouldNameByFrequency() {
+    return false;
+  }
+
   @Override
   public boolean shouldOptimizeDataflow() {
     return false;
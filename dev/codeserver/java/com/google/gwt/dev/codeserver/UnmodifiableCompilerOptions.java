@@ -18,6 +18,7 @@ package com.google.gwt.dev.codeserver;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.dev.CompilerOptions;
+import com.google.gwt.dev.jjs.InliningPreset;
 import com.google.gwt.dev.jjs.JsOutputOption;
 import com.google.gwt.dev.util.arg.SourceLevel;
 
@@ -112,6 +113,11 @@ abstract class UnmodifiableCompilerOptions implements CompilerOptions {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public final void setInliningPreset(InliningPreset preset) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public final void setLocalWorkers(int localWorkers) {
     throw new UnsupportedOperationException();
@@ -132,6 +138,11 @@ abstract class UnmodifiableCompilerOptions implements CompilerOptions {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public final void setNameByFrequency(boolean enabled) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public final void setOptimizationLevel(int level) {
     throw new UnsupportedOperationException();
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.core.ext;
+
+/**
+ * A marker interface for {@link Generator} (and {@link IncrementalGenerator})
+ * subclasses that may be invoked concurrently.
+ * <p>
+ * A single generator instance is shared by every rebind request that names its
+ * class, so a generator implementing this interface must not keep mutable
+ * per-invocation state in instance or static fields. All output must go through
+ * the supplied {@link GeneratorContext}, which serializes commits of generated
+ * units, resources and artifacts.
+ * <p>
+ * When concurrent rebinding is enabled during precompile, generators that do
+ * not implement this interface are still run, but never concurrently with
+ * another invocation of the same generator class.
+ */
+public interface ThreadSafeGenerator {
+}
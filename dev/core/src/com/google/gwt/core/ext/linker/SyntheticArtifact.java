@@ -20,7 +20,6 @@ import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.dev.util.DiskCache;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
@@ -49,10 +48,22 @@ public class SyntheticArtifact extends EmittedArtifact {
     this.token = diskCache.writeByteArray(data);
   }
 
+  /**
+   * Creates an artifact from the rest of the data in <code>data</code>, which
+   * is copied to disk without being held in memory. The stream is not closed.
+   */
+  public SyntheticArtifact(Class<? extends Linker> linkerType,
+      String partialPath, InputStream data) throws IOException {
+    super(linkerType, partialPath);
+    assert data != null;
+    this.lastModified = System.currentTimeMillis();
+    this.token = diskCache.transferFromStream(data);
+  }
+
   @Override
   public InputStream getContents(TreeLogger logger)
       throws UnableToCompleteException {
-    return new ByteArrayInputStream(diskCache.readByteArray(token));
+    return diskCache.readStream(token);
   }
 
   @Override
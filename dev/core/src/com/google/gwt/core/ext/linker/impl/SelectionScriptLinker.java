@@ -95,6 +95,13 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
    */
   private static final String PROP_FRAGMENT_SUBDIR_OVERRIDE = "iframe.linker.deferredjs.subdir";
 
+  /**
+   * A configuration property that, for linkers that support it, emits each
+   * deferred fragment once under a name derived from its contents, so that
+   * permutations with identical fragments share the same file.
+   */
+  private static final String PROP_SHARED_FRAGMENTS = "iframe.linker.deferredjs.shared";
+
   /**
    * Split a JavaScript string into multiple chunks, at statement boundaries. This method is made
    * default access for testing.
@@ -164,6 +171,13 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
     return sb.charAt(sb.length() - 1);
   }
 
+  /**
+   * Names of the current permutation's deferred fragments, indexed by fragment
+   * number, when they are shared across permutations; otherwise
+   * <code>null</code>.
+   */
+  private String[] sharedFragmentNames;
+
   /**
    * This method is left in place for existing subclasses of SelectionScriptLinker that have not
    * been upgraded for the sharding API.
@@ -246,19 +260,29 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
       throws UnableToCompleteException {
     String[] js = result.getJavaScript();
     byte[][] bytes = new byte[js.length][];
-    bytes[0] = generatePrimaryFragment(logger, context, result, js, artifacts);
 
+    // The primary fragment needs to know the names of shared fragments
     for (int i = 1; i < js.length; i++) {
       bytes[i] = Util.getBytes(generateDeferredFragment(logger, context, i, js[i], artifacts,
           result));
     }
+    sharedFragmentNames = null;
+    if (js.length > 1 && useSharedFragments(context)) {
+      sharedFragmentNames = new String[js.length];
+      for (int i = 1; i < js.length; i++) {
+        sharedFragmentNames[i] = Util.computeStrongName(bytes[i]);
+      }
+    }
+    bytes[0] = generatePrimaryFragment(logger, context, result, js, artifacts);
 
     Collection<Artifact<?>> toReturn = new ArrayList<Artifact<?>>();
     toReturn.add(emitBytes(logger, bytes[0], result.getStrongName()
         + getCompilationExtension(logger, context)));
     for (int i = 1; i < js.length; i++) {
+      String fragmentPath = sharedFragmentNames == null
+          ? result.getStrongName() + File.separator + i : sharedFragmentNames[i];
       toReturn.add(emitBytes(logger, bytes[i], FRAGMENT_SUBDIR + File.separator
-          + result.getStrongName() + File.separator + i + FRAGMENT_EXTENSION));
+          + fragmentPath + FRAGMENT_EXTENSION));
     }
 
     toReturn.addAll(emitSelectionInformation(result.getStrongName(), result));
@@ -429,6 +453,29 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
     return "";
   }
 
+  /**
+   * Returns a JavaScript expression for the path of a deferred fragment,
+   * relative to the module base. Uses <code>$strongName</code>, or the names
+   * of shared fragments if {@link #PROP_SHARED_FRAGMENTS} applies.
+   * 
+   * @param fragment a JavaScript expression for the fragment number
+   */
+  protected String getDeferredFragmentPathJs(TreeLogger logger,
+      LinkerContext context, String fragment) throws UnableToCompleteException {
+    String fragDir = getFragmentSubdir(logger, context) + '/';
+    if (sharedFragmentNames == null) {
+      return "'" + fragDir + "' + $strongName + '/' + " + fragment + " + '"
+          + FRAGMENT_EXTENSION + "'";
+    }
+    StringBuilder names = new StringBuilder("[''");
+    for (int i = 1; i < sharedFragmentNames.length; i++) {
+      names.append(",'").append(sharedFragmentNames[i]).append("'");
+    }
+    names.append("]");
+    return "'" + fragDir + "' + " + names + "[" + fragment + "] + '"
+        + FRAGMENT_EXTENSION + "'";
+  }
+
   /**
    * Returns the subdirectory name to be used by getModulPrefix when requesting a runAsync module.
    * It is specified by {@link #PROP_FRAGMENT_SUBDIR_OVERRIDE} and, aside from test cases, is always
@@ -456,6 +503,15 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
     return "";
   }
 
+  /**
+   * Whether this linker loads deferred fragments through
+   * {@link #getDeferredFragmentPathJs}, so that they can be shared across
+   * permutations. Defaults to <code>false</code>.
+   */
+  protected boolean supportsSharedFragments() {
+    return false;
+  }
+
   /**
    * Compute the beginning of a JavaScript file that will hold the main module implementation.
    */
@@ -564,4 +620,16 @@ public abstract class SelectionScriptLinker extends AbstractLinker {
       CompilationResult result) throws UnableToCompleteException {
     return script;
   }
+
+  private boolean useSharedFragments(LinkerContext context) {
+    if (!supportsSharedFragments()) {
+      return false;
+    }
+    for (ConfigurationProperty prop : context.getConfigurationProperties()) {
+      if (prop.getName().equals(PROP_SHARED_FRAGMENTS)) {
+        return Boolean.parseBoolean(prop.getValues().get(0));
+      }
+    }
+    return false;
+  }
 }
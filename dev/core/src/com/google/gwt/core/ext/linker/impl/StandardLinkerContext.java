@@ -65,6 +65,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * An implementation of {@link LinkerContext} that is initialized from a
@@ -114,7 +118,7 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
   private final JJSOptions jjsOptions;
 
   private final List<Class<? extends Linker>> linkerClasses;
-  private Linker[] linkers;
+  private final Linker[] linkers;
   private final Map<Class<? extends Linker>, String> linkerShortNames = new HashMap<Class<? extends Linker>, String>();
   private final String moduleFunctionName;
   private final long moduleLastModified;
@@ -171,7 +175,7 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
       linkerClasses.addAll(postLinkerClasses);
     }
 
-    resetLinkers(logger);
+    linkers = createLinkers(logger);
 
     for (Map.Entry<String, Class<? extends Linker>> entry : module.getLinkers().entrySet()) {
       linkerShortNames.put(entry.getValue(), entry.getKey());
@@ -355,7 +359,9 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
 
   /**
    * Invoke the shardable linkers on one permutation result. Those linkers run
-   * with the precompile artifacts as input.
+   * with the precompile artifacts as input. Each call runs on freshly created
+   * linkers, so that no state is carried across permutations and several
+   * permutations may be linked concurrently.
    */
   public ArtifactSet invokeLinkForOnePermutation(TreeLogger logger,
       StandardCompilationResult permResult, ArtifactSet permArtifacts)
@@ -363,7 +369,7 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
     ArtifactSet workingArtifacts = new ArtifactSet(permArtifacts);
     workingArtifacts.add(permResult);
 
-    for (Linker linker : linkers) {
+    for (Linker linker : createLinkers(logger)) {
       if (linker.isShardable()) {
         TreeLogger linkerLogger = logger.branch(TreeLogger.TRACE,
             "Invoking Linker " + linker.getDescription(), null);
@@ -377,12 +383,6 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
       }
     }
 
-    /*
-     * Reset linkers so that they don't accidentally carry any state across
-     * permutations
-     */
-    resetLinkers(logger);
-
     workingArtifacts.freeze();
     return workingArtifacts;
   }
@@ -483,11 +483,33 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
   public void produceOutput(TreeLogger logger, ArtifactSet artifacts,
       Visibility visibility, OutputFileSet out)
       throws UnableToCompleteException {
+    produceOutput(logger, artifacts, visibility, out, null);
+  }
+
+  /**
+   * Emit EmittedArtifacts artifacts onto <code>out</code>. Does not close
+   * <code>out</code>. If <code>executor</code> is non-null and
+   * <code>out</code> supports concurrent writes, the artifacts are written on
+   * the executor; otherwise they are written one at a time, in order.
+   * 
+   * @param logger where to log progress
+   * @param artifacts the artifacts to emit
+   * @param visibility the level of visibility of artifacts to output
+   * @param out where to emit the artifact contents
+   * @param executor the executor to write on, or <code>null</code>
+   */
+  public void produceOutput(TreeLogger logger, ArtifactSet artifacts,
+      Visibility visibility, final OutputFileSet out, ExecutorService executor)
+      throws UnableToCompleteException {
     logger = logger.branch(TreeLogger.TRACE, "Linking " + visibility
         + " artifacts into " + out.getPathDescription(), null);
+    if (!out.supportsConcurrentWrites()) {
+      executor = null;
+    }
 
-    for (EmittedArtifact artifact : artifacts.find(EmittedArtifact.class)) {
-      TreeLogger artifactLogger = logger.branch(TreeLogger.DEBUG,
+    List<Future<Void>> writes = new ArrayList<Future<Void>>();
+    for (final EmittedArtifact artifact : artifacts.find(EmittedArtifact.class)) {
+      final TreeLogger artifactLogger = logger.branch(TreeLogger.DEBUG,
           "Emitting resource " + artifact.getPartialPath(), null);
 
       if (!artifact.getVisibility().matches(visibility)) {
@@ -503,24 +525,68 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
           partialPath = partialPath.substring(1);
         }
       }
-      try {
-        OutputStream artifactStream = out.openForWrite(partialPath,
-            artifact.getLastModified());
-        artifact.writeTo(artifactLogger, artifactStream);
-        artifactStream.close();
-      } catch (IOException e) {
-        artifactLogger.log(TreeLogger.ERROR,
-            "Fatal error emitting artifact: " + artifact.getPartialPath(), e);
-        throw new UnableToCompleteException();
+
+      if (executor == null) {
+        emitArtifact(artifactLogger, artifact, partialPath, out);
+        continue;
+      }
+      final String path = partialPath;
+      writes.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws UnableToCompleteException {
+          emitArtifact(artifactLogger, artifact, path, out);
+          return null;
+        }
+      }));
+    }
+
+    try {
+      for (Future<Void> write : writes) {
+        write.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UnableToCompleteException) {
+        throw (UnableToCompleteException) e.getCause();
+      }
+      logger.log(TreeLogger.ERROR, "Unexpected error emitting artifacts", e.getCause());
+      throw new UnableToCompleteException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while emitting artifacts", e);
+      throw new UnableToCompleteException();
+    } finally {
+      for (Future<Void> write : writes) {
+        write.cancel(false);
       }
     }
   }
 
   /**
-   * (Re)instantiate all linkers.
+   * Write one artifact to <code>out</code>. Only opening the file is
+   * synchronized, so that artifacts may be written concurrently to output
+   * file sets that support it.
+   */
+  private void emitArtifact(TreeLogger artifactLogger, EmittedArtifact artifact,
+      String partialPath, OutputFileSet out) throws UnableToCompleteException {
+    try {
+      OutputStream artifactStream;
+      synchronized (out) {
+        artifactStream = out.openForWrite(partialPath, artifact.getLastModified());
+      }
+      artifact.writeTo(artifactLogger, artifactStream);
+      artifactStream.close();
+    } catch (IOException e) {
+      artifactLogger.log(TreeLogger.ERROR,
+          "Fatal error emitting artifact: " + artifact.getPartialPath(), e);
+      throw new UnableToCompleteException();
+    }
+  }
+
+  /**
+   * Instantiate all linkers.
    */
-  private void resetLinkers(TreeLogger logger) throws UnableToCompleteException {
-    linkers = new Linker[linkerClasses.size()];
+  private Linker[] createLinkers(TreeLogger logger) throws UnableToCompleteException {
+    Linker[] linkers = new Linker[linkerClasses.size()];
     int i = 0;
     for (Class<? extends Linker> linkerClass : linkerClasses) {
       try {
@@ -533,5 +599,6 @@ public class StandardLinkerContext extends Linker implements LinkerContext {
         throw new UnableToCompleteException();
       }
     }
+    return linkers;
   }
 }
@@ -18,6 +18,7 @@ package com.google.gwt.core.ext.soyc.impl;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.dev.jjs.ast.JProgram;
 import com.google.gwt.dev.jjs.ast.JRunAsync;
+import com.google.gwt.dev.jjs.impl.CodeSplitter2.FragmentMerge;
 import com.google.gwt.dev.jjs.impl.CodeSplitter2.FragmentPartitioningResult;
 import com.google.gwt.dev.util.HtmlTextOutput;
 import com.google.gwt.util.tools.Utility;
@@ -82,6 +83,34 @@ public class SplitPointRecorder {
         htmlOut.newline();
       }
 
+      if (partitionResult != null && !partitionResult.getMerges().isEmpty()) {
+        // Why split points share a fragment, and at what cost to other sessions.
+        curLine = "<merges>";
+        htmlOut.printRaw(curLine);
+        htmlOut.newline();
+        htmlOut.indentIn();
+
+        for (FragmentMerge merge : partitionResult.getMerges()) {
+          curLine = "<merge splitpoint=\"" + merge.getSplitPoint() + "\" mergedsplitpoint=\""
+              + merge.getMergedSplitPoint() + "\" fragment=\""
+              + partitionResult.getFragmentFromSplitPoint(merge.getSplitPoint())
+              + "\" sharedatoms=\"" + merge.getSharedAtoms() + "\"";
+          if (merge.getCoLoadRate() >= 0) {
+            curLine += " coloadrate=\"" + merge.getCoLoadRate() + "\" sessionsloadingboth=\""
+                + merge.getSessionsLoadingBoth() + "\" sessionsloadingonlyone=\""
+                + merge.getSessionsLoadingOnlyOne() + "\"";
+          }
+          curLine += "/>";
+          htmlOut.printRaw(curLine);
+          htmlOut.newline();
+        }
+
+        htmlOut.indentOut();
+        curLine = "</merges>";
+        htmlOut.printRaw(curLine);
+        htmlOut.newline();
+      }
+
       if (!jprogram.getSplitPointInitialSequence().isEmpty()) {
         curLine = "<initialseq>";
         htmlOut.printRaw(curLine);
@@ -394,8 +394,7 @@ public class CrossSiteIframeLinker extends SelectionScriptLinker {
     // (usually an iframe) so, here we set up those pointers.
     out.print("function __gwtStartLoadingFragment(frag) {");
     out.newlineOpt();
-    String fragDir = getFragmentSubdir(logger, context) + '/';
-    out.print("var fragFile = '" + fragDir + "' + $strongName + '/' + frag + '" + FRAGMENT_EXTENSION + "';");
+    out.print("var fragFile = " + getDeferredFragmentPathJs(logger, context, "frag") + ";");
     out.newlineOpt();
     out.print("return __gwtModuleFunction.__startLoadingFragment(fragFile);");
     out.newlineOpt();
@@ -571,6 +570,11 @@ public class CrossSiteIframeLinker extends SelectionScriptLinker {
     return false;
   }
 
+  @Override
+  protected boolean supportsSharedFragments() {
+    return true;
+  }
+
   @Override
   protected String wrapDeferredFragment(TreeLogger logger,
       LinkerContext context, int fragment, String js, ArtifactSet artifacts) {
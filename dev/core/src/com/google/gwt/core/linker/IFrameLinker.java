@@ -100,6 +100,11 @@ public class IFrameLinker extends SelectionScriptLinker {
     return js;
   }
 
+  @Override
+  protected boolean supportsSharedFragments() {
+    return true;
+  }
+
   /**
    * This is the real implementation of <code>getModulePrefix</code> for this
    * linker. The other versions forward to this one.
@@ -128,8 +133,8 @@ public class IFrameLinker extends SelectionScriptLinker {
       out.print("function __gwtStartLoadingFragment(frag) {");
       out.indentIn();
       out.newlineOpt();
-      out.print("  return $moduleBase + '" + getFragmentSubdir(logger, context)
-          + "/'  + $strongName + '/' + frag + '" + FRAGMENT_EXTENSION + "';");
+      out.print("  return $moduleBase + "
+          + getDeferredFragmentPathJs(logger, context, "frag") + ";");
       out.indentOut();
       out.newlineOpt();
       out.print("};");
@@ -36,18 +36,50 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Implementation of RebindPermutationOracle used by Precompile.
  */
 class DistillerRebindPermutationOracle implements RebindPermutationOracle {
+
+  /**
+   * A Java system property that can be used to compute the rebind answers of
+   * different permutations on multiple threads. Generators that do not
+   * implement {@link com.google.gwt.core.ext.ThreadSafeGenerator} are never run
+   * concurrently with themselves. Defaults to 1 (serial).
+   */
+  public static final String REBIND_THREADS_PROPERTY = "gwt.rebind.maxThreads";
+
+  private static ExecutorService createRebindExecutor(int threads) {
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int count = 0;
+
+      @Override
+      public synchronized Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Rebind worker " + count++);
+        // Never keep the VM alive if precompile bails out before clear().
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
   private CompilationState compilationState;
   private StandardGeneratorContext generatorContext;
   private final Permutation[] permutations;
   private final StaticPropertyOracle[] propertyOracles;
   private final RebindOracle[] rebindOracles;
+  private ExecutorService rebindExecutor;
 
   public DistillerRebindPermutationOracle(ModuleDef module,
       CompilationState compilationState, ArtifactSet generatorArtifacts,
@@ -70,12 +102,21 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
           generatorContext);
       permutations[i] = new Permutation(i, propertyOracles[i]);
     }
+    int rebindThreads = Math.min(rebindOracles.length,
+        Integer.getInteger(REBIND_THREADS_PROPERTY, 1));
+    if (rebindThreads > 1) {
+      rebindExecutor = createRebindExecutor(rebindThreads);
+    }
   }
 
   public void clear() {
     generatorContext.clear();
     compilationState = null;
     generatorContext = null;
+    if (rebindExecutor != null) {
+      rebindExecutor.shutdown();
+      rebindExecutor = null;
+    }
   }
 
   public String[] getAllPossibleRebindAnswers(TreeLogger logger,
@@ -87,15 +128,18 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
 
     Set<String> answers = new HashSet<String>();
     Event getAllRebindsEvent = SpeedTracerLogger.start(CompilerEventType.GET_ALL_REBINDS);
-    for (int i = 0; i < getPermutationCount(); ++i) {
-      String resultTypeName = rebindOracles[i].rebind(logger, requestTypeName);
-      answers.add(resultTypeName);
-      // Record the correct answer into each permutation.
-      permutations[i].putRebindAnswer(requestTypeName, resultTypeName);
+    try {
+      String[] resultTypeNames = rebindExecutor == null
+          ? rebindSerially(logger, requestTypeName) : rebindConcurrently(logger, requestTypeName);
+      for (int i = 0; i < getPermutationCount(); ++i) {
+        answers.add(resultTypeNames[i]);
+        // Record the correct answer into each permutation.
+        permutations[i].putRebindAnswer(requestTypeName, resultTypeNames[i]);
+      }
+    } finally {
+      getAllRebindsEvent.end();
     }
-    String[] result = Util.toArray(String.class, answers);
-    getAllRebindsEvent.end();
-    return result;
+    return Util.toArray(String.class, answers);
   }
 
   public CompilationState getCompilationState() {
@@ -121,4 +165,54 @@ class DistillerRebindPermutationOracle implements RebindPermutationOracle {
   public RebindOracle getRebindOracle(int permNumber) {
     return rebindOracles[permNumber];
   }
+
+  /**
+   * Runs the rebind for every permutation on the rebind executor. Answers are
+   * returned in permutation order, so the result does not depend on
+   * scheduling.
+   */
+  private String[] rebindConcurrently(final TreeLogger logger, final String requestTypeName)
+      throws UnableToCompleteException {
+    List<Future<String>> futures = new ArrayList<Future<String>>(rebindOracles.length);
+    for (final RebindOracle rebindOracle : rebindOracles) {
+      futures.add(rebindExecutor.submit(new Callable<String>() {
+        @Override
+        public String call() throws UnableToCompleteException {
+          return rebindOracle.rebind(logger, requestTypeName);
+        }
+      }));
+    }
+
+    String[] resultTypeNames = new String[rebindOracles.length];
+    boolean failed = false;
+    for (int i = 0; i < resultTypeNames.length; ++i) {
+      try {
+        resultTypeNames[i] = futures.get(i).get();
+      } catch (ExecutionException e) {
+        // UnableToCompleteException has already been logged.
+        if (!(e.getCause() instanceof UnableToCompleteException)) {
+          logger.log(TreeLogger.ERROR, "Unexpected error while rebinding '" + requestTypeName
+              + "'", e.getCause());
+        }
+        failed = true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        logger.log(TreeLogger.ERROR, "Interrupted while rebinding '" + requestTypeName + "'", e);
+        throw new UnableToCompleteException();
+      }
+    }
+    if (failed) {
+      throw new UnableToCompleteException();
+    }
+    return resultTypeNames;
+  }
+
+  private String[] rebindSerially(TreeLogger logger, String requestTypeName)
+      throws UnableToCompleteException {
+    String[] resultTypeNames = new String[rebindOracles.length];
+    for (int i = 0; i < resultTypeNames.length; ++i) {
+      resultTypeNames[i] = rebindOracles[i].rebind(logger, requestTypeName);
+    }
+    return resultTypeNames;
+  }
 }
@@ -61,6 +61,12 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
@@ -85,6 +91,13 @@ public class Link {
       OptionWarDir, OptionDeployDir, LegacyLinkOptions {
   }
 
+  /**
+   * A Java system property that sets how many threads link permutations and
+   * write output files. The default of 1 links everything on the calling
+   * thread.
+   */
+  public static final String LINK_THREADS_PROPERTY = "gwt.link.threads";
+
   static class ArgProcessor extends CompileArgProcessor {
     @SuppressWarnings("deprecation")
     public ArgProcessor(LinkOptions options) {
@@ -424,12 +437,19 @@ public class Link {
       OutputFileSet deployFileSet, OutputFileSet extraFileSet)
       throws UnableToCompleteException, IOException {
 
-    linkerContext.produceOutput(logger, artifacts, Visibility.Public,
-        outFileSet);
-    linkerContext.produceOutput(logger, artifacts, Visibility.Deploy,
-        deployFileSet);
-    linkerContext.produceOutput(logger, artifacts, Visibility.Private,
-        extraFileSet);
+    ExecutorService executor = createLinkExecutor("Link output writer");
+    try {
+      linkerContext.produceOutput(logger, artifacts, Visibility.Public,
+          outFileSet, executor);
+      linkerContext.produceOutput(logger, artifacts, Visibility.Deploy,
+          deployFileSet, executor);
+      linkerContext.produceOutput(logger, artifacts, Visibility.Private,
+          extraFileSet, executor);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
 
     outFileSet.close();
     deployFileSet.close();
@@ -438,6 +458,28 @@ public class Link {
     logger.log(TreeLogger.INFO, "Link succeeded");
   }
 
+  /**
+   * Creates the executor that links permutations or writes output files, or
+   * returns <code>null</code> if {@link #LINK_THREADS_PROPERTY} asks for
+   * linking on the calling thread.
+   */
+  private static ExecutorService createLinkExecutor(final String threadName) {
+    int threads = Integer.getInteger(LINK_THREADS_PROPERTY, 1);
+    if (threads <= 1) {
+      return null;
+    }
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int count = 0;
+
+      @Override
+      public synchronized Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, threadName + " " + count++);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
   /**
    * This link operation simulates sharded linking even though all generating
    * and linking is happening on the same computer. It can tolerate
@@ -449,9 +491,8 @@ public class Link {
       List<FileBackedObject<PermutationResult>> resultFiles)
       throws UnableToCompleteException {
     ArtifactSet combinedArtifacts = new ArtifactSet();
-    for (int i = 0; i < perms.length; ++i) {
-      ArtifactSet newArtifacts = finishPermutation(logger, perms[i],
-          resultFiles.get(i), linkerContext, generatedArtifacts);
+    for (ArtifactSet newArtifacts : finishPermutations(logger, perms,
+        resultFiles, linkerContext, generatedArtifacts)) {
       combinedArtifacts.addAll(newArtifacts);
     }
 
@@ -492,6 +533,61 @@ public class Link {
         permArtifacts);
   }
 
+  /**
+   * Runs {@link #finishPermutation} on every permutation, concurrently if
+   * {@link #LINK_THREADS_PROPERTY} allows it. The results are returned in
+   * permutation order either way.
+   */
+  private static List<ArtifactSet> finishPermutations(final TreeLogger logger,
+      Permutation[] perms, List<FileBackedObject<PermutationResult>> resultFiles,
+      final StandardLinkerContext linkerContext,
+      final ArtifactSet generatedArtifacts) throws UnableToCompleteException {
+    List<ArtifactSet> results = new ArrayList<ArtifactSet>();
+    ExecutorService executor = perms.length > 1
+        ? createLinkExecutor("Permutation linker") : null;
+    if (executor == null) {
+      for (int i = 0; i < perms.length; ++i) {
+        results.add(finishPermutation(logger, perms[i], resultFiles.get(i),
+            linkerContext, generatedArtifacts));
+      }
+      return results;
+    }
+
+    List<Future<ArtifactSet>> futures = new ArrayList<Future<ArtifactSet>>();
+    try {
+      for (int i = 0; i < perms.length; ++i) {
+        final Permutation perm = perms[i];
+        final FileBackedObject<PermutationResult> resultFile = resultFiles.get(i);
+        futures.add(executor.submit(new Callable<ArtifactSet>() {
+          @Override
+          public ArtifactSet call() throws UnableToCompleteException {
+            return finishPermutation(logger, perm, resultFile, linkerContext,
+                generatedArtifacts);
+          }
+        }));
+      }
+      for (Future<ArtifactSet> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UnableToCompleteException) {
+        throw (UnableToCompleteException) e.getCause();
+      }
+      logger.log(TreeLogger.ERROR, "Unexpected error linking permutations", e.getCause());
+      throw new UnableToCompleteException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while linking permutations", e);
+      throw new UnableToCompleteException();
+    } finally {
+      for (Future<ArtifactSet> future : futures) {
+        future.cancel(false);
+      }
+      executor.shutdown();
+    }
+  }
+
   private static String getFullArtifactPath(EmittedArtifact emittedArtifact,
       StandardLinkerContext context) {
     String path = emittedArtifact.getPartialPath();
@@ -37,7 +37,9 @@ import com.google.gwt.dev.util.arg.ArgHandlerEnableClosureCompiler;
 import com.google.gwt.dev.util.arg.ArgHandlerFragmentCount;
 import com.google.gwt.dev.util.arg.ArgHandlerFragmentMerge;
 import com.google.gwt.dev.util.arg.ArgHandlerGenDir;
+import com.google.gwt.dev.util.arg.ArgHandlerInliningPreset;
 import com.google.gwt.dev.util.arg.ArgHandlerMaxPermsPerPrecompile;
+import com.google.gwt.dev.util.arg.ArgHandlerNameByFrequency;
 import com.google.gwt.dev.util.arg.ArgHandlerOptimize;
 import com.google.gwt.dev.util.arg.ArgHandlerScriptStyle;
 import com.google.gwt.dev.util.arg.ArgHandlerSoyc;
@@ -69,7 +71,9 @@ class PrecompileTaskArgProcessor extends CompileArgProcessor {
     registerHandler(new ArgHandlerFragmentCount(options));
     registerHandler(new ArgHandlerFragmentMerge(options));
     registerHandler(new ArgHandlerGenDir(options));
+    registerHandler(new ArgHandlerInliningPreset(options));
     registerHandler(new ArgHandlerMaxPermsPerPrecompile(options));
+    registerHandler(new ArgHandlerNameByFrequency(options));
     registerHandler(new ArgHandlerOptimize(options));
     registerHandler(new ArgHandlerScriptStyle(options));
     registerHandler(new ArgHandlerSoyc(options));
@@ -16,6 +16,7 @@
 
 package com.google.gwt.dev;
 
+import com.google.gwt.dev.jjs.InliningPreset;
 import com.google.gwt.dev.jjs.JJSOptionsImpl;
 import com.google.gwt.dev.jjs.JsOutputOption;
 
@@ -63,6 +64,11 @@ class PrecompileTaskOptionsImpl extends CompileTaskOptionsImpl implements Precom
     return genDir;
   }
 
+  @Override
+  public InliningPreset getInliningPreset() {
+    return jjsOptions.getInliningPreset();
+  }
+
   @Override
   public int getMaxPermsPerPrecompile() {
     return maxPermsPerPrecompile;
@@ -224,11 +230,21 @@ class PrecompileTaskOptionsImpl extends CompileTaskOptionsImpl implements Precom
     jjsOptions.setInlineLiteralParameters(enabled);
   }
 
+  @Override
+  public void setInliningPreset(InliningPreset preset) {
+    jjsOptions.setInliningPreset(preset);
+  }
+
   @Override
   public void setMaxPermsPerPrecompile(int maxPermsPerPrecompile) {
     this.maxPermsPerPrecompile = maxPermsPerPrecompile;
   }
 
+  @Override
+  public void setNameByFrequency(boolean enabled) {
+    jjsOptions.setNameByFrequency(enabled);
+  }
+
   @Override
   public void setOptimizationLevel(int level) {
     jjsOptions.setOptimizationLevel(level);
@@ -299,6 +315,11 @@ class PrecompileTaskOptionsImpl extends CompileTaskOptionsImpl implements Precom
     return jjsOptions.shouldInlineLiteralParameters();
   }
 
+  @Override
+  public boolean shouldNameByFrequency() {
+    return jjsOptions.shouldNameByFrequency();
+  }
+
   @Override
   public boolean shouldOptimizeDataflow() {
     return jjsOptions.shouldOptimizeDataflow();
@@ -21,25 +21,59 @@ import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
+import com.google.gwt.dev.util.xml.RecordedDocument;
 import com.google.gwt.dev.util.xml.ReflectiveParser;
 import com.google.gwt.thirdparty.guava.common.collect.MapMaker;
 import com.google.gwt.util.tools.Utility;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * The top-level API for loading module XML.
+ * <p>
+ * The parsed form of each module XML file is kept until the module cache is
+ * cleared, so reloading an unchanged module only replays the parsed XML into a
+ * new {@link ModuleDef}. If the {@value #THREADS_PROPERTY} system property is
+ * greater than 1, the modules a newly parsed module inherits are read and
+ * parsed in the background while the module itself is applied. Modules are
+ * always applied one at a time, in document order.
  */
 public class ModuleDefLoader {
   /*
    * TODO(scottb,tobyr,zundel): synchronization????
    */
 
+  /**
+   * The parsed form of one version of a module XML file.
+   */
+  private static class ParsedXml {
+    final Future<RecordedDocument> document;
+    final String strongName;
+
+    ParsedXml(String strongName, Future<RecordedDocument> document) {
+      this.strongName = strongName;
+      this.document = document;
+    }
+  }
+
   /**
    * Filename suffix used for GWT Module XML files.
    */
@@ -50,6 +84,13 @@ public class ModuleDefLoader {
    */
   public static final String COMPILATION_UNIT_ARCHIVE_SUFFIX = ".gwtar";
 
+  /**
+   * A Java system property giving the number of threads that parse inherited
+   * module XML ahead of time. Defaults to 1, which parses each module when it
+   * is applied.
+   */
+  public static final String THREADS_PROPERTY = "gwt.moduleDefLoader.threads";
+
   /**
    * Keep soft references to loaded modules so the VM can gc them when memory is
    * tight. The current context class loader used as a key for modules cache.
@@ -64,8 +105,25 @@ public class ModuleDefLoader {
   private static final Map<String, String> moduleEffectiveNameToPhysicalName =
     new HashMap<String, String>();
 
+  /**
+   * Parsed module XML, keyed by the URL of the file. An entry is replaced when
+   * the file's contents change, and removed if they cannot be parsed. Parsed
+   * documents are small and immutable, so they are shared by every loader.
+   */
+  private static final ConcurrentMap<String, ParsedXml> parsedXmlCache =
+      new ConcurrentHashMap<String, ParsedXml>();
+
+  /**
+   * Parses inherited modules ahead of time, or <code>null</code> if
+   * {@value #THREADS_PROPERTY} is 1.
+   */
+  private static ExecutorService parseExecutor;
+
+  private static boolean parseExecutorCreated;
+
   public static void clearModuleCache() {
     getModulesCache().clear();
+    parsedXmlCache.clear();
   }
 
   /**
@@ -217,6 +275,26 @@ public class ModuleDefLoader {
     return cache;
   }
   
+  private static synchronized ExecutorService getParseExecutor() {
+    if (!parseExecutorCreated) {
+      parseExecutorCreated = true;
+      int threads = Integer.getInteger(THREADS_PROPERTY, 1);
+      if (threads > 1) {
+        parseExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+          private int count;
+
+          @Override
+          public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ModuleDefLoader " + count++);
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+      }
+    }
+    return parseExecutor;
+  }
+
   private static ModuleDef tryGetLoadedModule(String moduleName, boolean refresh) {
     ModuleDef moduleDef = getModulesCache().get(moduleName);
     if (moduleDef == null || moduleDef.isGwtXmlFileStale()) {
@@ -227,6 +305,12 @@ public class ModuleDefLoader {
     return moduleDef;
   }
 
+  /**
+   * The modules this loader has already scheduled to be parsed ahead of time.
+   */
+  private final Set<String> parsedAheadModuleNames =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
   private final ResourceLoader resourceLoader;
 
   private ModuleDefLoader(ResourceLoader loader) {
@@ -312,14 +396,20 @@ public class ModuleDefLoader {
       moduleDir = slashedModuleName.substring(0, i) + "/";
     }
 
-    // Parse it.
+    // Parse it, or replay it if it was parsed before.
     //
+    RecordedDocument document = getDocument(moduleURL);
     Reader r = null;
     try {
-      r = Util.createReader(logger, moduleURL);
       ModuleDefSchema schema = new ModuleDefSchema(logger, this, moduleName,
           moduleURL, moduleDir, moduleDef);
-      ReflectiveParser.parse(logger, schema, r);
+      if (document != null) {
+        ReflectiveParser.parse(logger, schema, document);
+      } else {
+        // Let the parser report what is wrong.
+        r = Util.createReader(logger, moduleURL);
+        ReflectiveParser.parse(logger, schema, r);
+      }
     } catch (Throwable e) {
       logger.log(TreeLogger.ERROR, "Unexpected error while processing XML", e);
       throw new UnableToCompleteException();
@@ -327,4 +417,81 @@ public class ModuleDefLoader {
       Utility.close(r);
     }
   }
+
+  /**
+   * Returns the parsed contents of <code>moduleURL</code>, parsing them unless
+   * the same contents were parsed from the same URL before.
+   *
+   * @return the parsed document, or <code>null</code> if the contents cannot
+   *         be read or are not well-formed
+   */
+  private RecordedDocument getDocument(URL moduleURL) {
+    final byte[] contents = Util.readURLAsBytes(moduleURL);
+    if (contents == null) {
+      return null;
+    }
+    FutureTask<RecordedDocument> task =
+        new FutureTask<RecordedDocument>(new Callable<RecordedDocument>() {
+          @Override
+          public RecordedDocument call() throws Exception {
+            // Decode the same way Util.createReader() does.
+            RecordedDocument document =
+                RecordedDocument.record(new InputStreamReader(new ByteArrayInputStream(contents)));
+            parseInheritedModulesAhead(document);
+            return document;
+          }
+        });
+    String key = moduleURL.toExternalForm();
+    String strongName = Util.computeStrongName(contents);
+    ParsedXml parsed;
+    while (true) {
+      ParsedXml cached = parsedXmlCache.get(key);
+      if (cached != null && cached.strongName.equals(strongName)) {
+        parsed = cached;
+        break;
+      }
+      parsed = new ParsedXml(strongName, task);
+      if (cached == null ? parsedXmlCache.putIfAbsent(key, parsed) == null
+          : parsedXmlCache.replace(key, cached, parsed)) {
+        task.run();
+        break;
+      }
+    }
+    try {
+      return parsed.document.get();
+    } catch (ExecutionException e) {
+      parsedXmlCache.remove(key, parsed);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Schedules the modules inherited by a newly parsed module to be parsed in
+   * the background, if {@value #THREADS_PROPERTY} allows. Failures are left
+   * for {@link #nestedLoad} to report when it gets to the module.
+   */
+  private void parseInheritedModulesAhead(RecordedDocument document) {
+    ExecutorService executor = getParseExecutor();
+    if (executor == null) {
+      return;
+    }
+    for (final String moduleName : document.getAttributeValues("inherits", "name")) {
+      if (!ModuleDef.isValidModuleName(moduleName) || !parsedAheadModuleNames.add(moduleName)) {
+        continue;
+      }
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          URL moduleURL = resourceLoader.getResource(moduleName.replace('.', '/')
+              + GWT_MODULE_XML_SUFFIX);
+          if (moduleURL != null) {
+            getDocument(moduleURL);
+          }
+        }
+      });
+    }
+  }
 }
@@ -22,6 +22,7 @@ import com.google.gwt.core.ext.IncrementalGenerator;
 import com.google.gwt.core.ext.PropertyOracle;
 import com.google.gwt.core.ext.RebindResult;
 import com.google.gwt.core.ext.RebindRuleResolver;
+import com.google.gwt.core.ext.ThreadSafeGenerator;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.linker.Artifact;
@@ -59,6 +60,13 @@ import java.util.SortedSet;
 
 /**
  * Manages generators and generated units during a single compilation.
+ * <p>
+ * The property oracle, rule resolver, current generator and cached rebind
+ * result describe the rebind in progress and are tracked per thread. Generated
+ * units, resources and artifacts may be created and committed from several
+ * threads at once, which allows {@link ThreadSafeGenerator}s to run
+ * concurrently; other generators never overlap with themselves.
+ * {@link #finish} must only be called once no generators are running.
  */
 public class StandardGeneratorContext implements GeneratorContext {
 
@@ -277,10 +285,18 @@ public class StandardGeneratorContext implements GeneratorContext {
 
   private CompilationState compilationState;
 
-  private Class<? extends Generator> currentGenerator;
+  private final ThreadLocal<Class<? extends Generator>> currentGenerator =
+      new ThreadLocal<Class<? extends Generator>>();
 
   private final File genDir;
 
+  /**
+   * Held while running a generator that is not a {@link ThreadSafeGenerator},
+   * keyed by generator class.
+   */
+  private final Map<Class<? extends Generator>, Object> generatorLocks =
+      new IdentityHashMap<Class<? extends Generator>, Object>();
+
   private final Map<Class<? extends Generator>, Generator> generators =
       new IdentityHashMap<Class<? extends Generator>, Generator>();
 
@@ -293,18 +309,21 @@ public class StandardGeneratorContext implements GeneratorContext {
   private final Map<String, PendingResource> pendingResources =
       new HashMap<String, PendingResource>();
 
-  private transient PropertyOracle propOracle;
+  private final ThreadLocal<PropertyOracle> propOracle = new ThreadLocal<PropertyOracle>();
 
-  private RebindRuleResolver rebindRuleResolver;
+  private final ThreadLocal<RebindRuleResolver> rebindRuleResolver =
+      new ThreadLocal<RebindRuleResolver>();
 
   private final Map<PrintWriter, Generated> uncommittedGeneratedCupsByPrintWriter =
       new IdentityHashMap<PrintWriter, Generated>();
 
-  private CachedGeneratorResultImpl cachedRebindResult = null;
+  private final ThreadLocal<CachedGeneratorResultImpl> cachedRebindResult =
+      new ThreadLocal<CachedGeneratorResultImpl>();
 
   private boolean generatorResultCachingEnabled = false;
 
-  private List<String> cachedTypeNamesToReuse = null;
+  private final ThreadLocal<List<String>> cachedTypeNamesToReuse =
+      new ThreadLocal<List<String>>();
 
   private boolean isProdMode;
 
@@ -325,7 +344,7 @@ public class StandardGeneratorContext implements GeneratorContext {
    * Adds a generated unit to the context if not already present, but will not
    * overwrite an existing unit.
    */
-  public void addGeneratedUnit(GeneratedUnit gu) {
+  public synchronized void addGeneratedUnit(GeneratedUnit gu) {
     if (!committedGeneratedCups.containsKey(gu.getTypeName())) {
       committedGeneratedCups.put(gu.getTypeName(), gu);
     }
@@ -346,8 +365,9 @@ public class StandardGeneratorContext implements GeneratorContext {
    * for a given type will not be overwritten.
    */
   public void addGeneratedUnitsFromCache() {
-    if (cachedRebindResult != null && cachedRebindResult.getGeneratedUnits() != null) {
-      addGeneratedUnits(cachedRebindResult.getGeneratedUnits());
+    CachedGeneratorResultImpl cachedResult = cachedRebindResult.get();
+    if (cachedResult != null && cachedResult.getGeneratedUnits() != null) {
+      addGeneratedUnits(cachedResult.getGeneratedUnits());
     }
   }
 
@@ -356,9 +376,11 @@ public class StandardGeneratorContext implements GeneratorContext {
    * Existing units for a given type will not be overwritten.
    */
   public void addGeneratedUnitsMarkedForReuseFromCache() {
-    if (cachedTypeNamesToReuse != null && cachedRebindResult != null) {
-      for (String typeName : cachedTypeNamesToReuse) {
-        GeneratedUnit gu = cachedRebindResult.getGeneratedUnit(typeName);
+    List<String> typeNamesToReuse = cachedTypeNamesToReuse.get();
+    CachedGeneratorResultImpl cachedResult = cachedRebindResult.get();
+    if (typeNamesToReuse != null && cachedResult != null) {
+      for (String typeName : typeNamesToReuse) {
+        GeneratedUnit gu = cachedResult.getGeneratedUnit(typeName);
         if (gu != null) {
           addGeneratedUnit(gu);
         }
@@ -371,17 +393,29 @@ public class StandardGeneratorContext implements GeneratorContext {
    */
   @Override
   public boolean checkRebindRuleAvailable(String sourceTypeName) {
-    if (rebindRuleResolver != null) {
-      return rebindRuleResolver.checkRebindRuleResolvable(sourceTypeName);
+    RebindRuleResolver resolver = rebindRuleResolver.get();
+    if (resolver != null) {
+      return resolver.checkRebindRuleResolvable(sourceTypeName);
     } else {
       return false;
     }
   }
 
+  /**
+   * Clears the cached rebind result, and the cached types marked for reuse,
+   * left by the rebind that just ended on the calling thread. Must be called
+   * on the thread that ran the rebind, so that a later rebind on the same
+   * thread starts clean.
+   */
+  public void clearCachedRebindState() {
+    cachedRebindResult.remove();
+    cachedTypeNamesToReuse.remove();
+  }
+
   /**
    * Frees memory used up by compilation state.
    */
-  public void clear() {
+  public synchronized void clear() {
     compilationState = null;
     generators.clear();
   }
@@ -391,11 +425,16 @@ public class StandardGeneratorContext implements GeneratorContext {
    */
   @Override
   public final void commit(TreeLogger logger, PrintWriter pw) {
-    Generated gcup = uncommittedGeneratedCupsByPrintWriter.get(pw);
+    Generated gcup;
+    synchronized (this) {
+      gcup = uncommittedGeneratedCupsByPrintWriter.remove(pw);
+    }
     if (gcup != null) {
+      // Hashing and writing the source can be slow; don't hold the lock.
       gcup.commit(logger);
-      uncommittedGeneratedCupsByPrintWriter.remove(pw);
-      committedGeneratedCups.put(gcup.getTypeName(), gcup);
+      synchronized (this) {
+        committedGeneratedCups.put(gcup.getTypeName(), gcup);
+      }
     } else {
       logger.log(TreeLogger.WARN, "Generator attempted to commit an unknown PrintWriter", null);
     }
@@ -409,7 +448,7 @@ public class StandardGeneratorContext implements GeneratorContext {
    * run).
    */
   @Override
-  public void commitArtifact(TreeLogger logger, Artifact<?> artifact) {
+  public synchronized void commitArtifact(TreeLogger logger, Artifact<?> artifact) {
     allGeneratedArtifacts.replace(artifact);
     newlyGeneratedArtifacts.add(artifact);
   }
@@ -418,15 +457,16 @@ public class StandardGeneratorContext implements GeneratorContext {
    * Commits all available cached Artifacts to the context.
    */
   public void commitArtifactsFromCache(TreeLogger logger) {
-    if (cachedRebindResult != null && cachedRebindResult.getArtifacts() != null) {
-      for (Artifact<?> art : cachedRebindResult.getArtifacts()) {
+    CachedGeneratorResultImpl cachedResult = cachedRebindResult.get();
+    if (cachedResult != null && cachedResult.getArtifacts() != null) {
+      for (Artifact<?> art : cachedResult.getArtifacts()) {
         commitArtifact(logger, art);
       }
     }
   }
 
   @Override
-  public GeneratedResource commitResource(TreeLogger logger, OutputStream os)
+  public synchronized GeneratedResource commitResource(TreeLogger logger, OutputStream os)
       throws UnableToCompleteException {
 
     PendingResource pendingResource = null;
@@ -446,7 +486,8 @@ public class StandardGeneratorContext implements GeneratorContext {
 
     // Add the GeneratedResource to the ArtifactSet
     GeneratedResource toReturn =
-        new StandardGeneratedResource(currentGenerator, partialPath, pendingResource.takeBytes());
+        new StandardGeneratedResource(currentGenerator.get(), partialPath,
+            pendingResource.takeBytes());
     commitArtifact(logger, toReturn);
     pendingResources.remove(pendingResource.getPartialPath());
     return toReturn;
@@ -462,7 +503,8 @@ public class StandardGeneratorContext implements GeneratorContext {
    * @throw UnableToCompleteException if the compiler aborted (not
    * a normal compile error).</p>
    */
-  public final ArtifactSet finish(TreeLogger logger) throws UnableToCompleteException {
+  public final synchronized ArtifactSet finish(TreeLogger logger)
+      throws UnableToCompleteException {
     abortUncommittedResources(logger);
 
     try {
@@ -505,7 +547,7 @@ public class StandardGeneratorContext implements GeneratorContext {
       committedGeneratedCups.clear();
       newlyGeneratedTypeNames.clear();
       newlyGeneratedArtifacts = new ArtifactSet();
-      cachedTypeNamesToReuse = null;
+      cachedTypeNamesToReuse.remove();
     }
   }
 
@@ -516,7 +558,7 @@ public class StandardGeneratorContext implements GeneratorContext {
   /**
    * Gets newly committed artifacts.
    */
-  public ArtifactSet getArtifacts() {
+  public synchronized ArtifactSet getArtifacts() {
     return new ArtifactSet(newlyGeneratedArtifacts);
   }
 
@@ -525,7 +567,7 @@ public class StandardGeneratorContext implements GeneratorContext {
    */
   @Override
   public CachedGeneratorResult getCachedGeneratorResult() {
-    return cachedRebindResult;
+    return cachedRebindResult.get();
   }
 
   public GeneratorContext getCanonicalContext() {
@@ -539,13 +581,13 @@ public class StandardGeneratorContext implements GeneratorContext {
   /**
    * Gets all committed Java units.
    */
-  public Map<String, GeneratedUnit> getGeneratedUnitMap() {
-    return committedGeneratedCups;
+  public synchronized Map<String, GeneratedUnit> getGeneratedUnitMap() {
+    return new HashMap<String, GeneratedUnit>(committedGeneratedCups);
   }
 
   @Override
   public final PropertyOracle getPropertyOracle() {
-    return propOracle;
+    return propOracle.get();
   }
 
   @Override
@@ -604,81 +646,16 @@ public class StandardGeneratorContext implements GeneratorContext {
     String msg = "Invoking generator " + generatorClass.getName();
     logger = logger.branch(TreeLogger.DEBUG, msg, null);
 
-    Generator generator = generators.get(generatorClass);
-    if (generator == null) {
-      try {
-        generator = generatorClass.newInstance();
-        generators.put(generatorClass, generator);
-      } catch (Throwable e) {
-        logger.log(TreeLogger.ERROR, "Unexpected error trying to instantiate Generator '"
-            + generatorClass.getName() + "'", e);
-        throw new UnableToCompleteException();
-      }
+    Generator generator = getGenerator(logger, generatorClass);
+    if (generator instanceof ThreadSafeGenerator) {
+      return invokeGenerator(logger, generatorClass, generator, typeName);
     }
-
-    setCurrentGenerator(generatorClass);
-
-    // Avoid call to System.currentTimeMillis() if not logging DEBUG level
-    boolean loggable = logger.isLoggable(TreeLogger.DEBUG);
-    long before = loggable ? System.currentTimeMillis() : 0L;
-
-    String generatorClassName = generator.getClass().getName();
-    CompilerEventType type = eventsByGeneratorType.get(generatorClassName);
-
-    if (type == null) {
-      type = CompilerEventType.GENERATOR_OTHER;
-    }
-
-    Event generatorEvent =
-        SpeedTracerLogger.start(type, "class", generatorClassName, "type", typeName);
-
-    try {
-      RebindResult result;
-      if (generator instanceof IncrementalGenerator) {
-        IncrementalGenerator incGenerator = (IncrementalGenerator) generator;
-
-        // check version id for any previously cached rebind result
-        if (cachedRebindResult != null) {
-          Long cachedVersionId = (Long) cachedRebindResult.getClientData(GENERATOR_VERSION_ID_KEY);
-          if (cachedVersionId != null && cachedVersionId != incGenerator.getVersionId()) {
-            // remove from context
-            if (logger.isLoggable(TreeLogger.TRACE)) {
-              logger.log(TreeLogger.TRACE, "Got version mismatch with cached generator result for "
-                  + typeName + ", invalidating cached result");
-            }
-            cachedRebindResult = null;
-          }
-        }
-
-        // run the generator
-        result = incGenerator.generateIncrementally(logger, this, typeName);
-
-        // add version id to the returned result
-        result.putClientData(GENERATOR_VERSION_ID_KEY, incGenerator.getVersionId());
-      } else {
-        // run a non-incremental generator
-        result = IncrementalGenerator.generateNonIncrementally(logger, generator, this, typeName);
-      }
-
-      if (loggable) {
-        long after = System.currentTimeMillis();
-        msg =
-            "Generator returned type '" + result.getResultTypeName() + "; mode "
-                + result.getRebindMode() + "; in " + (after - before) + " ms";
-        logger.log(TreeLogger.DEBUG, msg, null);
-      }
-      return result;
-    } catch (AssertionError e) {
-      // Catch and log the assertion as a convenience to the developer
-      logger.log(TreeLogger.ERROR, "Generator '" + generatorClass.getName()
-          + "' failed an assertion while rebinding '" + typeName + "'", e);
-      throw new UnableToCompleteException();
-    } catch (RuntimeException e) {
-      logger.log(TreeLogger.ERROR, "Generator '" + generatorClass.getName()
-          + "' threw an exception while rebinding '" + typeName + "'", e);
-      throw new UnableToCompleteException();
-    } finally {
-      generatorEvent.end();
+    /*
+     * Generators are shared by every rebind that names their class, so those
+     * that have not declared themselves thread-safe must never overlap.
+     */
+    synchronized (getGeneratorLock(generatorClass)) {
+      return invokeGenerator(logger, generatorClass, generator, typeName);
     }
   }
 
@@ -686,11 +663,11 @@ public class StandardGeneratorContext implements GeneratorContext {
    * Set previously cached rebind result for currently active generator.
    */
   public void setCachedGeneratorResult(CachedGeneratorResult cachedRebindResult) {
-    this.cachedRebindResult = (CachedGeneratorResultImpl) cachedRebindResult;
+    this.cachedRebindResult.set((CachedGeneratorResultImpl) cachedRebindResult);
   }
 
   public void setCurrentGenerator(Class<? extends Generator> currentGenerator) {
-    this.currentGenerator = currentGenerator;
+    this.currentGenerator.set(currentGenerator);
   }
 
   public void setGeneratorResultCachingEnabled(boolean enabled) {
@@ -702,15 +679,16 @@ public class StandardGeneratorContext implements GeneratorContext {
    * questions.
    */
   public void setPropertyOracle(PropertyOracle propOracle) {
-    this.propOracle = propOracle;
+    this.propOracle.set(propOracle);
   }
 
   public void setRebindRuleResolver(RebindRuleResolver resolver) {
-    this.rebindRuleResolver = resolver;
+    this.rebindRuleResolver.set(resolver);
   }
 
   @Override
-  public final PrintWriter tryCreate(TreeLogger logger, String packageName, String simpleTypeName) {
+  public final synchronized PrintWriter tryCreate(TreeLogger logger, String packageName,
+      String simpleTypeName) {
     String typeName;
     if (packageName.length() == 0) {
       typeName = simpleTypeName;
@@ -765,7 +743,7 @@ public class StandardGeneratorContext implements GeneratorContext {
   }
 
   @Override
-  public OutputStream tryCreateResource(TreeLogger logger, String partialPath)
+  public synchronized OutputStream tryCreateResource(TreeLogger logger, String partialPath)
       throws UnableToCompleteException {
 
     logger =
@@ -834,18 +812,50 @@ public class StandardGeneratorContext implements GeneratorContext {
    */
   @Override
   public boolean tryReuseTypeFromCache(String typeName) {
-    if (!isGeneratorResultCachingEnabled() || cachedRebindResult == null
-        || !cachedRebindResult.isTypeCached(typeName)) {
+    CachedGeneratorResultImpl cachedResult = cachedRebindResult.get();
+    if (!isGeneratorResultCachingEnabled() || cachedResult == null
+        || !cachedResult.isTypeCached(typeName)) {
       return false;
     }
 
-    if (cachedTypeNamesToReuse == null) {
-      cachedTypeNamesToReuse = new ArrayList<String>();
+    List<String> typeNamesToReuse = cachedTypeNamesToReuse.get();
+    if (typeNamesToReuse == null) {
+      typeNamesToReuse = new ArrayList<String>();
+      cachedTypeNamesToReuse.set(typeNamesToReuse);
     }
-    cachedTypeNamesToReuse.add(typeName);
+    typeNamesToReuse.add(typeName);
     return true;
   }
 
+  /**
+   * Returns the shared instance of the given generator class, creating it on
+   * first use.
+   */
+  private synchronized Generator getGenerator(TreeLogger logger,
+      Class<? extends Generator> generatorClass) throws UnableToCompleteException {
+    Generator generator = generators.get(generatorClass);
+    if (generator == null) {
+      try {
+        generator = generatorClass.newInstance();
+        generators.put(generatorClass, generator);
+      } catch (Throwable e) {
+        logger.log(TreeLogger.ERROR, "Unexpected error trying to instantiate Generator '"
+            + generatorClass.getName() + "'", e);
+        throw new UnableToCompleteException();
+      }
+    }
+    return generator;
+  }
+
+  private synchronized Object getGeneratorLock(Class<? extends Generator> generatorClass) {
+    Object lock = generatorLocks.get(generatorClass);
+    if (lock == null) {
+      lock = new Object();
+      generatorLocks.put(generatorClass, lock);
+    }
+    return lock;
+  }
+
   private void abortUncommittedResources(TreeLogger logger) {
     if (pendingResources.isEmpty()) {
       // Nothing to do.
@@ -866,4 +876,73 @@ public class StandardGeneratorContext implements GeneratorContext {
     }
     pendingResources.clear();
   }
+
+  private RebindResult invokeGenerator(TreeLogger logger, Class<? extends Generator> generatorClass,
+      Generator generator, String typeName) throws UnableToCompleteException {
+    setCurrentGenerator(generatorClass);
+
+    // Avoid call to System.currentTimeMillis() if not logging DEBUG level
+    boolean loggable = logger.isLoggable(TreeLogger.DEBUG);
+    long before = loggable ? System.currentTimeMillis() : 0L;
+
+    String generatorClassName = generator.getClass().getName();
+    CompilerEventType type = eventsByGeneratorType.get(generatorClassName);
+
+    if (type == null) {
+      type = CompilerEventType.GENERATOR_OTHER;
+    }
+
+    Event generatorEvent =
+        SpeedTracerLogger.start(type, "class", generatorClassName, "type", typeName);
+
+    try {
+      RebindResult result;
+      if (generator instanceof IncrementalGenerator) {
+        IncrementalGenerator incGenerator = (IncrementalGenerator) generator;
+
+        // check version id for any previously cached rebind result
+        CachedGeneratorResultImpl cachedResult = cachedRebindResult.get();
+        if (cachedResult != null) {
+          Long cachedVersionId = (Long) cachedResult.getClientData(GENERATOR_VERSION_ID_KEY);
+          if (cachedVersionId != null && cachedVersionId != incGenerator.getVersionId()) {
+            // remove from context
+            if (logger.isLoggable(TreeLogger.TRACE)) {
+              logger.log(TreeLogger.TRACE, "Got version mismatch with cached generator result for "
+                  + typeName + ", invalidating cached result");
+            }
+            cachedRebindResult.remove();
+          }
+        }
+
+        // run the generator
+        result = incGenerator.generateIncrementally(logger, this, typeName);
+
+        // add version id to the returned result
+        result.putClientData(GENERATOR_VERSION_ID_KEY, incGenerator.getVersionId());
+      } else {
+        // run a non-incremental generator
+        result = IncrementalGenerator.generateNonIncrementally(logger, generator, this, typeName);
+      }
+
+      if (loggable) {
+        long after = System.currentTimeMillis();
+        String msg =
+            "Generator returned type '" + result.getResultTypeName() + "; mode "
+                + result.getRebindMode() + "; in " + (after - before) + " ms";
+        logger.log(TreeLogger.DEBUG, msg, null);
+      }
+      return result;
+    } catch (AssertionError e) {
+      // Catch and log the assertion as a convenience to the developer
+      logger.log(TreeLogger.ERROR, "Generator '" + generatorClass.getName()
+          + "' failed an assertion while rebinding '" + typeName + "'", e);
+      throw new UnableToCompleteException();
+    } catch (RuntimeException e) {
+      logger.log(TreeLogger.ERROR, "Generator '" + generatorClass.getName()
+          + "' threw an exception while rebinding '" + typeName + "'", e);
+      throw new UnableToCompleteException();
+    } finally {
+      generatorEvent.end();
+    }
+  }
 }
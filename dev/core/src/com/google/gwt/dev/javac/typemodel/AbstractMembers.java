@@ -27,8 +27,8 @@ import java.util.TreeMap;
 abstract class AbstractMembers {
 
   protected final JClassType classType;
-  private JMethod[] cachedInheritableMethods;
-  private JMethod[] cachedOverridableMethods;
+  private volatile JMethod[] cachedInheritableMethods;
+  private volatile JMethod[] cachedOverridableMethods;
 
   public AbstractMembers(JClassType classType) {
     this.classType = classType;
@@ -83,7 +83,8 @@ abstract class AbstractMembers {
   public abstract JField[] getFields();
 
   public JMethod[] getInheritableMethods() {
-    if (cachedInheritableMethods == null) {
+    JMethod[] inheritableMethods = cachedInheritableMethods;
+    if (inheritableMethods == null) {
       Map<String, JMethod> methodsBySignature = new TreeMap<String, JMethod>();
       getInheritableMethodsOnSuperinterfacesAndMaybeThisInterface(methodsBySignature);
       if (classType.isClass() != null) {
@@ -91,13 +92,14 @@ abstract class AbstractMembers {
       }
       int size = methodsBySignature.size();
       if (size == 0) {
-        cachedInheritableMethods = TypeOracle.NO_JMETHODS;
+        inheritableMethods = TypeOracle.NO_JMETHODS;
       } else {
         Collection<JMethod> leafMethods = methodsBySignature.values();
-        cachedInheritableMethods = leafMethods.toArray(new JMethod[size]);
+        inheritableMethods = leafMethods.toArray(new JMethod[size]);
       }
+      cachedInheritableMethods = inheritableMethods;
     }
-    return cachedInheritableMethods;
+    return inheritableMethods;
   }
 
   public JMethod getMethod(String name, JType[] paramTypes)
@@ -126,7 +128,8 @@ abstract class AbstractMembers {
   public abstract JMethod[] getOverloads(String name);
 
   public JMethod[] getOverridableMethods() {
-    if (cachedOverridableMethods == null) {
+    JMethod[] overridableMethods = cachedOverridableMethods;
+    if (overridableMethods == null) {
       JMethod[] inheritableMethods = getInheritableMethods();
       ArrayList<JMethod> methods = new ArrayList<JMethod>(
           inheritableMethods.length);
@@ -137,12 +140,13 @@ abstract class AbstractMembers {
       }
       int size = methods.size();
       if (size == 0) {
-        cachedOverridableMethods = TypeOracle.NO_JMETHODS;
+        overridableMethods = TypeOracle.NO_JMETHODS;
       } else {
-        cachedOverridableMethods = methods.toArray(new JMethod[size]);
+        overridableMethods = methods.toArray(new JMethod[size]);
       }
+      cachedOverridableMethods = overridableMethods;
     }
-    return cachedOverridableMethods;
+    return overridableMethods;
   }
 
   protected abstract void addConstructor(JConstructor ctor);
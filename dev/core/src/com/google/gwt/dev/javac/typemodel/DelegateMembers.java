@@ -34,6 +34,9 @@ class DelegateMembers extends AbstractMembers {
    * computed as lazily as possible. Many, many more parameterized types, raw
    * types, type bindings, or wilcard types can be created than real classes,
    * and computing anything up front would add runtime overhead and memory.
+   *
+   * Members are initialized under this object's lock, since types may be
+   * shared by generators running concurrently.
    */
 
   private final JClassType baseType;
@@ -100,7 +103,7 @@ class DelegateMembers extends AbstractMembers {
   }
 
   @Override
-  protected List<JConstructor> doGetConstructors() {
+  protected synchronized List<JConstructor> doGetConstructors() {
     if (lazyConstructors != null) {
       /*
        * Return if the constructors are being initialized or have been
@@ -126,7 +129,7 @@ class DelegateMembers extends AbstractMembers {
     return Maps.create();
   }
 
-  private void initFields() {
+  private synchronized void initFields() {
     if (fields != null) {
       return;
     }
@@ -161,7 +164,7 @@ class DelegateMembers extends AbstractMembers {
   }
 
   @SuppressWarnings("unchecked")
-  private void initMethods() {
+  private synchronized void initMethods() {
     if (methods != null) {
       return;
     }
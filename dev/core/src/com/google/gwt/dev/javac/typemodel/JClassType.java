@@ -47,7 +47,8 @@ public abstract class JClassType implements
       flattened = new LinkedHashSet<JClassType>();
       getFlattenedSuperTypeHierarchyRecursive(type, flattened);
       // flattened.size() > 1 for all types other than Object
-      type.flattenedSupertypes = Collections.unmodifiableSet(flattened);
+      flattened = Collections.unmodifiableSet(flattened);
+      type.flattenedSupertypes = flattened;
     }
     return flattened;
   }
@@ -339,7 +340,7 @@ public abstract class JClassType implements
    * Cached set of supertypes for this type (including itself). If null, the set
    * has not been calculated yet.
    */
-  private Set<JClassType> flattenedSupertypes;
+  private volatile Set<JClassType> flattenedSupertypes;
 
   /**
    * True if this type may be enhanced with server-only fields. This property is
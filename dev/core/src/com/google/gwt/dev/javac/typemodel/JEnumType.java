@@ -23,7 +23,7 @@ import java.util.List;
  */
 public class JEnumType extends JRealClassType implements
     com.google.gwt.core.ext.typeinfo.JEnumType {
-  private JEnumConstant[] lazyEnumConstants;
+  private volatile JEnumConstant[] lazyEnumConstants;
 
   JEnumType(TypeOracle oracle, JPackage declaringPackage,
       String enclosingTypeName, String name) {
@@ -82,7 +82,7 @@ public class JGenericType extends JRealClassType implements
     return sb.toString();
   }
 
-  public JRawType getRawType() {
+  public synchronized JRawType getRawType() {
     if (lazyRawType == null) {
       lazyRawType = new JRawType(this);
     }
@@ -72,15 +72,15 @@ public class JParameterizedType extends JMaybeParameterizedType implements
 
   private final JClassType enclosingType;
 
-  private List<JClassType> interfaces;
+  private volatile List<JClassType> interfaces;
 
   /**
    * This map records the JClassType that should be used in place of a given
    * {@link JTypeParameter}.
    */
-  private Map<JTypeParameter, JClassType> lazySubstitutionMap;
+  private volatile Map<JTypeParameter, JClassType> lazySubstitutionMap;
 
-  private JClassType lazySuperclass;
+  private volatile JClassType lazySuperclass;
 
   private final AbstractMembers members;
 
@@ -156,16 +156,18 @@ public class JParameterizedType extends JMaybeParameterizedType implements
 
   @Override
   public JClassType[] getImplementedInterfaces() {
-    if (interfaces == null) {
-      interfaces = new ArrayList<JClassType>();
+    List<JClassType> intfList = interfaces;
+    if (intfList == null) {
+      intfList = new ArrayList<JClassType>();
       JClassType[] intfs = getBaseType().getImplementedInterfaces();
       for (JClassType intf : intfs) {
         JClassType newIntf = intf.getSubstitutedType(this);
-        interfaces.add(newIntf);
+        intfList.add(newIntf);
       }
-      interfaces = Lists.normalize(interfaces);
+      intfList = Lists.normalize(intfList);
+      interfaces = intfList;
     }
-    return interfaces.toArray(TypeOracle.NO_JCLASSES);
+    return intfList.toArray(TypeOracle.NO_JCLASSES);
   }
 
   @Override
@@ -315,14 +317,16 @@ public class JParameterizedType extends JMaybeParameterizedType implements
       return null;
     }
 
-    if (lazySuperclass == null) {
+    JClassType substitutedSuperclass = lazySuperclass;
+    if (substitutedSuperclass == null) {
       JGenericType baseType = getBaseType();
       JClassType superclass = baseType.getSuperclass();
       assert (superclass != null);
-      lazySuperclass = superclass.getSubstitutedType(this);
+      substitutedSuperclass = superclass.getSubstitutedType(this);
+      lazySuperclass = substitutedSuperclass;
     }
 
-    return lazySuperclass;
+    return substitutedSuperclass;
   }
 
   public JClassType[] getTypeArgs() {
@@ -442,7 +446,8 @@ public class JParameterizedType extends JMaybeParameterizedType implements
     if (lazySubstitutionMap != null) {
       return;
     }
-    lazySubstitutionMap = new IdentityHashMap<JTypeParameter, JClassType>();
+    Map<JTypeParameter, JClassType> substitutionMap =
+        new IdentityHashMap<JTypeParameter, JClassType>();
 
     JParameterizedType currentParameterizedType = this;
 
@@ -452,7 +457,7 @@ public class JParameterizedType extends JMaybeParameterizedType implements
       JClassType[] typeArguments = currentParameterizedType.getTypeArgs();
 
       for (JTypeParameter typeParameter : typeParameters) {
-        lazySubstitutionMap.put(typeParameter,
+        substitutionMap.put(typeParameter,
             typeArguments[typeParameter.getOrdinal()]);
       }
 
@@ -467,7 +472,7 @@ public class JParameterizedType extends JMaybeParameterizedType implements
       }
       currentParameterizedType = maybeParameterizedType.isParameterized();
     }
-    lazySubstitutionMap = Maps.normalize(lazySubstitutionMap);
+    lazySubstitutionMap = Maps.normalize(substitutionMap);
   }
 
   void setTypeArguments(JClassType[] typeArgs) {
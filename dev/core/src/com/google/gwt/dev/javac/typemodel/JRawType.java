@@ -33,7 +33,7 @@ public class JRawType extends JMaybeParameterizedType implements
     }
   };
 
-  private List<JClassType> interfaces;
+  private volatile List<JClassType> interfaces;
 
   private final AbstractMembers members;
 
@@ -93,15 +93,17 @@ public class JRawType extends JMaybeParameterizedType implements
 
   @Override
   public JClassType[] getImplementedInterfaces() {
-    if (interfaces == null) {
-      interfaces = new ArrayList<JClassType>();
+    List<JClassType> intfList = interfaces;
+    if (intfList == null) {
+      intfList = new ArrayList<JClassType>();
       JClassType[] intfs = getBaseType().getImplementedInterfaces();
       for (JClassType intf : intfs) {
         JClassType newIntf = intf.getErasedType();
-        interfaces.add(newIntf);
+        intfList.add(newIntf);
       }
+      interfaces = intfList;
     }
-    return interfaces.toArray(TypeOracle.NO_JCLASSES);
+    return intfList.toArray(TypeOracle.NO_JCLASSES);
   }
 
   @Override
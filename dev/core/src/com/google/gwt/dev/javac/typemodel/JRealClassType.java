@@ -247,29 +247,33 @@ public class JRealClassType extends JClassType implements
 
   @Override
   public String getQualifiedBinaryName() {
-    if (lazyQualifiedBinaryName == null) {
-      lazyQualifiedBinaryName = "";
+    String qualifiedBinaryName = lazyQualifiedBinaryName;
+    if (qualifiedBinaryName == null) {
+      qualifiedBinaryName = "";
       JPackage pkg = getPackage();
       if (!pkg.isDefault()) {
-        lazyQualifiedBinaryName = pkg.getName() + ".";
+        qualifiedBinaryName = pkg.getName() + ".";
       }
-      lazyQualifiedBinaryName += nestedName.replace('.', '$');
+      qualifiedBinaryName += nestedName.replace('.', '$');
+      lazyQualifiedBinaryName = qualifiedBinaryName;
     }
-    return lazyQualifiedBinaryName;
+    return qualifiedBinaryName;
   }
 
   @Override
   public String getQualifiedSourceName() {
-    if (lazyQualifiedName == null) {
+    String qualifiedName = lazyQualifiedName;
+    if (qualifiedName == null) {
       JPackage pkg = getPackage();
       if (!pkg.isDefault()) {
-        lazyQualifiedName = pkg.getName() + "." + nestedName;
+        qualifiedName = pkg.getName() + "." + nestedName;
       } else {
-        lazyQualifiedName = nestedName;
+        qualifiedName = nestedName;
       }
-      lazyQualifiedName = StringInterner.get().intern(lazyQualifiedName);
+      qualifiedName = StringInterner.get().intern(qualifiedName);
+      lazyQualifiedName = qualifiedName;
     }
-    return lazyQualifiedName;
+    return qualifiedName;
   }
 
   @Override
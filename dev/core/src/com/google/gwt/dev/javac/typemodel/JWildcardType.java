@@ -25,8 +25,8 @@ public class JWildcardType extends JDelegatingClassType implements
     com.google.gwt.core.ext.typeinfo.JWildcardType {
 
   private final BoundType boundType;
-  private JClassType[] lazyLowerBounds;
-  private JClassType[] lazyUpperBounds;
+  private volatile JClassType[] lazyLowerBounds;
+  private volatile JClassType[] lazyUpperBounds;
 
   JWildcardType(BoundType boundType, JClassType typeBound) {
     this.boundType = boundType;
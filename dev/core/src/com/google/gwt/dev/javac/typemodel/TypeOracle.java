@@ -41,6 +41,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Provides type-related information about a set of types.
@@ -278,14 +279,15 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
 
   /**
    * Cached types that represent Arrays of other types. These types are created
-   * as needed.
+   * as needed, possibly by concurrently running generators.
    */
-  private final Map<JType, JArrayType> arrayTypes = new MapMaker().weakKeys().weakValues().makeMap();
+  private final ConcurrentMap<JType, JArrayType> arrayTypes =
+      new MapMaker().weakKeys().weakValues().makeMap();
 
   /**
    * Cached singleton type representing <code>java.lang.Object</code>.
    */
-  private JClassType javaLangObject;
+  private volatile JClassType javaLangObject;
 
   private final JavaSourceParser javaSourceParser = new JavaSourceParser();
 
@@ -302,9 +304,9 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
 
   /**
    * Subclasses of generic types that have type parameters filled in. These
-   * types are created as needed.
+   * types are created as needed, possibly by concurrently running generators.
    */
-  private final Map<ParameterizedTypeKey, JParameterizedType> parameterizedTypes =
+  private final ConcurrentMap<ParameterizedTypeKey, JParameterizedType> parameterizedTypes =
       new MapMaker().weakValues().makeMap();
 
   /**
@@ -313,9 +315,10 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
    */
   private final List<JRealClassType> recentTypes = new ArrayList<JRealClassType>();
 
-  private JWildcardType unboundWildCardType;
+  private volatile JWildcardType unboundWildCardType;
 
-  private final Map<WildCardKey, JWildcardType> wildcardTypes = new MapMaker().weakValues().makeMap();
+  private final ConcurrentMap<WildCardKey, JWildcardType> wildcardTypes =
+      new MapMaker().weakValues().makeMap();
 
   public TypeOracle() {
     // Always create the default package.
@@ -383,7 +386,10 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
     JArrayType arrayType = arrayTypes.get(componentType);
     if (arrayType == null) {
       arrayType = new JArrayType(componentType, this);
-      arrayTypes.put(componentType, arrayType);
+      JArrayType existing = arrayTypes.putIfAbsent(componentType, arrayType);
+      if (existing != null) {
+        arrayType = existing;
+      }
     }
     return arrayType;
   }
@@ -394,11 +400,13 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
    */
   @Override
   public JClassType getJavaLangObject() {
-    if (javaLangObject == null) {
-      javaLangObject = findType("java.lang.Object");
-      assert javaLangObject != null;
+    JClassType object = javaLangObject;
+    if (object == null) {
+      object = findType("java.lang.Object");
+      assert object != null;
+      javaLangObject = object;
     }
-    return javaLangObject;
+    return object;
   }
 
   /**
@@ -508,8 +516,8 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
     // bounds if any were specified
 
     result = new JParameterizedType(genericType, enclosingType, typeArgs);
-    parameterizedTypes.put(key, result);
-    return result;
+    JParameterizedType existing = parameterizedTypes.putIfAbsent(key, result);
+    return existing != null ? existing : result;
   }
 
   /**
@@ -623,22 +631,25 @@ public class TypeOracle extends com.google.gwt.core.ext.typeinfo.TypeOracle {
     // Special fast case for <? extends Object>
     // TODO(amitmanjhi): make sure this actually does speed things up!
     JClassType typeBound = (JClassType) extTypeBound;
-    if (typeBound == getJavaLangObject() && boundType == BoundType.UNBOUND) {
-      if (unboundWildCardType == null) {
-        unboundWildCardType = new JWildcardType(boundType, typeBound);
-      }
+    boolean unbound = typeBound == getJavaLangObject() && boundType == BoundType.UNBOUND;
+    if (unbound && unboundWildCardType != null) {
       return unboundWildCardType;
     }
     // End special case / todo.
 
     WildCardKey key = new WildCardKey(boundType, typeBound);
     JWildcardType result = wildcardTypes.get(key);
-    if (result != null) {
-      return result;
+    if (result == null) {
+      result = new JWildcardType(boundType, typeBound);
+      JWildcardType existing = wildcardTypes.putIfAbsent(key, result);
+      if (existing != null) {
+        result = existing;
+      }
+    }
+    if (unbound) {
+      // Holds the canonical instance, which the map only references weakly.
+      unboundWildCardType = result;
     }
-
-    result = new JWildcardType(boundType, typeBound);
-    wildcardTypes.put(key, result);
     return result;
   }
 
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs;
+
+import java.util.Locale;
+
+/**
+ * How the inliners trade the size of the output against its speed.
+ */
+public enum InliningPreset {
+  /**
+   * Only inline when the output is not expected to grow.
+   */
+  SIZE,
+  /**
+   * Allow some growth for small functions (default).
+   */
+  BALANCED,
+  /**
+   * Inline larger functions, accepting bigger output for fewer calls.
+   */
+  SPEED;
+
+  /**
+   * Returns the preset with the given case-insensitive name, or
+   * <code>null</code> if there is none.
+   */
+  public static InliningPreset fromString(String name) {
+    for (InliningPreset preset : values()) {
+      if (preset.name().equalsIgnoreCase(name)) {
+        return preset;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return name().toLowerCase(Locale.ENGLISH);
+  }
+}
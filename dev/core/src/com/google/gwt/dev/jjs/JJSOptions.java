@@ -24,6 +24,8 @@ import com.google.gwt.dev.util.arg.OptionEnableClosureCompiler;
 import com.google.gwt.dev.util.arg.OptionFragmentCount;
 import com.google.gwt.dev.util.arg.OptionFragmentsMerge;
 import com.google.gwt.dev.util.arg.OptionInlineLiteralParameters;
+import com.google.gwt.dev.util.arg.OptionInliningPreset;
+import com.google.gwt.dev.util.arg.OptionNameByFrequency;
 import com.google.gwt.dev.util.arg.OptionOptimize;
 import com.google.gwt.dev.util.arg.OptionOptimizeDataflow;
 import com.google.gwt.dev.util.arg.OptionOptimizePrecompile;
@@ -46,5 +48,5 @@ public interface JJSOptions extends OptionOptimize, OptionAggressivelyOptimize,
     OptionRunAsyncEnabled, OptionScriptStyle, OptionSoycEnabled, OptionSoycDetailed,
     OptionOptimizePrecompile, OptionOrdinalizeEnums, OptionRemoveDuplicateFunctions, OptionStrict,
     OptionSoycHtmlDisabled, OptionEnableClosureCompiler, OptionFragmentsMerge, OptionFragmentCount,
-    OptionSource {
+    OptionSource, OptionNameByFrequency, OptionInliningPreset {
 }
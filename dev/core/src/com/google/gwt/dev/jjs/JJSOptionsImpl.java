@@ -35,6 +35,8 @@ public class JJSOptionsImpl implements JJSOptions, Serializable {
   private int fragmentCount = -1;
   private int fragmentsMerge = -1;
   private boolean inlineLiteralParameters = true;
+  private InliningPreset inliningPreset = InliningPreset.BALANCED;
+  private boolean nameByFrequency = false;
   private int optimizationLevel = OptionOptimize.OPTIMIZE_LEVEL_DEFAULT;
   private boolean optimizeDataflow = true;
   private boolean optimizePrecompile = false;
@@ -66,6 +68,8 @@ public class JJSOptionsImpl implements JJSOptions, Serializable {
     setFragmentCount(other.getFragmentCount());
     setFragmentsMerge(other.getFragmentsMerge());
     setInlineLiteralParameters(other.shouldInlineLiteralParameters());
+    setInliningPreset(other.getInliningPreset());
+    setNameByFrequency(other.shouldNameByFrequency());
     setOptimizationLevel(other.getOptimizationLevel());
     setOptimizeDataflow(other.shouldOptimizeDataflow());
     setOrdinalizeEnums(other.shouldOrdinalizeEnums());
@@ -89,6 +93,11 @@ public class JJSOptionsImpl implements JJSOptions, Serializable {
     return fragmentsMerge;
   }
 
+  @Override
+  public InliningPreset getInliningPreset() {
+    return inliningPreset;
+  }
+
   @Override
   public int getOptimizationLevel() {
     return optimizationLevel;
@@ -219,6 +228,16 @@ public class JJSOptionsImpl implements JJSOptions, Serializable {
     inlineLiteralParameters = enabled;
   }
 
+  @Override
+  public void setInliningPreset(InliningPreset preset) {
+    inliningPreset = preset;
+  }
+
+  @Override
+  public void setNameByFrequency(boolean enabled) {
+    nameByFrequency = enabled;
+  }
+
   @Override
   public void setOptimizationLevel(int level) {
     optimizationLevel = level;
@@ -289,6 +308,11 @@ public class JJSOptionsImpl implements JJSOptions, Serializable {
     return inlineLiteralParameters;
   }
 
+  @Override
+  public boolean shouldNameByFrequency() {
+    return nameByFrequency;
+  }
+
   @Override
   public boolean shouldOptimizeDataflow() {
     return optimizeDataflow;
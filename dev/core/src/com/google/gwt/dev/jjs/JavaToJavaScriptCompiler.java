@@ -79,6 +79,8 @@ import com.google.gwt.dev.jjs.impl.FixAssignmentToUnbox;
 import com.google.gwt.dev.jjs.impl.GenerateJavaScriptAST;
 import com.google.gwt.dev.jjs.impl.HandleCrossFragmentReferences;
 import com.google.gwt.dev.jjs.impl.ImplementClassLiteralsAsFields;
+import com.google.gwt.dev.jjs.impl.InliningCostModel;
+import com.google.gwt.dev.jjs.impl.InliningProfile;
 import com.google.gwt.dev.jjs.impl.JavaToJavaScriptMap;
 import com.google.gwt.dev.jjs.impl.JsAbstractTextTransformer;
 import com.google.gwt.dev.jjs.impl.JsFunctionClusterer;
@@ -99,6 +101,7 @@ import com.google.gwt.dev.jjs.impl.ReplaceRunAsyncs;
 import com.google.gwt.dev.jjs.impl.ResolveRebinds;
 import com.google.gwt.dev.jjs.impl.SameParameterValueOptimizer;
 import com.google.gwt.dev.jjs.impl.SourceInfoCorrelator;
+import com.google.gwt.dev.jjs.impl.SplitPointLoadProfile;
 import com.google.gwt.dev.jjs.impl.TypeTightener;
 import com.google.gwt.dev.jjs.impl.UnifyAst;
 import com.google.gwt.dev.jjs.impl.VerifySymbolMap;
@@ -116,6 +119,7 @@ import com.google.gwt.dev.js.JsInliner;
 import com.google.gwt.dev.js.JsNormalizer;
 import com.google.gwt.dev.js.JsObfuscateNamer;
 import com.google.gwt.dev.js.JsPrettyNamer;
+import com.google.gwt.dev.js.JsProfileInstrumentor;
 import com.google.gwt.dev.js.JsReportGenerationVisitor;
 import com.google.gwt.dev.js.JsSourceGenerationVisitorWithSizeBreakdown;
 import com.google.gwt.dev.js.JsStackEmulator;
@@ -152,11 +156,17 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 import com.google.gwt.soyc.SoycDashboard;
 import com.google.gwt.soyc.io.ArtifactsOutputDirectory;
 import com.google.gwt.thirdparty.guava.common.collect.Multimap;
+import com.google.gwt.util.tools.Utility;
 
 import org.xml.sax.SAXException;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
@@ -235,6 +245,57 @@ public class JavaToJavaScriptCompiler {
     }
   }
 
+  /**
+   * Buffers a compile report artifact in a temporary file while it is written,
+   * so that large reports are streamed to the disk cache rather than held in
+   * memory. Callers must call {@link #delete} when done, whether or not the
+   * artifact was made.
+   */
+  private static class SoycOutput {
+    private final File file;
+    private final OutputStream out;
+
+    public SoycOutput() throws IOException {
+      file = File.createTempFile("gwt-soyc", ".xml.gz");
+      try {
+        out = new BufferedOutputStream(new FileOutputStream(file));
+      } catch (IOException e) {
+        file.delete();
+        throw e;
+      }
+    }
+
+    /**
+     * Closes the stream and deletes the temporary file.
+     */
+    public void delete() {
+      Utility.close(out);
+      file.delete();
+    }
+
+    public OutputStream getStream() {
+      return out;
+    }
+
+    public boolean isEmpty() throws IOException {
+      out.flush();
+      return file.length() == 0;
+    }
+
+    /**
+     * Closes the stream and copies what was written into an artifact.
+     */
+    public SyntheticArtifact toArtifact(String partialPath) throws IOException {
+      out.close();
+      InputStream in = new FileInputStream(file);
+      try {
+        return new SyntheticArtifact(SoycReportLinker.class, partialPath, in);
+      } finally {
+        Utility.close(in);
+      }
+    }
+  }
+
   private static class TreeStatistics extends JVisitor {
     private int nodeCount = 0;
 
@@ -322,12 +383,19 @@ public class JavaToJavaScriptCompiler {
         instrumentableLines = BaselineCoverageGatherer.exec(jprogram);
       }
 
+      String inliningProfilePath = findStringConfigurationProperty(propertyOracles, logger,
+          InliningProfile.PROFILE, null);
+      InliningProfile inliningProfile = null;
+      if (inliningProfilePath != null && inliningProfilePath.length() > 0) {
+        inliningProfile = InliningProfile.load(logger, jprogram, inliningProfilePath);
+      }
+
       // (4) Optimize the normalized Java AST for each permutation.
       int optimizationLevel = options.getOptimizationLevel();
       if (optimizationLevel == OptionOptimize.OPTIMIZE_LEVEL_DRAFT) {
         draftOptimize(jprogram);
       } else {
-        optimize(options, jprogram);
+        optimize(options, jprogram, inliningProfile);
       }
 
       RemoveEmptySuperCalls.exec(jprogram);
@@ -376,7 +444,9 @@ public class JavaToJavaScriptCompiler {
 
       // (9) Optimize the JS AST.
       if (optimizationLevel > OptionOptimize.OPTIMIZE_LEVEL_DRAFT) {
-        optimizeJs(options, jsProgram, genAstResult.getRight());
+        Set<JsFunction> hotFunctions = inliningProfile == null
+            ? Collections.<JsFunction> emptySet() : inliningProfile.getHotFunctions(jjsmap);
+        optimizeJs(options, jsProgram, genAstResult.getRight(), hotFunctions);
 
         /*
          * Coalesce redundant labels in switch statements.
@@ -389,6 +459,17 @@ public class JavaToJavaScriptCompiler {
        */
       JsStackEmulator.exec(jprogram, jsProgram, propertyOracles, jjsmap);
 
+      /*
+       * Counts method invocations for profile-guided optimization. Also
+       * creates new variables.
+       */
+      if (findBooleanProperty(propertyOracles, logger, JsProfileInstrumentor.PROPERTY_NAME,
+          "true", true, false, false)) {
+        JsProfileInstrumentor.exec(jprogram, jsProgram, jjsmap,
+            findStringConfigurationProperty(propertyOracles, logger,
+                JsProfileInstrumentor.URL_PROPERTY_NAME, null));
+      }
+
       /*
        * Work around Safari 5 bug by rewriting a >> b as ~~a >> b.
        *
@@ -400,38 +481,48 @@ public class JavaToJavaScriptCompiler {
       SyntheticArtifact dependencies = null;
     
       if (options.isRunAsyncEnabled()) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        SoycOutput dependenciesOutput = options.isSoycEnabled() ? new SoycOutput() : null;
+        try {
+          int fragmentsMerge = 0;
         
-        int fragmentsMerge = 0;
-        
-        int expectedFragmentCount = options.getFragmentCount();
-        if (expectedFragmentCount > 0) {
-          // + 1 for left over, + 1 for initial gave us the total number
-          // of fragments without splitting.
-          fragmentsMerge = jprogram.getRunAsyncs().size() + 2 - expectedFragmentCount;
-        } else {
-          fragmentsMerge = options.getFragmentsMerge();
-        }
+          int expectedFragmentCount = options.getFragmentCount();
+          if (expectedFragmentCount > 0) {
+            // + 1 for left over, + 1 for initial gave us the total number
+            // of fragments without splitting.
+            fragmentsMerge = jprogram.getRunAsyncs().size() + 2 - expectedFragmentCount;
+          } else {
+            fragmentsMerge = options.getFragmentsMerge();
+          }
         
-        // Pick and choose which code splitter to use. Only use the experimental
-        // one when the user explicitly decides the project needs fragment
-        // merging.
-        if (fragmentsMerge > 0) {
-          CodeSplitter2.exec(logger, jprogram, jsProgram, jjsmap, fragmentsMerge,
-              chooseDependencyRecorder(options.isSoycEnabled(), baos),
-              findIntegerConfigurationProperty(propertyOracles, logger,
-                  CodeSplitter2.LEFTOVERMERGE_SIZE, 0));
-        } else {
-          CodeSplitter.exec(logger, jprogram, jsProgram, jjsmap, chooseDependencyRecorder(options
-              .isSoycEnabled(), baos));
-        }
-        if (baos.size() == 0 && options.isSoycEnabled()) {
-          recordNonSplitDependencies(jprogram, baos);
-        }
-        if (baos.size() > 0) {
-          dependencies =
-              new SyntheticArtifact(SoycReportLinker.class, "dependencies" + permutationId
-                  + ".xml.gz", baos.toByteArray());
+          // Pick and choose which code splitter to use. Only use the experimental
+          // one when the user explicitly decides the project needs fragment
+          // merging.
+          if (fragmentsMerge > 0) {
+            String loadProfilePath = findStringConfigurationProperty(propertyOracles, logger,
+                CodeSplitter2.LOAD_PROFILE, null);
+            SplitPointLoadProfile loadProfile = null;
+            if (loadProfilePath != null && loadProfilePath.length() > 0) {
+              loadProfile = SplitPointLoadProfile.load(logger, jprogram, loadProfilePath);
+            }
+            CodeSplitter2.exec(logger, jprogram, jsProgram, jjsmap, fragmentsMerge,
+                chooseDependencyRecorder(dependenciesOutput),
+                findIntegerConfigurationProperty(propertyOracles, logger,
+                    CodeSplitter2.LEFTOVERMERGE_SIZE, 0), loadProfile);
+          } else {
+            CodeSplitter.exec(logger, jprogram, jsProgram, jjsmap,
+                chooseDependencyRecorder(dependenciesOutput));
+          }
+          if (dependenciesOutput != null) {
+            if (dependenciesOutput.isEmpty()) {
+              recordNonSplitDependencies(jprogram, dependenciesOutput.getStream());
+            }
+            dependencies =
+                dependenciesOutput.toArtifact("dependencies" + permutationId + ".xml.gz");
+          }
+        } finally {
+          if (dependenciesOutput != null) {
+            dependenciesOutput.delete();
+          }
         }
       }
 
@@ -446,7 +537,7 @@ public class JavaToJavaScriptCompiler {
       switch (options.getOutput()) {
         case OBFUSCATED:
           obfuscateMap = JsStringInterner.exec(jprogram, jsProgram, isIE6orUnknown);
-          JsObfuscateNamer.exec(jsProgram, propertyOracles);
+          JsObfuscateNamer.exec(jsProgram, propertyOracles, options.shouldNameByFrequency());
           if (options.shouldRemoveDuplicateFunctions()) {
             if (JsStackEmulator.getStackMode(propertyOracles) == JsStackEmulator.StackMode.STRIP) {
               boolean changed = false;
@@ -457,7 +548,7 @@ public class JavaToJavaScriptCompiler {
               if (changed) {
                 JsUnusedFunctionRemover.exec(jsProgram);
                 // run again
-                JsObfuscateNamer.exec(jsProgram, propertyOracles);
+                JsObfuscateNamer.exec(jsProgram, propertyOracles, options.shouldNameByFrequency());
               }
             }
           }
@@ -607,6 +698,25 @@ public class JavaToJavaScriptCompiler {
     return toReturn;
   }
 
+  /**
+   * Look for a single-valued string configuration property in all property
+   * oracles.
+   */
+  public static String findStringConfigurationProperty(
+      PropertyOracle[] propertyOracles, TreeLogger logger,
+      String name, String def) {
+    String toReturn = def;
+    for (PropertyOracle oracle : propertyOracles) {
+      try {
+        com.google.gwt.core.ext.ConfigurationProperty property = oracle.getConfigurationProperty(name);
+        List<String> values = property.getValues();
+        toReturn = values.isEmpty() ? def : values.get(0);
+      } catch (Exception e) {
+        break;
+      }
+    }
+    return toReturn;
+  }
 
   public static UnifiedAst precompile(TreeLogger logger, ModuleDef module,
       RebindPermutationOracle rpo, String[] declEntryPts, String[] additionalRootTypes,
@@ -754,7 +864,7 @@ public class JavaToJavaScriptCompiler {
            * common AST. In some cases, this might also have the side benefit of
            * reducing the total permutation count.
            */
-          optimize(options, jprogram);
+          optimize(options, jprogram, null);
         } else {
           /*
            * Do only minimal early optimizations. This code path is used by the
@@ -802,8 +912,8 @@ public class JavaToJavaScriptCompiler {
     draftOptimizeEvent.end();
   }
 
-  protected static void optimize(JJSOptions options, JProgram jprogram)
-      throws InterruptedException {
+  protected static void optimize(JJSOptions options, JProgram jprogram,
+      InliningProfile inliningProfile) throws InterruptedException {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE);
 
     List<OptimizerStats> allOptimizerStats = new ArrayList<OptimizerStats>();
@@ -824,7 +934,8 @@ public class JavaToJavaScriptCompiler {
         throw new InterruptedException();
       }
       AstDumper.maybeDumpAST(jprogram);
-      OptimizerStats stats = optimizeLoop("Pass " + passCount, jprogram, options, nodeCount);
+      OptimizerStats stats =
+          optimizeLoop("Pass " + passCount, jprogram, options, nodeCount, inliningProfile);
       allOptimizerStats.add(stats);
       lastNodeCount = nodeCount;
       nodeCount = getNodeCount(jprogram);
@@ -854,8 +965,9 @@ public class JavaToJavaScriptCompiler {
   }
 
   protected static void optimizeJs(JJSOptions options, JsProgram jsProgram,
-      Collection<JsNode> toInline)
+      Collection<JsNode> toInline, Set<JsFunction> hotFunctions)
       throws InterruptedException {
+    InliningCostModel costModel = InliningCostModel.forPreset(options.getInliningPreset());
     List<OptimizerStats> allOptimizerStats = new ArrayList<OptimizerStats>();
     int counter = 0;
     while (true) {
@@ -870,7 +982,7 @@ public class JavaToJavaScriptCompiler {
       // Remove unused functions, possible
       stats.add(JsStaticEval.exec(jsProgram));
       // Inline JavaScript function invocations
-      stats.add(JsInliner.exec(jsProgram, toInline));
+      stats.add(JsInliner.exec(jsProgram, toInline, costModel, hotFunctions));
       // Remove unused functions, possible
       stats.add(JsUnusedFunctionRemover.exec(jsProgram));
 
@@ -900,11 +1012,11 @@ public class JavaToJavaScriptCompiler {
     TreeStatistics treeStats = new TreeStatistics();
     treeStats.accept(jprogram);
     int numNodes = treeStats.getNodeCount();
-    return optimizeLoop("Early Optimization", jprogram, options, numNodes);
+    return optimizeLoop("Early Optimization", jprogram, options, numNodes, null);
   }
 
   protected static OptimizerStats optimizeLoop(String passName, JProgram jprogram,
-      JJSOptions options, int numNodes) {
+      JJSOptions options, int numNodes, InliningProfile inliningProfile) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "phase", "loop");
 
     // Recompute clinits each time, they can become empty.
@@ -937,7 +1049,9 @@ public class JavaToJavaScriptCompiler {
     stats.add(DeadCodeElimination.exec(jprogram).recordVisits(numNodes));
 
     // inlining
-    stats.add(MethodInliner.exec(jprogram).recordVisits(numNodes));
+    stats.add(MethodInliner.exec(jprogram,
+        InliningCostModel.forPreset(options.getInliningPreset()), inliningProfile)
+        .recordVisits(numNodes));
 
     if (options.shouldInlineLiteralParameters()) {
       // remove same parameters value
@@ -965,11 +1079,10 @@ public class JavaToJavaScriptCompiler {
     return numNodes;
   }
 
-  private static MultipleDependencyGraphRecorder chooseDependencyRecorder(boolean soycEnabled,
-      OutputStream out) {
+  private static MultipleDependencyGraphRecorder chooseDependencyRecorder(SoycOutput out) {
     MultipleDependencyGraphRecorder dependencyRecorder = CodeSplitter.NULL_RECORDER;
-    if (soycEnabled) {
-      dependencyRecorder = new DependencyRecorder(out);
+    if (out != null) {
+      dependencyRecorder = new DependencyRecorder(out.getStream());
     }
     return dependencyRecorder;
   }
@@ -1231,17 +1344,19 @@ public class JavaToJavaScriptCompiler {
     Memory.maybeDumpMemory("makeSoycArtifactsStart");
     List<SyntheticArtifact> soycArtifacts = new ArrayList<SyntheticArtifact>();
 
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
     Event soycEvent = SpeedTracerLogger.start(CompilerEventType.MAKE_SOYC_ARTIFACTS);
 
     Event recordSplitPoints =
         SpeedTracerLogger
             .start(CompilerEventType.MAKE_SOYC_ARTIFACTS, "phase", "recordSplitPoints");
-    SplitPointRecorder.recordSplitPoints(jprogram, baos, logger);
-    SyntheticArtifact splitPoints =
-        new SyntheticArtifact(SoycReportLinker.class, "splitPoints" + permutationId + ".xml.gz",
-            baos.toByteArray());
+    SyntheticArtifact splitPoints;
+    SoycOutput out = new SoycOutput();
+    try {
+      SplitPointRecorder.recordSplitPoints(jprogram, out.getStream(), logger);
+      splitPoints = out.toArtifact("splitPoints" + permutationId + ".xml.gz");
+    } finally {
+      out.delete();
+    }
     soycArtifacts.add(splitPoints);
     recordSplitPoints.end();
 
@@ -1249,11 +1364,13 @@ public class JavaToJavaScriptCompiler {
     if (sizeBreakdowns != null) {
       Event recordSizeMap =
           SpeedTracerLogger.start(CompilerEventType.MAKE_SOYC_ARTIFACTS, "phase", "recordSizeMap");
-      baos.reset();
-      SizeMapRecorder.recordMap(logger, baos, sizeBreakdowns, jjsmap, obfuscateMap);
-      sizeMaps =
-          new SyntheticArtifact(SoycReportLinker.class, "stories" + permutationId + ".xml.gz", baos
-              .toByteArray());
+      out = new SoycOutput();
+      try {
+        SizeMapRecorder.recordMap(logger, out.getStream(), sizeBreakdowns, jjsmap, obfuscateMap);
+        sizeMaps = out.toArtifact("stories" + permutationId + ".xml.gz");
+      } finally {
+        out.delete();
+      }
       soycArtifacts.add(sizeMaps);
       recordSizeMap.end();
     }
@@ -1261,10 +1378,13 @@ public class JavaToJavaScriptCompiler {
     if (sourceInfoMaps != null) {
       Event recordStories =
           SpeedTracerLogger.start(CompilerEventType.MAKE_SOYC_ARTIFACTS, "phase", "recordStories");
-      baos.reset();
-      StoryRecorder.recordStories(logger, baos, sourceInfoMaps, js);
-      soycArtifacts.add(new SyntheticArtifact(SoycReportLinker.class, "detailedStories"
-          + permutationId + ".xml.gz", baos.toByteArray()));
+      out = new SoycOutput();
+      try {
+        StoryRecorder.recordStories(logger, out.getStream(), sourceInfoMaps, js);
+        soycArtifacts.add(out.toArtifact("detailedStories" + permutationId + ".xml.gz"));
+      } finally {
+        out.delete();
+      }
       recordStories.end();
     }
 
@@ -38,11 +38,13 @@ public class SourceInfoCorrelation implements SourceInfo {
   private final SourceInfoCorrelation parent;
 
   /**
-   * Records the first Correlation on any given Axis applied to the SourceInfo.
-   * Each index of this array corresponds to the Correlation.Axis with the same
-   * ordinal().
+   * Records the Correlations applied to this SourceInfo, at most one per Axis.
+   * Nearly all nodes have at most one, so this is <code>null</code>, a single
+   * Correlation, or, once a second Axis is added, a Correlation[] indexed by
+   * Axis ordinal(). This avoids an array per correlated node, which adds up
+   * when every AST node has its own SourceInfo.
    */
-  private Correlation[] primaryCorrelations = null;
+  private Object primaryCorrelations = null;
 
   public SourceInfoCorrelation(SourceOrigin origin) {
     this.origin = origin;
@@ -58,45 +60,57 @@ public class SourceInfoCorrelation implements SourceInfo {
    * Add a Correlation to the SourceInfo.
    */
   public void addCorrelation(Correlation c) {
-    if (primaryCorrelations == null) {
-      primaryCorrelations = new Correlation[NUM_AXES];
+    if (primaryCorrelations == null
+        || (primaryCorrelations instanceof Correlation
+            && ((Correlation) primaryCorrelations).getAxis() == c.getAxis())) {
+      primaryCorrelations = c;
+      return;
     }
-    int index = c.getAxis().ordinal();
-    primaryCorrelations[index] = c;
+    Correlation[] correlations;
+    if (primaryCorrelations instanceof Correlation) {
+      Correlation existing = (Correlation) primaryCorrelations;
+      correlations = new Correlation[NUM_AXES];
+      correlations[existing.getAxis().ordinal()] = existing;
+      primaryCorrelations = correlations;
+    } else {
+      correlations = (Correlation[]) primaryCorrelations;
+    }
+    correlations[c.getAxis().ordinal()] = c;
   }
 
   public Correlation getCorrelation(Axis axis) {
-    if (primaryCorrelations != null) {
-      Correlation c = primaryCorrelations[axis.ordinal()];
+    for (SourceInfoCorrelation info = this; info != null; info = info.parent) {
+      Correlation c = info.getPrimaryCorrelation(axis);
       if (c != null) {
         return c;
       }
     }
-    if (parent != null) {
-      return parent.getCorrelation(axis);
-    }
     return null;
   }
 
   public Correlation[] getCorrelations() {
-    if (parent == null) {
-      if (primaryCorrelations == null) {
-        return new Correlation[NUM_AXES];
-      } else {
-        return primaryCorrelations.clone();
-      }
-    } else {
-      Correlation[] result = parent.getCorrelations();
-      if (primaryCorrelations != null) {
+    Correlation[] result = new Correlation[NUM_AXES];
+    int missing = NUM_AXES;
+    // The nearest Correlation on each Axis wins
+    for (SourceInfoCorrelation info = this; info != null && missing > 0; info = info.parent) {
+      if (info.primaryCorrelations instanceof Correlation) {
+        Correlation c = (Correlation) info.primaryCorrelations;
+        int index = c.getAxis().ordinal();
+        if (result[index] == null) {
+          result[index] = c;
+          --missing;
+        }
+      } else if (info.primaryCorrelations != null) {
+        Correlation[] correlations = (Correlation[]) info.primaryCorrelations;
         for (int i = 0; i < NUM_AXES; ++i) {
-          Correlation c = primaryCorrelations[i];
-          if (c != null) {
-            result[i] = c;
+          if (result[i] == null && correlations[i] != null) {
+            result[i] = correlations[i];
+            --missing;
           }
         }
       }
-      return result;
     }
+    return result;
   }
 
   public CorrelationFactory getCorrelator() {
@@ -135,4 +149,17 @@ public class SourceInfoCorrelation implements SourceInfo {
   public String toString() {
     return origin.toString();
   }
+
+  /**
+   * Returns the Correlation added to this SourceInfo itself on the given Axis.
+   */
+  private Correlation getPrimaryCorrelation(Axis axis) {
+    if (primaryCorrelations instanceof Correlation) {
+      Correlation c = (Correlation) primaryCorrelations;
+      return c.getAxis() == axis ? c : null;
+    } else if (primaryCorrelations != null) {
+      return ((Correlation[]) primaryCorrelations)[axis.ordinal()];
+    }
+    return null;
+  }
 }
@@ -60,6 +60,7 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -103,10 +104,13 @@ public class CodeSplitter2 {
    */
   public static final class FragmentPartitioningResult {
     private final int[] fragmentToSplitPoint;
+    private final List<FragmentMerge> merges;
     private final int[] splitPointToFragmentMap;
     
-    private FragmentPartitioningResult(int[] splitPointToFragmentMap, int numFragments) {
+    private FragmentPartitioningResult(int[] splitPointToFragmentMap, int numFragments,
+        List<FragmentMerge> merges) {
       this.splitPointToFragmentMap = splitPointToFragmentMap;
+      this.merges = Collections.unmodifiableList(merges);
       fragmentToSplitPoint = new int[numFragments];
       for (int i = 1, len = splitPointToFragmentMap.length - 1; i < len; i++) {
         if (fragmentToSplitPoint[splitPointToFragmentMap[i]] == 0) {
@@ -124,6 +128,14 @@ public class CodeSplitter2 {
       return splitPointToFragmentMap[splitpoint];
     }
 
+    /**
+     * @return The split points that were merged into a shared fragment, in the
+     *     order the merges were made.
+     */
+    public List<FragmentMerge> getMerges() {
+      return merges;
+    }
+
     /**
      * @return Fragment number of the left over fragment.
      */
@@ -147,6 +159,82 @@ public class CodeSplitter2 {
     }
   }
 
+  /**
+   * A read-only record of two split points having been merged into one
+   * fragment, along with what the merge was expected to gain and cost.
+   */
+  public static final class FragmentMerge {
+    private final double coLoadRate;
+    private final int mergedSplitPoint;
+    private final long sessionsLoadingBoth;
+    private final long sessionsLoadingOnlyOne;
+    private final int sharedAtoms;
+    private final int splitPoint;
+
+    private FragmentMerge(int splitPoint, int mergedSplitPoint, int sharedAtoms,
+        SplitPointLoadProfile loadProfile) {
+      this.splitPoint = splitPoint;
+      this.mergedSplitPoint = mergedSplitPoint;
+      this.sharedAtoms = sharedAtoms;
+      if (loadProfile == null) {
+        coLoadRate = -1;
+        sessionsLoadingBoth = -1;
+        sessionsLoadingOnlyOne = -1;
+      } else {
+        coLoadRate = loadProfile.getCoLoadRate(splitPoint, mergedSplitPoint);
+        sessionsLoadingBoth = loadProfile.getSessionsLoadingBoth(splitPoint, mergedSplitPoint);
+        sessionsLoadingOnlyOne =
+            loadProfile.getSessionsLoadingOnlyOne(splitPoint, mergedSplitPoint);
+      }
+    }
+
+    /**
+     * @return The fraction of profiled sessions loading either split point
+     *     that loaded both, or -1 if no load profile was used.
+     */
+    public double getCoLoadRate() {
+      return coLoadRate;
+    }
+
+    /**
+     * @return The split point that was merged into {@link #getSplitPoint()}'s
+     *     fragment.
+     */
+    public int getMergedSplitPoint() {
+      return mergedSplitPoint;
+    }
+
+    /**
+     * @return The number of profiled sessions that now need one fragment
+     *     download fewer, or -1 if no load profile was used.
+     */
+    public long getSessionsLoadingBoth() {
+      return sessionsLoadingBoth;
+    }
+
+    /**
+     * @return The number of profiled sessions that now download code they do
+     *     not need, or -1 if no load profile was used.
+     */
+    public long getSessionsLoadingOnlyOne() {
+      return sessionsLoadingOnlyOne;
+    }
+
+    /**
+     * @return The number of atoms needed by both split points and no others.
+     */
+    public int getSharedAtoms() {
+      return sharedAtoms;
+    }
+
+    /**
+     * @return The split point whose fragment the other was merged into.
+     */
+    public int getSplitPoint() {
+      return splitPoint;
+    }
+  }
+
   /**
    * Marks the type of partition heuristics 
    */
@@ -279,6 +367,17 @@ public class CodeSplitter2 {
   public static final String LEFTOVERMERGE_SIZE =
       "compiler.splitpoint.leftovermerge.size";
 
+  /**
+   * The property key for the path of a {@link SplitPointLoadProfile}.
+   */
+  public static final String LOAD_PROFILE = "compiler.splitpoint.load.profile";
+
+  /**
+   * With a load profile, only split points at least this likely to be loaded
+   * together are merged.
+   */
+  private static final double MIN_CO_LOAD_RATE = 0.5;
+
   public static ControlFlowAnalyzer computeInitiallyLive(JProgram jprogram) {
     return computeInitiallyLive(jprogram, CodeSplitter.NULL_RECORDER);
   }
@@ -301,6 +400,22 @@ public class CodeSplitter2 {
       JavaToJavaScriptMap map, int fragmentsToMerge,
       MultipleDependencyGraphRecorder dependencyRecorder,
       int leftOverMergeLimit) {
+    exec(logger, jprogram, jsprogram, map, fragmentsToMerge, dependencyRecorder,
+        leftOverMergeLimit, null);
+  }
+
+  /**
+   * Like {@link #exec(TreeLogger, JProgram, JsProgram, JavaToJavaScriptMap, int,
+   * MultipleDependencyGraphRecorder, int)}, but when <code>loadProfile</code> is
+   * not <code>null</code>, fragments are merged when the profile shows their
+   * split points are usually loaded together rather than when they share the
+   * most code.
+   */
+  public static void exec(TreeLogger logger, JProgram jprogram,
+      JsProgram jsprogram,
+      JavaToJavaScriptMap map, int fragmentsToMerge,
+      MultipleDependencyGraphRecorder dependencyRecorder,
+      int leftOverMergeLimit, SplitPointLoadProfile loadProfile) {
     if (jprogram.getRunAsyncs().size() == 0) {
       // Don't do anything if there is no call to runAsync
       return;
@@ -309,7 +424,7 @@ public class CodeSplitter2 {
     dependencyRecorder.open();
     new CodeSplitter2(
         logger, jprogram, jsprogram, map, fragmentsToMerge,
-        dependencyRecorder, leftOverMergeLimit).execImpl();
+        dependencyRecorder, leftOverMergeLimit, loadProfile).execImpl();
     codeSplitterEvent.end();
   }
   
@@ -588,7 +703,9 @@ public class CodeSplitter2 {
   }
 
   private static <T> Set<T> union(Set<? extends T> set1, Set<? extends T> set2) {
-    Set<T> union = new HashSet<T>();
+    // The sets of a single ControlFlowAnalyzer can be unioned a word at a time.
+    Set<T> union = set1 instanceof NumberedSet<?>
+        ? ((NumberedSet<?>) set1).<T> newCompatibleSet() : new HashSet<T>();
     union.addAll(set1);
     union.addAll(set2);
     return union;
@@ -648,6 +765,15 @@ public class CodeSplitter2 {
   private final JsProgram jsprogram;
 
   private final LiveSplitPointMap liveness = new LiveSplitPointMap();
+
+  private final SplitPointLoadProfile loadProfile;
+
+  private final TreeLogger logger;
+
+  /**
+   * The merges made by the partitioner, for the compile report.
+   */
+  private final List<FragmentMerge> merges = new ArrayList<FragmentMerge>();
   
   private final Set<JMethod> methodsInJavaScript;
   
@@ -677,12 +803,14 @@ public class CodeSplitter2 {
       JsProgram jsprogram,
       JavaToJavaScriptMap map, int splitPointsMerge,
       MultipleDependencyGraphRecorder dependencyRecorder,
-      int leftOverMergeLimit) {
+      int leftOverMergeLimit, SplitPointLoadProfile loadProfile) {
+    this.logger = logger;
     this.jprogram = jprogram;
     this.jsprogram = jsprogram;
     this.splitPointsMerge = splitPointsMerge;
     this.leftOverMergeLimit = leftOverMergeLimit;
     this.dependencyRecorder = dependencyRecorder;
+    this.loadProfile = loadProfile;
     this.fragmentExtractor = new FragmentExtractor(jprogram, jsprogram, map);
     this.initialLoadSequence = new LinkedHashSet<Integer>(jprogram.getSplitPointInitialSequence());
     
@@ -1098,7 +1226,7 @@ public class CodeSplitter2 {
     }
 
     jprogram.setFragmentPartitioningResult(
-        new FragmentPartitioningResult(splitPointToCodeIndexMap, fragmentStats.size()));
+        new FragmentPartitioningResult(splitPointToCodeIndexMap, fragmentStats.size(), merges));
   }
   
   private void fixUpLoadOrderDependencies(LiveSplitPointMap fragmentMap, int splitPoint) {
@@ -1227,22 +1355,28 @@ public class CodeSplitter2 {
     countShardedAtomsOfType(liveness.types, matrix);
 
     for (int c = 0; c < splitPointsMerge; c++) {
-      int bestI = 0, bestJ = 0, max = 0;
+      int bestI = 0, bestJ = 0;
+      double max = 0;
       for (int i = 1; i < splitPointToFragmentMap.length; i++) {
         if (initialLoadSequence.contains(i)) {
           continue;
         }
-        for (int j = 1; j < splitPointToFragmentMap.length; j++) {
+        // The matrix only counts atoms shared by i < j.
+        for (int j = i + 1; j < splitPointToFragmentMap.length; j++) {
           if (initialLoadSequence.contains(j)) {
             continue;
           }
-          if (matrix[i][j] > max &&
-              // Unmerged.
-              splitPointToFragmentMap[i] == i &&
-              splitPointToFragmentMap[j] == j) {
+          if (splitPointToFragmentMap[i] != i || splitPointToFragmentMap[j] != j) {
+            // Already merged.
+            continue;
+          }
+          double score = mergeScore(matrix, i, j);
+          // Break ties by the number of shared atoms.
+          if (score > max
+              || (score == max && score > 0 && matrix[i][j] > matrix[bestI][bestJ])) {
             bestI = i;
             bestJ = j;
-            max = matrix[i][j];
+            max = score;
           }
         }
       }
@@ -1250,10 +1384,15 @@ public class CodeSplitter2 {
       if (max == 0) {
         break;
       }
+      FragmentMerge merge = new FragmentMerge(bestI, bestJ, matrix[bestI][bestJ], loadProfile);
+      merges.add(merge);
       splitPointToFragmentMap[bestJ] = bestI;
       splitPointToFragmentMap[bestI] = -1;        
       matrix[bestI][bestJ] = 0;
-      System.out.println("merging: " + bestI + " " + bestJ);
+      if (logger.isLoggable(TreeLogger.DEBUG)) {
+        logger.log(TreeLogger.DEBUG, "Merging split points " + bestI + " and " + bestJ + ": "
+            + merge.getSharedAtoms() + " shared atoms, co-load rate " + merge.getCoLoadRate());
+      }
     }
     
     for (int i = 0; i < splitPointToFragmentMap.length; i++) {
@@ -1263,6 +1402,24 @@ public class CodeSplitter2 {
     }
   }
 
+  /**
+   * Scores merging split points <code>i</code> and <code>j</code>; zero means
+   * they should not be merged. Without a load profile, the score is the number
+   * of atoms only the two share. With one, it is how likely the two are to be
+   * loaded together, since merging split points that are loaded together saves
+   * a download even when they share no code.
+   */
+  private double mergeScore(int[][] matrix, int i, int j) {
+    if (loadProfile == null) {
+      return matrix[i][j];
+    }
+    double coLoadRate = loadProfile.getCoLoadRate(i, j);
+    if (coLoadRate < MIN_CO_LOAD_RATE) {
+      return 0;
+    }
+    return coLoadRate;
+  }
+
   private void replaceFragmentId() {
     (new JsModVisitor() {
       @Override
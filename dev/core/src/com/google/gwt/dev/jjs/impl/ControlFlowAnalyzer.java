@@ -15,6 +15,7 @@
  */
 package com.google.gwt.dev.jjs.impl;
 
+import com.google.gwt.dev.jjs.InternalCompilerException;
 import com.google.gwt.dev.jjs.ast.Context;
 import com.google.gwt.dev.jjs.ast.JAbsentArrayDimension;
 import com.google.gwt.dev.jjs.ast.JArrayType;
@@ -59,8 +60,10 @@ import com.google.gwt.dev.js.ast.JsVisitor;
 import com.google.gwt.dev.util.collect.Lists;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -81,6 +84,43 @@ public class ControlFlowAnalyzer {
     void methodIsLiveBecause(JMethod liveMethod, ArrayList<JMethod> dependencyChain);
   }
 
+  /**
+   * The rescues performed by traversing a method, recorded once so that later
+   * traversals of the same method, including those by copies of this analyzer,
+   * can replay them without walking its body again. Which of the rescues
+   * actually find anything new still depends on the state at replay time.
+   */
+  private static final class MethodSummary {
+    static final byte FIELD_REF = 0;
+    static final byte FIELD_WRITE = 1;
+    static final byte METHOD = 2;
+    static final byte METHOD_CALL = 3;
+    static final byte STRING = 4;
+    static final byte TYPE_INSTANTIATED = 5;
+    static final byte TYPE_REFERENCED = 6;
+    static final byte TYPE_REFERENCED_AND_INSTANTIATED = 7;
+    static final byte VARIABLE = 8;
+
+    byte[] kinds = new byte[8];
+    int size;
+    Object[] targets = new Object[8];
+
+    void add(byte kind, Object target) {
+      if (size == kinds.length) {
+        kinds = Arrays.copyOf(kinds, size * 2);
+        targets = Arrays.copyOf(targets, size * 2);
+      }
+      kinds[size] = kind;
+      targets[size] = target;
+      ++size;
+    }
+
+    void trimToSize() {
+      kinds = Arrays.copyOf(kinds, size);
+      targets = Arrays.copyOf(targets, size);
+    }
+  }
+
   /**
    * Marks as "referenced" any types, methods, and fields that are reachable.
    * Also marks as "instantiable" any classes and interfaces that can possibly
@@ -140,7 +180,7 @@ public class ControlFlowAnalyzer {
     @Override
     public boolean visit(JBinaryOperation x, Context ctx) {
       if (x.isAssignment() && x.getLhs() instanceof JFieldRef) {
-        fieldsWritten.add(((JFieldRef) x.getLhs()).getField());
+        rescueFieldWrite(((JFieldRef) x.getLhs()).getField());
       }
 
       // special string concat handling
@@ -255,7 +295,7 @@ public class ControlFlowAnalyzer {
           accept(x.getInitializer());
 
           if (x.getVariableRef().getTarget() instanceof JField) {
-            fieldsWritten.add((JField) x.getVariableRef().getTarget());
+            rescueFieldWrite((JField) x.getVariableRef().getTarget());
           }
         }
       }
@@ -274,25 +314,7 @@ public class ControlFlowAnalyzer {
 
     @Override
     public boolean visit(JFieldRef ref, Context ctx) {
-      JField target = ref.getField();
-
-      /*
-       * JLS 12.4.1: references to static, non-final, or
-       * non-compile-time-constant fields rescue the enclosing class. JDT
-       * already folds in compile-time constants as literals, so we must rescue
-       * the enclosing types for any static fields that make it here.
-       */
-      if (target.isStatic()) {
-        rescue(target.getEnclosingType(), true, false);
-      }
-      if (target.isStatic() || instantiatedTypes.contains(target.getEnclosingType())) {
-        rescue(target);
-      } else {
-        // It's a field whose class is not instantiable
-        if (!liveFieldsAndMethods.contains(target)) {
-          membersToRescueIfTypeIsInstantiated.add(target);
-        }
-      }
+      rescueFieldRef(ref.getField());
       return true;
     }
 
@@ -380,15 +402,7 @@ public class ControlFlowAnalyzer {
          */
         return true;
       }
-      if (method.isStatic() || program.isJavaScriptObject(method.getEnclosingType())
-          || instantiatedTypes.contains(method.getEnclosingType())) {
-        rescue(method);
-      } else {
-        // It's a virtual method whose class is not instantiable
-        if (!liveFieldsAndMethods.contains(method)) {
-          membersToRescueIfTypeIsInstantiated.add(method);
-        }
-      }
+      rescueMethodCall(method);
 
       if (argsToRescueIfParameterRead == null || method.canBePolymorphic()
           || call instanceof JsniMethodRef) {
@@ -454,7 +468,9 @@ public class ControlFlowAnalyzer {
 
     @Override
     public boolean visit(JsniMethodBody body, Context ctx) {
-      liveStrings.addAll(body.getUsedStrings());
+      for (String s : body.getUsedStrings()) {
+        rescue(s);
+      }
       return true;
     }
 
@@ -492,7 +508,7 @@ public class ControlFlowAnalyzer {
 
     @Override
     public boolean visit(JStringLiteral literal, Context ctx) {
-      liveStrings.add(literal.getValue());
+      rescue(literal.getValue());
 
       // rescue and instantiate java.lang.String
       rescue(program.getTypeJavaLangString(), true, true);
@@ -563,7 +579,49 @@ public class ControlFlowAnalyzer {
       }
     }
 
-    private boolean rescue(JMethod method) {
+    /**
+     * Performs the rescues recorded in a method summary, in the order in which
+     * a traversal of the method body would have performed them.
+     */
+    private void replay(MethodSummary summary) {
+      for (int i = 0; i < summary.size; ++i) {
+        Object target = summary.targets[i];
+        switch (summary.kinds[i]) {
+          case MethodSummary.FIELD_REF:
+            rescueFieldRef((JField) target);
+            break;
+          case MethodSummary.FIELD_WRITE:
+            rescueFieldWrite((JField) target);
+            break;
+          case MethodSummary.METHOD:
+            rescue((JMethod) target);
+            break;
+          case MethodSummary.METHOD_CALL:
+            rescueMethodCall((JMethod) target);
+            break;
+          case MethodSummary.STRING:
+            rescue((String) target);
+            break;
+          case MethodSummary.TYPE_INSTANTIATED:
+            rescue((JReferenceType) target, false, true);
+            break;
+          case MethodSummary.TYPE_REFERENCED:
+            rescue((JReferenceType) target, true, false);
+            break;
+          case MethodSummary.TYPE_REFERENCED_AND_INSTANTIATED:
+            rescue((JReferenceType) target, true, true);
+            break;
+          case MethodSummary.VARIABLE:
+            rescue((JVariable) target);
+            break;
+          default:
+            throw new InternalCompilerException("Unknown summary entry "
+                + summary.kinds[i]);
+        }
+      }
+    }
+
+    boolean rescue(JMethod method) {
       if (method != null) {
         if (!liveFieldsAndMethods.contains(method)) {
           liveFieldsAndMethods.add(method);
@@ -572,7 +630,12 @@ public class ControlFlowAnalyzer {
             curMethodStack.add(method);
             dependencyRecorder.methodIsLiveBecause(method, curMethodStack);
           }
-          accept(method);
+          if (argsToRescueIfParameterRead == null) {
+            replay(getSummary(method));
+          } else {
+            // Pruning makes the traversal depend on which parameters are read.
+            accept(method);
+          }
           if (dependencyRecorder != null) {
             curMethodStack.remove(curMethodStack.size() - 1);
           }
@@ -593,7 +656,7 @@ public class ControlFlowAnalyzer {
       return false;
     }
 
-    private void rescue(JReferenceType type, boolean isReferenced, boolean isInstantiated) {
+    void rescue(JReferenceType type, boolean isReferenced, boolean isInstantiated) {
       if (type == null) {
         return;
       }
@@ -634,7 +697,11 @@ public class ControlFlowAnalyzer {
       }
     }
 
-    private void rescue(JVariable var) {
+    void rescue(String string) {
+      liveStrings.add(string);
+    }
+
+    void rescue(JVariable var) {
       if (var != null) {
         if (liveFieldsAndMethods.add(var)) {
           membersToRescueIfTypeIsInstantiated.remove(var);
@@ -777,6 +844,30 @@ public class ControlFlowAnalyzer {
       }
     }
 
+    void rescueFieldRef(JField target) {
+      /*
+       * JLS 12.4.1: references to static, non-final, or
+       * non-compile-time-constant fields rescue the enclosing class. JDT
+       * already folds in compile-time constants as literals, so we must rescue
+       * the enclosing types for any static fields that make it here.
+       */
+      if (target.isStatic()) {
+        rescue(target.getEnclosingType(), true, false);
+      }
+      if (target.isStatic() || instantiatedTypes.contains(target.getEnclosingType())) {
+        rescue(target);
+      } else {
+        // It's a field whose class is not instantiable
+        if (!liveFieldsAndMethods.contains(target)) {
+          membersToRescueIfTypeIsInstantiated.add(target);
+        }
+      }
+    }
+
+    void rescueFieldWrite(JField field) {
+      fieldsWritten.add(field);
+    }
+
     /**
      * If the type is instantiable, rescue any of its virtual methods that a
      * previously seen method call could call.
@@ -802,6 +893,18 @@ public class ControlFlowAnalyzer {
       }
     }
 
+    void rescueMethodCall(JMethod method) {
+      if (method.isStatic() || program.isJavaScriptObject(method.getEnclosingType())
+          || instantiatedTypes.contains(method.getEnclosingType())) {
+        rescue(method);
+      } else {
+        // It's a virtual method whose class is not instantiable
+        if (!liveFieldsAndMethods.contains(method)) {
+          membersToRescueIfTypeIsInstantiated.add(method);
+        }
+      }
+    }
+
     /**
      * Assume that <code>method</code> is live. Rescue any overriding methods
      * that might be called if <code>method</code> is called through virtual
@@ -828,6 +931,57 @@ public class ControlFlowAnalyzer {
     }
   }
 
+  /**
+   * Records the rescues that traversing a method would perform, without
+   * performing them. This is only valid when not pruning, since pruning makes
+   * the traversal of call arguments depend on which parameters are live.
+   */
+  private class SummaryRecorder extends RescueVisitor {
+    private final MethodSummary summary = new MethodSummary();
+
+    @Override
+    boolean rescue(JMethod method) {
+      summary.add(MethodSummary.METHOD, method);
+      return false;
+    }
+
+    @Override
+    void rescue(JReferenceType type, boolean isReferenced, boolean isInstantiated) {
+      if (isReferenced && isInstantiated) {
+        summary.add(MethodSummary.TYPE_REFERENCED_AND_INSTANTIATED, type);
+      } else if (isReferenced) {
+        summary.add(MethodSummary.TYPE_REFERENCED, type);
+      } else if (isInstantiated) {
+        summary.add(MethodSummary.TYPE_INSTANTIATED, type);
+      }
+    }
+
+    @Override
+    void rescue(String string) {
+      summary.add(MethodSummary.STRING, string);
+    }
+
+    @Override
+    void rescue(JVariable var) {
+      summary.add(MethodSummary.VARIABLE, var);
+    }
+
+    @Override
+    void rescueFieldRef(JField target) {
+      summary.add(MethodSummary.FIELD_REF, target);
+    }
+
+    @Override
+    void rescueFieldWrite(JField field) {
+      summary.add(MethodSummary.FIELD_WRITE, field);
+    }
+
+    @Override
+    void rescueMethodCall(JMethod method) {
+      summary.add(MethodSummary.METHOD_CALL, method);
+    }
+  }
+
   /**
    * These are arguments that have not yet been rescued on account of the
    * associated parameter not having been read yet. If the parameter becomes
@@ -846,10 +1000,10 @@ public class ControlFlowAnalyzer {
   private Set<JReferenceType> classLiteralsToBeRescuedIfGetClassIsLive = new HashSet<JReferenceType>();
 
   private DependencyRecorder dependencyRecorder;
-  private Set<JField> fieldsWritten = new HashSet<JField>();
-  private Set<JReferenceType> instantiatedTypes = new HashSet<JReferenceType>();
-  private Set<JNode> liveFieldsAndMethods = new HashSet<JNode>();
-  private Set<String> liveStrings = new HashSet<String>();
+  private final NumberedSet<JField> fieldsWritten;
+  private final NumberedSet<JReferenceType> instantiatedTypes;
+  private final NumberedSet<JNode> liveFieldsAndMethods;
+  private final NumberedSet<String> liveStrings;
 
   /**
    * Schrodinger's members... aka "limbo". :) These are instance methods and
@@ -857,7 +1011,13 @@ public class ControlFlowAnalyzer {
    * uninstantiable. We place these methods into purgatory until/unless the
    * enclosing type is found to be instantiable.
    */
-  private Set<JNode> membersToRescueIfTypeIsInstantiated = new HashSet<JNode>();
+  private final NumberedSet<JNode> membersToRescueIfTypeIsInstantiated;
+
+  /**
+   * Summaries of the methods traversed so far, shared with all copies of this
+   * analyzer. See {@link #getSummary(JMethod)}.
+   */
+  private final Map<JMethod, MethodSummary> methodSummaries;
 
   /**
    * A precomputed map of all instance methods onto a set of methods that
@@ -868,7 +1028,7 @@ public class ControlFlowAnalyzer {
   private final JField getClassField;
   private final JMethod getClassMethod;
   private final JProgram program;
-  private Set<JReferenceType> referencedTypes = new HashSet<JReferenceType>();
+  private final NumberedSet<JReferenceType> referencedTypes;
   private final RescueVisitor rescuer = new RescueVisitor();
   private final JMethod runAsyncOnsuccess;
   private JMethod stringValueOfChar = null;
@@ -878,14 +1038,15 @@ public class ControlFlowAnalyzer {
     asyncFragmentOnLoad = cfa.asyncFragmentOnLoad;
     runAsyncOnsuccess = cfa.runAsyncOnsuccess;
     baseArrayType = cfa.baseArrayType;
-    fieldsWritten = new HashSet<JField>(cfa.fieldsWritten);
-    instantiatedTypes = new HashSet<JReferenceType>(cfa.instantiatedTypes);
-    liveFieldsAndMethods = new HashSet<JNode>(cfa.liveFieldsAndMethods);
-    referencedTypes = new HashSet<JReferenceType>(cfa.referencedTypes);
+    fieldsWritten = new NumberedSet<JField>(cfa.fieldsWritten);
+    instantiatedTypes = new NumberedSet<JReferenceType>(cfa.instantiatedTypes);
+    liveFieldsAndMethods = new NumberedSet<JNode>(cfa.liveFieldsAndMethods);
+    referencedTypes = new NumberedSet<JReferenceType>(cfa.referencedTypes);
     stringValueOfChar = cfa.stringValueOfChar;
-    liveStrings = new HashSet<String>(cfa.liveStrings);
+    liveStrings = new NumberedSet<String>(cfa.liveStrings);
     membersToRescueIfTypeIsInstantiated =
-        new HashSet<JNode>(cfa.membersToRescueIfTypeIsInstantiated);
+        new NumberedSet<JNode>(cfa.membersToRescueIfTypeIsInstantiated);
+    methodSummaries = cfa.methodSummaries;
     if (cfa.argsToRescueIfParameterRead != null) {
       argsToRescueIfParameterRead =
           new HashMap<JParameter, List<JExpression>>(cfa.argsToRescueIfParameterRead);
@@ -902,6 +1063,14 @@ public class ControlFlowAnalyzer {
     baseArrayType = program.getIndexedType("Array");
     getClassField = program.getIndexedField("Object.___clazz");
     getClassMethod = program.getIndexedMethod("Object.getClass");
+    NumberedSet.Numbering numbering = new NumberedSet.Numbering();
+    fieldsWritten = new NumberedSet<JField>(numbering);
+    instantiatedTypes = new NumberedSet<JReferenceType>(numbering);
+    liveFieldsAndMethods = new NumberedSet<JNode>(numbering);
+    referencedTypes = new NumberedSet<JReferenceType>(numbering);
+    liveStrings = new NumberedSet<String>(numbering);
+    membersToRescueIfTypeIsInstantiated = new NumberedSet<JNode>(numbering);
+    methodSummaries = new IdentityHashMap<JMethod, MethodSummary>();
     buildMethodsOverriding();
   }
 
@@ -1032,4 +1201,21 @@ public class ControlFlowAnalyzer {
       }
     }
   }
+
+  /**
+   * Returns the summary of the rescues performed by traversing
+   * <code>method</code>, recording it if no analyzer sharing this one's
+   * summaries has traversed the method before.
+   */
+  private MethodSummary getSummary(JMethod method) {
+    MethodSummary summary = methodSummaries.get(method);
+    if (summary == null) {
+      SummaryRecorder recorder = new SummaryRecorder();
+      recorder.accept(method);
+      summary = recorder.summary;
+      summary.trimToSize();
+      methodSummaries.put(method, summary);
+    }
+    return summary;
+  }
 }
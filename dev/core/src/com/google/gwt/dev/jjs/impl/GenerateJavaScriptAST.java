@@ -179,12 +179,26 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Creates a JavaScript AST from a <code>JProgram</code> node.
  */
 public class GenerateJavaScriptAST {
 
+  /**
+   * A Java system property that can be used to translate method bodies on
+   * multiple threads. Names and global structure are still created serially,
+   * and the translated functions are assembled in the same order as a serial
+   * run. Defaults to 1 (serial).
+   */
+  public static final String CODEGEN_THREADS_PROPERTY = "gwt.jjs.codeGenThreads";
+
   private class CreateNamesAndScopesVisitor extends JVisitor {
 
     /**
@@ -602,6 +616,21 @@ public class GenerateJavaScriptAST {
     }
   }
 
+  /**
+   * A global name used by a method translated on another thread. The method
+   * refers to it through an unresolved {@link JsNameRef}, and the name is only
+   * declared when the method is assembled, so that names are declared in the
+   * same order as in a serial run.
+   */
+  private abstract static class DeferredName {
+    private JsNameRef ref;
+
+    /**
+     * Declares the name, or returns it if it was already declared.
+     */
+    abstract JsName declare();
+  }
+
   private class GenerateJavaScriptVisitor extends GenerateJavaScriptLiterals {
 
     private final Set<JClassType> alreadyRan = new HashSet<JClassType>();
@@ -614,6 +643,13 @@ public class GenerateJavaScriptAST {
 
     private JMethod currentMethod = null;
 
+    /**
+     * The global names used by the method being translated, in the order a
+     * serial run would declare them. Only set on the translators of
+     * {@link #translateMethodsConcurrently}.
+     */
+    private List<DeferredName> deferredNames = null;
+
     /**
      * The JavaScript functions corresponding to the entry methods of the
      * program ({@link JProgram#getEntryMethods()}).
@@ -631,6 +667,12 @@ public class GenerateJavaScriptAST {
 
     private final JsName prototype = objectScope.declareName("prototype");
 
+    /**
+     * Functions translated ahead of time by
+     * {@link #translateMethodsConcurrently}, waiting to be assembled.
+     */
+    private Map<JMethod, TranslatedMethod> translatedMethods = Collections.emptyMap();
+
     // Methods where inlining hasn't happened yet because they are native or
     // contain calls to native methods.
     Set<JMethod> methodsForJsInlining = new HashSet<JMethod>();
@@ -1079,20 +1121,26 @@ public class GenerateJavaScriptAST {
     @Override
     public void endVisit(JLongLiteral x, Context ctx) {
       super.endVisit(x, ctx);
-      JsExpression longLiteralAllocation = pop();
+      final JsExpression longLiteralAllocation = pop();
+      final long value = x.getValue();
 
-      // My seed function name
-      String nameString = Long.toString(x.getValue(), 16);
-      if (nameString.charAt(0) == '-') {
-        nameString = "N" + nameString.substring(1);
-      } else {
-        nameString = "P" + nameString;
-      }
-      nameString += "_longLit";
-      JsName longLit = topScope.declareName(nameString);
-      longLits.put(x.getValue(), longLit);
-      longObjects.put(longLit, longLiteralAllocation);
-      push(longLit.makeRef(x.getSourceInfo()));
+      push(makeRef(x.getSourceInfo(), new DeferredName() {
+        @Override
+        JsName declare() {
+          // My seed function name
+          String nameString = Long.toString(value, 16);
+          if (nameString.charAt(0) == '-') {
+            nameString = "N" + nameString.substring(1);
+          } else {
+            nameString = "P" + nameString;
+          }
+          nameString += "_longLit";
+          JsName longLit = topScope.declareName(nameString);
+          longLits.put(value, longLit);
+          longObjects.put(longLit, longLiteralAllocation);
+          return longLit;
+        }
+      }));
     }
 
     @Override
@@ -1102,35 +1150,22 @@ public class GenerateJavaScriptAST {
         return;
       }
 
-      JsFunction jsFunc = (JsFunction) pop(); // body
+      JsFunction jsFunc;
+      TranslatedMethod translated = translatedMethods.get(x);
+      if (translated == null) {
+        jsFunc = completeFunction(x);
+      } else {
+        jsFunc = translated.function;
+        for (DeferredName name : translated.deferredNames) {
+          name.ref.resolve(name.declare());
+        }
+      }
 
       // Collect the resulting function to be considered by the JsInliner.
       if (methodsForJsInlining.contains(x)) {
         functionsForJsInlining.add(jsFunc);
       }
 
-      List<JsParameter> params = popList(x.getParams().size()); // params
-
-      if (!x.isNative()) {
-        // Setup params on the generated function. A native method already got
-        // its jsParams set in BuildTypeMap.
-        // TODO: Do we really need to do that in BuildTypeMap?
-        List<JsParameter> jsParams = jsFunc.getParameters();
-        for (int i = 0; i < params.size(); ++i) {
-          JsParameter param = params.get(i);
-          jsParams.add(param);
-        }
-      }
-
-      JsInvocation jsInvocation = maybeCreateClinitCall(x);
-      if (jsInvocation != null) {
-        jsFunc.getBody().getStatements().add(0, jsInvocation.makeStmt());
-      }
-
-      if (x.isTrace()) {
-        jsFunc.setTrace();
-      }
-
       push(jsFunc);
       Integer entryIndex = entryMethodToIndex.get(x);
       if (entryIndex != null) {
@@ -1227,9 +1262,14 @@ public class GenerateJavaScriptAST {
            * transformed into a static. Super/this constructor calls work this
            * way. Have to use a "call" construct.
            */
-          JsName callName = objectScope.declareName("call");
-          callName.setObfuscatable(false);
-          qualifier = callName.makeRef(x.getSourceInfo());
+          qualifier = makeRef(x.getSourceInfo(), new DeferredName() {
+            @Override
+            JsName declare() {
+              JsName callName = objectScope.declareName("call");
+              callName.setObfuscatable(false);
+              return callName;
+            }
+          });
           qualifier.setQualifier(names.get(method).makeRef(x.getSourceInfo()));
           jsInvocation.getArguments().add(0, (JsExpression) pop()); // instance
         } else {
@@ -1371,30 +1411,37 @@ public class GenerateJavaScriptAST {
     @Override
     public void endVisit(JsCastMap x, Context ctx) {
       super.endVisit(x, ctx);
-      JsArrayLiteral arrayLit = (JsArrayLiteral) pop();
-      SourceInfo sourceInfo = x.getSourceInfo();
+      final JsArrayLiteral arrayLit = (JsArrayLiteral) pop();
+      final SourceInfo sourceInfo = x.getSourceInfo();
       if (namesByQueryId == null || x.getExprs().size() == 0) {
-        String stringMap = castMapToString(x);
-        // if interned, use variable reference
-        if (namesByCastMap.containsKey(stringMap)) {
-          push(namesByCastMap.get(stringMap).makeRef(x.getSourceInfo()));
-        } else if (internedCastMap.contains(stringMap)) {
-          // interned variable hasn't been created yet
-          String internName = "CM$";
-          boolean first = true;
-          for (JExpression expr : x.getExprs()) {
-            if (first) {
-              first = false;
-            } else {
-              internName += "_";
+        final String stringMap = castMapToString(x);
+        if (namesByCastMap.containsKey(stringMap) || internedCastMap.contains(stringMap)) {
+          final List<JExpression> exprs = x.getExprs();
+          push(makeRef(sourceInfo, new DeferredName() {
+            @Override
+            JsName declare() {
+              // if interned, use variable reference
+              JsName internedCastMapName = namesByCastMap.get(stringMap);
+              if (internedCastMapName == null) {
+                // interned variable hasn't been created yet
+                String internName = "CM$";
+                boolean first = true;
+                for (JExpression expr : exprs) {
+                  if (first) {
+                    first = false;
+                  } else {
+                    internName += "_";
+                  }
+                  // Name is CM$queryId_queryId_queryId
+                  internName += ((JsQueryType) expr).getQueryId();
+                }
+                internedCastMapName = topScope.declareName(internName, internName);
+                namesByCastMap.put(stringMap, internedCastMapName);
+                castMapByString.put(stringMap, castMapToObjectLiteral(arrayLit, sourceInfo));
+              }
+              return internedCastMapName;
             }
-            // Name is CM$queryId_queryId_queryId
-            internName += ((JsQueryType) expr).getQueryId();
-          }
-          JsName internedCastMapName = topScope.declareName(internName, internName);
-          namesByCastMap.put(stringMap, internedCastMapName);
-          castMapByString.put(stringMap, castMapToObjectLiteral(arrayLit, sourceInfo));
-          push(internedCastMapName.makeRef(x.getSourceInfo()));
+          }));
         } else {
           push(castMapToObjectLiteral(arrayLit, sourceInfo));
         }
@@ -1526,7 +1573,7 @@ public class GenerateJavaScriptAST {
 
     @Override
     public boolean visit(JMethod x, Context ctx) {
-      if (x.isAbstract()) {
+      if (x.isAbstract() || translatedMethods.containsKey(x)) {
         return false;
       }
       currentMethod = x;
@@ -1551,6 +1598,11 @@ public class GenerateJavaScriptAST {
           internCastMap(program.getCastMap(type));
         }
       }
+
+      int codeGenThreads = Integer.getInteger(CODEGEN_THREADS_PROPERTY, 1);
+      if (codeGenThreads > 1) {
+        translateMethodsConcurrently(x, codeGenThreads);
+      }
       return true;
     }
 
@@ -1742,6 +1794,36 @@ public class GenerateJavaScriptAST {
       }
     }
 
+    /**
+     * Completes the function for a method whose body and parameters have just
+     * been translated onto the stack.
+     */
+    private JsFunction completeFunction(JMethod x) {
+      JsFunction jsFunc = (JsFunction) pop(); // body
+      List<JsParameter> params = popList(x.getParams().size()); // params
+
+      if (!x.isNative()) {
+        // Setup params on the generated function. A native method already got
+        // its jsParams set in BuildTypeMap.
+        // TODO: Do we really need to do that in BuildTypeMap?
+        List<JsParameter> jsParams = jsFunc.getParameters();
+        for (int i = 0; i < params.size(); ++i) {
+          JsParameter param = params.get(i);
+          jsParams.add(param);
+        }
+      }
+
+      JsInvocation jsInvocation = maybeCreateClinitCall(x);
+      if (jsInvocation != null) {
+        jsFunc.getBody().getStatements().add(0, jsInvocation.makeStmt());
+      }
+
+      if (x.isTrace()) {
+        jsFunc.setTrace();
+      }
+      return jsFunc;
+    }
+
     private JsExpression createAssignment(JsExpression lhs, JsExpression rhs) {
       return new JsBinaryOperation(lhs.getSourceInfo(), JsBinaryOperator.ASG, lhs, rhs);
     }
@@ -2166,6 +2248,20 @@ public class GenerateJavaScriptAST {
       }
     }
 
+    /**
+     * Returns a reference to a global name, declaring it now unless this
+     * translator runs on another thread, in which case the reference is
+     * resolved when the method is assembled.
+     */
+    private JsNameRef makeRef(SourceInfo info, DeferredName name) {
+      if (deferredNames == null) {
+        return name.declare().makeRef(info);
+      }
+      name.ref = new JsNameRef(info, "$deferred");
+      deferredNames.add(name);
+      return name.ref;
+    }
+
     private JsInvocation maybeCreateClinitCall(JField x) {
       if (!x.isStatic()) {
         return null;
@@ -2240,6 +2336,119 @@ public class GenerateJavaScriptAST {
       // should be safe to initialize at top-scope, as no one can observe the difference
       return true;
     }
+
+    /**
+     * Translates a single method into a function without assembling it into
+     * the program. This is what the workers of
+     * {@link #translateMethodsConcurrently} run.
+     */
+    private TranslatedMethod translate(JMethod x) {
+      currentMethod = x;
+      deferredNames = new ArrayList<DeferredName>();
+      accept(x.getParams());
+      accept(x.getBody());
+      TranslatedMethod translated = new TranslatedMethod(completeFunction(x), deferredNames);
+      deferredNames = null;
+      currentMethod = null;
+      return translated;
+    }
+
+    /**
+     * Translates the methods that the normal traversal will assemble, using
+     * one translator per thread. The global names those methods use (long
+     * literals, interned cast maps and "call") are only declared as each
+     * method is assembled, so that the resulting program does not depend on
+     * scheduling.
+     */
+    private void translateMethodsConcurrently(JProgram x, int threads) {
+      // Collect the methods in the order the traversal visits them.
+      final List<JMethod> methods = new ArrayList<JMethod>();
+      new JVisitor() {
+        private final Set<JClassType> seen = new HashSet<JClassType>();
+
+        @Override
+        public boolean visit(JClassType x, Context ctx) {
+          if (!seen.add(x) || program.getTypeClassLiteralHolder() == x
+              || program.immortalCodeGenTypes.contains(x)) {
+            // Handled specially during assembly.
+            return false;
+          }
+          if (x.getSuperClass() != null) {
+            accept(x.getSuperClass());
+          }
+          return true;
+        }
+
+        @Override
+        public boolean visit(JField x, Context ctx) {
+          return false;
+        }
+
+        @Override
+        public boolean visit(JMethod x, Context ctx) {
+          if (!x.isAbstract()) {
+            methods.add(x);
+          }
+          return false;
+        }
+      }.accept(x.getDeclaredTypes());
+      threads = Math.min(threads, methods.size());
+      if (threads <= 1) {
+        return;
+      }
+
+      final TranslatedMethod[] translated = new TranslatedMethod[methods.size()];
+      final AtomicInteger nextMethod = new AtomicInteger();
+      List<GenerateJavaScriptVisitor> translators = new ArrayList<GenerateJavaScriptVisitor>();
+      for (int i = 0; i < threads; ++i) {
+        translators.add(new GenerateJavaScriptVisitor(methodsForJsInlining));
+      }
+
+      ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        private int count = 0;
+
+        @Override
+        public synchronized Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "Code gen worker " + count++);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      try {
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final GenerateJavaScriptVisitor translator : translators) {
+          futures.add(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+              for (int i = nextMethod.getAndIncrement(); i < translated.length;
+                  i = nextMethod.getAndIncrement()) {
+                translated[i] = translator.translate(methods.get(i));
+              }
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        } else if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new InternalCompilerException("Unexpected error translating methods", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InternalCompilerException("Interrupted while translating methods", e);
+      } finally {
+        executor.shutdownNow();
+      }
+
+      translatedMethods = new IdentityHashMap<JMethod, TranslatedMethod>();
+      for (int i = 0; i < translated.length; ++i) {
+        translatedMethods.put(methods.get(i), translated[i]);
+      }
+    }
   }
 
   private static class JavaToJsOperatorMap {
@@ -2460,6 +2669,20 @@ public class GenerateJavaScriptAST {
     }
   }
 
+  /**
+   * A method translated by {@link GenerateJavaScriptVisitor#translate}, and the
+   * global names it uses that have yet to be declared.
+   */
+  private static class TranslatedMethod {
+    private final List<DeferredName> deferredNames;
+    private final JsFunction function;
+
+    TranslatedMethod(JsFunction function, List<DeferredName> deferredNames) {
+      this.function = function;
+      this.deferredNames = deferredNames;
+    }
+  }
+
   /**
    * This is the main entry point for the translation from Java to JavaScript. Starts from a
    * Java AST and constructs a JavaScript AST while collecting other useful information that
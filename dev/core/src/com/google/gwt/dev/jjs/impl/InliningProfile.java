@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.jjs.ast.JMethod;
+import com.google.gwt.dev.jjs.ast.JNode;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsName;
+import com.google.gwt.dev.json.JsonException;
+import com.google.gwt.dev.json.JsonObject;
+import com.google.gwt.dev.json.JsonValue;
+import com.google.gwt.dev.json.Pair;
+import com.google.gwt.dev.util.JsniRef;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records how often methods were invoked in an instrumented build, so that the
+ * inliners can spend more code size on the methods that actually run often.
+ * <p>
+ * A profile is read from a JSON file of the form:
+ *
+ * <pre>
+ * {"methods": {
+ *   "@com.example.Point::getX()": 183000,
+ *   "@com.example.Canvas::draw(Lcom/example/Point;)": 2500
+ * }}
+ * </pre>
+ *
+ * mapping full JSNI references to invocation counts. A method is hot if it
+ * accounts for at least {@link #HOT_FRACTION} of all recorded invocations.
+ */
+public class InliningProfile {
+
+  /**
+   * The configuration property naming the profile file, if any.
+   */
+  public static final String PROFILE = "compiler.inline.profile";
+
+  /**
+   * The share of all recorded invocations a method needs to be hot.
+   */
+  static final double HOT_FRACTION = 0.01;
+
+  /**
+   * Reads a profile from a JSON file, resolving method references against
+   * <code>program</code>. References that no longer resolve are skipped with
+   * a warning, since profiles are usually collected from an earlier version of
+   * the application.
+   */
+  @SuppressWarnings("deprecation")
+  public static InliningProfile load(TreeLogger logger, JProgram program, String path)
+      throws UnableToCompleteException {
+    logger = logger.branch(TreeLogger.TRACE, "Reading inlining profile " + path);
+    JsonObject json;
+    Reader reader = null;
+    try {
+      reader = new InputStreamReader(new FileInputStream(new File(path)), "UTF-8");
+      json = JsonObject.parse(reader);
+    } catch (IOException e) {
+      logger.log(TreeLogger.ERROR, "Unable to read inlining profile", e);
+      throw new UnableToCompleteException();
+    } catch (JsonException e) {
+      logger.log(TreeLogger.ERROR, "Badly formatted inlining profile", e);
+      throw new UnableToCompleteException();
+    } finally {
+      Utility.close(reader);
+    }
+
+    JsonObject methods = json.get("methods").asObject();
+    if (methods == null) {
+      logger.log(TreeLogger.ERROR, "Expected a 'methods' object");
+      throw new UnableToCompleteException();
+    }
+    InliningProfile profile = new InliningProfile();
+    for (Pair<String, JsonValue> entry : methods) {
+      String ref = entry.getA();
+      if (!entry.getB().isNumber()) {
+        logger.log(TreeLogger.ERROR, "Expected an invocation count for " + ref);
+        throw new UnableToCompleteException();
+      }
+      long count = entry.getB().asNumber().getInteger();
+      JsniRef jsniRef = JsniRef.parse(ref);
+      JNode referent = null;
+      if (jsniRef != null && jsniRef.isMethod()) {
+        referent = JsniRefLookup.findJsniRefTarget(jsniRef, program,
+            new JsniRefLookup.ErrorReporter() {
+              @Override
+              public void reportError(String error) {
+              }
+            });
+      }
+      if (!(referent instanceof JMethod)) {
+        logger.log(TreeLogger.WARN, "Ignoring unknown method in inlining profile: " + ref);
+        continue;
+      }
+      profile.addInvocations((JMethod) referent, count);
+    }
+    return profile;
+  }
+
+  private final Map<JMethod, Long> invocations = new IdentityHashMap<JMethod, Long>();
+
+  private long totalInvocations;
+
+  InliningProfile() {
+  }
+
+  /**
+   * Returns the JavaScript functions generated for the hot methods.
+   */
+  public Set<JsFunction> getHotFunctions(JavaToJavaScriptMap map) {
+    Set<JsFunction> hotFunctions = new LinkedHashSet<JsFunction>();
+    for (JMethod method : invocations.keySet()) {
+      if (!isHot(method)) {
+        continue;
+      }
+      JsName name = map.nameForMethod(method);
+      if (name != null && name.getStaticRef() instanceof JsFunction) {
+        hotFunctions.add((JsFunction) name.getStaticRef());
+      }
+    }
+    return hotFunctions;
+  }
+
+  /**
+   * Returns the number of recorded invocations of <code>method</code>.
+   */
+  public long getInvocations(JMethod method) {
+    Long count = invocations.get(method);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * Returns true if <code>method</code> was invoked often in the profiled
+   * sessions. A static impl is hot if its instance method is.
+   */
+  public boolean isHot(JMethod method, JProgram program) {
+    JMethod instanceMethod = program.staticImplFor(method);
+    return isHot(method) || (instanceMethod != null && isHot(instanceMethod));
+  }
+
+  /**
+   * Records <code>count</code> invocations of <code>method</code>.
+   */
+  void addInvocations(JMethod method, long count) {
+    invocations.put(method, getInvocations(method) + count);
+    totalInvocations += count;
+  }
+
+  private boolean isHot(JMethod method) {
+    long count = getInvocations(method);
+    return count > 0 && count >= totalInvocations * HOT_FRACTION;
+  }
+}
@@ -27,6 +27,7 @@ import com.google.gwt.dev.jjs.ast.JMethodBody;
 import com.google.gwt.dev.jjs.ast.JMethodCall;
 import com.google.gwt.dev.jjs.ast.JModVisitor;
 import com.google.gwt.dev.jjs.ast.JNewInstance;
+import com.google.gwt.dev.jjs.ast.JNode;
 import com.google.gwt.dev.jjs.ast.JParameter;
 import com.google.gwt.dev.jjs.ast.JParameterRef;
 import com.google.gwt.dev.jjs.ast.JProgram;
@@ -42,20 +43,41 @@ import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Inline methods that can be inlined. The current implementation limits the
- * methods that can be inlined to those that are composed of at most two
- * top-level expressions.
+ * methods that can be inlined to those that are composed of a few top-level
+ * expressions; an {@link InliningCostModel} sets the limit and decides, based
+ * on the number of call sites, whether the inlined code may be larger than the
+ * call it replaces.
  * 
- * Future improvements will allow more complex methods to be inlined based on
- * the number of call sites, as well as adding support for more complex target
- * method expressions.
+ * Future improvements will add support for more complex target method
+ * expressions.
  */
 public class MethodInliner {
+  /**
+   * Counts the static call sites of each method.
+   */
+  private static class CallSiteCounter extends JVisitor {
+    private final Map<JMethod, Integer> callSites = new IdentityHashMap<JMethod, Integer>();
+
+    @Override
+    public void endVisit(JMethodCall x, Context ctx) {
+      Integer count = callSites.get(x.getTarget());
+      callSites.put(x.getTarget(), count == null ? 1 : count + 1);
+    }
+
+    public int getCallSites(JMethod method) {
+      Integer count = callSites.get(method);
+      return count == null ? 0 : count;
+    }
+  }
+
   /**
    * Clones an expression, ensuring no local or this refs.
    */
@@ -79,6 +101,12 @@ public class MethodInliner {
   private class InliningVisitor extends JModVisitor {
     protected final Set<JMethod> modifiedMethods = new LinkedHashSet<JMethod>();
 
+    /**
+     * Call site counts as of the start of this pass, or <code>null</code> if
+     * the cost model does not need them.
+     */
+    private final CallSiteCounter callSiteCounter;
+
     /**
      * Resets with each new visitor, which is good since things that couldn't be
      * inlined before might become inlinable.
@@ -86,6 +114,15 @@ public class MethodInliner {
     private final Set<JMethod> cannotInline = new HashSet<JMethod>();
     private JExpression ignoringReturnValueFor;
 
+    public InliningVisitor() {
+      if (costModel.limitsJavaGrowth()) {
+        callSiteCounter = new CallSiteCounter();
+        callSiteCounter.accept(program);
+      } else {
+        callSiteCounter = null;
+      }
+    }
+
     @Override
     public void endVisit(JMethod x, Context ctx) {
       currentMethod = null;
@@ -281,18 +318,37 @@ public class MethodInliner {
       modifiedMethods.add(currentMethod);
     }
 
+    /**
+     * Asks the cost model whether replacing <code>x</code> by
+     * <code>inlined</code> grows the output acceptably.
+     */
+    private boolean isWorthInlining(JMethodCall x, JMultiExpression inlined) {
+      if (callSiteCounter == null) {
+        return true;
+      }
+      JMethod target = x.getTarget();
+      InliningCostModel model = costModelFor(target);
+      int callSize = countNodes(x);
+      int inlinedSize = countNodes(inlined);
+      int callSites = callSiteCounter.getCallSites(target);
+      if (model.isJavaInliningWorthIt(callSize, inlinedSize, callSites)) {
+        return true;
+      }
+      return model.inlinesWhenSmaller()
+          && model.isSmallerInlinedEverywhere(callSize, inlinedSize, countNodes(target.getBody()),
+              callSites);
+    }
+
     /**
      * Inline a call to an expression.
      */
     private boolean tryInlineExpression(JMethodCall x, Context ctx, JMultiExpression targetExpr) {
       /*
-       * Limit inlined methods to multiexpressions of length 2 for now. This
-       * handles the simple { return JVariableRef; } or { expression; return
-       * something; } cases.
-       * 
-       * TODO: add an expression complexity analyzer.
+       * Limit inlined methods to short multiexpressions; with the default cost
+       * model this is length 2, which handles the simple { return
+       * JVariableRef; } or { expression; return something; } cases.
        */
-      if (targetExpr.exprs.size() > 2) {
+      if (targetExpr.exprs.size() > costModelFor(x.getTarget()).getMaxJavaExpressions()) {
         return false;
       }
 
@@ -314,7 +370,8 @@ public class MethodInliner {
       /*
        * After this point, it's possible that the method might be inlinable at
        * some call sites, depending on its arguments. From here on return 'true'
-       * as the method might be inlinable elsewhere.
+       * as the method might be inlinable elsewhere, unless the cost model
+       * rejects it; that is not retried until the next pass.
        */
 
       /*
@@ -348,6 +405,9 @@ public class MethodInliner {
       if (orderVisitor.checkResults() == SideEffectCheck.NO_REFERENCES) {
         JMultiExpression multi = createMultiExpressionIncludingArgs(x);
         multi.exprs.add(targetExpr);
+        if (!isWorthInlining(x, multi)) {
+          return false;
+        }
         replaceWithMulti(ctx, multi);
         return true;
       }
@@ -382,6 +442,9 @@ public class MethodInliner {
       replacer.accept(targetExpr);
 
       multi.exprs.add(targetExpr);
+      if (!isWorthInlining(x, multi)) {
+        return false;
+      }
       replaceWithMulti(ctx, multi);
       return true;
     }
@@ -471,6 +534,23 @@ public class MethodInliner {
     }
   }
 
+  /**
+   * Estimates the size of an AST by counting its nodes.
+   */
+  private static class NodeCounter extends JVisitor {
+    private int nodeCount = 0;
+
+    public int getNodeCount() {
+      return nodeCount;
+    }
+
+    @Override
+    public boolean visit(JNode x, Context ctx) {
+      nodeCount++;
+      return true;
+    }
+  }
+
   private static class RecursionCheckVisitor extends JVisitor {
     private boolean isRecursive = false;
     private final JMethod method;
@@ -501,18 +581,48 @@ public class MethodInliner {
   public static String NAME = MethodInliner.class.getSimpleName();
 
   public static OptimizerStats exec(JProgram program) {
+    return exec(program, InliningCostModel.DEFAULT, null);
+  }
+
+  /**
+   * Inlines methods as far as <code>costModel</code> allows.
+   *
+   * @param profile marks the methods to inline more eagerly, or
+   *          <code>null</code>
+   */
+  public static OptimizerStats exec(JProgram program, InliningCostModel costModel,
+      InliningProfile profile) {
     Event optimizeEvent = SpeedTracerLogger.start(CompilerEventType.OPTIMIZE, "optimizer", NAME);
-    OptimizerStats stats = new MethodInliner(program).execImpl();
+    OptimizerStats stats = new MethodInliner(program, costModel, profile).execImpl();
     optimizeEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
 
+  private static int countNodes(JNode node) {
+    NodeCounter counter = new NodeCounter();
+    counter.accept(node);
+    return counter.getNodeCount();
+  }
+
+  private final InliningCostModel costModel;
+
   private JMethod currentMethod;
 
+  private final InliningProfile profile;
+
   private final JProgram program;
 
-  private MethodInliner(JProgram program) {
+  private MethodInliner(JProgram program, InliningCostModel costModel, InliningProfile profile) {
     this.program = program;
+    this.costModel = costModel;
+    this.profile = profile;
+  }
+
+  private InliningCostModel costModelFor(JMethod method) {
+    if (profile != null && profile.isHot(method, program)) {
+      return costModel.forHotCallee();
+    }
+    return costModel;
   }
 
   private OptimizerStats execImpl() {
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A set backed by a {@link BitSet} over a dense numbering of its possible
+ * elements. Sets created from the same {@link Numbering} can be copied,
+ * unioned and subtracted a word at a time, which is what makes it cheap for
+ * {@link ControlFlowAnalyzer} to fork a liveness snapshot for every split
+ * point.
+ * <p>
+ * Elements are numbered the first time they are added to any set sharing the
+ * numbering; neither sets nor numberings are thread-safe.
+ *
+ * @param <E> the element type
+ */
+class NumberedSet<E> extends AbstractSet<E> {
+
+  /**
+   * Assigns consecutive indices to objects, by equality, in order of first
+   * use.
+   */
+  static final class Numbering {
+    private final Map<Object, Integer> indices = new HashMap<Object, Integer>();
+    private final List<Object> objects = new ArrayList<Object>();
+
+    Object get(int index) {
+      return objects.get(index);
+    }
+
+    int getOrAssign(Object o) {
+      Integer index = indices.get(o);
+      if (index == null) {
+        index = objects.size();
+        indices.put(o, index);
+        objects.add(o);
+      }
+      return index;
+    }
+
+    /**
+     * Returns the index of <code>o</code>, or <code>-1</code> if it has never
+     * been numbered.
+     */
+    int indexOf(Object o) {
+      Integer index = indices.get(o);
+      return index == null ? -1 : index;
+    }
+
+    int size() {
+      return objects.size();
+    }
+  }
+
+  private BitSet bits;
+  private final Numbering numbering;
+  private int size;
+
+  /**
+   * Creates an empty set.
+   */
+  NumberedSet(Numbering numbering) {
+    this.numbering = numbering;
+    this.bits = new BitSet();
+  }
+
+  /**
+   * Creates a copy of another set, sharing its numbering.
+   */
+  NumberedSet(NumberedSet<E> other) {
+    this.numbering = other.numbering;
+    this.bits = (BitSet) other.bits.clone();
+    this.size = other.size;
+  }
+
+  @Override
+  public boolean add(E e) {
+    int index = numbering.getOrAssign(e);
+    if (bits.get(index)) {
+      return false;
+    }
+    bits.set(index);
+    ++size;
+    return true;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends E> c) {
+    if (!isCompatible(c)) {
+      return super.addAll(c);
+    }
+    bits.or(((NumberedSet<?>) c).bits);
+    return updateSize();
+  }
+
+  @Override
+  public void clear() {
+    bits.clear();
+    size = 0;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    int index = numbering.indexOf(o);
+    return index >= 0 && bits.get(index);
+  }
+
+  @Override
+  public boolean containsAll(Collection<?> c) {
+    if (!isCompatible(c)) {
+      return super.containsAll(c);
+    }
+    BitSet missing = (BitSet) ((NumberedSet<?>) c).bits.clone();
+    missing.andNot(bits);
+    return missing.isEmpty();
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private int expectedSize = size;
+      private int last = -1;
+      private int next = bits.nextSetBit(0);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public E next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        if (expectedSize != size) {
+          throw new ConcurrentModificationException();
+        }
+        last = next;
+        next = bits.nextSetBit(next + 1);
+        return (E) numbering.get(last);
+      }
+
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        if (expectedSize != size) {
+          throw new ConcurrentModificationException();
+        }
+        bits.clear(last);
+        last = -1;
+        expectedSize = --size;
+      }
+    };
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    int index = numbering.indexOf(o);
+    if (index < 0 || !bits.get(index)) {
+      return false;
+    }
+    bits.clear(index);
+    --size;
+    return true;
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> c) {
+    if (!isCompatible(c)) {
+      return super.removeAll(c);
+    }
+    bits.andNot(((NumberedSet<?>) c).bits);
+    return updateSize();
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> c) {
+    if (!isCompatible(c)) {
+      return super.retainAll(c);
+    }
+    bits.and(((NumberedSet<?>) c).bits);
+    return updateSize();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a new, empty set sharing this set's numbering, which can
+   * therefore be combined with this one cheaply.
+   */
+  <T> NumberedSet<T> newCompatibleSet() {
+    return new NumberedSet<T>(numbering);
+  }
+
+  private boolean isCompatible(Collection<?> c) {
+    return c instanceof NumberedSet<?> && ((NumberedSet<?>) c).numbering == numbering;
+  }
+
+  /**
+   * Recomputes the cached size after a bulk operation, returning whether it
+   * changed. Bulk operations only ever grow or only ever shrink the set, so a
+   * change in size is the same as a change in contents.
+   */
+  private boolean updateSize() {
+    int oldSize = size;
+    size = bits.cardinality();
+    return size != oldSize;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.dev.json.JsonArray;
+import com.google.gwt.dev.json.JsonException;
+import com.google.gwt.dev.json.JsonObject;
+import com.google.gwt.dev.json.JsonValue;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.BitSet;
+
+/**
+ * Records how often split points are loaded together in real sessions, so that
+ * {@link CodeSplitter2} can merge the fragments of split points that are
+ * usually needed together.
+ * <p>
+ * A profile is read from a JSON file of the form:
+ *
+ * <pre>
+ * {"sessions": [
+ *   {"splitPoints": ["com.example.Inbox", "@com.example.App::compose()"], "count": 1200},
+ *   {"splitPoints": ["com.example.Inbox"], "count": 350}
+ * ]}
+ * </pre>
+ *
+ * where each entry gives the number of sessions that loaded exactly the listed
+ * split points. Split points are named the same way as in
+ * <code>compiler.splitpoint.initial.sequence</code>.
+ */
+public class SplitPointLoadProfile {
+
+  /**
+   * Reads a profile from a JSON file, resolving split point names against
+   * <code>program</code>. Names that no longer match a split point are
+   * skipped with a warning, since profiles are usually collected from an
+   * earlier version of the application.
+   */
+  public static SplitPointLoadProfile load(TreeLogger logger, JProgram program, String path)
+      throws UnableToCompleteException {
+    logger = logger.branch(TreeLogger.TRACE, "Reading split point load profile " + path);
+    JsonObject json;
+    Reader reader = null;
+    try {
+      reader = new InputStreamReader(new FileInputStream(new File(path)), "UTF-8");
+      json = JsonObject.parse(reader);
+    } catch (IOException e) {
+      logger.log(TreeLogger.ERROR, "Unable to read split point load profile", e);
+      throw new UnableToCompleteException();
+    } catch (JsonException e) {
+      logger.log(TreeLogger.ERROR, "Badly formatted split point load profile", e);
+      throw new UnableToCompleteException();
+    } finally {
+      Utility.close(reader);
+    }
+
+    SplitPointLoadProfile profile = new SplitPointLoadProfile(program.getRunAsyncs().size());
+    JsonArray sessions = json.get("sessions").asArray();
+    if (sessions == null) {
+      logger.log(TreeLogger.ERROR, "Expected a 'sessions' array");
+      throw new UnableToCompleteException();
+    }
+    for (int i = 0; i < sessions.getLength(); i++) {
+      JsonObject session = sessions.get(i).asObject();
+      JsonArray names = session == null ? null : session.get("splitPoints").asArray();
+      JsonValue count = session == null ? JsonValue.NULL : session.get("count");
+      if (names == null || !count.isNumber()) {
+        logger.log(TreeLogger.ERROR, "Expected 'splitPoints' and 'count' in session entry " + i);
+        throw new UnableToCompleteException();
+      }
+      BitSet splitPoints = new BitSet();
+      for (int j = 0; j < names.getLength(); j++) {
+        if (!names.get(j).isString()) {
+          logger.log(TreeLogger.ERROR, "Expected split point names in session entry " + i);
+          throw new UnableToCompleteException();
+        }
+        String name = names.get(j).asString().getString();
+        try {
+          splitPoints.set(CodeSplitter2.findSplitPoint(name, program, TreeLogger.NULL));
+        } catch (UnableToCompleteException e) {
+          logger.log(TreeLogger.WARN, "Ignoring unknown split point in load profile: " + name);
+        }
+      }
+      profile.addSessions(splitPoints, count.asNumber().getInteger());
+    }
+    return profile;
+  }
+
+  /**
+   * sessionsLoading[i][j] is the number of sessions that loaded both split
+   * point i and split point j; the diagonal holds the number of sessions that
+   * loaded each split point at all.
+   */
+  private final long[][] sessionsLoading;
+
+  /**
+   * Creates an empty profile for split points numbered 1 through
+   * <code>numSplitPoints</code>.
+   */
+  SplitPointLoadProfile(int numSplitPoints) {
+    sessionsLoading = new long[numSplitPoints + 1][numSplitPoints + 1];
+  }
+
+  /**
+   * Returns the fraction of the sessions loading either split point that load
+   * both, or zero if neither was ever loaded.
+   */
+  public double getCoLoadRate(int splitPoint1, int splitPoint2) {
+    long either = getSessionsLoadingEither(splitPoint1, splitPoint2);
+    return either == 0 ? 0 : getSessionsLoadingBoth(splitPoint1, splitPoint2) / (double) either;
+  }
+
+  /**
+   * Returns the number of sessions that loaded both split points.
+   */
+  public long getSessionsLoadingBoth(int splitPoint1, int splitPoint2) {
+    return sessionsLoading[splitPoint1][splitPoint2];
+  }
+
+  /**
+   * Returns the number of sessions that loaded one of the split points but not
+   * the other. If the two are merged, these sessions download code they do not
+   * need.
+   */
+  public long getSessionsLoadingOnlyOne(int splitPoint1, int splitPoint2) {
+    return getSessionsLoadingEither(splitPoint1, splitPoint2)
+        - getSessionsLoadingBoth(splitPoint1, splitPoint2);
+  }
+
+  /**
+   * Records <code>count</code> sessions that loaded exactly the given split
+   * points.
+   */
+  void addSessions(BitSet splitPoints, long count) {
+    for (int i = splitPoints.nextSetBit(0); i >= 0; i = splitPoints.nextSetBit(i + 1)) {
+      for (int j = splitPoints.nextSetBit(0); j >= 0; j = splitPoints.nextSetBit(j + 1)) {
+        sessionsLoading[i][j] += count;
+      }
+    }
+  }
+
+  private long getSessionsLoadingEither(int splitPoint1, int splitPoint2) {
+    return sessionsLoading[splitPoint1][splitPoint1] + sessionsLoading[splitPoint2][splitPoint2]
+        - sessionsLoading[splitPoint1][splitPoint2];
+  }
+}
@@ -18,6 +18,7 @@ package com.google.gwt.dev.js;
 import com.google.gwt.dev.jjs.HasSourceInfo;
 import com.google.gwt.dev.jjs.InternalCompilerException;
 import com.google.gwt.dev.jjs.SourceInfo;
+import com.google.gwt.dev.jjs.impl.InliningCostModel;
 import com.google.gwt.dev.jjs.impl.OptimizerStats;
 import com.google.gwt.dev.js.ast.JsArrayAccess;
 import com.google.gwt.dev.js.ast.JsArrayLiteral;
@@ -844,6 +845,8 @@ public class JsInliner {
    */
   private static class InliningVisitor extends JsModVisitor {
     private final Set<JsFunction> blacklist = new HashSet<JsFunction>();
+    private final InliningCostModel costModel;
+    private final Set<JsFunction> hotFunctions;
     private final Set<JsNode> whitelist;
     /**
      * This reflects the functions that are currently being inlined to prevent
@@ -868,9 +871,12 @@ public class JsInliner {
      */
     private JsFunction programFunction;
 
-    public InliningVisitor(JsProgram program, Set<JsNode> whitelist) {
+    public InliningVisitor(JsProgram program, Set<JsNode> whitelist,
+        InliningCostModel costModel, Set<JsFunction> hotFunctions) {
       invocationCountingVisitor.accept(program);
       this.whitelist = whitelist;
+      this.costModel = costModel;
+      this.hotFunctions = hotFunctions;
     }
 
     /**
@@ -1002,7 +1008,8 @@ public class JsInliner {
        * Don't inline huge functions into huge multi-expressions. Some JS
        * engines will blow up.
        */
-      if (invokedFunction.getBody().getStatements().size() > MAX_INLINE_FN_SIZE) {
+      if (invokedFunction.getBody().getStatements().size()
+          > costModelFor(invokedFunction).getMaxJsStatements()) {
         return;
       }
 
@@ -1121,9 +1128,13 @@ public class JsInliner {
       }
     }
 
-    private boolean isInvokedMoreThanOnce(JsFunction f) {
+    private InliningCostModel costModelFor(JsFunction f) {
+      return hotFunctions.contains(f) ? costModel.forHotCallee() : costModel;
+    }
+
+    private int invocationCount(JsFunction f) {
       Integer count = invocationCountingVisitor.invocationCount(f);
-      return count == null || count > 1;
+      return count == null ? Integer.MAX_VALUE : count;
     }
 
     /**
@@ -1279,9 +1290,12 @@ public class JsInliner {
        */
       int originalComplexity = complexity(x);
       int inlinedComplexity = complexity(op);
-      double ratio = ((double) inlinedComplexity) / originalComplexity;
-      if (ratio > MAX_COMPLEXITY_INCREASE
-          && isInvokedMoreThanOnce(invokedFunction)) {
+      InliningCostModel model = costModelFor(invokedFunction);
+      int callSites = invocationCount(invokedFunction);
+      if (!model.isJsInliningWorthIt(originalComplexity, inlinedComplexity, callSites)
+          && !(model.inlinesWhenSmaller() && model.isSmallerInlinedEverywhere(
+              originalComplexity, inlinedComplexity, complexity(invokedFunction.getBody()),
+              callSites))) {
         return x;
       }
 
@@ -1760,31 +1774,28 @@ public class JsInliner {
   }
 
   /**
-   * The maximum number of statements a function can have to be actually considered for inlining.
-   *
-   * Setting gwt.jsinlinerMaxFnSize = 50 and gwt.jsinlinerRatio = 1.7 (as was originally)
-   * increases compile time by 5% and decreases code size by 0.4%.
+   * The maximum number of statements a function can have to be actually
+   * considered for inlining by the default cost model.
    */
-  public static final int MAX_INLINE_FN_SIZE = Integer.parseInt(System.getProperty(
-      "gwt.jsinlinerMaxFnSize", "23"));
+  public static final int MAX_INLINE_FN_SIZE =
+      InliningCostModel.DEFAULT.getMaxJsStatements();
 
-  /**
-   * When attempting to inline an invocation, this constant determines the
-   * maximum allowable ratio of potential inlined complexity to initial
-   * complexity. This acts as a brake on very large expansions from bloating the
-   * the generated output. Increasing this number will allow larger sections of
-   * code to be inlined, but at a cost of larger JS output.
-   */
-  private static final double MAX_COMPLEXITY_INCREASE = Double.parseDouble(System.getProperty(
-      "gwt.jsinlinerRatio", "1.2"));
+  public static OptimizerStats exec(JsProgram program, Collection<JsNode> toInline) {
+    return exec(program, toInline, InliningCostModel.DEFAULT,
+        Collections.<JsFunction> emptySet());
+  }
 
   /**
    * Static entry point used by JavaToJavaScriptCompiler.
+   *
+   * @param costModel decides whether an inlining is worth its size
+   * @param hotFunctions functions that a profile found to be invoked often
    */
-  public static OptimizerStats exec(JsProgram program, Collection<JsNode> toInline) {
+  public static OptimizerStats exec(JsProgram program, Collection<JsNode> toInline,
+      InliningCostModel costModel, Set<JsFunction> hotFunctions) {
     Event optimizeJsEvent = SpeedTracerLogger.start(
         CompilerEventType.OPTIMIZE_JS, "optimizer", NAME);
-    OptimizerStats stats = execImpl(program, toInline);
+    OptimizerStats stats = execImpl(program, toInline, costModel, hotFunctions);
     optimizeJsEvent.end("didChange", "" + stats.didChange());
     return stats;
   }
@@ -1828,7 +1839,8 @@ public class JsInliner {
   }
 
 
-  private static OptimizerStats execImpl(JsProgram program, Collection<JsNode> toInline) {
+  private static OptimizerStats execImpl(JsProgram program, Collection<JsNode> toInline,
+      InliningCostModel costModel, Set<JsFunction> hotFunctions) {
     OptimizerStats stats = new OptimizerStats(NAME);
 
     // We are not covering the whole AST, hence we will try to inline functions with a single call
@@ -1846,7 +1858,7 @@ public class JsInliner {
       rc.accept(fn);
     }
 
-    InliningVisitor v = new InliningVisitor(program, candidates);
+    InliningVisitor v = new InliningVisitor(program, candidates, costModel, hotFunctions);
     v.blacklist(d.getRedefined());
     v.blacklist(rc.getRecursive());
     // Do not accept among candidates as the list might get stale and contain nodes that are not
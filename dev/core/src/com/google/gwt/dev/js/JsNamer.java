@@ -47,48 +47,64 @@ public abstract class JsNamer {
   static final String BLACKLIST_SUFFIXES =
       "js.identifier.blacklist.suffixes";
 
-  private static Set<JsName> collectReferencedNames(JsProgram program) {
-    final Set<JsName> referenced = new HashSet<JsName>();
-    new JsVisitor() {
-      @Override
-      public void endVisit(JsForIn x, JsContext ctx) {
-        reference(x.getIterVarName());
-      }
+  /**
+   * Visits every occurrence of a name in a program, whether it declares the
+   * name or refers to it.
+   */
+  protected abstract static class NameOccurrenceVisitor extends JsVisitor {
+    @Override
+    public void endVisit(JsForIn x, JsContext ctx) {
+      occurrence(x.getIterVarName());
+    }
 
-      @Override
-      public void endVisit(JsFunction x, JsContext ctx) {
-        reference(x.getName());
-      };
+    @Override
+    public void endVisit(JsFunction x, JsContext ctx) {
+      occurrence(x.getName());
+    }
 
-      @Override
-      public void endVisit(JsLabel x, JsContext ctx) {
-        reference(x.getName());
-      };
+    @Override
+    public void endVisit(JsLabel x, JsContext ctx) {
+      occurrence(x.getName());
+    }
 
-      @Override
-      public void endVisit(JsNameOf x, JsContext ctx) {
-        reference(x.getName());
-      };
+    @Override
+    public void endVisit(JsNameOf x, JsContext ctx) {
+      occurrence(x.getName());
+    }
 
-      @Override
-      public void endVisit(JsNameRef x, JsContext ctx) {
-        reference(x.getName());
-      };
+    @Override
+    public void endVisit(JsNameRef x, JsContext ctx) {
+      occurrence(x.getName());
+    }
 
-      @Override
-      public void endVisit(JsParameter x, JsContext ctx) {
-        reference(x.getName());
-      };
+    @Override
+    public void endVisit(JsParameter x, JsContext ctx) {
+      occurrence(x.getName());
+    }
 
-      @Override
-      public void endVisit(JsVars.JsVar x, JsContext ctx) {
-        reference(x.getName());
-      };
+    @Override
+    public void endVisit(JsVars.JsVar x, JsContext ctx) {
+      occurrence(x.getName());
+    }
 
-      private void reference(JsName name) {
-        if (name != null) {
-          referenced.add(name);
-        }
+    private void occurrence(JsName name) {
+      if (name != null) {
+        reference(name);
+      }
+    }
+
+    /**
+     * Called for each occurrence of a name, with a non-null name.
+     */
+    protected abstract void reference(JsName name);
+  }
+
+  private static Set<JsName> collectReferencedNames(JsProgram program) {
+    final Set<JsName> referenced = new HashSet<JsName>();
+    new NameOccurrenceVisitor() {
+      @Override
+      protected void reference(JsName name) {
+        referenced.add(name);
       }
     }.accept(program);
     return referenced;
@@ -20,7 +20,13 @@ import com.google.gwt.dev.js.ast.JsName;
 import com.google.gwt.dev.js.ast.JsProgram;
 import com.google.gwt.dev.js.ast.JsScope;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A namer that uses short, unrecognizable idents to minimize generated code
@@ -46,11 +52,84 @@ public class JsObfuscateNamer extends JsNamer {
     new JsObfuscateNamer(program, propertyOracles).execImpl();
   }
 
+  /**
+   * Obfuscates names, optionally giving the shortest identifiers in each scope
+   * to the names that are referenced most often.
+   */
+  public static void exec(JsProgram program, PropertyOracle[] propertyOracles,
+      boolean nameByFrequency) {
+    JsObfuscateNamer namer = new JsObfuscateNamer(program, propertyOracles);
+    if (nameByFrequency) {
+      namer.nameOrder = new ReferenceFrequencyOrder(program);
+    }
+    namer.execImpl();
+  }
+
+  /**
+   * Orders names by how often they occur in the output, most frequent first.
+   * Occurrences in the initial download are compared first, since that is the
+   * code whose size matters most, and then occurrences in all fragments.
+   * Names that tie keep their declaration order.
+   */
+  private static class ReferenceFrequencyOrder implements Comparator<JsName> {
+    private static final int[] NO_REFERENCES = new int[2];
+
+    /**
+     * Maps each name to its occurrences in the initial fragment and in all
+     * fragments.
+     */
+    private final Map<JsName, int[]> occurrences = new IdentityHashMap<JsName, int[]>();
+
+    ReferenceFrequencyOrder(JsProgram program) {
+      for (int i = 0; i < program.getFragmentCount(); i++) {
+        final boolean initial = i == 0;
+        new NameOccurrenceVisitor() {
+          @Override
+          protected void reference(JsName name) {
+            int[] counts = occurrences.get(name);
+            if (counts == null) {
+              counts = new int[2];
+              occurrences.put(name, counts);
+            }
+            if (initial) {
+              ++counts[0];
+            }
+            ++counts[1];
+          }
+        }.accept(program.getFragmentBlock(i));
+      }
+    }
+
+    @Override
+    public int compare(JsName a, JsName b) {
+      int[] countsA = getCounts(a);
+      int[] countsB = getCounts(b);
+      if (countsA[0] != countsB[0]) {
+        return countsA[0] > countsB[0] ? -1 : 1;
+      }
+      if (countsA[1] != countsB[1]) {
+        return countsA[1] > countsB[1] ? -1 : 1;
+      }
+      return 0;
+    }
+
+    private int[] getCounts(JsName name) {
+      int[] counts = occurrences.get(name);
+      return counts == null ? NO_REFERENCES : counts;
+    }
+  }
+
   /**
    * Communicates to a parent scope the maximum id used by any of its children.
    */
   private int maxChildId = 0;
 
+  /**
+   * The order in which the names of a scope are given identifiers, or
+   * <code>null</code> to use declaration order.
+   */
+  private Comparator<JsName> nameOrder;
+
   /**
    * A temp buffer big enough to hold at least 32 bits worth of base-64 chars.
    */
@@ -82,8 +161,7 @@ public class JsObfuscateNamer extends JsNamer {
 
     // Visit my idents.
     int curId = maxChildId;
-    for (Iterator<JsName> it = scope.getAllNames(); it.hasNext();) {
-      JsName name = it.next();
+    for (JsName name : getNamesInOrder(scope)) {
       if (!referenced.contains(name)) {
         // Don't allocate idents for non-referenced names.
         continue;
@@ -109,6 +187,18 @@ public class JsObfuscateNamer extends JsNamer {
     maxChildId = Math.max(mySiblingsMaxId, curId);
   }
 
+  private Iterable<JsName> getNamesInOrder(JsScope scope) {
+    List<JsName> names = new ArrayList<JsName>();
+    for (Iterator<JsName> it = scope.getAllNames(); it.hasNext();) {
+      names.add(it.next());
+    }
+    if (nameOrder != null) {
+      // Stable, so ties keep their declaration order.
+      Collections.sort(names, nameOrder);
+    }
+    return names;
+  }
+
   private boolean isLegal(JsScope scope, String newIdent) {
     if (!isAvailableIdent(newIdent)) {
       return false;
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.js;
+
+import com.google.gwt.dev.jjs.InternalCompilerException;
+import com.google.gwt.dev.jjs.SourceInfo;
+import com.google.gwt.dev.jjs.ast.JMethod;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.dev.jjs.impl.JavaToJavaScriptMap;
+import com.google.gwt.dev.js.ast.JsArrayAccess;
+import com.google.gwt.dev.js.ast.JsArrayLiteral;
+import com.google.gwt.dev.js.ast.JsContext;
+import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsName;
+import com.google.gwt.dev.js.ast.JsNumberLiteral;
+import com.google.gwt.dev.js.ast.JsPrefixOperation;
+import com.google.gwt.dev.js.ast.JsProgram;
+import com.google.gwt.dev.js.ast.JsStatement;
+import com.google.gwt.dev.js.ast.JsStringLiteral;
+import com.google.gwt.dev.js.ast.JsUnaryOperator;
+import com.google.gwt.dev.js.ast.JsVars;
+import com.google.gwt.dev.js.ast.JsVars.JsVar;
+import com.google.gwt.dev.js.ast.JsVisitor;
+import com.google.gwt.thirdparty.guava.common.annotations.VisibleForTesting;
+
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instruments the generated JavaScript to count how often each Java method is
+ * invoked, so that a profile collected from real sessions can guide a later
+ * optimized compile.
+ * <p>
+ * Every function that implements a Java method starts by incrementing its own
+ * slot in a global counter array. The page can read the counts at any time by
+ * calling <code>$wnd.__gwt_profile()</code>, which returns them as JSON in the
+ * format read by {@link com.google.gwt.dev.jjs.impl.InliningProfile}:
+ *
+ * <pre>
+ * {"methods": {"@com.example.Foo::bar(I)": 1234}}
+ * </pre>
+ *
+ * If <code>compiler.profile.instrument.url</code> is set, the counts are also
+ * posted to that URL when the page unloads. Reports from many sessions can be
+ * aggregated by adding up the counts of each method.
+ */
+public class JsProfileInstrumentor {
+
+  /**
+   * Corresponds to the selection property in CompilerParameters.gwt.xml that
+   * enables instrumentation.
+   */
+  public static final String PROPERTY_NAME = "compiler.profile.instrument";
+
+  /**
+   * Corresponds to the configuration property naming the URL that counts are
+   * posted to.
+   */
+  public static final String URL_PROPERTY_NAME = "compiler.profile.instrument.url";
+
+  /**
+   * Reads the counters and posts them. Names not declared up front are resolved
+   * by {@link JsSymbolResolver}.
+   */
+  private static final String REPORT_CODE = "function $gwt_profile_report() {"
+      + "  var methods = {}, i, ref;"
+      + "  for (i = 0; i < $gwt_profile_counts.length; ++i) {"
+      + "    if ($gwt_profile_counts[i]) {"
+      + "      ref = $gwt_profile_refs[i];"
+      + "      methods[ref] = (methods[ref] || 0) + $gwt_profile_counts[i];"
+      + "    }"
+      + "  }"
+      + "  return JSON.stringify({'methods': methods});"
+      + "}"
+      + "function $gwt_profile_post() {"
+      + "  var data = $gwt_profile_report();"
+      + "  if ($wnd.navigator.sendBeacon) {"
+      + "    $wnd.navigator.sendBeacon($gwt_profile_url, data);"
+      + "  } else {"
+      + "    var xhr = new XMLHttpRequest();"
+      + "    xhr.open('POST', $gwt_profile_url, false);"
+      + "    xhr.send(data);"
+      + "  }"
+      + "}"
+      + "$wnd.__gwt_profile = $gwt_profile_report;";
+
+  private static final String POST_CODE =
+      "$wnd.addEventListener && $wnd.addEventListener('beforeunload', $gwt_profile_post, false);";
+
+  /**
+   * Instruments every function that implements a Java method. Static impls
+   * are counted under their instance method, which is how
+   * {@link com.google.gwt.dev.jjs.impl.InliningProfile} looks them up.
+   */
+  public static void exec(final JProgram jprogram, JsProgram jsProgram,
+      final JavaToJavaScriptMap jjsmap, String url) {
+    final Map<JsFunction, String> methodRefs = new LinkedHashMap<JsFunction, String>();
+    new JsVisitor() {
+      @Override
+      public void endVisit(JsFunction x, JsContext ctx) {
+        JMethod method = x.getName() == null ? null : jjsmap.nameToMethod(x.getName());
+        if (method == null) {
+          return;
+        }
+        JMethod instanceMethod = jprogram.staticImplFor(method);
+        if (instanceMethod != null) {
+          method = instanceMethod;
+        }
+        methodRefs.put(x, "@" + method.getEnclosingType().getName() + "::"
+            + JProgram.getJsniSig(method, false));
+      }
+    }.accept(jsProgram);
+    exec(jsProgram, methodRefs, url);
+  }
+
+  /**
+   * Instruments the functions in <code>methodRefs</code>, reporting each under
+   * the given JSNI reference.
+   */
+  @VisibleForTesting
+  static void exec(JsProgram jsProgram, Map<JsFunction, String> methodRefs, String url) {
+    new JsProfileInstrumentor(jsProgram, methodRefs, url).execImpl();
+  }
+
+  private JsName counts;
+  private final JsProgram jsProgram;
+  private final Map<JsFunction, String> methodRefs;
+  private final String url;
+
+  private JsProfileInstrumentor(JsProgram jsProgram, Map<JsFunction, String> methodRefs,
+      String url) {
+    this.jsProgram = jsProgram;
+    this.methodRefs = methodRefs;
+    this.url = url;
+  }
+
+  private void execImpl() {
+    SourceInfo info = jsProgram.createSourceInfoSynthetic(getClass());
+    counts = jsProgram.getScope().declareName("$gwt_profile_counts", "$profileCounts");
+
+    int index = 0;
+    for (JsFunction function : methodRefs.keySet()) {
+      JsArrayAccess counter = new JsArrayAccess(info, counts.makeRef(info),
+          new JsNumberLiteral(info, index++));
+      function.getBody().getStatements().add(0,
+          new JsPrefixOperation(info, JsUnaryOperator.INC, counter).makeStmt());
+    }
+
+    List<JsStatement> globalStmts = jsProgram.getGlobalBlock().getStatements();
+    globalStmts.addAll(0, parse(url == null ? REPORT_CODE : REPORT_CODE + POST_CODE));
+    globalStmts.add(0, makeVars(info));
+    JsSymbolResolver.exec(jsProgram);
+  }
+
+  /**
+   * Declares the array of method references, the zeroed counters and the URL
+   * to post to.
+   */
+  private JsVars makeVars(SourceInfo info) {
+    JsArrayLiteral refsArray = new JsArrayLiteral(info);
+    JsArrayLiteral countsArray = new JsArrayLiteral(info);
+    for (String ref : methodRefs.values()) {
+      refsArray.getExpressions().add(new JsStringLiteral(info, ref));
+      countsArray.getExpressions().add(new JsNumberLiteral(info, 0));
+    }
+
+    JsVars vars = new JsVars(info);
+    JsVar refsVar = new JsVar(info,
+        jsProgram.getScope().declareName("$gwt_profile_refs", "$profileRefs"));
+    refsVar.setInitExpr(refsArray);
+    vars.add(refsVar);
+    JsVar countsVar = new JsVar(info, counts);
+    countsVar.setInitExpr(countsArray);
+    vars.add(countsVar);
+    if (url != null) {
+      JsVar urlVar = new JsVar(info,
+          jsProgram.getScope().declareName("$gwt_profile_url", "$profileUrl"));
+      urlVar.setInitExpr(new JsStringLiteral(info, url));
+      vars.add(urlVar);
+    }
+    return vars;
+  }
+
+  private List<JsStatement> parse(String code) {
+    try {
+      return JsParser.parse(jsProgram.createSourceInfoSynthetic(getClass()),
+          jsProgram.getScope(), new StringReader(code));
+    } catch (Exception e) {
+      throw new InternalCompilerException("Unexpected exception parsing '" + code + "'", e);
+    }
+  }
+}
@@ -32,11 +32,14 @@ import com.google.gwt.dev.js.ast.JsBinaryOperator;
 import com.google.gwt.dev.js.ast.JsBlock;
 import com.google.gwt.dev.js.ast.JsBooleanLiteral;
 import com.google.gwt.dev.js.ast.JsCatch;
+import com.google.gwt.dev.js.ast.JsConditional;
 import com.google.gwt.dev.js.ast.JsContext;
+import com.google.gwt.dev.js.ast.JsDoWhile;
 import com.google.gwt.dev.js.ast.JsExprStmt;
 import com.google.gwt.dev.js.ast.JsExpression;
 import com.google.gwt.dev.js.ast.JsFor;
 import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsIf;
 import com.google.gwt.dev.js.ast.JsInvocation;
 import com.google.gwt.dev.js.ast.JsModVisitor;
 import com.google.gwt.dev.js.ast.JsName;
@@ -52,6 +55,8 @@ import com.google.gwt.dev.js.ast.JsReturn;
 import com.google.gwt.dev.js.ast.JsRootScope;
 import com.google.gwt.dev.js.ast.JsStatement;
 import com.google.gwt.dev.js.ast.JsStringLiteral;
+import com.google.gwt.dev.js.ast.JsSwitch;
+import com.google.gwt.dev.js.ast.JsThisRef;
 import com.google.gwt.dev.js.ast.JsThrow;
 import com.google.gwt.dev.js.ast.JsTry;
 import com.google.gwt.dev.js.ast.JsUnaryOperation;
@@ -65,6 +70,7 @@ import com.google.gwt.dev.util.collect.Maps;
 
 import java.io.File;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -79,6 +85,13 @@ public class JsStackEmulator {
 
   private static final String PROPERTY_NAME = "compiler.stackMode";
 
+  /**
+   * With location tables, a recorded location is
+   * <code>fileIndex * LOCATION_FILE_MULTIPLIER + lineNumber</code>. Must match
+   * StackTraceCreator.CollectorEmulated.
+   */
+  private static final int LOCATION_FILE_MULTIPLIER = 1 << 20;
+
   /**
    * Resets the global stack depth to the local stack index and top stack frame
    * after calls to Exceptions.wrap. This is created by
@@ -578,6 +591,9 @@ public class JsStackEmulator {
         if (method != null && jprogram.immortalCodeGenTypes.contains(method.getEnclosingType())) {
           return;
         }
+        if (useLocationTables && !MayThrowVisitor.mayThrow(x)) {
+          return;
+        }
         if (recordLineNumbers) {
           (new LocationVisitor(x)).accept(x.getBody());
         } else {
@@ -601,11 +617,36 @@ public class JsStackEmulator {
    * 
    * Inclusion of file names is dependent on the value of the
    * {@link JsStackEmulator#recordFileNames} field.
+   * <p>
+   * If {@link JsStackEmulator#useLocationTables} is set, only call sites and
+   * the locations up to the first one that runs on every path through the
+   * function are recorded, and the location is a number that indexes the
+   * static <code>$locationFiles</code> table instead of a string:
+   *
+   * <pre>
+   * ($location[stackIndex] = 3145770, expr);
+   * </pre>
+   *
+   * which is <code>3 * 2^20 + 42</code>, where 3 is the index of Foo.java.
    */
   private class LocationVisitor extends EntryExitVisitor {
     private String lastFile;
     private int lastLine;
 
+    /**
+     * The number of enclosing constructs whose contents might not run, such as
+     * branches, loops and <code>&&</code>. A location recorded inside one of
+     * them is not known to have been set when later code runs.
+     */
+    private int conditionalDepth;
+
+    /**
+     * Whether a location has been recorded on every path through the function
+     * so far, so that a failure before the first call site does not report a
+     * stale location.
+     */
+    private boolean recordedAny;
+
     /**
      * Nodes in this set are used in a context that expects a reference, not
      * just an arbitrary expression. For example, <code>delete</code> takes a
@@ -626,11 +667,34 @@ public class JsStackEmulator {
 
     @Override
     public void endVisit(JsBinaryOperation x, JsContext ctx) {
+      if (isShortCircuit(x)) {
+        --conditionalDepth;
+      }
       if (x.getOperator().isAssignment()) {
         record(x, ctx);
       }
     }
 
+    @Override
+    public void endVisit(JsConditional x, JsContext ctx) {
+      --conditionalDepth;
+    }
+
+    @Override
+    public void endVisit(JsDoWhile x, JsContext ctx) {
+      --conditionalDepth;
+    }
+
+    @Override
+    public void endVisit(JsFor x, JsContext ctx) {
+      --conditionalDepth;
+    }
+
+    @Override
+    public void endVisit(JsIf x, JsContext ctx) {
+      --conditionalDepth;
+    }
+
     @Override
     public void endVisit(JsInvocation x, JsContext ctx) {
       nodesInRefContext.remove(x.getQualifier());
@@ -658,6 +722,41 @@ public class JsStackEmulator {
       nodesInRefContext.remove(x.getArg());
     }
 
+    @Override
+    public void endVisit(JsSwitch x, JsContext ctx) {
+      --conditionalDepth;
+    }
+
+    @Override
+    public void endVisit(JsTry x, JsContext ctx) {
+      --conditionalDepth;
+    }
+
+    @Override
+    public void endVisit(JsWhile x, JsContext ctx) {
+      --conditionalDepth;
+    }
+
+    @Override
+    public boolean visit(JsBinaryOperation x, JsContext ctx) {
+      if (isShortCircuit(x)) {
+        ++conditionalDepth;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(JsConditional x, JsContext ctx) {
+      ++conditionalDepth;
+      return true;
+    }
+
+    @Override
+    public boolean visit(JsDoWhile x, JsContext ctx) {
+      ++conditionalDepth;
+      return true;
+    }
+
     /**
      * This is essentially a hacked-up version of JsFor.traverse to account for
      * flow control differing from visitation order. It resets lastFile and
@@ -666,6 +765,7 @@ public class JsStackEmulator {
      */
     @Override
     public boolean visit(JsFor x, JsContext ctx) {
+      ++conditionalDepth;
       if (x.getInitExpr() != null) {
         x.setInitExpr(accept(x.getInitExpr()));
       } else if (x.getInitVars() != null) {
@@ -686,6 +786,12 @@ public class JsStackEmulator {
       return false;
     }
 
+    @Override
+    public boolean visit(JsIf x, JsContext ctx) {
+      ++conditionalDepth;
+      return true;
+    }
+
     @Override
     public boolean visit(JsInvocation x, JsContext ctx) {
       nodesInRefContext.add(x.getQualifier());
@@ -701,12 +807,25 @@ public class JsStackEmulator {
       return true;
     }
 
+    @Override
+    public boolean visit(JsSwitch x, JsContext ctx) {
+      ++conditionalDepth;
+      return true;
+    }
+
+    @Override
+    public boolean visit(JsTry x, JsContext ctx) {
+      ++conditionalDepth;
+      return super.visit(x, ctx);
+    }
+
     /**
      * Similar to JsFor, this resets the current location information before
      * evaluating the condition.
      */
     @Override
     public boolean visit(JsWhile x, JsContext ctx) {
+      ++conditionalDepth;
       resetPosition();
       x.setCondition(accept(x.getCondition()));
       accept(x.getBody());
@@ -730,8 +849,16 @@ public class JsStackEmulator {
       }
     }
 
+    private boolean isShortCircuit(JsBinaryOperation x) {
+      return x.getOperator() == JsBinaryOperator.AND || x.getOperator() == JsBinaryOperator.OR;
+    }
+
     private void record(JsExpression x, JsContext ctx) {
-      if (ctx.isLvalue()) {
+      if (useLocationTables && recordedAny
+          && !(x instanceof JsInvocation || x instanceof JsNew)) {
+        // Other failures are reported at the preceding call site
+        return;
+      } else if (ctx.isLvalue()) {
         // Assignments to comma expressions aren't legal
         return;
       } else if (nodesInRefContext.contains(x)) {
@@ -747,14 +874,15 @@ public class JsStackEmulator {
       SourceInfo info = x.getSourceInfo();
 
       // ($locations[stackIndex] = fileName + lineNumber, x)
-      JsExpression location = new JsStringLiteral(info,
-          String.valueOf(lastLine = info.getStartLine()));
-      if (recordFileNames) {
-        // 'fileName:' + lineNumber
-        JsStringLiteral stringLit = new JsStringLiteral(info,
-            baseName(lastFile = info.getFileName()) + ":");
-        location = new JsBinaryOperation(info, JsBinaryOperator.ADD, stringLit,
-            location);
+      JsExpression location;
+      if (useLocationTables && info.getStartLine() < LOCATION_FILE_MULTIPLIER) {
+        lastLine = info.getStartLine();
+        int fileIndex = recordFileNames ? locationFileIndex(baseName(lastFile = info.getFileName()))
+            : 0;
+        location = new JsNumberLiteral(info, fileIndex * (double) LOCATION_FILE_MULTIPLIER
+            + lastLine);
+      } else {
+        location = stringLocation(info);
       }
 
       JsArrayAccess access = new JsArrayAccess(info, lineNumbers.makeRef(info),
@@ -766,22 +894,118 @@ public class JsStackEmulator {
           JsBinaryOperator.COMMA, asg, x);
 
       ctx.replaceMe(comma);
+      if (conditionalDepth == 0) {
+        recordedAny = true;
+      }
     }
 
     private void resetPosition() {
       lastFile = "";
       lastLine = -1;
     }
+
+    /**
+     * Returns <code>'fileName:lineNumber'</code> or <code>'lineNumber'</code>.
+     */
+    private JsExpression stringLocation(SourceInfo info) {
+      JsExpression location = new JsStringLiteral(info,
+          String.valueOf(lastLine = info.getStartLine()));
+      if (recordFileNames) {
+        // 'fileName:' + lineNumber
+        JsStringLiteral stringLit = new JsStringLiteral(info,
+            baseName(lastFile = info.getFileName()) + ":");
+        location = new JsBinaryOperation(info, JsBinaryOperator.ADD, stringLit,
+            location);
+      }
+      return location;
+    }
+  }
+
+  /**
+   * Determines whether a function might throw or call other code. Such a
+   * function can never be on the stack when a stack trace is captured, so it
+   * does not need instrumentation when {@link JsStackEmulator#useLocationTables}
+   * is set.
+   * <p>
+   * This is conservative: any call, property access on something other than
+   * <code>this</code>, or operator that can invoke <code>toString()</code> or
+   * throw a <code>TypeError</code> counts as throwing.
+   */
+  private static class MayThrowVisitor extends JsVisitor {
+
+    public static boolean mayThrow(JsFunction x) {
+      MayThrowVisitor v = new MayThrowVisitor();
+      v.accept(x.getBody());
+      return v.mayThrow;
+    }
+
+    private boolean mayThrow;
+
+    @Override
+    public void endVisit(JsArrayAccess x, JsContext ctx) {
+      mayThrow = true;
+    }
+
+    @Override
+    public void endVisit(JsBinaryOperation x, JsContext ctx) {
+      JsBinaryOperator op = x.getOperator();
+      if (op.isKeyword()) {
+        // instanceof and in throw on non-objects
+        mayThrow = true;
+      } else if ((op == JsBinaryOperator.ADD || op == JsBinaryOperator.ASG_ADD)
+          && !(x.getArg1() instanceof JsNumberLiteral || x.getArg2() instanceof JsNumberLiteral)) {
+        // Might be a string concatenation calling toString()
+        mayThrow = true;
+      }
+    }
+
+    @Override
+    public void endVisit(JsInvocation x, JsContext ctx) {
+      mayThrow = true;
+    }
+
+    @Override
+    public void endVisit(JsNameRef x, JsContext ctx) {
+      if (x.getQualifier() != null && !(x.getQualifier() instanceof JsThisRef)) {
+        mayThrow = true;
+      }
+    }
+
+    @Override
+    public void endVisit(JsNew x, JsContext ctx) {
+      mayThrow = true;
+    }
+
+    @Override
+    public void endVisit(JsThrow x, JsContext ctx) {
+      mayThrow = true;
+    }
+
+    @Override
+    public boolean visit(JsFunction x, JsContext ctx) {
+      // Nested functions are instrumented on their own
+      return false;
+    }
+
+    @Override
+    public boolean visit(JsTry x, JsContext ctx) {
+      mayThrow = true;
+      return false;
+    }
   }
 
   /**
    * The StackTraceCreator code refers to identifiers defined in JsRootScope,
    * which are unobfuscatable. This visitor replaces references to those symbols
    * with references to our locally-defined, obfuscatable names.
+   * <code>$locationFiles</code> is only referenced when location tables are
+   * used, so it is left as an unresolved global rather than reserved there.
    */
   private class ReplaceUnobfuscatableNames extends JsModVisitor {
     // See JsRootScope for the definition of these names
     private final JsName rootLineNumbers = JsRootScope.INSTANCE.findExistingUnobfuscatableName("$location");
+    private final JsName rootLocationFiles = locationFiles == null ? null
+        : jsProgram.getScope().findExistingUnobfuscatableName("$locationFiles");
     private final JsName rootStack = JsRootScope.INSTANCE.findExistingUnobfuscatableName("$stack");
     private final JsName rootStackDepth = JsRootScope.INSTANCE.findExistingUnobfuscatableName("$stackDepth");
 
@@ -796,6 +1020,8 @@ public class JsStackEmulator {
         newRef = stackDepth.makeRef(x.getSourceInfo());
       } else if (name == rootLineNumbers) {
         newRef = lineNumbers.makeRef(x.getSourceInfo());
+      } else if (name != null && name == rootLocationFiles) {
+        newRef = locationFiles.makeRef(x.getSourceInfo());
       }
 
       if (newRef == null) {
@@ -854,6 +1080,13 @@ public class JsStackEmulator {
 
   private JsFunction wrapFunction;
   private JsName lineNumbers;
+  private JsName locationFiles;
+
+  /**
+   * The file names in <code>$locationFiles</code>, by index. Index 0 is
+   * reserved for locations without a file name.
+   */
+  private final Map<String, Integer> locationFileIndices = new LinkedHashMap<String, Integer>();
   private JProgram jprogram;
   private final JsProgram jsProgram;
   private JavaToJavaScriptMap jjsmap;
@@ -861,6 +1094,7 @@ public class JsStackEmulator {
   private boolean recordLineNumbers;
   private JsName stack;
   private JsName stackDepth;
+  private boolean useLocationTables;
 
   private JsStackEmulator(JProgram jprogram, JsProgram jsProgram,
       PropertyOracle[] propertyOracles,
@@ -883,6 +1117,13 @@ public class JsStackEmulator {
       // TODO Auto-generated catch block
       e.printStackTrace();
     }
+    try {
+      List<String> values = oracle.getConfigurationProperty(
+          "compiler.emulatedStack.useLocationTables").getValues();
+      useLocationTables = Boolean.valueOf(values.get(0));
+    } catch (BadPropertyValueException e) {
+      // Not defined by modules that predate location tables
+    }
   }
 
   private void execImpl() {
@@ -892,9 +1133,21 @@ public class JsStackEmulator {
       return;
     }
     initNames();
-    makeVars();
+    JsArrayLiteral locationFilesTable = makeVars();
     (new ReplaceUnobfuscatableNames()).accept(jsProgram);
     (new InstrumentAllFunctions()).accept(jsProgram);
+    if (locationFilesTable == null) {
+      return;
+    }
+
+    SourceInfo info = locationFilesTable.getSourceInfo();
+    List<JsExpression> fileNames = locationFilesTable.getExpressions();
+    if (!locationFileIndices.isEmpty()) {
+      fileNames.add(JsNullLiteral.INSTANCE);
+    }
+    for (String fileName : locationFileIndices.keySet()) {
+      fileNames.add(new JsStringLiteral(info, fileName));
+    }
   }
 
   private void initNames() {
@@ -903,9 +1156,31 @@ public class JsStackEmulator {
         "$stackDepth");
     lineNumbers = jsProgram.getScope().declareName("$JsStackEmulator_location",
         "$location");
+    if (useLocationTables) {
+      locationFiles = jsProgram.getScope().declareName("$JsStackEmulator_locationFiles",
+          "$locationFiles");
+    }
   }
 
-  private void makeVars() {
+  /**
+   * Returns the index of <code>fileName</code> in <code>$locationFiles</code>,
+   * adding it if necessary.
+   */
+  private int locationFileIndex(String fileName) {
+    Integer index = locationFileIndices.get(fileName);
+    if (index == null) {
+      index = locationFileIndices.size() + 1;
+      locationFileIndices.put(fileName, index);
+    }
+    return index;
+  }
+
+  /**
+   * Declares the global variables and returns the initially empty
+   * <code>$locationFiles</code> table, or <code>null</code> if location tables
+   * are not used.
+   */
+  private JsArrayLiteral makeVars() {
     SourceInfo info = jsProgram.createSourceInfoSynthetic(getClass());
     JsVar stackVar = new JsVar(info, stack);
     stackVar.setInitExpr(new JsArrayLiteral(info));
@@ -925,5 +1200,14 @@ public class JsStackEmulator {
     vars.add(stackVar);
     vars.add(stackDepthVar);
     vars.add(lineNumbersVar);
+    if (!useLocationTables) {
+      return null;
+    }
+
+    JsArrayLiteral locationFilesTable = new JsArrayLiteral(info);
+    JsVar locationFilesVar = new JsVar(info, locationFiles);
+    locationFilesVar.setInitExpr(locationFilesTable);
+    vars.add(locationFilesVar);
+    return locationFilesTable;
   }
 }
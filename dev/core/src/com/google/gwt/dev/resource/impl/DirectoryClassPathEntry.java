@@ -17,6 +17,9 @@ package com.google.gwt.dev.resource.impl;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.dev.util.collect.Lists;
+import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
+import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
+import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger.Event;
 import com.google.gwt.dev.util.msg.Message1String;
 
 import java.io.File;
@@ -24,12 +27,36 @@ import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link ClassPathEntry} for a directory on the file system.
+ * <p>
+ * If the {@value #INCREMENTAL_SCAN_PROPERTY} system property is set, the
+ * listing of each directory is remembered along with the directory's
+ * modification time. Later scans reuse the listing while that time is
+ * unchanged, so an unchanged tree costs one stat per directory rather than one
+ * per file.
  */
 public class DirectoryClassPathEntry extends ClassPathEntry {
 
+  /**
+   * The children of one directory, split into subdirectories and files.
+   */
+  private static class DirectoryListing {
+    final File[] dirs;
+    final File[] files;
+    final long lastModified;
+    final long listedAt;
+
+    DirectoryListing(File[] dirs, File[] files, long lastModified, long listedAt) {
+      this.dirs = dirs;
+      this.files = files;
+      this.lastModified = lastModified;
+      this.listedAt = listedAt;
+    }
+  }
+
   private static class Messages {
     static final Message1String DESCENDING_INTO_DIR = new Message1String(
         TreeLogger.SPAM, "Descending into dir: $0");
@@ -41,11 +68,32 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
         TreeLogger.DEBUG, "Excluding file: $0");
   }
 
+  /**
+   * A Java system property that enables reusing directory listings across
+   * scans.
+   */
+  public static final String INCREMENTAL_SCAN_PROPERTY = "gwt.resources.incrementalScan";
+
+  /**
+   * The coarsest modification time granularity we expect (FAT uses 2 seconds).
+   * A listing taken this soon after its directory was modified might miss a
+   * later change with the same time stamp, so it is not reused.
+   */
+  private static final long MTIME_GRANULARITY_MS = 2000;
+
   /**
    * Absolute directory.
    */
   private final File dir;
 
+  private final boolean incrementalScan = Boolean.getBoolean(INCREMENTAL_SCAN_PROPERTY);
+
+  /**
+   * Remembered directory listings, when {@link #incrementalScan} is set.
+   */
+  private final Map<File, DirectoryListing> listings =
+      new ConcurrentHashMap<File, DirectoryListing>();
+
   private final String location;
 
   /**
@@ -65,7 +113,7 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
     for (int i = 0, c = pathPrefixSets.size(); i < c; ++i) {
       results.add(new IdentityHashMap<AbstractResource, PathPrefix>());
     }
-    descendToFindResources(logger, pathPrefixSets, results, dir, "");
+    scan(logger, pathPrefixSets, results);
     return results;
   }
 
@@ -73,8 +121,7 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
   public Map<AbstractResource, PathPrefix> findApplicableResources(
       TreeLogger logger, PathPrefixSet pathPrefixSet) {
     Map<AbstractResource, PathPrefix> results = new IdentityHashMap<AbstractResource, PathPrefix>();
-    descendToFindResources(logger, Lists.create(pathPrefixSet),
-        Lists.create(results), dir, "");
+    scan(logger, Lists.create(pathPrefixSet), Lists.create(results));
     return results;
   }
 
@@ -92,41 +139,93 @@ public class DirectoryClassPathEntry extends ClassPathEntry {
    * @param dir the file or directory to consider
    * @param dirPath the abstract path name associated with 'parent', which
    *          explicitly does not include the classpath entry in its path
+   * @param listedAndReused counts directories listed and reused
    */
   private void descendToFindResources(TreeLogger logger,
       List<PathPrefixSet> pathPrefixSets,
-      List<Map<AbstractResource, PathPrefix>> results, File dir, String dirPath) {
+      List<Map<AbstractResource, PathPrefix>> results, File dir, String dirPath,
+      int[] listedAndReused) {
     assert (dir.isDirectory()) : dir + " is not a directory";
     int len = pathPrefixSets.size();
 
     // Assert: this directory is included in the path prefix set.
 
-    File[] children = dir.listFiles();
-    for (File child : children) {
+    DirectoryListing listing = getListing(dir, listedAndReused);
+    for (File child : listing.dirs) {
+      String childDirPath = dirPath + child.getName() + "/";
+      for (int i = 0; i < len; ++i) {
+        if (pathPrefixSets.get(i).includesDirectory(childDirPath)) {
+          Messages.DESCENDING_INTO_DIR.log(logger, child.getPath(), null);
+          descendToFindResources(logger, pathPrefixSets, results, child,
+              childDirPath, listedAndReused);
+          break;
+        }
+      }
+    }
+    for (File child : listing.files) {
       String childPath = dirPath + child.getName();
-      if (child.isDirectory()) {
-        String childDirPath = childPath + "/";
-        for (int i = 0; i < len; ++i) {
-          if (pathPrefixSets.get(i).includesDirectory(childDirPath)) {
-            Messages.DESCENDING_INTO_DIR.log(logger, child.getPath(), null);
-            descendToFindResources(logger, pathPrefixSets, results, child,
-                childDirPath);
-            break;
-          }
+      for (int i = 0; i < len; ++i) {
+        PathPrefix prefix = null;
+        if ((prefix = pathPrefixSets.get(i).includesResource(childPath)) != null) {
+          Messages.INCLUDING_FILE.log(logger, childPath, null);
+          FileResource r = new FileResource(this, childPath, child);
+          results.get(i).put(r, prefix);
         }
-      } else if (child.isFile()) {
-        for (int i = 0; i < len; ++i) {
-          PathPrefix prefix = null;
-          if ((prefix = pathPrefixSets.get(i).includesResource(childPath)) != null) {
-            Messages.INCLUDING_FILE.log(logger, childPath, null);
-            FileResource r = new FileResource(this, childPath, child);
-            results.get(i).put(r, prefix);
-          }
-          else {
-            Messages.EXCLUDING_FILE.log(logger, childPath, null);
-          }
+        else {
+          Messages.EXCLUDING_FILE.log(logger, childPath, null);
         }
       }
     }
   }
+
+  /**
+   * Lists a directory, or reuses its previous listing if incremental scanning
+   * is enabled and the directory has not been modified since.
+   * 
+   * @param listedAndReused counts directories listed and reused
+   */
+  private DirectoryListing getListing(File dir, int[] listedAndReused) {
+    long lastModified = 0;
+    if (incrementalScan) {
+      lastModified = dir.lastModified();
+      DirectoryListing listing = listings.get(dir);
+      if (listing != null && listing.lastModified == lastModified
+          && listing.listedAt - lastModified > MTIME_GRANULARITY_MS) {
+        ++listedAndReused[1];
+        return listing;
+      }
+    }
+
+    long listedAt = System.currentTimeMillis();
+    List<File> dirs = new ArrayList<File>();
+    List<File> files = new ArrayList<File>();
+    File[] children = dir.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          dirs.add(child);
+        } else if (child.isFile()) {
+          files.add(child);
+        }
+      }
+    }
+    ++listedAndReused[0];
+
+    DirectoryListing listing = new DirectoryListing(dirs.toArray(new File[dirs.size()]),
+        files.toArray(new File[files.size()]), lastModified, listedAt);
+    if (incrementalScan) {
+      listings.put(dir, listing);
+    }
+    return listing;
+  }
+
+  private void scan(TreeLogger logger, List<PathPrefixSet> pathPrefixSets,
+      List<Map<AbstractResource, PathPrefix>> results) {
+    Event scanEvent = SpeedTracerLogger.start(CompilerEventType.RESOURCE_ORACLE,
+        "phase", "scanDirectory", "location", location);
+    int[] listedAndReused = new int[2];
+    descendToFindResources(logger, pathPrefixSets, results, dir, "", listedAndReused);
+    scanEvent.end("listed", String.valueOf(listedAndReused[0]),
+        "reused", String.valueOf(listedAndReused[1]));
+  }
 }
@@ -17,22 +17,26 @@ package com.google.gwt.dev.resource.impl;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.dev.util.collect.IdentityHashMap;
-import com.google.gwt.dev.util.collect.IdentityHashSet;
 import com.google.gwt.dev.util.collect.IdentityMaps;
-import com.google.gwt.dev.util.collect.Sets;
 import com.google.gwt.dev.util.msg.Message1String;
 import com.google.gwt.thirdparty.guava.common.collect.MapMaker;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 /**
  * A classpath entry that is a jar or zip file.
+ * <p>
+ * The names of the entries are kept in a sorted {@link ZipFileIndex}, so only
+ * the entries under the prefixes of a {@link PathPrefixSet} are examined. If
+ * the {@value #INDEX_DIR_PROPERTY} system property names a directory, indexes
+ * are saved there and reused by later processes while the zip file's size and
+ * modification time are unchanged.
  */
 public class ZipFileClassPathEntry extends ClassPathEntry {
 
@@ -52,8 +56,8 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
     static final Message1String INCLUDING_RESOURCE = new Message1String(
         TreeLogger.DEBUG, "Including $0");
 
-    static final Message1String READ_ZIP_ENTRY = new Message1String(
-        TreeLogger.DEBUG, "$0");
+    static final Message1String LOADED_INDEX = new Message1String(
+        TreeLogger.TRACE, "Loaded saved index of zip file: $0");
   }
 
   private static class ZipFileSnapshot {
@@ -74,6 +78,12 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
    */
   private static final Map<String, ZipFileClassPathEntry> entryCache = new MapMaker().softValues().makeMap();
 
+  /**
+   * A Java system property naming the directory that zip file indexes are
+   * saved in.
+   */
+  public static final String INDEX_DIR_PROPERTY = "gwt.resources.jarIndexDir";
+
   public static void clearCache() {
     entryCache.clear();
   }
@@ -92,7 +102,12 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
     return entry;
   }
 
-  private Set<ZipFileResource> allZipFileResources;
+  private final File file;
+
+  /**
+   * The names of the resources in the zip file, built on demand.
+   */
+  private ZipFileIndex zipFileIndex;
 
   /**
    * The lifetime of the {@link PathPrefixSet} pins the life time of the associated
@@ -104,10 +119,18 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
 
   private final long lastModified;
   private final String location;
+
+  /**
+   * The resource for each entry of {@link #zipFileIndex}, created when it is
+   * first included. The same resource is returned for every snapshot.
+   */
+  private ZipFileResource[] resources;
+
   private final ZipFile zipFile;
 
   private ZipFileClassPathEntry(File zipFile) throws IOException {
     assert zipFile.isAbsolute();
+    this.file = zipFile;
     this.lastModified = zipFile.lastModified();
     this.zipFile = new ZipFile(zipFile);
     this.location = zipFile.toURI().toString();
@@ -144,32 +167,44 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
 
   synchronized void index(TreeLogger logger) {
     // Never re-index.
-    if (allZipFileResources == null) {
-      allZipFileResources = buildIndex(logger);
+    if (zipFileIndex == null) {
+      zipFileIndex = buildIndex(logger);
+      resources = new ZipFileResource[zipFileIndex.size()];
     }
   }
 
-  private Set<ZipFileResource> buildIndex(TreeLogger logger) {
-    logger = Messages.BUILDING_INDEX.branch(logger, zipFile.getName(), null);
-
-    Set<ZipFileResource> results = new IdentityHashSet<ZipFileResource>();
-    Enumeration<? extends ZipEntry> e = zipFile.entries();
-    while (e.hasMoreElements()) {
-      ZipEntry zipEntry = e.nextElement();
-      if (zipEntry.isDirectory()) {
-        // Skip directories.
-        continue;
+  /**
+   * Loads the saved index if it is still current, otherwise reads the zip
+   * file and saves the result for next time. Problems with saved indexes are
+   * logged and otherwise ignored.
+   */
+  private ZipFileIndex buildIndex(TreeLogger logger) {
+    String indexDirName = System.getProperty(INDEX_DIR_PROPERTY);
+    File indexFile = null;
+    if (indexDirName != null) {
+      indexFile = ZipFileIndex.getIndexFile(new File(indexDirName), file);
+      try {
+        ZipFileIndex index = ZipFileIndex.load(indexFile, file);
+        if (index != null) {
+          Messages.LOADED_INDEX.log(logger, zipFile.getName(), null);
+          return index;
+        }
+      } catch (IOException e) {
+        logger.log(TreeLogger.TRACE, "Unable to load index " + indexFile, e);
       }
-      if (zipEntry.getName().startsWith("META-INF/")) {
-        // Skip META-INF since classloaders normally make this invisible.
-        continue;
+    }
+
+    Messages.BUILDING_INDEX.log(logger, zipFile.getName(), null);
+    ZipFileIndex index = ZipFileIndex.build(zipFile);
+    if (indexFile != null) {
+      try {
+        indexFile.getParentFile().mkdirs();
+        index.save(indexFile, file);
+      } catch (IOException e) {
+        logger.log(TreeLogger.TRACE, "Unable to save index " + indexFile, e);
       }
-      ZipFileResource zipResource = new ZipFileResource(this,
-          zipEntry.getName());
-      results.add(zipResource);
-      Messages.READ_ZIP_ENTRY.log(logger, zipEntry.getName(), null);
     }
-    return Sets.normalize(results);
+    return index;
   }
 
   private Map<AbstractResource, PathPrefix> computeApplicableResources(
@@ -178,17 +213,48 @@ public class ZipFileClassPathEntry extends ClassPathEntry {
         zipFile.getName(), null);
 
     Map<AbstractResource, PathPrefix> results = new IdentityHashMap<AbstractResource, PathPrefix>();
-    for (ZipFileResource r : allZipFileResources) {
-      String path = r.getPath();
-      String[] pathParts = r.getPathParts();
-      PathPrefix prefix = null;
-      if ((prefix = pathPrefixSet.includesResource(path, pathParts)) != null) {
-        Messages.INCLUDING_RESOURCE.log(logger, path, null);
-        results.put(r, prefix);
-      } else {
-        Messages.EXCLUDING_RESOURCE.log(logger, path, null);
+    for (String prefixString : getOutermostPrefixes(pathPrefixSet)) {
+      for (int i = zipFileIndex.findFirst(prefixString), c = zipFileIndex.size(); i < c; ++i) {
+        String path = zipFileIndex.getName(i);
+        if (!path.startsWith(prefixString)) {
+          // Past the last name under this prefix.
+          break;
+        }
+        ZipFileResource r = resources[i];
+        if (r == null) {
+          r = resources[i] = new ZipFileResource(this, path);
+        }
+        PathPrefix prefix = null;
+        if ((prefix = pathPrefixSet.includesResource(r.getPath(), r.getPathParts())) != null) {
+          Messages.INCLUDING_RESOURCE.log(logger, path, null);
+          results.put(r, prefix);
+        } else {
+          Messages.EXCLUDING_RESOURCE.log(logger, path, null);
+        }
       }
     }
     return IdentityMaps.normalize(results);
   }
+
+  /**
+   * Returns the sorted prefix strings of <code>pathPrefixSet</code>, leaving
+   * out any that lie under another. Every included resource lies under exactly
+   * one of them.
+   */
+  private List<String> getOutermostPrefixes(PathPrefixSet pathPrefixSet) {
+    List<String> prefixStrings = new ArrayList<String>();
+    for (PathPrefix prefix : pathPrefixSet.values()) {
+      prefixStrings.add(prefix.getPrefix());
+    }
+    Collections.sort(prefixStrings);
+
+    List<String> outermost = new ArrayList<String>();
+    for (String prefixString : prefixStrings) {
+      // Sorting puts each prefix right after the prefixes it lies under.
+      if (outermost.isEmpty() || !prefixString.startsWith(outermost.get(outermost.size() - 1))) {
+        outermost.add(prefixString);
+      }
+    }
+    return outermost;
+  }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.resource.impl;
+
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The sorted names of the resources in a jar or zip file. Directories and
+ * META-INF are left out, since classloaders normally make them invisible.
+ * <p>
+ * Because the names are sorted, all names under a path prefix form one
+ * contiguous range that {@link #findFirst(String)} locates by binary search.
+ * <p>
+ * An index can be saved to a file and loaded again by a later process. The
+ * file records the absolute path, size and modification time of the zip file
+ * it was built from, and {@link #load(File, File)} ignores it when any of them
+ * differ.
+ */
+final class ZipFileIndex {
+
+  /**
+   * Identifies index files; the low byte is the format version.
+   */
+  private static final int MAGIC = 0x475A4901;
+
+  /**
+   * Reads each entry of <code>zipFile</code> and returns the sorted names.
+   */
+  static ZipFileIndex build(ZipFile zipFile) {
+    List<String> names = new ArrayList<String>();
+    Enumeration<? extends ZipEntry> e = zipFile.entries();
+    while (e.hasMoreElements()) {
+      ZipEntry zipEntry = e.nextElement();
+      if (zipEntry.isDirectory()) {
+        // Skip directories.
+        continue;
+      }
+      if (zipEntry.getName().startsWith("META-INF/")) {
+        // Skip META-INF since classloaders normally make this invisible.
+        continue;
+      }
+      names.add(zipEntry.getName());
+    }
+    String[] sorted = names.toArray(new String[names.size()]);
+    Arrays.sort(sorted);
+    return new ZipFileIndex(sorted);
+  }
+
+  /**
+   * Returns the file in <code>indexDir</code> that holds the index of
+   * <code>zipFile</code>.
+   */
+  static File getIndexFile(File indexDir, File zipFile) {
+    return new File(indexDir,
+        Util.computeStrongName(Util.getBytes(zipFile.getAbsolutePath())) + ".index");
+  }
+
+  /**
+   * Memory maps and reads an index saved by {@link #save(File, File)}.
+   *
+   * @return the index, or <code>null</code> if <code>indexFile</code> is
+   *         missing, has an unknown format, or was built from a different
+   *         version of <code>zipFile</code>
+   */
+  static ZipFileIndex load(File indexFile, File zipFile) throws IOException {
+    if (!indexFile.isFile()) {
+      return null;
+    }
+    RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+    try {
+      FileChannel channel = file.getChannel();
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || !zipFile.getAbsolutePath().equals(readString(buffer))
+          || buffer.getLong() != zipFile.length() || buffer.getLong() != zipFile.lastModified()) {
+        return null;
+      }
+      String[] names = new String[buffer.getInt()];
+      for (int i = 0; i < names.length; ++i) {
+        names[i] = readString(buffer);
+      }
+      return new ZipFileIndex(names);
+    } catch (BufferUnderflowException e) {
+      // Truncated.
+      return null;
+    } catch (NegativeArraySizeException e) {
+      // Corrupt.
+      return null;
+    } finally {
+      Utility.close(file);
+    }
+  }
+
+  private static String readString(MappedByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return Util.toString(bytes);
+  }
+
+  private final String[] names;
+
+  private ZipFileIndex(String[] names) {
+    this.names = names;
+  }
+
+  /**
+   * Returns the position of the first name that starts with
+   * <code>prefix</code>, or the position where it would be inserted.
+   */
+  int findFirst(String prefix) {
+    int index = Arrays.binarySearch(names, prefix);
+    return index < 0 ? -index - 1 : index;
+  }
+
+  String getName(int index) {
+    return names[index];
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  /**
+   * Saves this index as the index of <code>zipFile</code>. The index is
+   * written to a temporary file that is then renamed, so concurrent processes
+   * never see a partial index.
+   */
+  void save(File indexFile, File zipFile) throws IOException {
+    File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+    try {
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        out.writeInt(MAGIC);
+        writeString(out, zipFile.getAbsolutePath());
+        out.writeLong(zipFile.length());
+        out.writeLong(zipFile.lastModified());
+        out.writeInt(names.length);
+        for (String name : names) {
+          writeString(out, name);
+        }
+      } finally {
+        Utility.close(out);
+      }
+      indexFile.delete();
+      if (!tempFile.renameTo(indexFile)) {
+        throw new IOException("Unable to rename " + tempFile + " to " + indexFile);
+      }
+    } finally {
+      tempFile.delete();
+    }
+  }
+
+  private void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = Util.getBytes(s);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -732,7 +732,8 @@ public abstract class BrowserChannel {
   /**
    * A message asking the other side to free object references. Note that there
    * is no response to this message, and this must only be sent immediately
-   * before an Invoke or Return message.
+   * before an Invoke or Return message. It is not flushed, so it reaches the
+   * other side in the same write as that message.
    */
   protected static class FreeMessage extends Message {
     public static FreeMessage receive(BrowserChannel channel)
@@ -755,7 +756,6 @@ public abstract class BrowserChannel {
       for (int id : ids) {
         stream.writeInt(id);
       }
-      stream.flush();
     }
 
     private final int ids[];
@@ -963,7 +963,8 @@ public abstract class BrowserChannel {
   /**
    * A message sending JSNI code to be evaluated. Note that there is no response
    * to this message, and this must only be sent immediately before an Invoke or
-   * Return message.
+   * Return message. It is not flushed, so it reaches the other side in the same
+   * write as that message.
    */
   protected static class LoadJsniMessage extends Message {
     public static LoadJsniMessage receive(BrowserChannel channel)
@@ -978,7 +979,6 @@ public abstract class BrowserChannel {
       DataOutputStream stream = channel.getStreamToOtherSide();
       stream.write(MessageType.LOAD_JSNI.getId());
       writeUtf8String(stream, js);
-      stream.flush();
     }
 
     private final String js;
@@ -202,6 +202,7 @@ public class BrowserChannelClient extends BrowserChannel {
       boolean expectReturn) throws IOException, BrowserChannelException {
     while (true) {
       ExceptionOrReturnValue returnValue;
+      getStreamToOtherSide().flush();
       MessageType type = Message.readMessageType(getStreamFromOtherSide());
       if (logger.isLoggable(TreeLogger.INFO)) {
         logger.log(TreeLogger.INFO, "client: received " + type + ", thread: "
@@ -96,11 +96,24 @@ public class StandardRebindOracle implements RebindOracle {
         assert (resultTypeName != null);
         return resultTypeName;
       } finally {
+        genCtx.clearCachedRebindState();
         rebindEvent.end();
       }
     }
 
     private Rule getRebindRule(TreeLogger logger, String typeName) throws UnableToCompleteException {
+      /*
+       * Rules record their fallback evaluation cost while being evaluated, and
+       * the same Rules are shared by the rebind oracles of every permutation.
+       * Rule selection is cheap, so just serialize it.
+       */
+      synchronized (rules) {
+        return findRebindRule(logger, typeName);
+      }
+    }
+
+    private Rule findRebindRule(TreeLogger logger, String typeName)
+        throws UnableToCompleteException {
 
       // Make the rebind decision.
       //
@@ -18,34 +18,183 @@ package com.google.gwt.dev.util;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * A nifty class that lets you squirrel away data on the file system. Write
- * once, read many times. Instance of this are thread-safe by way of internal
- * synchronization.
+ * once, read many times. Instance of this are thread-safe.
  * 
- * Note that in the current implementation, the backing temp file will get
- * arbitrarily large as you continue adding things to it. There is no internal
- * GC or compaction.
+ * The data lives in one or more append-only segment files. A writer leases a
+ * segment for the duration of one write, so concurrent writers append to
+ * different segments without contending for a lock, and a streamed write can
+ * stay contiguous. Reads use positional reads and need no lock at all. A token
+ * encodes the segment and the offset of the data within it.
+ * 
+ * Note that in the current implementation, the backing temp files will get
+ * arbitrarily large as you continue adding things to them. There is no
+ * internal GC or compaction.
  */
 public class DiskCache {
   /**
    * For future thought: if we used Object tokens instead of longs, we could
    * actually track references and do GC/compaction on the underlying file.
-   * 
-   * I considered using memory mapping, but I didn't see any obvious way to make
-   * the map larger after the fact, which kind of defeats the infinite-append
-   * design. At any rate, I measured the current performance of this design to
-   * be so fast relative to what I'm using it for, I didn't pursue this further.
    */
 
+  /**
+   * Reads the bytes written for one token, a buffer at a time.
+   */
+  private class ReadStream extends InputStream {
+    private long position;
+    private int remaining;
+    private final Segment segment;
+
+    public ReadStream(long token) throws IOException {
+      segment = segmentFor(token);
+      position = offsetOf(token);
+      remaining = segment.readLength(position);
+      position += 4;
+    }
+
+    @Override
+    public int available() {
+      return remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining == 0) {
+        return -1;
+      }
+      int read = segment.read(ByteBuffer.wrap(b, off, Math.min(len, remaining)), position);
+      if (read > 0) {
+        position += read;
+        remaining -= read;
+      }
+      return read;
+    }
+  }
+
+  /**
+   * One append-only backing file. Only the writer that has leased a segment
+   * appends to it, so {@link #end} needs no synchronization beyond the
+   * hand-off through {@link DiskCache#idleSegments}.
+   * <p>
+   * Interrupting a thread during I/O on a {@link FileChannel} closes the
+   * channel for every thread, so a closed channel is reopened and the I/O is
+   * retried; only the interrupted thread sees the failure.
+   */
+  private static class Segment {
+    final int index;
+    long end;
+    private volatile FileChannel channel;
+    private boolean closed;
+    private RandomAccessFile file;
+    private final File temp;
+
+    Segment(int index) throws IOException {
+      this.index = index;
+      temp = File.createTempFile("gwt", "byte-cache");
+      temp.deleteOnExit();
+      file = new RandomAccessFile(temp, "rw");
+      file.setLength(0);
+      channel = file.getChannel();
+    }
+
+    synchronized void close() throws IOException {
+      closed = true;
+      file.setLength(0);
+      file.close();
+    }
+
+    int read(ByteBuffer buf, long position) throws IOException {
+      while (true) {
+        FileChannel current = channel;
+        try {
+          return current.read(buf, position);
+        } catch (ClosedChannelException e) {
+          reopen(current, e);
+        }
+      }
+    }
+
+    int readLength(long position) throws IOException {
+      ByteBuffer header = ByteBuffer.allocate(4);
+      readFully(header, position);
+      header.flip();
+      return header.getInt();
+    }
+
+    void readFully(ByteBuffer buf, long position) throws IOException {
+      while (buf.hasRemaining()) {
+        int read = read(buf, position);
+        if (read < 0) {
+          throw new IOException("Unexpected end of byte cache");
+        }
+        position += read;
+      }
+    }
+
+    long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+      while (true) {
+        FileChannel current = channel;
+        try {
+          return current.transferTo(position, count, target);
+        } catch (ClosedChannelException e) {
+          reopen(current, e);
+        }
+      }
+    }
+
+    void writeFully(ByteBuffer buf, long position) throws IOException {
+      while (buf.hasRemaining()) {
+        FileChannel current = channel;
+        try {
+          position += current.write(buf, position);
+        } catch (ClosedChannelException e) {
+          reopen(current, e);
+        }
+      }
+    }
+
+    /**
+     * Replaces <code>failed</code> with a new channel on the same file if it
+     * was closed under us, then rethrows <code>e</code> unless the caller
+     * should retry.
+     */
+    private synchronized void reopen(FileChannel failed, ClosedChannelException e)
+        throws IOException {
+      if (closed || failed.isOpen()) {
+        // Closed by close(), or the failure came from another channel.
+        throw e;
+      }
+      if (channel == failed) {
+        file = new RandomAccessFile(temp, "rw");
+        channel = file.getChannel();
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        throw e;
+      }
+    }
+  }
+
   private static class Shutdown implements Runnable {
     @Override
     public void run() {
@@ -66,22 +215,39 @@ public class DiskCache {
    */
   public static DiskCache INSTANCE = new DiskCache();
 
+  /**
+   * The low bits of a token hold the offset within a segment; the high bits
+   * hold the segment index. Tokens from the first segment are plain offsets.
+   */
+  private static final int OFFSET_BITS = 48;
+
+  private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
   private static List<WeakReference<DiskCache>> shutdownList;
 
-  private boolean atEnd = true;
-  private RandomAccessFile file;
+  private static long offsetOf(long token) {
+    return token & OFFSET_MASK;
+  }
+
+  private final ConcurrentLinkedQueue<Segment> idleSegments =
+      new ConcurrentLinkedQueue<Segment>();
+
+  /**
+   * All segments, indexed by segment index. Replaced, never mutated, when a
+   * segment is added.
+   */
+  private volatile Segment[] segments = new Segment[0];
 
   DiskCache() {
     try {
-      File temp = File.createTempFile("gwt", "byte-cache");
-      temp.deleteOnExit();
-      file = new RandomAccessFile(temp, "rw");
-      file.setLength(0);
-      if (shutdownList == null) {
-        shutdownList = new ArrayList<WeakReference<DiskCache>>();
-        Runtime.getRuntime().addShutdownHook(new Thread(new Shutdown()));
+      idleSegments.add(newSegment());
+      synchronized (DiskCache.class) {
+        if (shutdownList == null) {
+          shutdownList = new ArrayList<WeakReference<DiskCache>>();
+          Runtime.getRuntime().addShutdownHook(new Thread(new Shutdown()));
+        }
+        shutdownList.add(new WeakReference<DiskCache>(this));
       }
-      shutdownList.add(new WeakReference<DiskCache>(this));
     } catch (IOException e) {
       throw new RuntimeException("Unable to initialize byte cache", e);
     }
@@ -93,19 +259,34 @@ public class DiskCache {
    * @param token a previously returned token
    * @return the bytes that were written
    */
-  public synchronized byte[] readByteArray(long token) {
+  public byte[] readByteArray(long token) {
     try {
-      atEnd = false;
-      file.seek(token);
-      int length = file.readInt();
+      Segment segment = segmentFor(token);
+      long position = offsetOf(token);
+      int length = segment.readLength(position);
       byte[] result = new byte[length];
-      file.readFully(result);
+      segment.readFully(ByteBuffer.wrap(result), position + 4);
       return result;
     } catch (IOException e) {
       throw new RuntimeException("Unable to read from byte cache", e);
     }
   }
 
+  /**
+   * Returns a stream over the underlying bytes, without reading them into
+   * memory all at once.
+   *
+   * @param token a previously returned token
+   * @return a stream of the bytes that were written
+   */
+  public InputStream readStream(long token) {
+    try {
+      return new ReadStream(token);
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read from byte cache", e);
+    }
+  }
+
   /**
    * Deserialize the underlying bytes as an object.
    * 
@@ -144,54 +325,67 @@ public class DiskCache {
    * 
    * @return a token to retrieve the data later
    */
-  public synchronized long transferFromStream(InputStream in) throws IOException {
+  public long transferFromStream(InputStream in) throws IOException {
     assert in != null;
     byte[] buf = Util.takeThreadLocalBuf();
+    Segment segment = leaseSegment();
     try {
-      long position = moveToEndPosition();
+      long position = segment.end;
+      long end = position + 4;
 
-      // Placeholder, we don't know the length yet.
-      file.writeInt(-1);
-
-      // Transfer all the bytes.
-      int length = 0;
+      // Transfer all the bytes, then fill in the length in front of them.
       int bytesRead;
       while ((bytesRead = in.read(buf)) != -1) {
-        file.write(buf, 0, bytesRead);
-        length += bytesRead;
+        segment.writeFully(ByteBuffer.wrap(buf, 0, bytesRead), end);
+        end += bytesRead;
       }
+      ByteBuffer header = ByteBuffer.allocate(4);
+      header.putInt((int) (end - position - 4)).flip();
+      segment.writeFully(header, position);
 
-      // Now go back and fill in the length.
-      file.seek(position);
-      file.writeInt(length);
-      // Don't eagerly seek the end, the next operation might be a read.
-      atEnd = false;
-      return position;
+      segment.end = end;
+      return tokenFor(segment, position);
     } finally {
+      idleSegments.add(segment);
       Util.releaseThreadLocalBuf(buf);
     }
   }
 
   /**
-   * Writes the underlying bytes into the specified output stream.
+   * Writes the underlying bytes into the specified output stream. Bytes are
+   * transferred without copying through the Java heap when <code>out</code> is
+   * a {@link FileOutputStream}.
    * 
    * @param token a previously returned token
    * @param out the stream to write into
    */
-  public synchronized void transferToStream(long token, OutputStream out) throws IOException {
+  public void transferToStream(long token, OutputStream out) throws IOException {
+    Segment segment = segmentFor(token);
+    long position = offsetOf(token);
+    int length = segment.readLength(position);
+    position += 4;
+
+    if (out instanceof FileOutputStream) {
+      FileChannel target = ((FileOutputStream) out).getChannel();
+      while (length > 0) {
+        long transferred = segment.transferTo(position, length, target);
+        if (transferred <= 0) {
+          throw new IOException("Unexpected end of byte cache");
+        }
+        position += transferred;
+        length -= transferred;
+      }
+      return;
+    }
+
     byte[] buf = Util.takeThreadLocalBuf();
     try {
-      atEnd = false;
-      file.seek(token);
-      int length = file.readInt();
-      int bufLen = buf.length;
-      while (length > bufLen) {
-        int read = file.read(buf, 0, bufLen);
-        length -= read;
-        out.write(buf, 0, read);
-      }
       while (length > 0) {
-        int read = file.read(buf, 0, length);
+        int read = segment.read(ByteBuffer.wrap(buf, 0, Math.min(length, buf.length)), position);
+        if (read < 0) {
+          throw new IOException("Unexpected end of byte cache");
+        }
+        position += read;
         length -= read;
         out.write(buf, 0, read);
       }
@@ -205,14 +399,20 @@ public class DiskCache {
    * 
    * @return a token to retrieve the data later
    */
-  public synchronized long writeByteArray(byte[] bytes) {
+  public long writeByteArray(byte[] bytes) {
+    Segment segment = leaseSegment();
     try {
-      long position = moveToEndPosition();
-      file.writeInt(bytes.length);
-      file.write(bytes);
-      return position;
+      long position = segment.end;
+      ByteBuffer header = ByteBuffer.allocate(4);
+      header.putInt(bytes.length).flip();
+      segment.writeFully(header, position);
+      segment.writeFully(ByteBuffer.wrap(bytes), position + 4);
+      segment.end = position + 4 + bytes.length;
+      return tokenFor(segment, position);
     } catch (IOException e) {
       throw new RuntimeException("Unable to write to byte cache", e);
+    } finally {
+      idleSegments.add(segment);
     }
   }
 
@@ -241,34 +441,48 @@ public class DiskCache {
   }
 
   @Override
-  protected synchronized void finalize() throws Throwable {
+  protected void finalize() throws Throwable {
     close();
   }
 
-  private void close() throws Throwable {
-    if (file != null) {
-      file.setLength(0);
-      file.close();
-      file = null;
+  private synchronized void close() throws Throwable {
+    for (Segment segment : segments) {
+      segment.close();
     }
+    segments = new Segment[0];
   }
 
   /**
-   * Moves to the end of the file if necessary and returns the offset position.
-   * Caller must synchronize.
-   * 
-   * @return the offset position of the end of the file
-   * @throws IOException
+   * Takes an idle segment for one write, creating a new segment if every
+   * existing one is in use. The caller must put it back in
+   * {@link #idleSegments} when done.
    */
-  private long moveToEndPosition() throws IOException {
-    // Get an end pointer.
-    if (atEnd) {
-      return file.getFilePointer();
-    } else {
-      long position = file.length();
-      file.seek(position);
-      atEnd = true;
-      return position;
+  private Segment leaseSegment() {
+    Segment segment = idleSegments.poll();
+    if (segment != null) {
+      return segment;
+    }
+    try {
+      return newSegment();
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to grow byte cache", e);
     }
   }
-}
\ No newline at end of file
+
+  private synchronized Segment newSegment() throws IOException {
+    Segment segment = new Segment(segments.length);
+    Segment[] newSegments = new Segment[segments.length + 1];
+    System.arraycopy(segments, 0, newSegments, 0, segments.length);
+    newSegments[segment.index] = segment;
+    segments = newSegments;
+    return segment;
+  }
+
+  private Segment segmentFor(long token) {
+    return segments[(int) (token >>> OFFSET_BITS)];
+  }
+
+  private long tokenFor(Segment segment, long position) {
+    return ((long) segment.index << OFFSET_BITS) | position;
+  }
+}
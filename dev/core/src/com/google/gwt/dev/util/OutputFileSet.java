@@ -52,6 +52,15 @@ public abstract class OutputFileSet {
     return pathDescription;
   }
 
+  /**
+   * Whether streams opened on this output file set may be written and closed
+   * concurrently. Callers must still not call {@link #openForWrite} from more
+   * than one thread at a time.
+   */
+  public boolean supportsConcurrentWrites() {
+    return false;
+  }
+
   public final OutputStream openForWrite(String path) throws IOException {
     int lastModifiedTime = -1;
     return openForWrite(path, lastModifiedTime);
@@ -42,6 +42,12 @@ public class OutputFileSetOnDirectory extends OutputFileSet {
   public void close() {
   }
 
+  @Override
+  public boolean supportsConcurrentWrites() {
+    // Each stream writes its own file.
+    return true;
+  }
+
   @Override
   protected OutputStream createNewOutputStream(String path,
       final long lastModifiedTime) throws IOException {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.util.arg;
+
+import com.google.gwt.dev.jjs.InliningPreset;
+import com.google.gwt.thirdparty.guava.common.base.Joiner;
+import com.google.gwt.util.tools.ArgHandlerString;
+
+/**
+ * An ArgHandler to provide the -XinliningPreset flag.
+ */
+public class ArgHandlerInliningPreset extends ArgHandlerString {
+
+  private final OptionInliningPreset option;
+
+  public ArgHandlerInliningPreset(OptionInliningPreset option) {
+    this.option = option;
+  }
+
+  @Override
+  public String getPurpose() {
+    return "EXPERIMENTAL: Trade output size against speed when inlining: "
+        + Joiner.on(", ").join(InliningPreset.values()) + " (defaults to "
+        + InliningPreset.BALANCED + ")";
+  }
+
+  @Override
+  public String getTag() {
+    return "-XinliningPreset";
+  }
+
+  @Override
+  public String[] getTagArgs() {
+    return new String[] {"preset"};
+  }
+
+  @Override
+  public boolean isExperimental() {
+    return true;
+  }
+
+  @Override
+  public boolean setString(String value) {
+    InliningPreset preset = InliningPreset.fromString(value);
+    if (preset == null) {
+      System.err.println(getTag() + " should be followed by one of "
+          + Joiner.on(", ").join(InliningPreset.values()));
+      return false;
+    }
+    option.setInliningPreset(preset);
+    return true;
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.util.arg;
+
+import com.google.gwt.dev.jjs.InliningPreset;
+
+/**
+ * Option to choose how the inliners trade output size against speed.
+ */
+public interface OptionInliningPreset {
+
+  /**
+   * Returns the inlining preset.
+   */
+  InliningPreset getInliningPreset();
+
+  /**
+   * Sets the inlining preset.
+   */
+  void setInliningPreset(InliningPreset preset);
+}
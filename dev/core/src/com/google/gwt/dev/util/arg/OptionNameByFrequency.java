@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.util.arg;
+
+/**
+ * Option to determine whether obfuscated output should give the shortest
+ * identifiers to the names that are referenced most often.
+ */
+public interface OptionNameByFrequency {
+
+  /**
+   * Returns true if obfuscated names should be allocated by reference count.
+   */
+  boolean shouldNameByFrequency();
+
+  /**
+   * Sets whether or not obfuscated names should be allocated by reference
+   * count.
+   */
+  void setNameByFrequency(boolean enabled);
+}
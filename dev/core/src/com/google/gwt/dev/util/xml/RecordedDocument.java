@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.util.xml;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.LocatorImpl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * The SAX events of a parsed XML document, recorded along with their line
+ * numbers. {@link ReflectiveParser} can replay them into a schema any number of
+ * times, from any thread, without parsing the document again.
+ */
+public final class RecordedDocument {
+
+  /**
+   * One recorded SAX event.
+   */
+  private abstract static class Event {
+    final int lineNumber;
+
+    Event(int lineNumber) {
+      this.lineNumber = lineNumber;
+    }
+
+    abstract void replay(ContentHandler handler) throws SAXException;
+  }
+
+  private static class EndElement extends Event {
+    final String name;
+
+    EndElement(int lineNumber, String name) {
+      super(lineNumber);
+      this.name = name;
+    }
+
+    @Override
+    void replay(ContentHandler handler) throws SAXException {
+      handler.endElement("", "", name);
+    }
+  }
+
+  private static class StartElement extends Event {
+    final Attributes attributes;
+    final String name;
+
+    StartElement(int lineNumber, String name, Attributes attributes) {
+      super(lineNumber);
+      this.name = name;
+      this.attributes = attributes;
+    }
+
+    @Override
+    void replay(ContentHandler handler) throws SAXException {
+      handler.startElement("", "", name, attributes);
+    }
+  }
+
+  private static class Text extends Event {
+    final char[] text;
+
+    Text(int lineNumber, char[] text) {
+      super(lineNumber);
+      this.text = text;
+    }
+
+    @Override
+    void replay(ContentHandler handler) throws SAXException {
+      handler.characters(text, 0, text.length);
+    }
+  }
+
+  /**
+   * Parses the document read from <code>reader</code> and records its events.
+   * The reader is not closed.
+   */
+  public static RecordedDocument record(Reader reader) throws IOException, SAXException {
+    final List<Event> events = new ArrayList<Event>();
+    XMLReader xmlReader;
+    try {
+      xmlReader = ReflectiveParser.createNewSaxParser().getXMLReader();
+    } catch (ParserConfigurationException e) {
+      throw new SAXException(e);
+    }
+    xmlReader.setContentHandler(new DefaultHandler() {
+      private Locator locator;
+
+      @Override
+      public void characters(char[] ch, int start, int length) {
+        char[] text = new char[length];
+        System.arraycopy(ch, start, text, 0, length);
+        events.add(new Text(locator.getLineNumber(), text));
+      }
+
+      @Override
+      public void endElement(String uri, String localName, String qName) {
+        events.add(new EndElement(locator.getLineNumber(), qName));
+      }
+
+      @Override
+      public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+      }
+
+      @Override
+      public void startElement(String uri, String localName, String qName, Attributes atts) {
+        events.add(new StartElement(locator.getLineNumber(), qName, new AttributesImpl(atts)));
+      }
+    });
+    xmlReader.parse(new InputSource(reader));
+    return new RecordedDocument(events.toArray(new Event[events.size()]));
+  }
+
+  private final Event[] events;
+
+  private RecordedDocument(Event[] events) {
+    this.events = events;
+  }
+
+  /**
+   * Returns the values of the given attribute on every element with the given
+   * name, in document order.
+   */
+  public List<String> getAttributeValues(String elementName, String attributeName) {
+    List<String> values = new ArrayList<String>();
+    for (Event event : events) {
+      if (event instanceof StartElement && ((StartElement) event).name.equals(elementName)) {
+        String value = ((StartElement) event).attributes.getValue(attributeName);
+        if (value != null) {
+          values.add(value);
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Sends the recorded events to <code>handler</code>, with a locator that
+   * reports the line number each event was recorded at.
+   */
+  void replay(ContentHandler handler) throws SAXException {
+    LocatorImpl locator = new LocatorImpl();
+    handler.setDocumentLocator(locator);
+    for (Event event : events) {
+      locator.setLineNumber(event.lineNumber);
+      event.replay(handler);
+    }
+  }
+}
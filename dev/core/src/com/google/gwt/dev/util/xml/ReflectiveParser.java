@@ -47,7 +47,7 @@ public final class ReflectiveParser {
   
   private static SAXParserFactory saxParserFactory;
 
-  private static synchronized SAXParser createNewSaxParser() throws ParserConfigurationException,
+  static synchronized SAXParser createNewSaxParser() throws ParserConfigurationException,
       SAXException {
     if (saxParserFactory == null) {
       Thread currentThread = Thread.currentThread();
@@ -316,8 +316,12 @@ public final class ReflectiveParser {
       return schemaLevels.peek();
     }
 
-    private void parse(TreeLogger logger, Schema topSchema, Reader reader)
-        throws UnableToCompleteException {
+    /**
+     * Parses <code>reader</code>, or replays <code>document</code> if it is
+     * not <code>null</code>.
+     */
+    private void parse(TreeLogger logger, Schema topSchema, Reader reader,
+        RecordedDocument document) throws UnableToCompleteException {
       // Set up the parentmost schema which is used to find default converters
       // and handlers (but isn't actually on the schema stack.)
       //
@@ -339,12 +343,16 @@ public final class ReflectiveParser {
 
       Throwable caught = null;
       try {
-        this.reader = reader;
-        SAXParser parser = createNewSaxParser();
-        InputSource inputSource = new InputSource(this.reader);
-        XMLReader xmlReader = parser.getXMLReader();
-        xmlReader.setContentHandler(this);
-        xmlReader.parse(inputSource);
+        if (document != null) {
+          document.replay(this);
+        } else {
+          this.reader = reader;
+          SAXParser parser = createNewSaxParser();
+          InputSource inputSource = new InputSource(this.reader);
+          XMLReader xmlReader = parser.getXMLReader();
+          xmlReader.setContentHandler(this);
+          xmlReader.parse(inputSource);
+        }
       } catch (SAXException e) {
         // If it's an exception wrapped in a SAXException, rip off the outer SAX
         // exception.
@@ -415,7 +423,18 @@ public final class ReflectiveParser {
     // Do the parse.
     //
     Impl impl = new Impl();
-    impl.parse(logger, schema, reader);
+    impl.parse(logger, schema, reader, null);
+  }
+
+  /**
+   * Like {@link #parse(TreeLogger, Schema, Reader)}, but replays a document
+   * that has already been parsed.
+   */
+  public static void parse(TreeLogger logger, Schema schema, RecordedDocument document)
+      throws UnableToCompleteException {
+    registerSchemaLevel(schema.getClass());
+    Impl impl = new Impl();
+    impl.parse(logger, schema, null, document);
   }
 
   /**
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.Compiler.CompilerOptionsImpl;
+import com.google.gwt.dev.cfg.ModuleDef;
+import com.google.gwt.dev.cfg.ModuleDefLoader;
+import com.google.gwt.dev.jjs.PermutationResult;
+import com.google.gwt.dev.util.FileBackedObject;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.dev.util.log.PrintWriterTreeLogger;
+import com.google.gwt.util.tools.Utility;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Tests that linking with {@link Link#LINK_THREADS_PROPERTY} set produces the
+ * same output as linking serially.
+ */
+public class LinkTest extends TestCase {
+
+  private static final String MODULE = "com.google.gwt.sample.hello.Hello";
+
+  /**
+   * Asserts that both directories hold the same files with the same contents.
+   */
+  private static void assertSameDirectories(File expected, File actual) {
+    List<String> expectedPaths = listFiles(expected, "");
+    assertFalse(expectedPaths.isEmpty());
+    assertEquals(expectedPaths, listFiles(actual, ""));
+    for (String path : expectedPaths) {
+      assertTrue(path, Arrays.equals(Util.readFileAsBytes(new File(expected, path)),
+          Util.readFileAsBytes(new File(actual, path))));
+    }
+  }
+
+  /**
+   * Asserts that both jars hold the same entries, in the same order, with the
+   * same contents. Entry times are not compared, since they come from the
+   * artifacts rather than the link.
+   */
+  private static void assertSameJars(File expected, File actual) throws IOException {
+    JarFile expectedJar = new JarFile(expected);
+    JarFile actualJar = new JarFile(actual);
+    try {
+      List<String> expectedNames = listEntries(expectedJar);
+      assertFalse(expectedNames.isEmpty());
+      assertEquals(expectedNames, listEntries(actualJar));
+      for (String name : expectedNames) {
+        assertTrue(name, Arrays.equals(readEntry(expectedJar, name), readEntry(actualJar, name)));
+      }
+    } finally {
+      expectedJar.close();
+      actualJar.close();
+    }
+  }
+
+  private static List<String> listEntries(JarFile jar) {
+    List<String> names = new ArrayList<String>();
+    for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+      names.add(entries.nextElement().getName());
+    }
+    return names;
+  }
+
+  /**
+   * Returns the paths of all files under <code>dir</code>, sorted.
+   */
+  private static List<String> listFiles(File dir, String prefix) {
+    List<String> paths = new ArrayList<String>();
+    String[] children = dir.list();
+    Arrays.sort(children);
+    for (String child : children) {
+      File file = new File(dir, child);
+      if (file.isDirectory()) {
+        paths.addAll(listFiles(file, prefix + child + "/"));
+      } else {
+        paths.add(prefix + child);
+      }
+    }
+    return paths;
+  }
+
+  private static byte[] readEntry(JarFile jar, String name) throws IOException {
+    InputStream in = jar.getInputStream(jar.getEntry(name));
+    try {
+      return Util.readStreamAsBytes(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  private final CompilerOptionsImpl options = new CompilerOptionsImpl();
+
+  /**
+   * Links every permutation of a module serially and with several threads.
+   * The war directory supports concurrent writes; the jar that holds the
+   * deploy and extra files does not.
+   */
+  public void testConcurrentLinkMatchesSerialLink() throws Exception {
+    File work = Utility.makeTemporaryDirectory(null, "linkwork");
+    String oldThreads = System.getProperty(Link.LINK_THREADS_PROPERTY);
+    try {
+      PrintWriterTreeLogger logger = new PrintWriterTreeLogger();
+      logger.setMaxDetail(TreeLogger.ERROR);
+      options.addModuleName(MODULE);
+      options.setWorkDir(new File(work, "work"));
+      options.setOptimizePrecompile(true);
+
+      ModuleDef module = ModuleDefLoader.loadFromClassPath(logger, MODULE, true);
+      Precompilation precompilation = Precompile.precompile(logger, options, module, null);
+      assertNotNull(precompilation);
+      Permutation[] perms = precompilation.getPermutations();
+      assertTrue(perms.length > 1);
+      List<FileBackedObject<PermutationResult>> resultFiles = CompilePerms.makeResultFiles(
+          options.getCompilerWorkDir(MODULE), perms);
+      CompilePerms.compile(logger, precompilation, perms, 1, resultFiles);
+
+      File serial = new File(work, "serial");
+      File concurrent = new File(work, "concurrent");
+      link(logger, "1", module, precompilation, resultFiles, serial);
+      link(logger, "4", module, precompilation, resultFiles, concurrent);
+
+      assertSameDirectories(new File(serial, "war"), new File(concurrent, "war"));
+      assertSameJars(new File(serial, "extra.jar"), new File(concurrent, "extra.jar"));
+    } finally {
+      if (oldThreads == null) {
+        System.clearProperty(Link.LINK_THREADS_PROPERTY);
+      } else {
+        System.setProperty(Link.LINK_THREADS_PROPERTY, oldThreads);
+      }
+      Util.recursiveDelete(work, false);
+    }
+  }
+
+  private void link(TreeLogger logger, String threads, ModuleDef module,
+      Precompilation precompilation, List<FileBackedObject<PermutationResult>> resultFiles,
+      File outDir) throws UnableToCompleteException, IOException {
+    System.setProperty(Link.LINK_THREADS_PROPERTY, threads);
+    File war = new File(outDir, "war");
+    File jar = new File(outDir, "extra.jar");
+    war.mkdirs();
+    Link.link(logger, module, precompilation.getGeneratedArtifacts(),
+        precompilation.getPermutations(), resultFiles, war, jar, jar,
+        precompilation.getUnifiedAst().getOptions());
+  }
+}
@@ -18,9 +18,14 @@ package com.google.gwt.dev.cfg;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.dev.util.UnitTestTreeLogger;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.util.tools.Utility;
 
 import junit.framework.TestCase;
 
+import java.io.File;
+import java.util.Arrays;
+
 /**
  * Test for the module def loading
  */
@@ -109,4 +114,62 @@ public class ModuleDefLoaderTest extends TestCase {
     }
     logger.assertLogEntriesContainExpected();
   }
+
+  /**
+   * A module whose XML file was edited is parsed again rather than replayed.
+   */
+  public void testEditedModuleIsParsedAgain() throws Exception {
+    TreeLogger logger = TreeLogger.NULL;
+    File dir = Utility.makeTemporaryDirectory(null, "moduledefloader");
+    try {
+      File xmlFile = new File(dir, "com/example/Edited.gwt.xml");
+      xmlFile.getParentFile().mkdirs();
+      ResourceLoader resources = ResourceLoaders.forPathAndFallback(Arrays.asList(dir),
+          ResourceLoaders.forClassLoader(Thread.currentThread()));
+
+      writeConfigurationModule(xmlFile, "one");
+      ModuleDef first = ModuleDefLoader.loadFromResources(logger, "com.example.Edited",
+          resources, false);
+      assertEquals("one", getConfigurationValue(first, "edited"));
+
+      writeConfigurationModule(xmlFile, "two");
+      xmlFile.setLastModified(System.currentTimeMillis() + 10000);
+      ModuleDef second = ModuleDefLoader.loadFromResources(logger, "com.example.Edited",
+          resources, false);
+      assertNotSame(first, second);
+      assertEquals("two", getConfigurationValue(second, "edited"));
+    } finally {
+      ModuleDefLoader.clearModuleCache();
+      Util.recursiveDelete(dir, false);
+    }
+  }
+
+  /**
+   * A module loaded again after the module cache is cleared is the same as
+   * the first time.
+   */
+  public void testReloadAfterClearingCache() throws Exception {
+    TreeLogger logger = TreeLogger.NULL;
+    ModuleDef first = ModuleDefLoader.loadFromClassPath(logger,
+        "com.google.gwt.dev.cfg.testdata.merging.Two", false);
+    ModuleDefLoader.clearModuleCache();
+    ModuleDef second = ModuleDefLoader.loadFromClassPath(logger,
+        "com.google.gwt.dev.cfg.testdata.merging.Two", false);
+    assertNotSame(first, second);
+    assertEquals(first.getName(), second.getName());
+    assertNotNull(second.findSourceFile("com/google/gwt/dev/cfg/testdata/merging/client/InOne.java"));
+    assertNotNull(second.findSourceFile("com/google/gwt/dev/cfg/testdata/merging/client/InTwo.java"));
+    assertNull(second.findSourceFile("com/google/gwt/dev/cfg/testdata/merging/client/Toxic.java"));
+  }
+
+  private String getConfigurationValue(ModuleDef moduleDef, String name) {
+    return ((ConfigurationProperty) moduleDef.getProperties().find(name)).getValue();
+  }
+
+  private void writeConfigurationModule(File xmlFile, String value) {
+    Util.writeStringAsFile(xmlFile, "<module>"
+        + "<define-configuration-property name='edited' is-multi-valued='false'/>"
+        + "<set-configuration-property name='edited' value='" + value + "'/>"
+        + "</module>");
+  }
 }
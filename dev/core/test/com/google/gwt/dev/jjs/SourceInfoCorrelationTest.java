@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs;
+
+import com.google.gwt.dev.jjs.Correlation.Axis;
+import com.google.gwt.dev.jjs.Correlation.Literal;
+import com.google.gwt.dev.jjs.CorrelationFactory.RealCorrelationFactory;
+import com.google.gwt.dev.jjs.ast.JClassType;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests {@link SourceInfoCorrelation}.
+ */
+public class SourceInfoCorrelationTest extends TestCase {
+
+  private final CorrelationFactory factory = RealCorrelationFactory.INSTANCE;
+
+  private final SourceOrigin origin = SourceOrigin.create(42, "Foo.java");
+
+  public void testInheritedCorrelations() {
+    Correlation type = factory.by(new JClassType(origin, "test.Foo", false, false));
+    Correlation string = factory.by(Literal.STRING);
+    Correlation clazz = factory.by(Literal.CLASS);
+
+    SourceInfoCorrelation parent = new SourceInfoCorrelation(origin);
+    parent.addCorrelation(type);
+    parent.addCorrelation(string);
+    SourceInfoCorrelation child = new SourceInfoCorrelation(parent, origin);
+    assertSame(type, child.getCorrelation(Axis.CLASS));
+    assertSame(string, child.getCorrelation(Axis.LITERAL));
+
+    // The nearest Correlation on each axis wins
+    child.addCorrelation(clazz);
+    assertSame(clazz, child.getCorrelation(Axis.LITERAL));
+    assertSame(string, parent.getCorrelation(Axis.LITERAL));
+
+    Correlation[] correlations = child.getCorrelations();
+    assertEquals(Axis.values().length, correlations.length);
+    assertSame(type, correlations[Axis.CLASS.ordinal()]);
+    assertSame(clazz, correlations[Axis.LITERAL.ordinal()]);
+    assertNull(correlations[Axis.METHOD.ordinal()]);
+  }
+
+  public void testSingleCorrelation() {
+    SourceInfoCorrelation info = new SourceInfoCorrelation(origin);
+    assertNull(info.getCorrelation(Axis.LITERAL));
+    assertEquals(Axis.values().length, info.getCorrelations().length);
+
+    Correlation string = factory.by(Literal.STRING);
+    info.addCorrelation(string);
+    assertSame(string, info.getCorrelation(Axis.LITERAL));
+    assertNull(info.getCorrelation(Axis.CLASS));
+
+    // A later Correlation on the same axis replaces the earlier one
+    Correlation clazz = factory.by(Literal.CLASS);
+    info.addCorrelation(clazz);
+    assertSame(clazz, info.getCorrelation(Axis.LITERAL));
+    assertSame(clazz, info.getCorrelations()[Axis.LITERAL.ordinal()]);
+  }
+}
@@ -26,6 +26,7 @@ import com.google.gwt.dev.cfg.StaticPropertyOracle;
 import com.google.gwt.dev.javac.CompilationState;
 import com.google.gwt.dev.javac.CompilationStateBuilder;
 import com.google.gwt.dev.javac.testing.impl.MockJavaResource;
+import com.google.gwt.dev.javac.testing.impl.MockResourceOracle;
 import com.google.gwt.dev.jjs.JavaAstConstructor;
 import com.google.gwt.dev.jjs.JsOutputOption;
 import com.google.gwt.dev.jjs.ast.JMethod;
@@ -304,7 +305,7 @@ public class CodeSplitter2Test extends JJSTestBase {
    * Compiles a Java class <code>test.EntryPoint</code> and use the code splitter on it.
    */
   protected void compileSnippet(final String code) throws UnableToCompleteException {
-    addMockIntrinsic();
+    addMockIntrinsic(sourceOracle);
     sourceOracle.addOrReplace(new MockJavaResource("test.EntryPoint") {
       @Override
       public CharSequence getContent() {
@@ -337,7 +338,7 @@ public class CodeSplitter2Test extends JJSTestBase {
    */
   protected void compileSnippetWithLeftoverMerge(final String code,
       int mergeLimit) throws UnableToCompleteException {
-    addMockIntrinsic();
+    addMockIntrinsic(sourceOracle);
     sourceOracle.addOrReplace(new MockJavaResource("test.EntryPoint") {
       @Override
       public CharSequence getContent() {
@@ -381,7 +382,7 @@ public class CodeSplitter2Test extends JJSTestBase {
   /**
    * Add some of the compiler intrinsic 
    */
-  private void addMockIntrinsic() {
+  static void addMockIntrinsic(MockResourceOracle sourceOracle) {
     sourceOracle.addOrReplace(new MockJavaResource("java.lang.Comparable") {
       @Override
       public CharSequence getContent() {
@@ -88,6 +88,26 @@ public class ControlFlowAnalyzerTest extends JJSTestBase {
     }
   }
 
+  /**
+   * Tests that a copy made before traversal, which replays the method
+   * summaries recorded by the original, finds the same live set.
+   */
+  public void testCopyReplaysSummaries() throws Exception {
+    JProgram program = compileSnippet("void",
+        "Object o = new Object(); o.hashCode(); String s = \"live\";");
+    ControlFlowAnalyzer original = new ControlFlowAnalyzer(program);
+    ControlFlowAnalyzer copy = new ControlFlowAnalyzer(original);
+    original.traverseFrom(findMainMethod(program));
+    copy.traverseFrom(findMainMethod(program));
+
+    assertEquals(original.getFieldsWritten(), copy.getFieldsWritten());
+    assertEquals(original.getInstantiatedTypes(), copy.getInstantiatedTypes());
+    assertEquals(original.getLiveFieldsAndMethods(), copy.getLiveFieldsAndMethods());
+    assertEquals(original.getLiveStrings(), copy.getLiveStrings());
+    assertEquals(original.getReferencedTypes(), copy.getReferencedTypes());
+    assertTrue(copy.getLiveStrings().contains("live"));
+  }
+
   /**
    * Tests properties of an empty program.
    */
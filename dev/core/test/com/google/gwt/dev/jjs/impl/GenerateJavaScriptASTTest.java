@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.core.ext.PropertyOracle;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.linker.SymbolData;
+import com.google.gwt.core.ext.linker.impl.StandardSymbolData;
+import com.google.gwt.dev.cfg.BindingProperty;
+import com.google.gwt.dev.cfg.ConditionNone;
+import com.google.gwt.dev.cfg.ConfigurationProperty;
+import com.google.gwt.dev.cfg.StaticPropertyOracle;
+import com.google.gwt.dev.jjs.JsOutputOption;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.dev.js.JsObfuscateNamer;
+import com.google.gwt.dev.js.ast.JsName;
+import com.google.gwt.dev.js.ast.JsProgram;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests that {@link GenerateJavaScriptAST} produces the same program whether or
+ * not {@link GenerateJavaScriptAST#CODEGEN_THREADS_PROPERTY} is set.
+ */
+public class GenerateJavaScriptASTTest extends JJSTestBase {
+
+  private BindingProperty stackMode = new BindingProperty("compiler.stackMode");
+  private BindingProperty[] orderedProps = {stackMode};
+  private String[] orderedPropValues = {"STRIP"};
+  private ConfigurationProperty[] configProps = {};
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    stackMode.addDefinedValue(new ConditionNone(), "STRIP");
+  }
+
+  /**
+   * Long literals, interned cast maps and super calls declare global names
+   * while method bodies are translated.
+   */
+  public void testConcurrentTranslationMatchesSerialTranslation()
+      throws UnableToCompleteException {
+    addSnippetClassDecl("static class A {"
+        + "  long a() { return 0x123456789L; }"
+        + "  long b() { return -42L; }"
+        + "}");
+    addSnippetClassDecl("static class B extends A {"
+        + "  B() { super(); }"
+        + "  long a() { return super.a() + 7L; }"
+        + "  long c() { return 0x123456789L; }"
+        + "}");
+    addSnippetClassDecl("static class C extends B {"
+        + "  Object self() { return this; }"
+        + "  long d() { return 7L; }"
+        + "}");
+    String snippet = "A a = new C();"
+        + "long x = a.a() + ((B) a).c() + ((C) a).b() + ((C) a).d();"
+        + "Object o = ((C) a).self();"
+        + "if (o instanceof B) { x += -42L; }";
+
+    String oldThreads = System.getProperty(GenerateJavaScriptAST.CODEGEN_THREADS_PROPERTY);
+    try {
+      String[] serial = translate(snippet, "1");
+      String[] concurrent = translate(snippet, "4");
+      assertEquals(serial[0], concurrent[0]);
+      assertEquals(serial[1], concurrent[1]);
+    } finally {
+      if (oldThreads == null) {
+        System.clearProperty(GenerateJavaScriptAST.CODEGEN_THREADS_PROPERTY);
+      } else {
+        System.setProperty(GenerateJavaScriptAST.CODEGEN_THREADS_PROPERTY, oldThreads);
+      }
+    }
+  }
+
+  /**
+   * Compiles the snippet with the given number of code gen threads, and
+   * returns the resulting JavaScript before and after obfuscated naming, which
+   * depends on the order names were declared in.
+   */
+  private String[] translate(String snippet, String threads) throws UnableToCompleteException {
+    System.setProperty(GenerateJavaScriptAST.CODEGEN_THREADS_PROPERTY, threads);
+    CodeSplitter2Test.addMockIntrinsic(sourceOracle);
+    JProgram jProgram = compileSnippet("void", snippet);
+    jProgram.addEntryMethod(findMainMethod(jProgram));
+    CastNormalizer.exec(jProgram, false);
+    ArrayNormalizer.exec(jProgram);
+    TypeTightener.exec(jProgram);
+    MethodCallTightener.exec(jProgram);
+    Map<StandardSymbolData, JsName> symbolTable =
+        new TreeMap<StandardSymbolData, JsName>(new SymbolData.ClassIdentComparator());
+    JsProgram jsProgram = new JsProgram();
+    GenerateJavaScriptAST.exec(jProgram, jsProgram, JsOutputOption.PRETTY, symbolTable,
+        new PropertyOracle[] {
+            new StaticPropertyOracle(orderedProps, orderedPropValues, configProps)});
+    String pretty = jsProgram.toSource();
+    JsObfuscateNamer.exec(jsProgram);
+    return new String[] {pretty, jsProgram.toSource()};
+  }
+}
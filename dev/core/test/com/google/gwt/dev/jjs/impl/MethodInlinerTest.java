@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.jjs.InliningPreset;
+import com.google.gwt.dev.jjs.ast.Context;
+import com.google.gwt.dev.jjs.ast.JMethod;
+import com.google.gwt.dev.jjs.ast.JMethodCall;
+import com.google.gwt.dev.jjs.ast.JProgram;
+import com.google.gwt.dev.jjs.ast.JVisitor;
+import com.google.gwt.dev.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests how {@link MethodInliner} applies an {@link InliningCostModel} and an
+ * {@link InliningProfile}.
+ */
+public class MethodInlinerTest extends OptimizerTestBase {
+
+  /**
+   * A callee whose inlined body is much larger than a call with a small
+   * argument, and smaller than a call with a large one.
+   */
+  private static final String FOO = "static int foo(int i) { return f + f + f + f + f + f; }";
+
+  private static final String LARGE_ARG = "a + a + a + a + a + a + a + a + a + a";
+
+  private static int countCalls(JMethod method, final String targetName) {
+    final int[] count = new int[1];
+    new JVisitor() {
+      @Override
+      public void endVisit(JMethodCall x, Context ctx) {
+        if (x.getTarget().getName().equals(targetName)) {
+          count[0]++;
+        }
+      }
+    }.accept(method);
+    return count[0];
+  }
+
+  private InliningCostModel costModel = InliningCostModel.DEFAULT;
+
+  private String hotMethodName;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    addSnippetClassDecl("static int f;");
+  }
+
+  public void testBalancedInlinesGrowingCalls() throws Exception {
+    addSnippetClassDecl(FOO);
+    Result result = optimize("void", "int x = foo(0);", "int y = foo(1);");
+    assertEquals(0, countCalls(result.findMethod(MAIN_METHOD_NAME), "foo"));
+  }
+
+  /**
+   * Tests that a profile judges calls to a hot method by the next preset
+   * towards speed.
+   */
+  public void testHotCalleeUsesNextPreset() throws Exception {
+    costModel = InliningCostModel.forPreset(InliningPreset.SIZE);
+    hotMethodName = "foo";
+    addSnippetClassDecl(FOO);
+    Result result = optimize("void", "int x = foo(0);", "int y = foo(1);");
+    assertEquals(0, countCalls(result.findMethod(MAIN_METHOD_NAME), "foo"));
+  }
+
+  public void testLoadProfile() throws Exception {
+    addSnippetClassDecl(FOO);
+    addSnippetClassDecl("static int bar() { return f; }");
+    JProgram program = compileSnippet("void", "int x = foo(bar());");
+    InliningProfile profile = loadProfile(program, "{\"methods\": {"
+        + "\"@test.EntryPoint::foo(I)\": 990,"
+        + "\"@test.EntryPoint::bar()\": 9,"
+        + "\"@test.EntryPoint::gone()\": 1}}");
+    JMethod foo = findMethod(program, "foo");
+    JMethod bar = findMethod(program, "bar");
+    assertEquals(990, profile.getInvocations(foo));
+    assertEquals(9, profile.getInvocations(bar));
+    assertTrue(profile.isHot(foo, program));
+    // Just under 1% of the invocations of known methods.
+    assertFalse(profile.isHot(bar, program));
+  }
+
+  public void testLoadProfileRejectsBadCounts() throws Exception {
+    JProgram program = compileSnippet("void", "");
+    try {
+      loadProfile(program, "{\"methods\": {\"@test.EntryPoint::onModuleLoad()\": \"often\"}}");
+      fail("Expected UnableToCompleteException");
+    } catch (UnableToCompleteException expected) {
+    }
+  }
+
+  /**
+   * Tests that a call the cost model rejects keeps its target from being
+   * inlined anywhere else in the same pass, even where the model would
+   * accept it.
+   */
+  public void testRejectedCalleeIsNotRetriedInSamePass() throws Exception {
+    costModel = InliningCostModel.forPreset(InliningPreset.SIZE);
+    addSnippetClassDecl(FOO);
+    Result result = optimize("void", "int a = 1;", "int x = foo(0);",
+        "int y = foo(" + LARGE_ARG + ");");
+    result.noChange();
+    assertEquals(2, countCalls(result.findMethod(MAIN_METHOD_NAME), "foo"));
+  }
+
+  /**
+   * Tests that once a call the model accepts has been inlined, the next pass
+   * inlines the callee's last call, which it rejected while there were two.
+   */
+  public void testSingleCallSiteIsInlinedInNextPass() throws Exception {
+    costModel = InliningCostModel.forPreset(InliningPreset.SIZE);
+    addSnippetClassDecl(FOO);
+    Result result = optimize("void", "int a = 1;", "int y = foo(" + LARGE_ARG + ");",
+        "int x = foo(0);");
+    assertEquals(0, countCalls(result.findMethod(MAIN_METHOD_NAME), "foo"));
+  }
+
+  public void testSizeKeepsGrowingCalls() throws Exception {
+    costModel = InliningCostModel.forPreset(InliningPreset.SIZE);
+    addSnippetClassDecl(FOO);
+    Result result = optimize("void", "int x = foo(0);", "int y = foo(1);");
+    result.noChange();
+    assertEquals(2, countCalls(result.findMethod(MAIN_METHOD_NAME), "foo"));
+  }
+
+  public void testSpeedInlinesLongerBodies() throws Exception {
+    addSnippetClassDecl("static int foo() { f++; f++; return f; }");
+    Result result = optimize("void", "int x = foo();");
+    result.noChange();
+
+    costModel = InliningCostModel.forPreset(InliningPreset.SPEED);
+    result = optimize("void", "int x = foo();");
+    assertEquals(0, countCalls(result.findMethod(MAIN_METHOD_NAME), "foo"));
+  }
+
+  @Override
+  protected boolean optimizeMethod(JProgram program, JMethod method) {
+    InliningProfile profile = null;
+    if (hotMethodName != null) {
+      profile = new InliningProfile();
+      profile.addInvocations(findMethod(program, hotMethodName), 100);
+    }
+    return MethodInliner.exec(program, costModel, profile).didChange();
+  }
+
+  private InliningProfile loadProfile(JProgram program, String json)
+      throws IOException, UnableToCompleteException {
+    File file = File.createTempFile("inliningProfile", ".json");
+    try {
+      Util.writeStringAsFile(file, json);
+      return InliningProfile.load(logger, program, file.getAbsolutePath());
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Tests {@link NumberedSet}.
+ */
+public class NumberedSetTest extends TestCase {
+
+  private static NumberedSet<String> create(NumberedSet.Numbering numbering,
+      String... elements) {
+    NumberedSet<String> set = new NumberedSet<String>(numbering);
+    set.addAll(Arrays.asList(elements));
+    return set;
+  }
+
+  private static Set<String> hashSet(String... elements) {
+    return new HashSet<String>(Arrays.asList(elements));
+  }
+
+  public void testBasics() {
+    NumberedSet<String> set = create(new NumberedSet.Numbering());
+    assertTrue(set.isEmpty());
+    assertFalse(set.contains("a"));
+    assertFalse(set.remove("a"));
+
+    assertTrue(set.add("a"));
+    assertTrue(set.add("b"));
+    assertFalse(set.add("a"));
+    assertEquals(2, set.size());
+    assertEquals(hashSet("a", "b"), set);
+    assertEquals(set, hashSet("a", "b"));
+
+    assertTrue(set.remove("a"));
+    assertFalse(set.contains("a"));
+    assertEquals(hashSet("b"), set);
+  }
+
+  public void testBulkOperations() {
+    NumberedSet.Numbering numbering = new NumberedSet.Numbering();
+    NumberedSet<String> abc = create(numbering, "a", "b", "c");
+    NumberedSet<String> cd = create(numbering, "c", "d");
+
+    NumberedSet<String> union = new NumberedSet<String>(abc);
+    assertTrue(union.addAll(cd));
+    assertFalse(union.addAll(cd));
+    assertEquals(hashSet("a", "b", "c", "d"), union);
+    assertTrue(union.containsAll(abc));
+    assertFalse(abc.containsAll(union));
+
+    NumberedSet<String> difference = new NumberedSet<String>(abc);
+    assertTrue(difference.removeAll(cd));
+    assertEquals(hashSet("a", "b"), difference);
+
+    NumberedSet<String> intersection = new NumberedSet<String>(abc);
+    assertTrue(intersection.retainAll(cd));
+    assertEquals(hashSet("c"), intersection);
+
+    // The originals are unaffected.
+    assertEquals(hashSet("a", "b", "c"), abc);
+    assertEquals(hashSet("c", "d"), cd);
+  }
+
+  public void testDifferentNumberings() {
+    NumberedSet<String> ab = create(new NumberedSet.Numbering(), "a", "b");
+    NumberedSet<String> bc = create(new NumberedSet.Numbering(), "c", "b");
+    assertTrue(ab.addAll(bc));
+    assertEquals(hashSet("a", "b", "c"), ab);
+    assertTrue(ab.removeAll(hashSet("a")));
+    assertFalse(ab.retainAll(bc));
+    assertEquals(bc, ab);
+  }
+
+  public void testIterator() {
+    NumberedSet<String> set = create(new NumberedSet.Numbering(), "a", "b", "c");
+    Iterator<String> it = set.iterator();
+    assertEquals("a", it.next());
+    assertEquals("b", it.next());
+    it.remove();
+    assertEquals("c", it.next());
+    assertFalse(it.hasNext());
+    assertEquals(hashSet("a", "c"), set);
+    assertEquals(2, set.size());
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.jjs.impl;
+
+import junit.framework.TestCase;
+
+import java.util.BitSet;
+
+/**
+ * Tests {@link SplitPointLoadProfile}.
+ */
+public class SplitPointLoadProfileTest extends TestCase {
+
+  private static BitSet splitPoints(int... splitPoints) {
+    BitSet toReturn = new BitSet();
+    for (int splitPoint : splitPoints) {
+      toReturn.set(splitPoint);
+    }
+    return toReturn;
+  }
+
+  public void testCoLoadRate() {
+    SplitPointLoadProfile profile = new SplitPointLoadProfile(3);
+    profile.addSessions(splitPoints(1, 2), 60);
+    profile.addSessions(splitPoints(1), 20);
+    profile.addSessions(splitPoints(2, 3), 20);
+
+    assertEquals(60, profile.getSessionsLoadingBoth(1, 2));
+    assertEquals(60, profile.getSessionsLoadingBoth(2, 1));
+    assertEquals(40, profile.getSessionsLoadingOnlyOne(1, 2));
+    assertEquals(0.6, profile.getCoLoadRate(1, 2), 1e-9);
+
+    assertEquals(0, profile.getSessionsLoadingBoth(1, 3));
+    assertEquals(0.0, profile.getCoLoadRate(1, 3), 1e-9);
+    assertEquals(20 / 80.0, profile.getCoLoadRate(2, 3), 1e-9);
+  }
+
+  public void testEmpty() {
+    SplitPointLoadProfile profile = new SplitPointLoadProfile(2);
+    assertEquals(0.0, profile.getCoLoadRate(1, 2), 1e-9);
+    assertEquals(0, profile.getSessionsLoadingOnlyOne(1, 2));
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.google.gwt.dev.js;
 
+import com.google.gwt.dev.jjs.InliningPreset;
+import com.google.gwt.dev.jjs.impl.InliningCostModel;
 import com.google.gwt.dev.jjs.impl.OptimizerStats;
 import com.google.gwt.dev.js.ast.JsContext;
 import com.google.gwt.dev.js.ast.JsFunction;
@@ -22,8 +24,13 @@ import com.google.gwt.dev.js.ast.JsModVisitor;
 import com.google.gwt.dev.js.ast.JsName;
 import com.google.gwt.dev.js.ast.JsNode;
 import com.google.gwt.dev.js.ast.JsProgram;
+import com.google.gwt.dev.js.ast.JsVisitor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Safety checks for JsInliner.
@@ -88,6 +95,28 @@ public class JsInlinerTest extends OptimizerTestBase {
     verifyOptimized(expected, input);
   }
 
+  /**
+   * Tests that each inlining preset, and a hot callee, changes which calls are
+   * inlined.
+   */
+  public void testInliningPresets() throws Exception {
+    String input = "function a1(x) { return x * 2 + 1; }"
+        + "function b1() { return a1(1) + a1(2); } b1();";
+    String inlined = "function b1() { return 1 * 2 + 1 + (2 * 2 + 1); } b1();";
+
+    // Each call grows by more than the default ratio allows.
+    verifyOptimized(input, input, InliningPreset.BALANCED);
+    // Inlining both calls is still smaller than keeping a1().
+    verifyOptimized(inlined, input, InliningPreset.SIZE);
+    verifyOptimized(inlined, input, InliningPreset.SPEED);
+    // A hot callee is judged by the next preset towards speed.
+    verifyOptimized(inlined, input, InliningPreset.BALANCED, "a1");
+
+    String large = "function a1(x) { return (x * 2 + 1) * (3 - 4 / 7) + 1; }"
+        + "function b1() { return a1(1) + a1(2); } b1();";
+    verifyOptimized(large, large, InliningPreset.SPEED);
+  }
+
   /**
    * Test that a global array reference breaks argument ordering.
    */
@@ -280,6 +309,16 @@ public class JsInlinerTest extends OptimizerTestBase {
     assertEquals(expectedAfterParse, actual);
   }
 
+  private void verifyOptimized(String expected, String input, InliningPreset preset,
+      String... hotFunctions) throws Exception {
+    JsInlinerWithCostModelProxy.costModel = InliningCostModel.forPreset(preset);
+    JsInlinerWithCostModelProxy.hotFunctions = new HashSet<String>(Arrays.asList(hotFunctions));
+    String actual = optimize(input, JsSymbolResolver.class, FixStaticRefsVisitor.class,
+        JsInlinerWithCostModelProxy.class, JsUnusedFunctionRemover.class);
+    String expectedAfterParse = optimize(expected);
+    assertEquals(expectedAfterParse, actual);
+  }
+
   private void verifyOptimizedObfuscated(String expected, String input) throws Exception {
     String actual = optimize(input, JsSymbolResolver.class, FixStaticRefsVisitor.class,
         JsInlinerProxy.class, JsUnusedFunctionRemover.class, JsObfuscateNamer.class);
@@ -299,4 +338,29 @@ public class JsInlinerTest extends OptimizerTestBase {
     }
   }
 
+  /**
+   * Calls JsInliner with a given cost model, considering calls in all
+   * functions.
+   */
+  private static class JsInlinerWithCostModelProxy {
+    private static InliningCostModel costModel;
+    private static Set<String> hotFunctions;
+
+    @SuppressWarnings("unused")
+    public static OptimizerStats exec(JsProgram program) {
+      final List<JsNode> functions = new ArrayList<JsNode>();
+      final Set<JsFunction> hot = new HashSet<JsFunction>();
+      new JsVisitor() {
+        @Override
+        public void endVisit(JsFunction x, JsContext ctx) {
+          functions.add(x);
+          if (hotFunctions.contains(x.getName().getIdent())) {
+            hot.add(x);
+          }
+        }
+      }.accept(program);
+      return JsInliner.exec(program, functions, costModel, hot);
+    }
+  }
+
 }
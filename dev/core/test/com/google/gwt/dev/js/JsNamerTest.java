@@ -54,6 +54,15 @@ public class JsNamerTest extends OptimizerTestBase {
     assertEquals("function fooLOGGER_0(){return 42}\n",
         rename("function fooLOGGER() { return 42; }"));
   }
+
+  public void testNameByFrequency() throws Exception {
+    String js = "function foo() { return 42; } function bar() { return 43; } bar(); bar(); foo();";
+    assertEquals("function a(){return 42}\nfunction b(){return 43}\nb();b();a();",
+        rename(js, false, true, false));
+    assertEquals("function b(){return 42}\nfunction a(){return 43}\na();a();b();",
+        rename(js, false, true, true));
+  }
+
   public void testNoBlacklist() throws Exception {
     assertEquals("function fooLogger(){return 42}\n",
         rename("function fooLogger() { return 42; }", false));
@@ -63,14 +72,23 @@ public class JsNamerTest extends OptimizerTestBase {
     return rename(js, true);
   }
 
-  private String rename(String js, final boolean useFilter) throws Exception {
+  private String rename(String js, boolean useFilter) throws Exception {
+    return rename(js, useFilter, false, false);
+  }
+
+  /**
+   * Renames with {@link JsPrettyNamer}, or with {@link JsObfuscateNamer} if
+   * <code>obfuscate</code> is set.
+   */
+  private String rename(String js, final boolean useFilter, boolean obfuscate,
+      boolean nameByFrequency) throws Exception {
     JsProgram program = new JsProgram();
     List<JsStatement> expected = JsParser.parse(SourceOrigin.UNKNOWN,
         program.getScope(), new StringReader(js));
 
     program.getGlobalBlock().getStatements().addAll(expected);
     JsSymbolResolver.exec(program);
-    JsPrettyNamer.exec(program, new PropertyOracle[]{
+    PropertyOracle[] propertyOracles = new PropertyOracle[]{
         new PropertyOracle() {
           @Override
           public ConfigurationProperty getConfigurationProperty(
@@ -106,7 +124,12 @@ public class JsNamerTest extends OptimizerTestBase {
             return null;
           }
         }
-    });
+    };
+    if (obfuscate) {
+      JsObfuscateNamer.exec(program, propertyOracles, nameByFrequency);
+    } else {
+      JsPrettyNamer.exec(program, propertyOracles);
+    }
     TextOutput text = new DefaultTextOutput(true);
     JsVisitor generator = new JsSourceGenerationVisitor(text);
 
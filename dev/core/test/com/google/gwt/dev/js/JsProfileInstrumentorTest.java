@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.js;
+
+import com.google.gwt.dev.js.ast.JsExprStmt;
+import com.google.gwt.dev.js.ast.JsFunction;
+import com.google.gwt.dev.js.ast.JsProgram;
+import com.google.gwt.dev.js.ast.JsStatement;
+
+import junit.framework.TestCase;
+
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link JsProfileInstrumentor}.
+ */
+public class JsProfileInstrumentorTest extends TestCase {
+  private JsProgram program;
+  private Map<JsFunction, String> methodRefs;
+
+  @Override
+  public void setUp() throws Exception {
+    program = new JsProgram();
+    List<JsStatement> stmts = JsParser.parse(program.getSourceInfo(), program.getScope(),
+        new StringReader("function a() { return 1; } function b() { return a(); }"));
+    program.getGlobalBlock().getStatements().addAll(stmts);
+    methodRefs = new LinkedHashMap<JsFunction, String>();
+    methodRefs.put(function(stmts.get(0)), "@test.A::a()");
+    methodRefs.put(function(stmts.get(1)), "@test.A::b()");
+  }
+
+  private static JsFunction function(JsStatement stmt) {
+    return (JsFunction) ((JsExprStmt) stmt).getExpression();
+  }
+
+  private String source(JsStatement stmt) {
+    return stmt.toSource().trim().replaceAll("\\s+", " ");
+  }
+
+  public void testCounters() {
+    JsProfileInstrumentor.exec(program, methodRefs, null);
+    List<JsStatement> stmts = program.getGlobalBlock().getStatements();
+    assertEquals("var $profileRefs = ['@test.A::a()', '@test.A::b()'],"
+        + " $profileCounts = [0, 0]", source(stmts.get(0)));
+    assertEquals("function a(){ ++$profileCounts[0]; return 1; }",
+        source(stmts.get(stmts.size() - 2)));
+    assertEquals("function b(){ ++$profileCounts[1]; return a(); }",
+        source(stmts.get(stmts.size() - 1)));
+    assertFalse(program.toSource().contains("addEventListener"));
+  }
+
+  public void testPostToUrl() {
+    JsProfileInstrumentor.exec(program, methodRefs, "/profile");
+    List<JsStatement> stmts = program.getGlobalBlock().getStatements();
+    assertEquals("var $profileRefs = ['@test.A::a()', '@test.A::b()'],"
+        + " $profileCounts = [0, 0], $profileUrl = '/profile'", source(stmts.get(0)));
+    assertTrue(program.toSource().contains(
+        "$wnd.addEventListener('beforeunload', $gwt_profile_post, false)"));
+  }
+}
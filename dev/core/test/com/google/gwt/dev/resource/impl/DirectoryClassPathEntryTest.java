@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.resource.impl;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests {@link DirectoryClassPathEntry}.
+ */
+public class DirectoryClassPathEntryTest extends TestCase {
+  private File dir;
+  private PathPrefixSet pps;
+
+  public void testIncrementalScan() throws IOException {
+    DirectoryClassPathEntry cpe;
+    System.setProperty(DirectoryClassPathEntry.INCREMENTAL_SCAN_PROPERTY, "true");
+    try {
+      cpe = new DirectoryClassPathEntry(dir);
+    } finally {
+      System.clearProperty(DirectoryClassPathEntry.INCREMENTAL_SCAN_PROPERTY);
+    }
+    File pkg = new File(dir, "com/example");
+    long past = System.currentTimeMillis() - 60 * 1000;
+    pkg.setLastModified(past);
+    assertEquals(paths("com/example/A.java"), findPaths(cpe));
+
+    // An unmodified directory is not listed again
+    Util.writeStringAsFile(new File(pkg, "B.java"), "class B {}");
+    pkg.setLastModified(past);
+    assertEquals(paths("com/example/A.java"), findPaths(cpe));
+
+    // A modified directory is
+    pkg.setLastModified(past + 10 * 1000);
+    assertEquals(paths("com/example/A.java", "com/example/B.java"), findPaths(cpe));
+  }
+
+  public void testScan() throws IOException {
+    DirectoryClassPathEntry cpe = new DirectoryClassPathEntry(dir);
+    assertEquals(paths("com/example/A.java"), findPaths(cpe));
+
+    File pkg = new File(dir, "com/example");
+    long lastModified = pkg.lastModified();
+    Util.writeStringAsFile(new File(pkg, "B.java"), "class B {}");
+    pkg.setLastModified(lastModified);
+    assertEquals(paths("com/example/A.java", "com/example/B.java"), findPaths(cpe));
+  }
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = File.createTempFile("DirectoryClassPathEntryTest", "");
+    dir.delete();
+    File pkg = new File(dir, "com/example");
+    pkg.mkdirs();
+    Util.writeStringAsFile(new File(pkg, "A.java"), "class A {}");
+
+    pps = new PathPrefixSet();
+    pps.add(new PathPrefix("com/", null));
+  }
+
+  @Override
+  protected void tearDown() {
+    Util.recursiveDelete(dir, false);
+  }
+
+  private Set<String> findPaths(ClassPathEntry cpe) {
+    Set<String> found = new HashSet<String>();
+    for (AbstractResource resource : cpe.findApplicableResources(TreeLogger.NULL, pps).keySet()) {
+      found.add(resource.getPath());
+    }
+    return found;
+  }
+
+  private Set<String> paths(String... paths) {
+    Set<String> set = new HashSet<String>();
+    for (String path : paths) {
+      set.add(path);
+    }
+    return set;
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.resource.impl;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests {@link ZipFileIndex} and its use by {@link ZipFileClassPathEntry}.
+ */
+public class ZipFileIndexTest extends TestCase {
+  private File dir;
+  private File jar;
+
+  public void testBuild() throws IOException {
+    ZipFileIndex index = build();
+    assertEquals(4, index.size());
+    assertEquals("com/example/A.java", index.getName(0));
+    assertEquals("com/example/client/B.java", index.getName(1));
+    assertEquals("com/other/C.java", index.getName(2));
+    assertEquals("org/D.java", index.getName(3));
+
+    assertEquals(0, index.findFirst(""));
+    assertEquals(1, index.findFirst("com/example/client/"));
+    assertEquals(2, index.findFirst("com/other/"));
+    assertEquals(4, index.findFirst("zzz/"));
+  }
+
+  public void testFindApplicableResources() throws IOException {
+    ZipFileClassPathEntry.clearCache();
+    ZipFileClassPathEntry cpe = ZipFileClassPathEntry.get(jar);
+
+    PathPrefixSet pps = new PathPrefixSet();
+    pps.add(new PathPrefix("com/example/", null));
+    pps.add(new PathPrefix("com/example/client/", null));
+    pps.add(new PathPrefix("org/", null));
+    assertEquals(paths("com/example/A.java", "com/example/client/B.java", "org/D.java"),
+        findPaths(cpe, pps));
+
+    PathPrefixSet all = new PathPrefixSet();
+    all.add(new PathPrefix("", null));
+    all.add(new PathPrefix("com/example/", null));
+    assertEquals(4, findPaths(cpe, all).size());
+
+    // The same resource is returned for every prefix set
+    AbstractResource a1 = findResource(cpe, pps, "com/example/A.java");
+    AbstractResource a2 = findResource(cpe, all, "com/example/A.java");
+    assertSame(a1, a2);
+    ZipFileClassPathEntry.clearCache();
+  }
+
+  public void testSaveAndLoad() throws IOException {
+    File indexFile = ZipFileIndex.getIndexFile(dir, jar);
+    assertNull(ZipFileIndex.load(indexFile, jar));
+
+    build().save(indexFile, jar);
+    ZipFileIndex loaded = ZipFileIndex.load(indexFile, jar);
+    assertNotNull(loaded);
+    assertEquals(4, loaded.size());
+    assertEquals("com/other/C.java", loaded.getName(2));
+
+    // A modified jar makes the saved index stale
+    jar.setLastModified(jar.lastModified() - 10 * 1000);
+    assertNull(ZipFileIndex.load(indexFile, jar));
+
+    // So does a different jar
+    assertNull(ZipFileIndex.load(indexFile, new File(dir, "other.jar")));
+
+    // A truncated index is ignored
+    Util.writeStringAsFile(indexFile, "GZ");
+    assertNull(ZipFileIndex.load(indexFile, jar));
+  }
+
+  public void testSavedIndexIsUsed() throws IOException {
+    File indexDir = new File(dir, "index");
+    File indexFile = ZipFileIndex.getIndexFile(indexDir, jar);
+    PathPrefixSet pps = new PathPrefixSet();
+    pps.add(new PathPrefix("", null));
+    System.setProperty(ZipFileClassPathEntry.INDEX_DIR_PROPERTY, indexDir.getPath());
+    try {
+      ZipFileClassPathEntry.clearCache();
+      assertEquals(4, findPaths(ZipFileClassPathEntry.get(jar), pps).size());
+      assertTrue(indexFile.isFile());
+
+      // Replace the saved index with one that lists different names
+      File otherJar = new File(dir, "other.jar");
+      writeJar(otherJar, "org/E.java");
+      ZipFile otherZipFile = new ZipFile(otherJar);
+      try {
+        ZipFileIndex.build(otherZipFile).save(indexFile, jar);
+      } finally {
+        otherZipFile.close();
+      }
+      ZipFileClassPathEntry.clearCache();
+      assertEquals(paths("org/E.java"), findPaths(ZipFileClassPathEntry.get(jar), pps));
+
+      // Once the jar changes, the saved index is rebuilt
+      jar.setLastModified(jar.lastModified() - 10 * 1000);
+      ZipFileClassPathEntry.clearCache();
+      assertEquals(4, findPaths(ZipFileClassPathEntry.get(jar), pps).size());
+      assertEquals(4, ZipFileIndex.load(indexFile, jar).size());
+    } finally {
+      System.clearProperty(ZipFileClassPathEntry.INDEX_DIR_PROPERTY);
+      ZipFileClassPathEntry.clearCache();
+    }
+  }
+
+  @Override
+  protected void setUp() throws IOException {
+    dir = File.createTempFile("ZipFileIndexTest", "");
+    dir.delete();
+    dir.mkdirs();
+    jar = new File(dir, "test.jar");
+    writeJar(jar, "org/D.java", "com/other/C.java", "META-INF/MANIFEST.MF", "com/example/A.java",
+        "com/example/client/B.java");
+  }
+
+  @Override
+  protected void tearDown() {
+    Util.recursiveDelete(dir, false);
+  }
+
+  private ZipFileIndex build() throws IOException {
+    ZipFile zipFile = new ZipFile(jar);
+    try {
+      return ZipFileIndex.build(zipFile);
+    } finally {
+      zipFile.close();
+    }
+  }
+
+  private Set<String> findPaths(ClassPathEntry cpe, PathPrefixSet pps) {
+    Set<String> found = new HashSet<String>();
+    for (AbstractResource resource : cpe.findApplicableResources(TreeLogger.NULL, pps).keySet()) {
+      found.add(resource.getPath());
+    }
+    return found;
+  }
+
+  private AbstractResource findResource(ClassPathEntry cpe, PathPrefixSet pps, String path) {
+    for (AbstractResource resource : cpe.findApplicableResources(TreeLogger.NULL, pps).keySet()) {
+      if (resource.getPath().equals(path)) {
+        return resource;
+      }
+    }
+    return null;
+  }
+
+  private Set<String> paths(String... paths) {
+    Set<String> set = new HashSet<String>();
+    for (String path : paths) {
+      set.add(path);
+    }
+    return set;
+  }
+
+  private void writeJar(File file, String... names) throws IOException {
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+    try {
+      out.putNextEntry(new ZipEntry("com/"));
+      out.closeEntry();
+      for (String name : names) {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(Util.getBytes("// " + name));
+        out.closeEntry();
+      }
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.shell;
+
+import com.google.gwt.dev.shell.BrowserChannel.FreeMessage;
+import com.google.gwt.dev.shell.BrowserChannel.InvokeOnClientMessage;
+import com.google.gwt.dev.shell.BrowserChannel.MessageType;
+import com.google.gwt.dev.shell.BrowserChannel.QuitMessage;
+import com.google.gwt.dev.shell.BrowserChannel.ReturnMessage;
+import com.google.gwt.dev.shell.BrowserChannel.Value;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Measures BrowserChannel round trips over a loopback socket. Each round trip
+ * sends a {@link FreeMessage} followed by an {@link InvokeOnClientMessage}, and
+ * waits for the {@link ReturnMessage}. Not part of the test suites; run it by
+ * hand:
+ *
+ * <pre>
+ * java -cp ... com.google.gwt.dev.shell.BrowserChannelBenchmark [-flushEach] [roundTrips]
+ * </pre>
+ *
+ * <code>-flushEach</code> flushes after every free message, as the channel did
+ * before asynchronous messages were sent with the next message.
+ */
+public class BrowserChannelBenchmark {
+
+  /**
+   * Answers every invoke with an undefined value until told to quit.
+   */
+  private static class Responder extends Thread {
+    private final ServerSocket serverSocket;
+    private volatile Throwable failure;
+
+    Responder(ServerSocket serverSocket) {
+      super("BrowserChannelBenchmark responder");
+      this.serverSocket = serverSocket;
+    }
+
+    @Override
+    public void run() {
+      try {
+        Socket socket = serverSocket.accept();
+        try {
+          socket.setTcpNoDelay(true);
+          TestBrowserChannel channel = open(socket);
+          while (true) {
+            MessageType type = channel.readMessageType();
+            switch (type) {
+              case FREE_VALUE:
+                FreeMessage.receive(channel);
+                break;
+              case INVOKE:
+                InvokeOnClientMessage.receive(channel);
+                ReturnMessage.send(channel, false, new Value());
+                break;
+              case QUIT:
+                return;
+              default:
+                throw new IOException("Unexpected message " + type);
+            }
+          }
+        } finally {
+          socket.close();
+        }
+      } catch (Throwable e) {
+        failure = e;
+      }
+    }
+  }
+
+  private static final int DEFAULT_ROUND_TRIPS = 20000;
+
+  public static void main(String[] args) throws Exception {
+    boolean flushEach = false;
+    int roundTrips = DEFAULT_ROUND_TRIPS;
+    for (String arg : args) {
+      if ("-flushEach".equals(arg)) {
+        flushEach = true;
+      } else {
+        roundTrips = Integer.parseInt(arg);
+      }
+    }
+
+    ServerSocket serverSocket = new ServerSocket(0);
+    Responder responder = new Responder(serverSocket);
+    responder.start();
+    Socket socket = new Socket("127.0.0.1", serverSocket.getLocalPort());
+    try {
+      socket.setTcpNoDelay(true);
+      TestBrowserChannel channel = open(socket);
+
+      // The first half warms up.
+      long start = 0;
+      for (int i = 0; i < 2 * roundTrips; i++) {
+        if (i == roundTrips) {
+          start = System.nanoTime();
+        }
+        new FreeMessage(channel, new int[] {i}).send();
+        if (flushEach) {
+          channel.getStreamToOtherSide().flush();
+        }
+        new InvokeOnClientMessage(channel, "method", new Value(), new Value[0]).send();
+        channel.readMessageType();
+        ReturnMessage.receive(channel);
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println((flushEach ? "flush each message: " : "coalesced: ")
+          + (int) (roundTrips / seconds) + " round trips/s");
+      QuitMessage.send(channel);
+    } finally {
+      socket.close();
+    }
+    responder.join();
+    serverSocket.close();
+    if (responder.failure != null) {
+      throw new RuntimeException("Responder failed", responder.failure);
+    }
+  }
+
+  private static TestBrowserChannel open(Socket socket) throws IOException {
+    return new TestBrowserChannel(new BufferedInputStream(socket.getInputStream()),
+        new BufferedOutputStream(socket.getOutputStream()));
+  }
+}
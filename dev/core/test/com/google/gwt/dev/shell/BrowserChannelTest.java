@@ -40,6 +40,9 @@ import com.google.gwt.dev.shell.BrowserChannel.UserAgentIconMessage;
 
 import junit.framework.TestCase;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -59,6 +62,31 @@ public class BrowserChannelTest extends TestCase {
       bufferStream.getOutputStream());
   private TestBrowserChannel channel;
 
+  public void testAsynchronousMessagesAreSentWithNextMessage()
+      throws IOException, BrowserChannelException {
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    TestBrowserChannel sender = new TestBrowserChannel(
+        new ByteArrayInputStream(new byte[0]), new BufferedOutputStream(sent));
+    int[] ids = new int[] { 42, 1024 };
+    String jsni = "function foo() { }";
+    new FreeMessage(sender, ids).send();
+    new LoadJsniMessage(sender, jsni).send();
+    assertEquals(0, sent.size());
+    new InvokeOnClientMessage(sender, "fooMethod", new Value(),
+        new Value[0]).send();
+
+    TestBrowserChannel receiver = new TestBrowserChannel(
+        new ByteArrayInputStream(sent.toByteArray()),
+        new ByteArrayOutputStream());
+    assertEquals(MessageType.FREE_VALUE, receiver.readMessageType());
+    assertTrue(Arrays.equals(ids, FreeMessage.receive(receiver).getIds()));
+    assertEquals(MessageType.LOAD_JSNI, receiver.readMessageType());
+    assertEquals(jsni, LoadJsniMessage.receive(receiver).getJsni());
+    assertEquals(MessageType.INVOKE, receiver.readMessageType());
+    assertEquals("fooMethod",
+        InvokeOnClientMessage.receive(receiver).getMethodName());
+  }
+
   public void testBooleanValue() throws IOException {
     Value val = new Value();
     val.setBoolean(true);
@@ -21,13 +21,16 @@ import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.PropertyOracle;
 import com.google.gwt.core.ext.SelectionProperty;
+import com.google.gwt.core.ext.ThreadSafeGenerator;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.linker.Artifact;
 import com.google.gwt.core.ext.linker.ArtifactSet;
 import com.google.gwt.core.ext.linker.GeneratedResource;
 import com.google.gwt.dev.cfg.MockModuleDef;
 import com.google.gwt.dev.javac.CompilationState;
 import com.google.gwt.dev.javac.CompilationStateBuilder;
+import com.google.gwt.dev.javac.GeneratedUnit;
 import com.google.gwt.dev.javac.StandardGeneratorContext;
 import com.google.gwt.dev.resource.Resource;
 import com.google.gwt.dev.util.Util;
@@ -40,17 +43,56 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A wide variety of tests on {@link StandardGeneratorContext}.
  */
 public class StandardGeneratorContextTest extends TestCase {
 
+  /**
+   * Generates a type and a resource named after the value of the "mode"
+   * property, and keeps no state between invocations.
+   */
+  public static class ByModeGenerator extends Generator implements ThreadSafeGenerator {
+    @Override
+    public String generate(TreeLogger logger, GeneratorContext context,
+        String typeName) throws UnableToCompleteException {
+      String mode = getMode(logger, context);
+      String simpleName = typeName.substring(typeName.lastIndexOf('.') + 1) + "_" + mode;
+      PrintWriter pw = context.tryCreate(logger, "gen", simpleName);
+      if (pw != null) {
+        pw.println("package gen;");
+        pw.println("public class " + simpleName + " {");
+        pw.println("  public static final String MODE = \"" + mode + "\";");
+        pw.println("}");
+        context.commit(logger, pw);
+      }
+      OutputStream os = context.tryCreateResource(logger, "byMode/" + mode + ".txt");
+      if (os != null) {
+        try {
+          os.write(mode.getBytes(Util.DEFAULT_ENCODING));
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        context.commitResource(logger, os);
+      }
+      return "gen." + simpleName;
+    }
+  }
+
   private static class MockGenerator extends Generator {
     @Override
     public String generate(TreeLogger logger, GeneratorContext context,
@@ -79,6 +121,56 @@ public class StandardGeneratorContextTest extends TestCase {
     }
   }
 
+  private static class ModePropertyOracle extends MockPropertyOracle {
+    private final String mode;
+
+    public ModePropertyOracle(String mode) {
+      this.mode = mode;
+    }
+
+    @Override
+    public String getPropertyValue(TreeLogger logger, String propertyName) {
+      return mode;
+    }
+  }
+
+  /**
+   * Records how many invocations overlap; not a {@link ThreadSafeGenerator}.
+   */
+  public static class SerialGenerator extends Generator {
+    private static int active;
+    private static int maxActive;
+
+    @Override
+    public String generate(TreeLogger logger, GeneratorContext context,
+        String typeName) throws UnableToCompleteException {
+      synchronized (SerialGenerator.class) {
+        maxActive = Math.max(maxActive, ++active);
+      }
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      synchronized (SerialGenerator.class) {
+        --active;
+      }
+      return typeName + "_" + getMode(logger, context);
+    }
+  }
+
+  private static final String[] MODES = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+  @SuppressWarnings("deprecation")
+  private static String getMode(TreeLogger logger, GeneratorContext context)
+      throws UnableToCompleteException {
+    try {
+      return context.getPropertyOracle().getPropertyValue(logger, "mode");
+    } catch (BadPropertyValueException e) {
+      throw new UnableToCompleteException();
+    }
+  }
+
   private final ArtifactSet artifactSet = new ArtifactSet();
   private final StandardGeneratorContext genCtx;
   private final CompilationState mockCompilationState;
@@ -103,6 +195,57 @@ public class StandardGeneratorContextTest extends TestCase {
     genCtx.setCurrentGenerator(Generator.class);
   }
 
+  /**
+   * Tests that the rebind state of one thread does not leak into rebinds
+   * running concurrently on other threads.
+   */
+  public void testPropertyOracleIsPerThread() throws InterruptedException {
+    final PropertyOracle otherPropOracle = new MockPropertyOracle();
+    final PropertyOracle[] seenByOtherThread = new PropertyOracle[2];
+    Thread other = new Thread() {
+      @Override
+      public void run() {
+        seenByOtherThread[0] = genCtx.getPropertyOracle();
+        genCtx.setPropertyOracle(otherPropOracle);
+        seenByOtherThread[1] = genCtx.getPropertyOracle();
+      }
+    };
+    other.start();
+    other.join();
+    assertNull(seenByOtherThread[0]);
+    assertSame(otherPropOracle, seenByOtherThread[1]);
+    assertSame(mockPropOracle, genCtx.getPropertyOracle());
+  }
+
+  /**
+   * Tests that rebinding every mode on several threads against one context
+   * gives the same results, units and artifacts as rebinding them serially,
+   * and that generators which are not thread-safe never overlap.
+   */
+  public void testConcurrentRebindsMatchSerialRebinds() throws Exception {
+    ArtifactSet serialArtifacts = new ArtifactSet();
+    StandardGeneratorContext serialCtx = new StandardGeneratorContext(mockCompilationState,
+        new MockModuleDef(), null, serialArtifacts, false);
+    List<String> serialResults = rebindAllModes(serialCtx, 1);
+
+    ArtifactSet concurrentArtifacts = new ArtifactSet();
+    StandardGeneratorContext concurrentCtx = new StandardGeneratorContext(mockCompilationState,
+        new MockModuleDef(), null, concurrentArtifacts, false);
+    synchronized (SerialGenerator.class) {
+      SerialGenerator.maxActive = 0;
+    }
+    List<String> concurrentResults = rebindAllModes(concurrentCtx, 4);
+
+    assertEquals(2 * MODES.length, serialResults.size());
+    assertEquals(serialResults, concurrentResults);
+    assertEquals(getSources(serialCtx), getSources(concurrentCtx));
+    assertEquals(MODES.length, serialArtifacts.size());
+    assertEquals(getPartialPaths(serialArtifacts), getPartialPaths(concurrentArtifacts));
+    synchronized (SerialGenerator.class) {
+      assertEquals(1, SerialGenerator.maxActive);
+    }
+  }
+
   public void testTryCreateResource_badFileName() {
     try {
       genCtx.tryCreateResource(mockLogger, null);
@@ -318,4 +461,52 @@ public class StandardGeneratorContextTest extends TestCase {
     assertTrue(Arrays.equals(arrayWritten, arrayRead));
   }
 
+
+  private List<String> getPartialPaths(ArtifactSet artifacts) {
+    List<String> paths = new ArrayList<String>();
+    for (Artifact<?> artifact : artifacts) {
+      paths.add(((GeneratedResource) artifact).getPartialPath());
+    }
+    return paths;
+  }
+
+  private Map<String, String> getSources(StandardGeneratorContext context) {
+    Map<String, String> sources = new TreeMap<String, String>();
+    for (GeneratedUnit unit : context.getGeneratedUnitMap().values()) {
+      sources.put(unit.getTypeName(), unit.getSource());
+    }
+    return sources;
+  }
+
+  /**
+   * Runs both generators for every mode on the given number of threads, each
+   * rebind with its own property oracle, and returns the result type names in
+   * mode order.
+   */
+  private List<String> rebindAllModes(final StandardGeneratorContext context, int threads)
+      throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<String>> futures = new ArrayList<Future<String>>();
+      for (final String mode : MODES) {
+        for (final Class<? extends Generator> generatorClass : Arrays.asList(
+            ByModeGenerator.class, SerialGenerator.class)) {
+          futures.add(executor.submit(new Callable<String>() {
+            public String call() throws UnableToCompleteException {
+              context.setPropertyOracle(new ModePropertyOracle(mode));
+              return context.runGeneratorIncrementally(mockLogger, generatorClass,
+                  "test.Rebound").getResultTypeName();
+            }
+          }));
+        }
+      }
+      List<String> results = new ArrayList<String>();
+      for (Future<String> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
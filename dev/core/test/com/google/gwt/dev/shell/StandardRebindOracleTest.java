@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.dev.shell;
+
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.IncrementalGenerator;
+import com.google.gwt.core.ext.RebindMode;
+import com.google.gwt.core.ext.RebindResult;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.linker.ArtifactSet;
+import com.google.gwt.dev.RebindCache;
+import com.google.gwt.dev.cfg.BindingProperty;
+import com.google.gwt.dev.cfg.ConfigurationProperty;
+import com.google.gwt.dev.cfg.MockModuleDef;
+import com.google.gwt.dev.cfg.Rule;
+import com.google.gwt.dev.cfg.RuleGenerateWith;
+import com.google.gwt.dev.cfg.Rules;
+import com.google.gwt.dev.cfg.StaticPropertyOracle;
+import com.google.gwt.dev.javac.CachedGeneratorResultImpl;
+import com.google.gwt.dev.javac.CompilationStateBuilder;
+import com.google.gwt.dev.javac.GeneratedUnit;
+import com.google.gwt.dev.javac.StandardGeneratorContext;
+import com.google.gwt.dev.resource.Resource;
+
+import junit.framework.TestCase;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests of {@link StandardRebindOracle}.
+ */
+public class StandardRebindOracleTest extends TestCase {
+
+  /**
+   * Marks <code>gen.Reused</code> for reuse when rebinding
+   * <code>test.First</code> but then generates everything anew; reuses
+   * whatever was marked when rebinding anything else.
+   */
+  public static class ReuseGenerator extends IncrementalGenerator {
+    @Override
+    public RebindResult generateIncrementally(TreeLogger logger, GeneratorContext context,
+        String typeName) {
+      if (typeName.equals("test.First")) {
+        assertTrue(context.tryReuseTypeFromCache("gen.Reused"));
+        return new RebindResult(RebindMode.USE_ALL_NEW, typeName);
+      }
+      return new RebindResult(RebindMode.USE_PARTIAL_CACHED, typeName);
+    }
+
+    @Override
+    public long getVersionId() {
+      return 1;
+    }
+  }
+
+  /**
+   * A cached <code>gen.Reused</code>.
+   */
+  private static class ReusedUnit implements GeneratedUnit {
+    public long creationTime() {
+      return 0;
+    }
+
+    public String getSource() {
+      return "package gen; public class Reused { }";
+    }
+
+    public String getSourceMapPath() {
+      return "gen/Reused.java";
+    }
+
+    public long getSourceToken() {
+      return -1;
+    }
+
+    public String getStrongHash() {
+      return "hash";
+    }
+
+    public String getTypeName() {
+      return "gen.Reused";
+    }
+
+    public String optionalFileLocation() {
+      return null;
+    }
+  }
+
+  /**
+   * Tests that the types one rebind marks for reuse are not reused by the next
+   * rebind that runs on the same thread.
+   */
+  public void testRebindsOnOneWorkerDoNotShareReusedTypes() throws Exception {
+    StandardGeneratorContext genCtx = new StandardGeneratorContext(
+        CompilationStateBuilder.buildFrom(TreeLogger.NULL, Collections.<Resource>emptySet()),
+        new MockModuleDef(), null, new ArtifactSet(), false);
+    genCtx.setGeneratorResultCachingEnabled(true);
+    Rule rule = new RuleGenerateWith(ReuseGenerator.class);
+    Rules rules = new Rules();
+    rules.prepend(rule);
+
+    Map<String, GeneratedUnit> cachedUnits = new HashMap<String, GeneratedUnit>();
+    cachedUnits.put("gen.Reused", new ReusedUnit());
+    RebindCache cache = new RebindCache();
+    for (String typeName : new String[] {"test.First", "test.Second"}) {
+      cache.put(rule, typeName, new CachedGeneratorResultImpl(typeName, new ArtifactSet(),
+          cachedUnits, 0, new HashMap<String, Serializable>()));
+    }
+    final StandardRebindOracle rebindOracle = new StandardRebindOracle(
+        new StaticPropertyOracle(new BindingProperty[0], new String[0],
+            new ConfigurationProperty[0]), rules, genCtx);
+    rebindOracle.setRebindCache(cache);
+
+    ExecutorService worker = Executors.newSingleThreadExecutor();
+    try {
+      for (final String typeName : new String[] {"test.First", "test.Second"}) {
+        assertEquals(typeName, worker.submit(new Callable<String>() {
+          public String call() throws UnableToCompleteException {
+            return rebindOracle.rebind(TreeLogger.NULL, typeName);
+          }
+        }).get());
+      }
+    } finally {
+      worker.shutdown();
+    }
+    assertFalse(genCtx.getGeneratedUnitMap().containsKey("gen.Reused"));
+  }
+}
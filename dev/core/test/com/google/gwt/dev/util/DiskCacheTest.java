@@ -15,14 +15,35 @@
  */
 package com.google.gwt.dev.util;
 
+import junit.framework.AssertionFailedError;
 import junit.framework.TestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Tests {@link DiskCache}.
  */
 public class DiskCacheTest extends TestCase {
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[1000];
+    int read;
+    while ((read = in.read(buf)) != -1) {
+      out.write(buf, 0, read);
+    }
+    return out.toByteArray();
+  }
+
   private final DiskCache diskCache = new DiskCache();
 
   public void testBytes() {
@@ -49,6 +70,125 @@ public class DiskCacheTest extends TestCase {
     }
   }
 
+  public void testConcurrentWrites() throws Exception {
+    final int threads = 4;
+    final int valuesPerThread = 50;
+    final long[][] tokens = new long[threads][valuesPerThread];
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> writers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; ++t) {
+      final int thread = t;
+      writers.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < valuesPerThread; ++i) {
+              String value = thread + ":" + i;
+              tokens[thread][i] = i % 2 == 0 ? diskCache.writeString(value)
+                  : diskCache.transferFromStream(new ByteArrayInputStream(
+                      Util.getBytes(value)));
+            }
+          } catch (Throwable e) {
+            failures.add(e);
+          }
+        }
+      });
+    }
+    for (Thread writer : writers) {
+      writer.start();
+    }
+    start.countDown();
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    if (!failures.isEmpty()) {
+      AssertionFailedError error = new AssertionFailedError(failures.size()
+          + " writer(s) failed");
+      error.initCause(failures.get(0));
+      throw error;
+    }
+
+    for (int t = 0; t < threads; ++t) {
+      for (int i = 0; i < valuesPerThread; ++i) {
+        assertEquals(t + ":" + i, diskCache.readString(tokens[t][i]));
+      }
+    }
+  }
+
+  /**
+   * Tests that interrupting one reader does not break the segment it was
+   * reading for every later read and write.
+   */
+  public void testInterruptedRead() throws Exception {
+    final long tokenA = diskCache.writeString("a");
+    long tokenB = diskCache.writeString("b");
+    final Throwable[] failure = new Throwable[1];
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        interrupt();
+        try {
+          diskCache.readString(tokenA);
+        } catch (Throwable e) {
+          failure[0] = e;
+        }
+      }
+    };
+    reader.start();
+    reader.join();
+    assertNotNull(failure[0]);
+
+    assertEquals("b", diskCache.readString(tokenB));
+    assertEquals("a", diskCache.readString(tokenA));
+    assertEquals("a", new String(readAll(diskCache.readStream(tokenA)), Util.DEFAULT_ENCODING));
+    assertEquals("c", diskCache.readString(diskCache.writeString("c")));
+  }
+
+  public void testTransferToFile() throws IOException {
+    byte[] b = new byte[10000];
+    for (int i = 1; i < b.length; ++i) {
+      b[i] = (byte) (i * 17 + b[i - 1]);
+    }
+    long token = diskCache.writeByteArray(b);
+    File file = File.createTempFile("diskCacheTest", "");
+    try {
+      FileOutputStream out = new FileOutputStream(file);
+      out.write(42);
+      diskCache.transferToStream(token, out);
+      out.close();
+
+      byte[] written = Util.readFileAsBytes(file);
+      assertEquals(b.length + 1, written.length);
+      assertEquals(42, written[0]);
+      assertTrue(Arrays.equals(b, Arrays.copyOfRange(written, 1, written.length)));
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testStreams() throws IOException {
+    byte[] a = new byte[0];
+    byte[] b = new byte[10000];
+    for (int i = 1; i < b.length; ++i) {
+      b[i] = (byte) (i * 31 + b[i - 1]);
+    }
+    long tokenA = diskCache.writeByteArray(a);
+    long tokenB = diskCache.writeByteArray(b);
+    long tokenC = diskCache.transferFromStream(new ByteArrayInputStream(b));
+
+    InputStream streamB = diskCache.readStream(tokenB);
+    InputStream streamC = diskCache.readStream(tokenC);
+    // Interleave reads with other operations on the cache
+    assertEquals(b[0] & 0xff, streamB.read());
+    diskCache.writeString("interleaved");
+    assertTrue(Arrays.equals(a, readAll(diskCache.readStream(tokenA))));
+    assertTrue(Arrays.equals(b, readAll(streamC)));
+    assertTrue(Arrays.equals(Arrays.copyOfRange(b, 1, b.length), readAll(streamB)));
+    assertEquals(-1, streamB.read());
+  }
+
   public void testStrings() {
     String a = "";
     String b = "abjdsfkl;jasdf";
@@ -176,7 +176,7 @@ public class StackTraceCreator {
       StackTraceElement[] stackTrace = new StackTraceElement[stack.length()];
       for (int i = 0, j = stackTrace.length; i < j; i++) {
         // Locations is also backwards
-        String location = locations.get(j - i - 1);
+        String location = decodeLocation(locations, j - i - 1);
         String fileName = null;
         int lineNumber = LINE_NUMBER_UNKNOWN;
         if (location != null) {
@@ -210,6 +210,22 @@ public class StackTraceCreator {
       throw new RuntimeException("Should not reach here");
     }
 
+    /**
+     * Returns the location at <code>index</code> as "File.java:line" or
+     * "line". With compiler.emulatedStack.useLocationTables, locations are
+     * recorded as <code>fileIndex * 2^20 + line</code>, where fileIndex
+     * indexes the static <code>$locationFiles</code> table.
+     */
+    private native String decodeLocation(JsArrayString locations, int index) /*-{
+      var location = locations[index];
+      if (typeof location != 'number') {
+        return location;
+      }
+      var line = location % 1048576;
+      var file = $locationFiles[(location - line) / 1048576];
+      return file ? file + ':' + line : '' + line;
+    }-*/;
+
     private native JsArrayString getLocation()/*-{
       return $location;
     }-*/;
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.i18n.rebind;
+
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.i18n.rebind.MessageFormatParser.TemplateChunk;
+import com.google.gwt.i18n.shared.GwtLocale;
+import com.google.gwt.thirdparty.guava.common.collect.MapMaker;
+
+import java.io.ByteArrayInputStream;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide caches of parsed message catalogs, shared by every generator
+ * context, permutation and locale. Unlike {@link ResourceFactoryContext}, whose
+ * entries refer to a particular TypeOracle, everything here is keyed by
+ * content, so it stays valid across compiles and is only held softly.
+ * <p>
+ * Cached values are shared and must not be modified.
+ */
+@SuppressWarnings("deprecation")
+class MessageCatalogCache {
+
+  private static final Map<String, AbstractResource> resources =
+      new MapMaker().softValues().makeMap();
+
+  private static final Map<String, List<TemplateChunk>> templates =
+      new MapMaker().softValues().makeMap();
+
+  /**
+   * Returns the parsed form of a resource file, loading it with the given
+   * factory only if a file with the same path, locale and contents has not
+   * been seen before.
+   */
+  static AbstractResource getResource(ResourceFactory factory, String path,
+      GwtLocale locale, byte[] contents) {
+    String key = Util.computeStrongName(contents) + '/' + locale + '/' + path;
+    AbstractResource resource = resources.get(key);
+    if (resource == null) {
+      resource = factory.load(new ByteArrayInputStream(contents), locale);
+      resource.setPath(path);
+      resources.put(key, resource);
+    }
+    return resource;
+  }
+
+  /**
+   * Returns an unmodifiable list of the chunks in a MessageFormat-style
+   * template, parsing it only the first time it is seen.
+   *
+   * @see MessageFormatParser#parse(String)
+   */
+  static List<TemplateChunk> getTemplateChunks(String template)
+      throws ParseException {
+    List<TemplateChunk> chunks = templates.get(template);
+    if (chunks == null) {
+      chunks = Collections.unmodifiableList(MessageFormatParser.parse(template));
+      templates.put(template, chunks);
+    }
+    return chunks;
+  }
+
+  private MessageCatalogCache() {
+  }
+}
@@ -1136,7 +1136,7 @@ class MessagesMethodCreator extends AbstractMethodCreator {
     // Generate code to format any lists
     // TODO(jat): handle messages with different list formats in alternate forms 
     try {
-      for (TemplateChunk chunk : MessageFormatParser.parse(template)) {
+      for (TemplateChunk chunk : MessageCatalogCache.getTemplateChunks(template)) {
         if (chunk instanceof ArgumentChunk) {
           ArgumentChunk argChunk = (ArgumentChunk) chunk;
           if (argChunk.isList()) {
@@ -1273,7 +1273,7 @@ class MessagesMethodCreator extends AbstractMethodCreator {
     final StringBuilder buf = new StringBuilder();
     final StringGenerator gen = StringGenerator.create(buf, isSafeHtml);
     try {
-      List<TemplateChunk> chunks = MessageFormatParser.parse(listPattern);
+      List<TemplateChunk> chunks = MessageCatalogCache.getTemplateChunks(listPattern);
       for (TemplateChunk chunk : chunks) {
         chunk.accept(new DefaultTemplateChunkVisitor() {
           @Override
@@ -1491,7 +1491,7 @@ class MessagesMethodCreator extends AbstractMethodCreator {
     final StringGenerator buf = StringGenerator.create(outputBuf, isSafeHtml);
     final int n = paramsAccessor.getCount();
     try {
-      for (TemplateChunk chunk : MessageFormatParser.parse(template)) {
+      for (TemplateChunk chunk : MessageCatalogCache.getTemplateChunks(template)) {
         chunk.accept(new DefaultTemplateChunkVisitor() {
           @Override
           public void visit(ArgumentChunk argChunk) throws UnableToCompleteException {
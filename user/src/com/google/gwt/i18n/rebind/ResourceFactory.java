@@ -22,6 +22,7 @@ import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.dev.resource.Resource;
 import com.google.gwt.dev.util.StringKey;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.collect.IdentityHashSet;
 import com.google.gwt.i18n.client.LocalizableResource.DefaultLocale;
 import com.google.gwt.i18n.rebind.AbstractResource.ResourceList;
@@ -52,6 +53,16 @@ public abstract class ResourceFactory {
     }
   }
 
+  /**
+   * The classes searched for resources for a localizable type, in search
+   * order, and the resources built from their annotations.
+   */
+  static class ClassHierarchy {
+    final List<JClassType> classes = new ArrayList<JClassType>();
+    final Map<ClassLocale, AnnotationsResource> annotations =
+        new HashMap<ClassLocale, AnnotationsResource>();
+  }
+
   /**
    * Separator between class name and locale in resource files. Should not
    * appear in valid localizable class names.
@@ -87,17 +98,25 @@ public abstract class ResourceFactory {
       JClassType topClass, GwtLocale bundleLocale, boolean isConstants,
       Map<String, Resource> resourceMap, GeneratorContext genCtx) {
     List<GwtLocale> locales = bundleLocale.getCompleteSearchList();
-    List<JClassType> classes = new ArrayList<JClassType>();
-    Set<JClassType> seenClasses = new IdentityHashSet<JClassType>();
-    Map<ClassLocale, AnnotationsResource> annotations = new HashMap<ClassLocale, AnnotationsResource>();
-    GwtLocaleFactory factory = LocaleUtils.getLocaleFactory();
-    GwtLocale defaultLocale = factory.getDefault();
-    walkInheritanceTree(logger, topClass, factory, defaultLocale, classes,
-        annotations, seenClasses, isConstants);
+    ResourceFactoryContext localizableCtx = getResourceFactoryContext(genCtx);
+
+    // The class hierarchy and its annotations do not depend on the locale, so
+    // only walk it once per type.
+    ClassHierarchy hierarchy = localizableCtx.getClassHierarchy(topClass, isConstants);
+    if (hierarchy == null) {
+      hierarchy = new ClassHierarchy();
+      Set<JClassType> seenClasses = new IdentityHashSet<JClassType>();
+      GwtLocaleFactory factory = LocaleUtils.getLocaleFactory();
+      GwtLocale defaultLocale = factory.getDefault();
+      walkInheritanceTree(logger, topClass, factory, defaultLocale, hierarchy.classes,
+          hierarchy.annotations, seenClasses, isConstants);
+      localizableCtx.putClassHierarchy(topClass, isConstants, hierarchy);
+    }
+    List<JClassType> classes = hierarchy.classes;
+    Map<ClassLocale, AnnotationsResource> annotations = hierarchy.annotations;
     // TODO(jat): handle explicit subinterface with other locales -- ie:
     // public interface Foo_es_MX extends Foo { ... }
     ResourceList allResources = new ResourceList();
-    ResourceFactoryContext localizableCtx = getResourceFactoryContext(genCtx);
     for (GwtLocale locale : locales) {
       for (JClassType clazz : classes) {
         ClassLocale key = new ClassLocale(clazz, locale);
@@ -164,14 +183,17 @@ public abstract class ResourceFactory {
           logger.log(TreeLogger.ERROR, "Error opening resource: " + resource.getLocation());
           throw new RuntimeException(ex);
         }
-        AbstractResource found = element.load(resourceStream, locale);
-        found.setPath(path);
-        resources.add(found);
+        byte[] contents = Util.readStreamAsBytes(resourceStream);
+        if (contents == null) {
+          logger.log(TreeLogger.ERROR, "Error reading resource: " + resource.getLocation());
+          throw new RuntimeException("Unable to read " + resource.getLocation());
+        }
+        resources.add(MessageCatalogCache.getResource(element, path, locale, contents));
       }
     }
   }
 
-  private static synchronized ResourceFactoryContext getResourceFactoryContext(
+  static synchronized ResourceFactoryContext getResourceFactoryContext(
       GeneratorContext context) {
     if (context instanceof CachedGeneratorContext) {
       context = ((CachedGeneratorContext) context).getWrappedGeneratorContext();
@@ -15,7 +15,9 @@
  */
 package com.google.gwt.i18n.rebind;
 
+import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.i18n.rebind.AbstractResource.ResourceList;
+import com.google.gwt.i18n.rebind.ResourceFactory.ClassHierarchy;
 import com.google.gwt.i18n.rebind.ResourceFactory.ClassLocale;
 
 import java.util.HashMap;
@@ -25,13 +27,27 @@ import java.util.Map;
  * Stores cached state for the LocalizableGenerator.
  */
 public class ResourceFactoryContext {
+  private final Map<String, ClassHierarchy> classHierarchyCache =
+      new HashMap<String, ClassHierarchy>();
   private final Map<ClassLocale, ResourceList> resourceListCache = new HashMap<ClassLocale, ResourceList>();
-  
+
+  ClassHierarchy getClassHierarchy(JClassType type, boolean isConstants) {
+    return classHierarchyCache.get(getHierarchyKey(type, isConstants));
+  }
+
   public ResourceList getResourceList(ClassLocale key) {
     return resourceListCache.get(key);
   }
 
+  void putClassHierarchy(JClassType type, boolean isConstants, ClassHierarchy hierarchy) {
+    classHierarchyCache.put(getHierarchyKey(type, isConstants), hierarchy);
+  }
+
   public void putResourceList(ClassLocale key, ResourceList resources) {
    resourceListCache.put(key, resources);
   }
+
+  private String getHierarchyKey(JClassType type, boolean isConstants) {
+    return type.getQualifiedSourceName() + (isConstants ? "/constants" : "/messages");
+  }
 }
@@ -15,11 +15,13 @@
  */
 package com.google.gwt.junit;
 
+import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.junit.client.GWTTestCase;
 import com.google.gwt.junit.client.impl.JUnitHost.TestInfo;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -53,6 +55,17 @@ public abstract class BatchingStrategy {
    */
   public abstract boolean isSingleTestOnly();
 
+  /**
+   * Called once every client has reported results for every test block, or
+   * when the JVM exits before they all have. Does nothing by default.
+   *
+   * @param logger logs any problems
+   * @param testDurations how long each test that reported results took to run,
+   *          in milliseconds
+   */
+  void onTestsFinished(TreeLogger logger, Map<TestInfo, Long> testDurations) {
+  }
+
   /**
    * Get the set of tests for this module, minus tests that should not be
    * executed.
@@ -126,6 +126,19 @@ public abstract class CompileStrategy {
     return moduleDef;
   }
 
+  /**
+   * Compiles the synthetic module for web mode, or links it for development
+   * mode.
+   *
+   * Visible for overriding.
+   *
+   * @param moduleDef the synthetic module
+   */
+  void compileModule(ModuleDef moduleDef) throws UnableToCompleteException {
+    junitShell.maybeCompileForWebMode(moduleDef,
+        JUnitShell.getRemoteUserAgents());
+  }
+
   /**
    * Visible for testing and mocking.
    *
@@ -176,8 +189,7 @@ public abstract class CompileStrategy {
 
     strategy.processModule(moduleDef);
 
-    junitShell.maybeCompileForWebMode(moduleDef,
-        JUnitShell.getRemoteUserAgents());
+    compileModule(moduleDef);
 
     return moduleDef;
   }
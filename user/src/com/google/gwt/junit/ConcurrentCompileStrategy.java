@@ -0,0 +1,171 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.junit;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.cfg.ModuleDef;
+import com.google.gwt.junit.JUnitShell.Strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Strategy that compiles all modules before returning results, like
+ * {@link PreCompileStrategy}, but runs several compiles at once. The
+ * <code>-localWorkers</code> budget is split between them: with N modules and
+ * W local workers, min(N, W) compiles run at once and each compiles W / min(N,
+ * W) permutations at a time, so no more than W permutations are ever compiled
+ * at once. Module definitions are still loaded one at a time, and all compiles
+ * share the compilation unit cache, so common modules are only compiled to
+ * bytecode once. Optimizes total test time on machines with several cores, at
+ * the cost of memory.
+ */
+class ConcurrentCompileStrategy extends PreCompileStrategy {
+
+  private final JUnitShell junitShell;
+
+  /**
+   * The modules waiting to be compiled.
+   */
+  private final List<ModuleDef> pendingModules = new ArrayList<ModuleDef>();
+
+  public ConcurrentCompileStrategy(JUnitShell junitShell) {
+    super(junitShell);
+    this.junitShell = junitShell;
+  }
+
+  @Override
+  public ModuleDef maybeCompileModule(String moduleName,
+      String syntheticModuleName, Strategy strategy,
+      BatchingStrategy batchingStrategy, TreeLogger treeLogger)
+      throws UnableToCompleteException {
+    ModuleDef moduleDef = super.maybeCompileModule(moduleName,
+        syntheticModuleName, strategy, batchingStrategy, treeLogger);
+    List<ModuleDef> modules = new ArrayList<ModuleDef>(pendingModules);
+    pendingModules.clear();
+    compileAll(treeLogger, modules);
+    return moduleDef;
+  }
+
+  /**
+   * Compiles each module, several at once, and waits for all of them to
+   * finish. The local workers are split between the compiles.
+   *
+   * Visible for testing.
+   *
+   * @throws UnableToCompleteException if any of them failed
+   */
+  void compileAll(TreeLogger logger, List<ModuleDef> modules)
+      throws UnableToCompleteException {
+    if (modules.isEmpty()) {
+      return;
+    }
+    int localWorkers = Math.max(1, getLocalWorkers());
+    int compilesAtOnce = Math.min(modules.size(), localWorkers);
+    ExecutorService executor = Executors.newFixedThreadPool(compilesAtOnce,
+        new ThreadFactory() {
+          private int count;
+
+          @Override
+          public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "JUnitShell compile " + count++);
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    boolean failed = false;
+    // Each compile copies the options when it starts, so changing the shared
+    // value for as long as the compiles run gives each one its share.
+    setLocalWorkers(localWorkers / compilesAtOnce);
+    try {
+      List<Future<Void>> compiles = new ArrayList<Future<Void>>();
+      for (final ModuleDef moduleDef : modules) {
+        compiles.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws UnableToCompleteException {
+            compileForWebMode(moduleDef);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> compile : compiles) {
+        try {
+          compile.get();
+        } catch (ExecutionException e) {
+          if (!(e.getCause() instanceof UnableToCompleteException)) {
+            logger.log(TreeLogger.ERROR, "Unexpected error while compiling", e.getCause());
+          }
+          failed = true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while waiting for compiles", e);
+      failed = true;
+    } finally {
+      executor.shutdownNow();
+      setLocalWorkers(localWorkers);
+    }
+    if (failed) {
+      throw new UnableToCompleteException();
+    }
+  }
+
+  /**
+   * Compiles one module for web mode.
+   *
+   * Visible for overriding.
+   */
+  void compileForWebMode(ModuleDef moduleDef) throws UnableToCompleteException {
+    junitShell.compileForWebMode(moduleDef, JUnitShell.getRemoteUserAgents());
+  }
+
+  /**
+   * Loads the module's servlets and queues it to be compiled with the other
+   * modules. Development mode only links, which is left to run in the calling
+   * thread.
+   */
+  @Override
+  void compileModule(ModuleDef moduleDef) throws UnableToCompleteException {
+    if (junitShell.isDevelopmentMode()) {
+      super.compileModule(moduleDef);
+      return;
+    }
+    junitShell.loadServlets(moduleDef);
+    pendingModules.add(moduleDef);
+  }
+
+  /**
+   * Visible for overriding.
+   */
+  int getLocalWorkers() {
+    return junitShell.getLocalWorkers();
+  }
+
+  /**
+   * Visible for overriding.
+   */
+  void setLocalWorkers(int localWorkers) {
+    junitShell.setLocalWorkers(localWorkers);
+  }
+}
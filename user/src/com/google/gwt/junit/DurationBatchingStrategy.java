@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.junit;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.junit.client.impl.JUnitHost.TestInfo;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Strategy that splits the tests of a module into several batches that are
+ * expected to take about the same time to run. How long each test took in the
+ * client is saved to a history file once every test has reported results, or
+ * when the run ends early, and read back by the next run.
+ * When none of the tests in a module have a recorded duration, all of them are
+ * run in one batch, as {@link ModuleBatchingStrategy} does.
+ * <p>
+ * The history file and number of batches are set by the
+ * <code>gwt.junit.batch.history</code> and <code>gwt.junit.batch.count</code>
+ * system properties.
+ */
+class DurationBatchingStrategy extends BatchingStrategy {
+
+  static final String BATCH_COUNT_PROPERTY = "gwt.junit.batch.count";
+
+  static final String HISTORY_PROPERTY = "gwt.junit.batch.history";
+
+  /**
+   * Returns the key of a test in the history file.
+   */
+  private static String getKey(TestInfo testInfo) {
+    return testInfo.getTestClass() + "." + testInfo.getTestMethod();
+  }
+
+  private final int batchCount;
+
+  /**
+   * The duration of each test in milliseconds, keyed by {@link #getKey}.
+   */
+  private final Map<String, Long> durations = new HashMap<String, Long>();
+
+  private final File historyFile;
+
+  public DurationBatchingStrategy() {
+    this(new File(System.getProperty(HISTORY_PROPERTY, "gwt-junit-durations.properties")),
+        Integer.getInteger(BATCH_COUNT_PROPERTY, 4));
+  }
+
+  DurationBatchingStrategy(File historyFile, int batchCount) {
+    this.historyFile = historyFile;
+    this.batchCount = Math.max(1, batchCount);
+    loadHistory();
+  }
+
+  @Override
+  public synchronized List<TestInfo[]> getTestBlocks(String syntheticModuleName) {
+    final List<TestInfo> tests = new ArrayList<TestInfo>(getTestsForModule(syntheticModuleName));
+    List<TestInfo[]> testBlocks = new ArrayList<TestInfo[]>();
+    if (tests.isEmpty()) {
+      return testBlocks;
+    }
+
+    // Tests that have never run are assumed to take the mean time.
+    long total = 0;
+    int known = 0;
+    for (TestInfo testInfo : tests) {
+      Long duration = durations.get(getKey(testInfo));
+      if (duration != null) {
+        total += duration;
+        ++known;
+      }
+    }
+    if (known == 0) {
+      testBlocks.add(tests.toArray(new TestInfo[tests.size()]));
+      return testBlocks;
+    }
+    final Map<TestInfo, Long> expected = new HashMap<TestInfo, Long>();
+    for (TestInfo testInfo : tests) {
+      Long duration = durations.get(getKey(testInfo));
+      expected.put(testInfo, duration == null ? total / known : duration);
+    }
+
+    // Give each test, longest first, to the batch with the least work so far.
+    List<TestInfo> longestFirst = new ArrayList<TestInfo>(tests);
+    Collections.sort(longestFirst, new Comparator<TestInfo>() {
+      @Override
+      public int compare(TestInfo a, TestInfo b) {
+        return expected.get(b).compareTo(expected.get(a));
+      }
+    });
+    int binCount = Math.min(batchCount, tests.size());
+    long[] loads = new long[binCount];
+    Map<TestInfo, Integer> bins = new HashMap<TestInfo, Integer>();
+    for (TestInfo testInfo : longestFirst) {
+      int bin = 0;
+      for (int i = 1; i < binCount; ++i) {
+        if (loads[i] < loads[bin]) {
+          bin = i;
+        }
+      }
+      loads[bin] += expected.get(testInfo);
+      bins.put(testInfo, bin);
+    }
+
+    // Keep the original order of the tests, and of the batches by their first
+    // test.
+    Map<Integer, List<TestInfo>> blocks = new LinkedHashMap<Integer, List<TestInfo>>();
+    for (TestInfo testInfo : tests) {
+      List<TestInfo> block = blocks.get(bins.get(testInfo));
+      if (block == null) {
+        block = new ArrayList<TestInfo>();
+        blocks.put(bins.get(testInfo), block);
+      }
+      block.add(testInfo);
+    }
+    for (List<TestInfo> block : blocks.values()) {
+      testBlocks.add(block.toArray(new TestInfo[block.size()]));
+    }
+    return testBlocks;
+  }
+
+  @Override
+  public boolean isSingleTestOnly() {
+    return false;
+  }
+
+  @Override
+  void onTestsFinished(TreeLogger logger, Map<TestInfo, Long> testDurations) {
+    recordDurations(testDurations);
+    saveHistory(logger);
+  }
+
+  /**
+   * Replaces the recorded duration of each test in <code>testDurations</code>.
+   */
+  synchronized void recordDurations(Map<TestInfo, Long> testDurations) {
+    for (Map.Entry<TestInfo, Long> entry : testDurations.entrySet()) {
+      durations.put(getKey(entry.getKey()), entry.getValue());
+    }
+  }
+
+  /**
+   * Writes every recorded duration to the history file. Failures are only
+   * logged as warnings, since the history only affects how tests are batched.
+   */
+  synchronized void saveHistory(TreeLogger logger) {
+    Properties history = new Properties();
+    for (Map.Entry<String, Long> entry : durations.entrySet()) {
+      history.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+    }
+    OutputStream out = null;
+    try {
+      out = new FileOutputStream(historyFile);
+      history.store(out, "GWT JUnit test durations in milliseconds");
+    } catch (IOException e) {
+      logger.log(TreeLogger.WARN, "Unable to save test durations to " + historyFile, e);
+    } finally {
+      Utility.close(out);
+    }
+  }
+
+  @Override
+  protected int getTimeoutMultiplier() {
+    return 4;
+  }
+
+  private void loadHistory() {
+    if (!historyFile.isFile()) {
+      return;
+    }
+    Properties history = new Properties();
+    InputStream in = null;
+    try {
+      in = new FileInputStream(historyFile);
+      history.load(in);
+    } catch (IOException e) {
+      // Batch as though there were no history.
+      return;
+    } finally {
+      Utility.close(in);
+    }
+    Set<String> keys = history.stringPropertyNames();
+    for (String key : keys) {
+      try {
+        long duration = Long.parseLong(history.getProperty(key));
+        if (duration >= 0) {
+          durations.put(key, duration);
+        }
+      } catch (NumberFormatException e) {
+        // Ignore the entry.
+      }
+    }
+  }
+}
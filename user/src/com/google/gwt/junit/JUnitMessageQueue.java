@@ -69,6 +69,11 @@ public class JUnitMessageQueue {
    * Holds the state of an individual client.
    */
   public static class ClientStatus {
+    /**
+     * The block this client took from its shared blocks and has not reported
+     * results for, or -1. Only used when clients are sharded.
+     */
+    private int assignedBlockIndex = -1;
     private int blockIndex = 0;
     private ClientInfoExt clientInfo;
     private boolean isNew = true;
@@ -111,16 +116,33 @@ public class JUnitMessageQueue {
    */
   private boolean isLastTestBlockAvailable;
 
+  /**
+   * The next block to hand out to the shards of each client, keyed by the
+   * client's description.
+   */
+  private final Map<String, Integer> nextShardBlockIndices = new HashMap<String, Integer>();
+
   /**
    * The number of TestCase clients executing in parallel.
    */
   private int numClients = 1;
 
+  /**
+   * The number of browser instances that share the tests of each client.
+   */
+  private final int shardsPerClient;
+
   /**
    * The list of test blocks to run.
    */
   private final List<TestInfo[]> testBlocks = new ArrayList<TestInfo[]>();
 
+  /**
+   * The longest time in milliseconds any client took to run each test, as
+   * measured by the client.
+   */
+  private final Map<TestInfo, Long> testDurations = new HashMap<TestInfo, Long>();
+
   /**
    * Maps the TestInfo to the results from each clientId. If JUnitResult is
    * null, it means that the client requested the test but did not report the
@@ -137,12 +159,29 @@ public class JUnitMessageQueue {
    * Only instantiable within this package.
    */
   JUnitMessageQueue(int numClients) {
+    this(numClients, 1);
+  }
+
+  /**
+   * Creates a queue for <code>numClients</code> clients, each run by
+   * <code>shardsPerClient</code> browser instances. Shards of a client are
+   * recognized by their common description, and each takes the next block
+   * that none of the others has taken, so every test is run once per client.
+   */
+  JUnitMessageQueue(int numClients, int shardsPerClient) {
     this.numClients = numClients;
+    this.shardsPerClient = shardsPerClient;
   }
 
   /**
    * Called by the servlet to query for for the next block to test.
    * 
+   * <p>
+   * When clients are sharded, a shard asking for a block other than the one it
+   * was last given is given the next block none of its client's shards has
+   * taken, whatever its index.
+   * </p>
+   * 
    * @param clientInfo information about the client
    * @param blockIndex the index of the test block to get
    * @param timeout how long to wait for an answer
@@ -155,6 +194,10 @@ public class JUnitMessageQueue {
     synchronized (clientStatusesLock) {
       userAgents.add(clientInfo.getUserAgent());
       ClientStatus clientStatus = ensureClientStatus(clientInfo);
+      boolean isSharded = shardsPerClient > 1 && clientStatus.assignedBlockIndex != blockIndex;
+      if (isSharded) {
+        blockIndex = getNextShardBlockIndex(clientStatus);
+      }
       clientStatus.blockIndex = blockIndex;
 
       // The client has finished all of the tests.
@@ -184,6 +227,18 @@ public class JUnitMessageQueue {
           e.printStackTrace();
           return null;
         }
+        if (isSharded) {
+          // Another shard may have taken the block while we waited.
+          blockIndex = getNextShardBlockIndex(clientStatus);
+          clientStatus.blockIndex = blockIndex;
+          if (isLastTestBlockAvailable && blockIndex >= testBlocks.size()) {
+            return null;
+          }
+        }
+      }
+      if (isSharded) {
+        nextShardBlockIndices.put(clientStatus.getDesc(), blockIndex + 1);
+        clientStatus.assignedBlockIndex = blockIndex;
       }
 
       // Record that this client has retrieved the current tests.
@@ -229,8 +284,18 @@ public class JUnitMessageQueue {
       // Cache the test results.
       for (Map.Entry<TestInfo, JUnitResult> entry : results.entrySet()) {
         TestInfo testInfo = entry.getKey();
-        ensureResults(testInfo).put(clientStatus, entry.getValue());
+        JUnitResult result = entry.getValue();
+        ensureResults(testInfo).put(clientStatus, result);
+
+        // Keep the longest time any client took.
+        if (result != null && result.getDuration() >= 0) {
+          Long previous = testDurations.get(testInfo);
+          if (previous == null || previous < result.getDuration()) {
+            testDurations.put(testInfo, result.getDuration());
+          }
+        }
       }
+      clientStatus.assignedBlockIndex = -1;
 
       clientStatusesLock.notifyAll();
     }
@@ -320,6 +385,10 @@ public class JUnitMessageQueue {
     }
   }
 
+  int getShardsPerClient() {
+    return shardsPerClient;
+  }
+
   /**
    * Visible for testing.
    * 
@@ -329,6 +398,16 @@ public class JUnitMessageQueue {
     return testBlocks;
   }
 
+  /**
+   * Returns how long each test that has reported results took to run, in
+   * milliseconds. If several clients ran a test, the longest time is returned.
+   */
+  Map<TestInfo, Long> getTestDurations() {
+    synchronized (clientStatusesLock) {
+      return new HashMap<TestInfo, Long>(testDurations);
+    }
+  }
+
   /**
    * Returns a pretty printed list of clients that have not retrieved the
    * current test. Used for error reporting.
@@ -436,6 +515,26 @@ public class JUnitMessageQueue {
     }
   }
 
+  /**
+   * Returns true if the last test block has been added and every client has
+   * reported results for every test in every block.
+   */
+  boolean hasAllResults() {
+    synchronized (clientStatusesLock) {
+      if (!isLastTestBlockAvailable) {
+        return false;
+      }
+      for (TestInfo[] testBlock : testBlocks) {
+        for (TestInfo testInfo : testBlock) {
+          if (!hasResults(testInfo)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
   /**
    * Returns true iff any there are no results, missing results, or any of the
    * test results is an exception other than those in {@code
@@ -517,4 +616,12 @@ public class JUnitMessageQueue {
     }
     return results;
   }
+
+  /**
+   * Returns the next block that no shard of the client has taken.
+   */
+  private int getNextShardBlockIndex(ClientStatus clientStatus) {
+    Integer next = nextShardBlockIndices.get(clientStatus.getDesc());
+    return next == null ? 0 : next;
+  }
 }
@@ -430,7 +430,7 @@ public class JUnitShell extends DevMode {
 
         @Override
         public String[] getTagArgs() {
-          return new String[]{"none|class|module"};
+          return new String[]{"none|class|module|duration"};
         }
 
         @Override
@@ -446,6 +446,8 @@ public class JUnitShell extends DevMode {
             shell.batchingStrategy = new ClassBatchingStrategy();
           } else if (str.equals("module")) {
             shell.batchingStrategy = new ModuleBatchingStrategy();
+          } else if (str.equals("duration")) {
+            shell.batchingStrategy = new DurationBatchingStrategy();
           } else {
             return false;
           }
@@ -469,7 +471,7 @@ public class JUnitShell extends DevMode {
 
         @Override
         public String[] getTagArgs() {
-          return new String[]{"simple|all|parallel"};
+          return new String[]{"simple|all|parallel|concurrent"};
         }
 
         @Override
@@ -485,6 +487,8 @@ public class JUnitShell extends DevMode {
             shell.compileStrategy = new PreCompileStrategy(shell);
           } else if (str.equals("parallel")) {
             shell.compileStrategy = new ParallelCompileStrategy(shell);
+          } else if (str.equals("concurrent")) {
+            shell.compileStrategy = new ConcurrentCompileStrategy(shell);
           } else {
             return false;
           }
@@ -722,6 +726,13 @@ public class JUnitShell extends DevMode {
         throw new JUnitFatalLaunchException("Shell failed to start");
       }
       // TODO: install a shutdown hook? Not necessary with GWTShell.
+      final JUnitShell shell = unitTestShell;
+      Runtime.getRuntime().addShutdownHook(new Thread("JUnitShell test durations") {
+        @Override
+        public void run() {
+          shell.saveIncompleteTestDurations();
+        }
+      });
       unitTestShell.lastLaunchFailed = false;
     }
     unitTestShell.checkArgs();
@@ -955,7 +966,7 @@ public class JUnitShell extends DevMode {
       // RunStyle already logged reasons for its failure
       return false;
     }
-    messageQueue = new JUnitMessageQueue(numClients);
+    messageQueue = new JUnitMessageQueue(numClients, runStyle.getShardsPerClient());
 
     if (tries >= 1) {
       runStyle.setTries(tries);
@@ -1013,7 +1024,8 @@ public class JUnitShell extends DevMode {
 
     // Limit permutations after all clients have connected.
     if (remoteUserAgents == null
-        && messageQueue.getNumConnectedClients() == expectedClients) {
+        && messageQueue.getNumConnectedClients()
+            == expectedClients * messageQueue.getShardsPerClient()) {
       remoteUserAgents = messageQueue.getUserAgents();
       String userAgentList = "";
       for (int i = 0; i < remoteUserAgents.length; i++) {
@@ -1113,6 +1125,13 @@ public class JUnitShell extends DevMode {
     // TODO(scottb): prepopulate currentCompilationState somehow?
   }
 
+  /**
+   * Returns the number of permutations that compiles may work on at once.
+   */
+  int getLocalWorkers() {
+    return options.getLocalWorkers();
+  }
+
   String getModuleUrl(String hostName, int port, String moduleName, int codeServerPort) {
     String url = "http://" + hostName + ":" + port + "/" + moduleName
         + (standardsMode ? "/junit-standards.html" : "/junit.html");
@@ -1122,9 +1141,15 @@ public class JUnitShell extends DevMode {
     return url;
   }
   
-  void maybeCompileForWebMode(ModuleDef module, String... userAgents)
-      throws UnableToCompleteException {
-    // Load any declared servlets.
+  boolean isDevelopmentMode() {
+    return developmentMode;
+  }
+
+  /**
+   * Loads the servlets declared by <code>module</code> into the servlet
+   * container.
+   */
+  void loadServlets(ModuleDef module) {
     for (String path : module.getServletPaths()) {
       String servletClass = module.findServletForPath(path);
       path = '/' + module.getName() + path;
@@ -1141,6 +1166,11 @@ public class JUnitShell extends DevMode {
         }
       }
     }
+  }
+
+  void maybeCompileForWebMode(ModuleDef module, String... userAgents)
+      throws UnableToCompleteException {
+    loadServlets(module);
     if (developmentMode) {
       // BACKWARDS COMPATIBILITY: many linkers currently fail in dev mode.
       try {
@@ -1162,6 +1192,14 @@ public class JUnitShell extends DevMode {
     }
   }
 
+  /**
+   * Sets the number of permutations that compiles started from now on may work
+   * on at once.
+   */
+  void setLocalWorkers(int localWorkers) {
+    options.setLocalWorkers(localWorkers);
+  }
+
   void setStandardsMode(boolean standardsMode) {
     this.standardsMode = standardsMode;
   }
@@ -1397,6 +1435,20 @@ public class JUnitShell extends DevMode {
     }
     assert (messageQueue.hasResults(currentTestInfo));
     processTestResult(testCase, testResult);
+    if (messageQueue.hasAllResults()) {
+      batchingStrategy.onTestsFinished(getTopLogger(), messageQueue.getTestDurations());
+    }
+  }
+
+  /**
+   * Hands the batching strategy the durations reported so far if the run is
+   * ending before every client reported results for every test, such as when
+   * a test timed out.
+   */
+  private void saveIncompleteTestDurations() {
+    if (!messageQueue.hasAllResults()) {
+      batchingStrategy.onTestsFinished(getTopLogger(), messageQueue.getTestDurations());
+    }
   }
 
   /**
@@ -77,6 +77,17 @@ public abstract class RunStyle {
     return Collections.emptySet();
   }
 
+  /**
+   * Returns how many browser instances run the tests of each client. Each
+   * instance runs different test blocks, so a client's tests are only run
+   * once. Only called after {@link #initialize(String)}.
+   * 
+   * @return the number of browser instances per client
+   */
+  public int getShardsPerClient() {
+    return 1;
+  }
+
   /**
    * Returns the number of times this test should be tried to run. A test
    * succeeds if it succeeds even once.
@@ -218,6 +218,12 @@ public class RunStyleHtmlUnit extends RunStyle {
   private static final Set<Platform> PLATFORMS = ImmutableSet.of(Platform.HtmlUnitBug,
       Platform.HtmlUnitLayout, Platform.HtmlUnitUnknown);
 
+  /**
+   * The system property that sets how many HtmlUnit clients run the tests of
+   * each browser concurrently. Only batched tests can be shared between them.
+   */
+  private static final String SHARDS_PROPERTY = "gwt.htmlunit.shards";
+
   /**
    * Returns the list of browsers Htmlunit emulates as a comma separated string.
    */
@@ -245,6 +251,7 @@ public class RunStyleHtmlUnit extends RunStyle {
 
   private Set<BrowserVersion> browsers = new HashSet<BrowserVersion>();
   private boolean developmentMode;
+  private int shards = 1;
   private final List<Thread> threads = new ArrayList<Thread>();
 
   /**
@@ -259,6 +266,11 @@ public class RunStyleHtmlUnit extends RunStyle {
     return PLATFORMS;
   }
 
+  @Override
+  public int getShardsPerClient() {
+    return shards;
+  }
+
   @Override
   public int initialize(String args) {
     if (args == null || args.length() == 0) {
@@ -278,6 +290,7 @@ public class RunStyleHtmlUnit extends RunStyle {
       browserSet.add(browser);
     }
     browsers = Collections.unmodifiableSet(browserSet);
+    shards = Math.max(1, Integer.getInteger(SHARDS_PROPERTY, 1));
 
     setTries(DEFAULT_TRIES); // set to the default value for this RunStyle
     return browsers.size();
@@ -287,18 +300,20 @@ public class RunStyleHtmlUnit extends RunStyle {
   public void launchModule(String moduleName) {
     for (BrowserVersion browser : browsers) {
       String url = shell.getModuleUrl(moduleName);
-      HtmlUnitThread hut = createHtmlUnitThread(browser, url);
       TreeLogger logger = shell.getTopLogger();
       if (logger.isLoggable(TreeLogger.INFO)) {
-        logger.log(TreeLogger.INFO,
-            "Starting " + url + " on browser " + browser.getNickname());
+        logger.log(TreeLogger.INFO, "Starting " + url + " on browser "
+            + browser.getNickname() + (shards > 1 ? " (" + shards + " clients)" : ""));
+      }
+      for (int i = 0; i < shards; ++i) {
+        HtmlUnitThread hut = createHtmlUnitThread(browser, url);
+        /*
+         * TODO (amitmanjhi): Is it worth pausing here and waiting for the main
+         * test thread to get to an "okay" state.
+         */
+        hut.start();
+        threads.add(hut);
       }
-      /*
-       * TODO (amitmanjhi): Is it worth pausing here and waiting for the main
-       * test thread to get to an "okay" state.
-       */
-      hut.start();
-      threads.add(hut);
     }
   }
 
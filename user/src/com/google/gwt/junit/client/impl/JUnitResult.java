@@ -41,6 +41,12 @@ public class JUnitResult implements Serializable {
    */
   SerializableThrowable thrown;
 
+  /**
+   * How long the test took to run in the client, in milliseconds, or -1 if it
+   * was not timed.
+   */
+  private long duration = -1;
+
   // Computed at the server, via HTTP header.
   private transient String agent;
 
@@ -51,6 +57,10 @@ public class JUnitResult implements Serializable {
     return agent;
   }
 
+  public long getDuration() {
+    return duration;
+  }
+
   public SerializableThrowable getException() {
     return thrown;
   }
@@ -77,6 +87,10 @@ public class JUnitResult implements Serializable {
     this.agent = agent;
   }
 
+  public void setDuration(long duration) {
+    this.duration = duration;
+  }
+
   public void setException(Throwable exception) {
     thrown = SerializableThrowable.fromThrowable(exception);
     // Try to improve exception message if there is no class metadata available
@@ -91,7 +105,8 @@ public class JUnitResult implements Serializable {
 
   @Override
   public String toString() {
-    return "TestResult {thrown: " + thrown + ", agent: " + agent + ", host: " + host + "}";
+    return "TestResult {thrown: " + thrown + ", duration: " + duration + ", agent: " + agent
+        + ", host: " + host + "}";
   }
 
   /**
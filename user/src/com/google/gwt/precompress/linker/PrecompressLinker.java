@@ -26,14 +26,34 @@ import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
 import com.google.gwt.core.ext.linker.LinkerOrder;
 import com.google.gwt.core.ext.linker.Shardable;
 import com.google.gwt.core.ext.linker.LinkerOrder.Order;
+import com.google.gwt.dev.Link;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.collect.HashSet;
 import com.google.gwt.util.regexfilter.RegexFilter;
+import com.google.gwt.util.tools.shared.StringUtils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -55,6 +75,15 @@ import java.util.zip.GZIPOutputStream;
  * are left in the artifact set. If the configuration property
  * <code>precompress.leave.originals</code> is set to <code>false</code>,
  * however, then the uncompressed version is removed.
+ * 
+ * <p>
+ * Artifacts with identical contents, such as fragments shared by several
+ * permutations, are compressed only once per process. The compression level
+ * can be set from 1 to 9 with <code>precompress.compression.level</code>. If
+ * <code>precompress.cache.dir</code> names a directory, compressed contents
+ * are also kept there, keyed by content hash and level, so that unchanged
+ * files are not recompressed by later builds. Artifacts are compressed on as
+ * many threads as the <code>gwt.link.threads</code> system property allows.
  */
 @Shardable
 @LinkerOrder(Order.POST)
@@ -76,12 +105,113 @@ public class PrecompressLinker extends AbstractLinker {
     }
   }
 
+  /**
+   * Compressed contents keyed by content hash and compression level. Linkers
+   * are instantiated afresh for each permutation, so this is shared by all of
+   * them. Least recently used entries are dropped beyond {@link #MAX_BYTES}.
+   */
+  private static class CompressedCache {
+    private static final long MAX_BYTES = 32 * 1024 * 1024;
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>(
+        16, 0.75f, true);
+    private long totalBytes;
+
+    public synchronized byte[] get(String key) {
+      return entries.get(key);
+    }
+
+    public synchronized void put(String key, byte[] compressed) {
+      if (compressed.length > MAX_BYTES) {
+        return;
+      }
+      byte[] old = entries.put(key, compressed);
+      totalBytes += compressed.length - (old == null ? 0 : old.length);
+      Iterator<byte[]> it = entries.values().iterator();
+      while (totalBytes > MAX_BYTES) {
+        totalBytes -= it.next().length;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Compresses the contents shared by one or more artifacts.
+   */
+  private static class Compression implements Callable<byte[]> {
+    private final EmittedArtifact art;
+    private final File cacheDir;
+    private final String key;
+    private final int level;
+    private final TreeLogger logger;
+    private final long originalLength;
+
+    public Compression(TreeLogger logger, EmittedArtifact art, long originalLength,
+        String key, int level, File cacheDir) {
+      this.logger = logger;
+      this.art = art;
+      this.originalLength = originalLength;
+      this.key = key;
+      this.level = level;
+      this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Compresses the artifact, reusing the result of an earlier compression
+     * of the same contents if there is one.
+     * 
+     * @return the compressed bytes, or <code>null</code> if compressing does
+     *         not make the artifact smaller
+     */
+    @Override
+    public byte[] call() throws UnableToCompleteException, IOException {
+      byte[] compressed = compressedCache.get(key);
+      File cacheFile = cacheDir == null ? null : new File(cacheDir, key + ".gz");
+      if (compressed == null && cacheFile != null && cacheFile.isFile()) {
+        compressed = Util.readFileAsBytes(cacheFile);
+      }
+
+      if (compressed == null) {
+        byte[] buf = new byte[BUF_SIZE];
+        ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(compressedBytes) {
+          {
+            def.setLevel(level);
+          }
+        };
+        InputStream originalBytes = art.getContents(logger);
+        try {
+          int n;
+          while ((n = originalBytes.read(buf)) > 0) {
+            gzip.write(buf, 0, n);
+          }
+        } finally {
+          originalBytes.close();
+        }
+        gzip.close();
+        compressed = compressedBytes.toByteArray();
+        if (cacheFile != null) {
+          writeCacheFile(logger, cacheFile, compressed);
+        }
+      }
+
+      compressedCache.put(key, compressed);
+      return compressed.length < originalLength ? compressed : null;
+    }
+  }
+
   /**
    * Buffer size to use when streaming data from artifacts and through
    * {@link GZIPOutputStream}.
    */
   private static final int BUF_SIZE = 10000;
 
+  private static final CompressedCache compressedCache = new CompressedCache();
+
+  private static final String PROP_CACHE_DIR = "precompress.cache.dir";
+
+  private static final String PROP_COMPRESSION_LEVEL = "precompress.compression.level";
+
   private static final String PROP_LEAVE_ORIGINALS = "precompress.leave.originals";
 
   private static final String PROP_PATH_REGEXES = "precompress.path.regexes";
@@ -90,15 +220,61 @@ public class PrecompressLinker extends AbstractLinker {
       TreeLogger logger,
       Iterable<com.google.gwt.core.ext.linker.ConfigurationProperty> properties,
       String propName) throws UnableToCompleteException {
+    ConfigurationProperty prop = findOptionalProperty(properties, propName);
+    if (prop != null) {
+      return prop;
+    }
+
+    logger.log(TreeLogger.ERROR, "Could not find configuration property "
+        + propName);
+    throw new UnableToCompleteException();
+  }
+
+  private static ConfigurationProperty findOptionalProperty(
+      Iterable<com.google.gwt.core.ext.linker.ConfigurationProperty> properties,
+      String propName) {
     for (ConfigurationProperty prop : properties) {
       if (prop.getName().equals(propName)) {
         return prop;
       }
     }
+    return null;
+  }
 
-    logger.log(TreeLogger.ERROR, "Could not find configuration property "
-        + propName);
-    throw new UnableToCompleteException();
+  /**
+   * Returns the value of a single-valued configuration property, or
+   * <code>null</code> if it is not defined or not set.
+   */
+  private static String findOptionalValue(LinkerContext context, String propName) {
+    ConfigurationProperty prop = findOptionalProperty(
+        context.getConfigurationProperties(), propName);
+    if (prop == null || prop.getValues().isEmpty()) {
+      return null;
+    }
+    String value = prop.getValues().get(0);
+    return value == null || value.length() == 0 ? null : value;
+  }
+
+  /**
+   * Adds the contents of an artifact to <code>md5</code>, the hash used to
+   * recognize identical artifacts.
+   * 
+   * @return the length of the contents
+   */
+  private static long hashContents(TreeLogger logger, EmittedArtifact art,
+      MessageDigest md5, byte[] buf) throws UnableToCompleteException, IOException {
+    long length = 0;
+    InputStream in = art.getContents(logger);
+    try {
+      int n;
+      while ((n = in.read(buf)) > 0) {
+        length += n;
+        md5.update(buf, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+    return length;
   }
 
   @Override
@@ -119,17 +295,32 @@ public class PrecompressLinker extends AbstractLinker {
         TreeLogger.TRACE, "Analyzing the path patterns"), findProperty(logger,
         context.getConfigurationProperties(), PROP_PATH_REGEXES).getValues());
 
+    int level = getCompressionLevel(logger, context);
+    String cacheDirName = findOptionalValue(context, PROP_CACHE_DIR);
+    File cacheDir = cacheDirName == null ? null : new File(cacheDirName);
+
     // Record the list of all paths for later lookup
     Set<String> allPaths = new HashSet<String>();
     for (EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
       allPaths.add(art.getPartialPath());
     }
 
+    ExecutorService executor = null;
+    List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
     try {
-      // Buffer for streaming data to be compressed
+      // Buffer for streaming data to be hashed
       byte[] buf = new byte[BUF_SIZE];
+      MessageDigest md5;
+      try {
+        md5 = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException("Error initializing MD5", e);
+      }
+      Map<String, Long> lengthsByKey = new HashMap<String, Long>();
 
-      ArtifactSet updated = new ArtifactSet(artifacts);
+      // Group the artifacts to compress by contents
+      Map<String, List<EmittedArtifact>> artsByKey =
+          new LinkedHashMap<String, List<EmittedArtifact>>();
       for (EmittedArtifact art : artifacts.find(EmittedArtifact.class)) {
         if (art.getVisibility() != Visibility.Public) {
           // only compress things that will be served to the client
@@ -148,34 +339,140 @@ public class PrecompressLinker extends AbstractLinker {
           continue;
         }
 
-        TreeLogger compressBranch = logger.branch(TreeLogger.TRACE,
-            "Compressing " + art.getPartialPath());
+        long length = hashContents(logger, art, md5, buf);
+        String key = StringUtils.toHexString(md5.digest()) + "-" + level;
+        lengthsByKey.put(key, length);
+        List<EmittedArtifact> arts = artsByKey.get(key);
+        if (arts == null) {
+          arts = new ArrayList<EmittedArtifact>();
+          artsByKey.put(key, arts);
+        }
+        arts.add(art);
+      }
 
-        InputStream originalBytes = art.getContents(compressBranch);
-        ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
-        GZIPOutputStream gzip = new GZIPOutputStream(compressedBytes);
+      // Compress each distinct contents once
+      int threads = Math.min(Integer.getInteger(Link.LINK_THREADS_PROPERTY, 1),
+          artsByKey.size());
+      if (threads > 1) {
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+          private int count;
 
-        int originalLength = 0;
-        int n;
-        while ((n = originalBytes.read(buf)) > 0) {
-          originalLength += n;
-          gzip.write(buf, 0, n);
+          @Override
+          public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Precompress linker " + count++);
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+      }
+      List<Compression> compressions = new ArrayList<Compression>();
+      for (Map.Entry<String, List<EmittedArtifact>> entry : artsByKey.entrySet()) {
+        EmittedArtifact art = entry.getValue().get(0);
+        compressions.add(new Compression(logger.branch(TreeLogger.TRACE,
+            "Compressing " + art.getPartialPath()), art, lengthsByKey.get(entry.getKey()),
+            entry.getKey(), level, cacheDir));
+      }
+      List<byte[]> results = new ArrayList<byte[]>();
+      if (executor == null) {
+        for (Compression compression : compressions) {
+          results.add(compression.call());
         }
-        gzip.close();
+      } else {
+        for (Compression compression : compressions) {
+          futures.add(executor.submit(compression));
+        }
+        for (Future<byte[]> future : futures) {
+          results.add(future.get());
+        }
+      }
 
-        byte[] compressed = compressedBytes.toByteArray();
-        if (compressed.length < originalLength) {
-          updated.add(emitBytes(compressBranch, compressed,
-              art.getPartialPath() + ".gz"));
+      ArtifactSet updated = new ArtifactSet(artifacts);
+      Iterator<byte[]> resultIt = results.iterator();
+      for (List<EmittedArtifact> arts : artsByKey.values()) {
+        byte[] compressed = resultIt.next();
+        if (compressed == null) {
+          continue;
+        }
+        for (EmittedArtifact art : arts) {
+          updated.add(emitBytes(logger, compressed, art.getPartialPath() + ".gz"));
           if (!leaveOriginals) {
             updated.remove(art);
           }
         }
       }
       return updated;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UnableToCompleteException) {
+        throw (UnableToCompleteException) e.getCause();
+      }
+      logger.log(TreeLogger.ERROR, "Unexpected exception", e.getCause());
+      throw new UnableToCompleteException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(TreeLogger.ERROR, "Interrupted while compressing", e);
+      throw new UnableToCompleteException();
     } catch (IOException e) {
       logger.log(TreeLogger.ERROR, "Unexpected exception", e);
       throw new UnableToCompleteException();
+    } finally {
+      for (Future<byte[]> future : futures) {
+        future.cancel(false);
+      }
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private int getCompressionLevel(TreeLogger logger, LinkerContext context)
+      throws UnableToCompleteException {
+    String value = findOptionalValue(context, PROP_COMPRESSION_LEVEL);
+    if (value == null) {
+      return Deflater.DEFAULT_COMPRESSION;
+    }
+    try {
+      int level = Integer.parseInt(value.trim());
+      if (level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION) {
+        return level;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    logger.log(TreeLogger.ERROR, "Configuration property " + PROP_COMPRESSION_LEVEL
+        + " must be a number from 1 to 9 but was '" + value + "'");
+    throw new UnableToCompleteException();
+  }
+
+  /**
+   * Adds compressed contents to the on-disk cache. The file is written under a
+   * temporary name first so that concurrent builds never read a partial file.
+   * Failures are only warned about, since the cache is just an optimization.
+   */
+  private static void writeCacheFile(TreeLogger logger, File cacheFile,
+      byte[] compressed) {
+    File cacheDir = cacheFile.getParentFile();
+    File tempFile = null;
+    try {
+      if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+        throw new IOException("Unable to create directory " + cacheDir.getAbsolutePath());
+      }
+      tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+      OutputStream out = new FileOutputStream(tempFile);
+      try {
+        out.write(compressed);
+      } finally {
+        out.close();
+      }
+      if (tempFile.renameTo(cacheFile)) {
+        tempFile = null;
+      }
+    } catch (IOException e) {
+      logger.log(TreeLogger.WARN, "Unable to write precompress cache file "
+          + cacheFile.getAbsolutePath(), e);
+    } finally {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
     }
   }
 }
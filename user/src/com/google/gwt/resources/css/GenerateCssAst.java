@@ -17,6 +17,7 @@ package com.google.gwt.resources.css;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.resources.css.ast.CssDef;
 import com.google.gwt.resources.css.ast.CssEval;
 import com.google.gwt.resources.css.ast.CssExternalSelectors;
@@ -656,36 +657,21 @@ public class GenerateCssAst {
     }
   }
 
-  /**
-   * Associates a template CssStylesheet with a timestamp.
-   */
-  private static class CachedStylesheet {
-    private final CssStylesheet sheet;
-    private final long timestamp;
-
-    public CachedStylesheet(CssStylesheet sheet, long timestamp) {
-      this.sheet = sheet;
-      this.timestamp = timestamp;
-    }
-
-    public CssStylesheet getCopyOfStylesheet() {
-      return new CssStylesheet(sheet);
-    }
-
-    public long getTimestamp() {
-      return timestamp;
-    }
-  }
-
   private static final String LITERAL_FUNCTION_NAME = "literal";
   /**
    * We cache the stylesheets to prevent repeated parsing of the same source
    * material. This is a common case if the user is using UiBinder's implicit
-   * stylesheets. It is necessary to use the list of URLs passed to exec because
-   * of the eager variable expansion performed by
-   * {@link GenerationHandler#parseDef(String)}.
+   * stylesheets. The cache is keyed by a strong hash of the contents of all of
+   * the URLs passed to exec, in order, because of the eager variable expansion
+   * performed by {@link GenerationHandler#parseDef(String)}. Keying by content
+   * rather than by URL and timestamp means that identical sources found at
+   * different locations share one parse, and that an edit is never missed
+   * because of a coarse or missing modification time.
+   * <p>
+   * The cached stylesheets are never handed out; callers always receive a deep
+   * copy, since the CSS passes mutate the tree in place.
    */
-  private static final Map<List<URL>, SoftReference<CachedStylesheet>> SHEETS = Collections.synchronizedMap(new HashMap<List<URL>, SoftReference<CachedStylesheet>>());
+  private static final Map<String, SoftReference<CssStylesheet>> SHEETS = Collections.synchronizedMap(new HashMap<String, SoftReference<CssStylesheet>>());
   private static final String VALUE_FUNCTION_NAME = "value";
 
   /**
@@ -696,38 +682,14 @@ public class GenerateCssAst {
   public static CssStylesheet exec(TreeLogger logger, URL... stylesheets)
       throws UnableToCompleteException {
 
-    long mtime = 0;
-    for (URL url : stylesheets) {
-      long lastModified;
-      try {
-        lastModified = url.openConnection().getLastModified();
-      } catch (IOException e) {
-        // Non-fatal, assuming we can re-open the stream later
-        logger.log(TreeLogger.DEBUG, "Could not determine cached time", e);
-        lastModified = 0;
-      }
-      if (lastModified == 0) {
-        /*
-         * We have to refresh, since the modification date can't be determined,
-         * either due to IOException or getLastModified() not providing useful
-         * data.
-         */
-        mtime = Long.MAX_VALUE;
-        break;
-      } else {
-        mtime = Math.max(mtime, lastModified);
-      }
-    }
-
     List<URL> sheets = Arrays.asList(stylesheets);
-    SoftReference<CachedStylesheet> ref = SHEETS.get(sheets);
-    CachedStylesheet toReturn = ref == null ? null : ref.get();
-    if (toReturn != null) {
-      if (mtime <= toReturn.getTimestamp()) {
+    String key = computeContentKey(sheets);
+    if (key != null) {
+      SoftReference<CssStylesheet> ref = SHEETS.get(key);
+      CssStylesheet cached = ref == null ? null : ref.get();
+      if (cached != null) {
         logger.log(TreeLogger.DEBUG, "Using cached result");
-        return toReturn.getCopyOfStylesheet();
-      } else {
-        logger.log(TreeLogger.DEBUG, "Invalidating cached stylesheet");
+        return new CssStylesheet(cached);
       }
     }
 
@@ -758,10 +720,27 @@ public class GenerateCssAst {
       throw new UnableToCompleteException();
     }
 
-    toReturn = new CachedStylesheet(g.css, mtime == Long.MAX_VALUE ? 0 : mtime);
-    SHEETS.put(new ArrayList<URL>(sheets), new SoftReference<CachedStylesheet>(
-        toReturn));
-    return toReturn.getCopyOfStylesheet();
+    if (key != null) {
+      SHEETS.put(key, new SoftReference<CssStylesheet>(g.css));
+      return new CssStylesheet(g.css);
+    }
+    return g.css;
+  }
+
+  /**
+   * Computes the cache key for a sequence of stylesheets, or returns
+   * <code>null</code> if any of them cannot be read. In that case the parser
+   * will report the problem.
+   */
+  private static String computeContentKey(List<URL> sheets) {
+    byte[][] contents = new byte[sheets.size()][];
+    for (int i = 0, j = sheets.size(); i < j; i++) {
+      contents[i] = Util.readURLAsBytes(sheets.get(i));
+      if (contents[i] == null) {
+        return null;
+      }
+    }
+    return Util.computeStrongName(contents);
   }
 
   /**
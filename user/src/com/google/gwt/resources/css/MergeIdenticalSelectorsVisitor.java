@@ -22,11 +22,8 @@ import com.google.gwt.resources.css.ast.CssModVisitor;
 import com.google.gwt.resources.css.ast.CssNode;
 import com.google.gwt.resources.css.ast.CssRule;
 import com.google.gwt.resources.css.ast.CssSelector;
-import com.google.gwt.resources.rg.CssResourceGenerator;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -35,7 +32,7 @@ import java.util.Map;
  */
 public class MergeIdenticalSelectorsVisitor extends CssModVisitor {
   private final Map<String, CssRule> canonicalRules = new HashMap<String, CssRule>();
-  private final List<CssRule> rulesInOrder = new ArrayList<CssRule>();
+  private final PropertyConflictIndex rulesInOrder = new PropertyConflictIndex();
 
   @Override
   public boolean visit(CssIf x, Context ctx) {
@@ -62,18 +59,10 @@ public class MergeIdenticalSelectorsVisitor extends CssModVisitor {
       // Check everything between the canonical rule and this rule for common
       // properties. If there are common properties, it would be unsafe to
       // promote the rule.
-      boolean hasCommon = false;
-      int index = rulesInOrder.indexOf(canonical) + 1;
-      assert index != 0;
-
-      for (Iterator<CssRule> i = rulesInOrder.listIterator(index); i.hasNext()
-          && !hasCommon;) {
-        hasCommon = CssResourceGenerator.haveCommonProperties(i.next(), x);
-      }
-
-      if (!hasCommon) {
+      if (!rulesInOrder.hasConflictAfter(canonical, x)) {
         // It's safe to promote the rule
         canonical.getProperties().addAll(x.getProperties());
+        rulesInOrder.addProperties(canonical, x.getProperties());
         ctx.removeMe();
         return false;
       }
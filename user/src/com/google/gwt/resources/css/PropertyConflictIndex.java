@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.css;
+
+import com.google.gwt.resources.css.ast.CssProperty;
+import com.google.gwt.resources.css.ast.CssRule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records rules in document order and answers whether any rule recorded after
+ * a given rule sets a property that conflicts with a candidate rule, in the
+ * sense of {@link com.google.gwt.resources.rg.CssResourceGenerator#haveCommonProperties}:
+ * the same property, or a shorthand and one of its longhands, such as
+ * <code>margin</code> and <code>margin-left</code>.
+ * <p>
+ * The merge visitors used to answer this by comparing the candidate against
+ * every intervening rule, which is quadratic in the size of the stylesheet.
+ * Here each query costs time proportional to the candidate's property names.
+ */
+class PropertyConflictIndex {
+
+  /**
+   * Returns the names that <code>name</code> is a longhand of, e.g.
+   * <code>border-top</code> and <code>border</code> for
+   * <code>border-top-width</code>.
+   */
+  private static List<String> shorthandsOf(String name) {
+    List<String> toReturn = new ArrayList<String>();
+    for (int i = name.lastIndexOf('-'); i > 0; i = name.lastIndexOf('-', i - 1)) {
+      toReturn.add(name.substring(0, i));
+    }
+    return toReturn;
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+
+  private final Map<CssRule, Integer> positions = new IdentityHashMap<CssRule, Integer>();
+
+  /**
+   * The last position of a rule setting exactly the given property.
+   */
+  private final Map<String, Integer> lastSetting = new HashMap<String, Integer>();
+
+  /**
+   * The last position of a rule setting the given property or any of its
+   * longhands.
+   */
+  private final Map<String, Integer> lastSettingFamily = new HashMap<String, Integer>();
+
+  private final List<CssRule> rules = new ArrayList<CssRule>();
+
+  /**
+   * Records a rule after all previously recorded rules.
+   */
+  void add(CssRule rule) {
+    int position = rules.size();
+    rules.add(rule);
+    positions.put(rule, position);
+    recordProperties(position, rule.getProperties());
+  }
+
+  /**
+   * Records all of the rules from another index, in order.
+   */
+  void addAll(PropertyConflictIndex other) {
+    for (CssRule rule : other.rules) {
+      add(rule);
+    }
+  }
+
+  /**
+   * Notes that properties have been added to an already-recorded rule.
+   */
+  void addProperties(CssRule rule, List<CssProperty> properties) {
+    Integer position = positions.get(rule);
+    assert position != null : "Rule was never recorded";
+    recordProperties(position, properties);
+  }
+
+  /**
+   * Returns <code>true</code> if any rule recorded after <code>rule</code>
+   * shares a property with <code>candidate</code>.
+   */
+  boolean hasConflictAfter(CssRule rule, CssRule candidate) {
+    Integer position = positions.get(rule);
+    assert position != null : "Rule was never recorded";
+    for (CssProperty p : candidate.getProperties()) {
+      String name = normalize(p.getName());
+      if (isAfter(lastSettingFamily.get(name), position)) {
+        return true;
+      }
+      for (String shorthand : shorthandsOf(name)) {
+        if (isAfter(lastSetting.get(shorthand), position)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean isAfter(Integer last, int position) {
+    return last != null && last > position;
+  }
+
+  private void recordProperties(int position, List<CssProperty> properties) {
+    for (CssProperty p : properties) {
+      String name = normalize(p.getName());
+      recordMax(lastSetting, name, position);
+      recordMax(lastSettingFamily, name, position);
+      for (String shorthand : shorthandsOf(name)) {
+        recordMax(lastSettingFamily, shorthand, position);
+      }
+    }
+  }
+
+  private void recordMax(Map<String, Integer> map, String name, int position) {
+    Integer last = map.get(name);
+    if (last == null || last < position) {
+      map.put(name, position);
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.google.gwt.resources.rg;
 
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.util.Util;
 import com.google.gwt.dev.util.log.PrintWriterTreeLogger;
 import com.google.gwt.dev.util.log.speedtracer.CompilerEventType;
 import com.google.gwt.dev.util.log.speedtracer.SpeedTracerLogger;
@@ -27,6 +28,7 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -272,6 +274,7 @@ class ImageBundleBuilder {
    */
   static class ImageRect {
 
+    private String contentHash;
     private boolean hasBeenPositioned, lossy;
     private int height, width;
     private final int intrinsicHeight, intrinsicWidth;
@@ -285,6 +288,7 @@ class ImageBundleBuilder {
      */
     public ImageRect(ImageRect other) {
       this.name = other.getName();
+      this.contentHash = other.contentHash;
       this.height = other.height;
       this.width = other.width;
       this.images = other.getImages();
@@ -303,6 +307,14 @@ class ImageBundleBuilder {
       this.height = this.width = -1;
     }
 
+    /**
+     * Returns a strong hash of the encoded image this rect was read from, or
+     * <code>null</code> if unknown.
+     */
+    public String getContentHash() {
+      return contentHash;
+    }
+
     public int getHeight() {
       return height > 0 ? height : intrinsicHeight;
     }
@@ -347,6 +359,10 @@ class ImageBundleBuilder {
       return lossy;
     }
 
+    public void setContentHash(String contentHash) {
+      this.contentHash = contentHash;
+    }
+
     public void setHeight(int height) {
       this.height = height;
       if (width <= 0) {
@@ -430,6 +446,14 @@ class ImageBundleBuilder {
       this.width = width;
       this.height = height;
     }
+
+    int getHeight() {
+      return height;
+    }
+
+    int getWidth() {
+      return width;
+    }
   }
 
   /**
@@ -472,6 +496,14 @@ class ImageBundleBuilder {
   private static final int IMAGE_MAX_SIZE = Integer.getInteger(
       "gwt.imageResource.maxBundleSize", 256);
 
+  /**
+   * If set, the deflate level (0-9) used to encode bundles with
+   * {@link PngEncoder}, where lower levels trade output size for faster
+   * development compiles. Otherwise bundles are encoded with ImageIO.
+   */
+  private static final Integer PNG_COMPRESSION_LEVEL = Integer.getInteger(
+      "gwt.imageResource.pngCompressionLevel");
+
   public static void main(String[] args) {
     final TreeLogger logger = new PrintWriterTreeLogger(new PrintWriter(
         System.out));
@@ -554,9 +586,18 @@ class ImageBundleBuilder {
    */
   private static byte[] createImageBytes(TreeLogger logger,
       BufferedImage bundledImage) throws UnableToCompleteException {
-    byte[] imageBytes;
-
     try {
+      if (PNG_COMPRESSION_LEVEL != null) {
+        PngEncoder encoder;
+        try {
+          encoder = new PngEncoder(PNG_COMPRESSION_LEVEL);
+        } catch (IllegalArgumentException e) {
+          logger.log(TreeLogger.ERROR,
+              "Invalid value for gwt.imageResource.pngCompressionLevel", e);
+          throw new UnableToCompleteException();
+        }
+        return encoder.encode(bundledImage);
+      }
       ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
       boolean writerAvailable = ImageIO.write(bundledImage, BUNDLE_FILE_TYPE,
           byteOutputStream);
@@ -565,13 +606,12 @@ class ImageBundleBuilder {
             + " writer available");
         throw new UnableToCompleteException();
       }
-      imageBytes = byteOutputStream.toByteArray();
+      return byteOutputStream.toByteArray();
     } catch (IOException e) {
       logger.log(TreeLogger.ERROR,
           "An error occurred while trying to write the image bundle.", e);
       throw new UnableToCompleteException();
     }
-    return imageBytes;
   }
 
   /**
@@ -666,7 +706,10 @@ class ImageBundleBuilder {
   }
 
   /**
-   * Render the composited image into an array of bytes.
+   * Render the composited image into an array of bytes. If the same images
+   * have been rendered with the same arranger before, the cached bundle from
+   * {@link SpriteCache} is reused and the images are positioned exactly as they
+   * were then.
    */
   public byte[] render(TreeLogger logger, Arranger arranger)
       throws UnableToCompleteException {
@@ -674,11 +717,41 @@ class ImageBundleBuilder {
       return null;
     }
 
+    // Sort by name, so that cached positions can be matched up again.
+    List<ImageRect> sortedRects = new ArrayList<ImageRect>(imageNameToImageRectMap.values());
+    Collections.sort(sortedRects, new Comparator<ImageRect>() {
+      public int compare(ImageRect a, ImageRect b) {
+        return a.getName().compareTo(b.getName());
+      }
+    });
+
+    String cacheKey = computeCacheKey(sortedRects, arranger);
+    SpriteCache cache = SpriteCache.get();
+    if (cacheKey != null) {
+      SpriteCache.Entry cached = cache.find(logger, cacheKey);
+      if (cached != null && cached.getImageCount() == sortedRects.size()) {
+        for (int i = 0, j = sortedRects.size(); i < j; i++) {
+          sortedRects.get(i).setPosition(cached.getLeft(i), cached.getTop(i));
+        }
+        logger.log(TreeLogger.DEBUG, "Reusing cached image bundle " + cacheKey);
+        return cached.getImageBytes();
+      }
+    }
+
     // Create the bundled image from all of the constituent images.
     BufferedImage bundledImage = drawBundledImage(arranger);
 
     byte[] imageBytes = createImageBytes(logger, bundledImage);
 
+    if (cacheKey != null) {
+      int[] positions = new int[2 * sortedRects.size()];
+      for (int i = 0, j = sortedRects.size(); i < j; i++) {
+        positions[2 * i] = sortedRects.get(i).getLeft();
+        positions[2 * i + 1] = sortedRects.get(i).getTop();
+      }
+      cache.put(logger, cacheKey, new SpriteCache.Entry(imageBytes, positions));
+    }
+
     return imageBytes;
   }
 
@@ -689,16 +762,23 @@ class ImageBundleBuilder {
         "Adding image '" + imageName + "'", null);
 
     BufferedImage image = null;
+    String contentHash = null;
     // Be safe by default and assume that the incoming image is lossy
     boolean lossy = true;
     // Load the image
     try {
+      byte[] imageBytes = Util.readStreamAsBytes(imageUrl.openStream());
+      if (imageBytes == null) {
+        throw new IOException("Unable to read " + imageUrl);
+      }
+      contentHash = Util.computeStrongName(imageBytes);
+
       /*
        * ImageIO uses an SPI pattern API. We don't care about the particulars of
        * the implementation, so just choose the first ImageReader.
        */
       MemoryCacheImageInputStream input = new MemoryCacheImageInputStream(
-          imageUrl.openStream());
+          new ByteArrayInputStream(imageBytes));
       Iterator<ImageReader> it = ImageIO.getImageReaders(input);
       readers : while (it.hasNext()) {
         ImageReader reader = it.next();
@@ -786,6 +866,7 @@ class ImageBundleBuilder {
 
     ImageRect toReturn = new ImageRect(imageName, image);
     toReturn.setLossy(lossy);
+    toReturn.setContentHash(contentHash);
 
     // Don't composite the image if it's lossy or if it is too big
     if (lossy || toReturn.getHeight() > IMAGE_MAX_SIZE
@@ -796,6 +877,36 @@ class ImageBundleBuilder {
     return toReturn;
   }
 
+  /**
+   * Computes the {@link SpriteCache} key for rendering the given images with
+   * the given arranger. The key covers everything that affects the output:
+   * the arranger, the encoder settings, and the name, content, size, transform
+   * and any preset position of every image. Returns <code>null</code> if some
+   * image's content is unknown.
+   */
+  private String computeCacheKey(List<ImageRect> sortedRects, Arranger arranger) {
+    StringBuilder key = new StringBuilder();
+    key.append(arranger.getClass().getName()).append('\n');
+    key.append(PNG_COMPRESSION_LEVEL == null ? "ImageIO" : PNG_COMPRESSION_LEVEL).append('\n');
+    double[] matrix = new double[6];
+    for (ImageRect rect : sortedRects) {
+      if (rect.getContentHash() == null) {
+        return null;
+      }
+      key.append(rect.getName()).append(' ').append(rect.getContentHash());
+      key.append(' ').append(rect.getWidth()).append('x').append(rect.getHeight());
+      if (rect.hasBeenPositioned()) {
+        key.append(" @").append(rect.getLeft()).append(',').append(rect.getTop());
+      }
+      rect.getTransform().getMatrix(matrix);
+      for (double d : matrix) {
+        key.append(' ').append(d);
+      }
+      key.append('\n');
+    }
+    return Util.computeStrongName(Util.getBytes(key.toString()));
+  }
+
   /**
    * This method creates the bundled image through the composition of the other
    * images.
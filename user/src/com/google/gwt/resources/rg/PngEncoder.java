@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.rg;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A minimal, pure Java PNG encoder for composited image bundles. It writes
+ * 8-bit truecolor images, dropping the alpha channel when every pixel is
+ * opaque, and picks a filter for each scanline using the minimum sum of
+ * absolute differences heuristic recommended by the PNG specification.
+ * <p>
+ * Unlike ImageIO, it lets the deflate level be chosen, so development compiles
+ * can trade output size for speed. {@link ImageBundleBuilder} only uses it when
+ * <code>gwt.imageResource.pngCompressionLevel</code> is set.
+ */
+class PngEncoder {
+
+  /**
+   * zlib's own default deflate level, which gets close to the smallest output
+   * at a fraction of the cost of {@link Deflater#BEST_COMPRESSION}.
+   */
+  static final int DEFAULT_COMPRESSION_LEVEL = 6;
+
+  private static final int COLOR_TYPE_RGB = 2;
+  private static final int COLOR_TYPE_RGBA = 6;
+
+  private static final int FILTER_NONE = 0;
+  private static final int FILTER_SUB = 1;
+  private static final int FILTER_UP = 2;
+  private static final int FILTER_AVERAGE = 3;
+  private static final int FILTER_PAETH = 4;
+  private static final int FILTER_COUNT = 5;
+
+  private static final byte[] SIGNATURE = {
+      (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+  private static int paeth(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    return pb <= pc ? b : c;
+  }
+
+  private final int compressionLevel;
+
+  /**
+   * @param compressionLevel a {@link Deflater} level between
+   *          {@link Deflater#NO_COMPRESSION} and
+   *          {@link Deflater#BEST_COMPRESSION}
+   */
+  PngEncoder(int compressionLevel) {
+    if (compressionLevel < Deflater.NO_COMPRESSION
+        || compressionLevel > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+    }
+    this.compressionLevel = compressionLevel;
+  }
+
+  /**
+   * Encodes an image as PNG.
+   */
+  byte[] encode(BufferedImage image) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    // getRGB always returns non-premultiplied ARGB, whatever the image type.
+    int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+
+    boolean opaque = true;
+    for (int pixel : argb) {
+      if ((pixel >>> 24) != 0xff) {
+        opaque = false;
+        break;
+      }
+    }
+    int bytesPerPixel = opaque ? 3 : 4;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(SIGNATURE);
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+    DataOutputStream headerData = new DataOutputStream(header);
+    headerData.writeInt(width);
+    headerData.writeInt(height);
+    headerData.writeByte(8); // bit depth
+    headerData.writeByte(opaque ? COLOR_TYPE_RGB : COLOR_TYPE_RGBA);
+    headerData.writeByte(0); // deflate compression
+    headerData.writeByte(0); // adaptive filtering
+    headerData.writeByte(0); // no interlace
+    writeChunk(out, "IHDR", header.toByteArray());
+
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater(compressionLevel);
+    try {
+      DeflaterOutputStream deflate = new DeflaterOutputStream(compressed, deflater, 8192);
+      int rowBytes = width * bytesPerPixel;
+      byte[] previous = new byte[rowBytes];
+      byte[] current = new byte[rowBytes];
+      byte[][] filtered = new byte[FILTER_COUNT][rowBytes];
+      for (int y = 0; y < height; y++) {
+        int offset = y * width;
+        for (int x = 0, i = 0; x < width; x++) {
+          int pixel = argb[offset + x];
+          current[i++] = (byte) (pixel >> 16);
+          current[i++] = (byte) (pixel >> 8);
+          current[i++] = (byte) pixel;
+          if (!opaque) {
+            current[i++] = (byte) (pixel >>> 24);
+          }
+        }
+        int filter = filterRow(current, previous, bytesPerPixel, filtered);
+        deflate.write(filter);
+        deflate.write(filtered[filter]);
+
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+      }
+      deflate.finish();
+    } finally {
+      deflater.end();
+    }
+    writeChunk(out, "IDAT", compressed.toByteArray());
+    writeChunk(out, "IEND", new byte[0]);
+    return out.toByteArray();
+  }
+
+  /**
+   * Applies every filter type to a scanline and returns the one whose output
+   * has the smallest sum of absolute (signed) byte values.
+   */
+  private int filterRow(byte[] row, byte[] prior, int bpp, byte[][] filtered) {
+    long[] sums = new long[FILTER_COUNT];
+    for (int i = 0; i < row.length; i++) {
+      int raw = row[i] & 0xff;
+      int left = i >= bpp ? row[i - bpp] & 0xff : 0;
+      int up = prior[i] & 0xff;
+      int upLeft = i >= bpp ? prior[i - bpp] & 0xff : 0;
+
+      filtered[FILTER_NONE][i] = (byte) raw;
+      filtered[FILTER_SUB][i] = (byte) (raw - left);
+      filtered[FILTER_UP][i] = (byte) (raw - up);
+      filtered[FILTER_AVERAGE][i] = (byte) (raw - ((left + up) >> 1));
+      filtered[FILTER_PAETH][i] = (byte) (raw - paeth(left, up, upLeft));
+      for (int f = 0; f < FILTER_COUNT; f++) {
+        sums[f] += Math.abs(filtered[f][i]);
+      }
+    }
+
+    // Ties go to the simplest filter, which keeps the output deterministic.
+    int best = FILTER_NONE;
+    for (int f = 1; f < FILTER_COUNT; f++) {
+      if (sums[f] < sums[best]) {
+        best = f;
+      }
+    }
+    return best;
+  }
+
+  private void writeChunk(ByteArrayOutputStream out, String type, byte[] data)
+      throws IOException {
+    DataOutputStream dataOut = new DataOutputStream(out);
+    byte[] typeBytes = type.getBytes("US-ASCII");
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data);
+
+    dataOut.writeInt(data.length);
+    dataOut.write(typeBytes);
+    dataOut.write(data);
+    dataOut.writeInt((int) crc.getValue());
+    dataOut.flush();
+  }
+}
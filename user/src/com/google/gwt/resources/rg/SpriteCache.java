@@ -0,0 +1,236 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.rg;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.util.tools.Utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers rendered image bundles, so that a bundle whose input images have
+ * not changed is neither re-arranged nor re-encoded. Entries are keyed by a
+ * strong hash of the input image contents, their geometry and the arranger
+ * (see {@link ImageBundleBuilder#render}).
+ * <p>
+ * Entries are always kept in memory, which helps repeated generator runs in a
+ * single process. Setting the {@value #CACHE_DIR_PROPERTY} system property
+ * additionally persists them to disk, so they survive across compiles.
+ */
+class SpriteCache {
+
+  /**
+   * A rendered bundle: the encoded image and the position of each input
+   * image, in the order used to compute the cache key.
+   */
+  static class Entry {
+    private final byte[] imageBytes;
+    private final int[] positions;
+
+    Entry(byte[] imageBytes, int[] positions) {
+      this.imageBytes = imageBytes;
+      this.positions = positions;
+    }
+
+    byte[] getImageBytes() {
+      return imageBytes;
+    }
+
+    int getLeft(int index) {
+      return positions[2 * index];
+    }
+
+    int getTop(int index) {
+      return positions[2 * index + 1];
+    }
+
+    int getImageCount() {
+      return positions.length / 2;
+    }
+  }
+
+  /**
+   * A soft reference to an entry that remembers its key, so the map entry can
+   * be removed once the reference is cleared.
+   */
+  private static class EntryReference extends SoftReference<Entry> {
+    private final String key;
+
+    EntryReference(String key, Entry entry, ReferenceQueue<Entry> queue) {
+      super(entry, queue);
+      this.key = key;
+    }
+  }
+
+  static final String CACHE_DIR_PROPERTY = "gwt.imageResource.spriteCacheDir";
+
+  /**
+   * Bump this whenever the layout or encoding of bundles changes.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String FILE_SUFFIX = ".sprite";
+
+  private static final SpriteCache INSTANCE = new SpriteCache(
+      System.getProperty(CACHE_DIR_PROPERTY) == null ? null : new File(
+          System.getProperty(CACHE_DIR_PROPERTY)));
+
+  static SpriteCache get() {
+    return INSTANCE;
+  }
+
+  private final File cacheDir;
+
+  private final Map<String, EntryReference> entries = new HashMap<String, EntryReference>();
+
+  /**
+   * Receives the references in {@link #entries} that the garbage collector
+   * has cleared. Guarded by <code>entries</code>.
+   */
+  private final ReferenceQueue<Entry> clearedEntries = new ReferenceQueue<Entry>();
+
+  /**
+   * @param cacheDir the directory in which to persist entries, or
+   *          <code>null</code> to cache in memory only
+   */
+  SpriteCache(File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * Returns the entry stored under the given key, or <code>null</code>.
+   */
+  Entry find(TreeLogger logger, String key) {
+    synchronized (entries) {
+      removeClearedEntries();
+      EntryReference ref = entries.get(key);
+      Entry entry = ref == null ? null : ref.get();
+      if (entry != null) {
+        return entry;
+      }
+    }
+
+    Entry entry = readFromDisk(logger, key);
+    if (entry != null) {
+      synchronized (entries) {
+        entries.put(key, new EntryReference(key, entry, clearedEntries));
+      }
+    }
+    return entry;
+  }
+
+  void put(TreeLogger logger, String key, Entry entry) {
+    synchronized (entries) {
+      removeClearedEntries();
+      entries.put(key, new EntryReference(key, entry, clearedEntries));
+    }
+    writeToDisk(logger, key, entry);
+  }
+
+  private Entry readFromDisk(TreeLogger logger, String key) {
+    if (cacheDir == null) {
+      return null;
+    }
+    File file = new File(cacheDir, key + FILE_SUFFIX);
+    if (!file.isFile()) {
+      return null;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      int[] positions = new int[in.readInt()];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = in.readInt();
+      }
+      byte[] imageBytes = new byte[in.readInt()];
+      in.readFully(imageBytes);
+      return new Entry(imageBytes, positions);
+    } catch (IOException e) {
+      // A corrupt entry is only a cache miss.
+      logger.log(TreeLogger.DEBUG, "Ignoring unreadable sprite cache entry "
+          + file.getAbsolutePath(), e);
+      return null;
+    } finally {
+      Utility.close(in);
+    }
+  }
+
+  /**
+   * Drops the map entries whose references have been cleared. Must be called
+   * while holding the lock on <code>entries</code>.
+   */
+  private void removeClearedEntries() {
+    Reference<? extends Entry> ref;
+    while ((ref = clearedEntries.poll()) != null) {
+      String key = ((EntryReference) ref).key;
+      // The key may have been given a fresh entry since.
+      if (entries.get(key) == ref) {
+        entries.remove(key);
+      }
+    }
+  }
+
+  private void writeToDisk(TreeLogger logger, String key, Entry entry) {
+    if (cacheDir == null) {
+      return;
+    }
+    // Write to a temp file first, so concurrent compiles never see a partial entry.
+    File file = new File(cacheDir, key + FILE_SUFFIX);
+    File tempFile = null;
+    DataOutputStream out = null;
+    try {
+      cacheDir.mkdirs();
+      tempFile = File.createTempFile(key, ".tmp", cacheDir);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(entry.positions.length);
+      for (int position : entry.positions) {
+        out.writeInt(position);
+      }
+      out.writeInt(entry.imageBytes.length);
+      out.write(entry.imageBytes);
+      out.close();
+      out = null;
+      if (!tempFile.renameTo(file)) {
+        // Another process may have won the race; its entry is just as good.
+        tempFile.delete();
+      }
+    } catch (IOException e) {
+      logger.log(TreeLogger.DEBUG, "Unable to write sprite cache entry " + file.getAbsolutePath(),
+          e);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    } finally {
+      Utility.close(out);
+    }
+  }
+}
@@ -17,6 +17,7 @@ package com.google.gwt.safehtml.rebind;
 
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.ThreadSafeGenerator;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
@@ -31,7 +32,7 @@ import java.io.PrintWriter;
  * Generator for implementations of
  * {@link com.google.gwt.safehtml.client.SafeHtmlTemplates}.
  */
-public class SafeHtmlTemplatesGenerator extends Generator {
+public class SafeHtmlTemplatesGenerator extends Generator implements ThreadSafeGenerator {
 
   @Override
   public String generate(TreeLogger logger, GeneratorContext genCtx,
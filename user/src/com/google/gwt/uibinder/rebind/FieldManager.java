@@ -26,6 +26,7 @@ import com.google.gwt.uibinder.rebind.model.OwnerField;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -190,6 +191,14 @@ public class FieldManager {
     return fieldsMap.get(fieldName);
   }
 
+  /**
+   * Returns all registered {@link FieldWriter FieldWriters}, in registration
+   * order.
+   */
+  public Collection<FieldWriter> getFields() {
+    return Collections.unmodifiableCollection(fieldsMap.values());
+  }
+
   /**
    * Remove the field at the top of the {@link #parsedFieldStack}.
    */
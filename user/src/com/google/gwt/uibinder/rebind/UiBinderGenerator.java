@@ -16,12 +16,21 @@
 package com.google.gwt.uibinder.rebind;
 
 import com.google.gwt.core.ext.BadPropertyValueException;
-import com.google.gwt.core.ext.Generator;
+import com.google.gwt.core.ext.CachedGeneratorResult;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.IncrementalGenerator;
 import com.google.gwt.core.ext.PropertyOracle;
+import com.google.gwt.core.ext.RebindMode;
+import com.google.gwt.core.ext.RebindResult;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JAbstractMethod;
 import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JConstructor;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JParameter;
+import com.google.gwt.core.ext.typeinfo.JRealClassType;
+import com.google.gwt.core.ext.typeinfo.JType;
 import com.google.gwt.core.ext.typeinfo.NotFoundException;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.google.gwt.dev.resource.Resource;
@@ -30,22 +39,48 @@ import com.google.gwt.dev.util.Util;
 import com.google.gwt.uibinder.client.UiTemplate;
 import com.google.gwt.uibinder.rebind.messages.MessagesWriter;
 import com.google.gwt.uibinder.rebind.model.ImplicitClientBundle;
+import com.google.gwt.uibinder.rebind.model.ImplicitCssResource;
 
 import org.w3c.dom.Document;
 import org.xml.sax.SAXParseException;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Generator for implementations of
  * {@link com.google.gwt.uibinder.client.UiBinder}.
+ * <p>
+ * Results are cached when the generator context allows it. A cached result is
+ * reused as long as the template contents, the external stylesheets named by
+ * its <code>ui:style</code> elements, the configuration properties read here
+ * and the source of every type the template was bound against are unchanged.
+ * Those are the binder interface, its owner, each field type, every other type
+ * the template names, and their supertypes, plus the parameter types of their
+ * methods and constructors, since setters and <code>@UiConstructor</code>
+ * arguments can take enums and other types the template refers to by value.
  */
-public class UiBinderGenerator extends Generator {
+public class UiBinderGenerator extends IncrementalGenerator {
 
   private static final String BINDER_URI = "urn:ui:com.google.gwt.uibinder";
 
+  private static final String CACHED_CONFIGURATION = "cached-configuration";
+  private static final String CACHED_CSS_INFORMATION = "cached-css-info";
+  private static final String CACHED_TEMPLATE_HASH = "cached-template-hash";
+  private static final String CACHED_TYPE_INFORMATION = "cached-type-info";
+
+  /**
+   * Bump this whenever the generated output or the cache checks change.
+   */
+  private static final long GENERATOR_VERSION_ID = 2L;
+
   private static final String TEMPLATE_SUFFIX = ".ui.xml";
 
   private static final String XSS_SAFE_CONFIG_PROPERTY = "UiBinder.useSafeHtmlTemplates";
@@ -54,6 +89,89 @@ public class UiBinderGenerator extends Generator {
   private static boolean gaveSafeHtmlWarning;
   private static boolean gaveLazyBuildersWarning;
 
+  /**
+   * Returns the name of a type in <code>typeLastModifiedTimes</code> that has
+   * been removed or modified since, or <code>null</code> if there is none.
+   * Visible for testing.
+   */
+  static String findChangedType(TypeOracle oracle, Map<String, Long> typeLastModifiedTimes) {
+    for (Map.Entry<String, Long> entry : typeLastModifiedTimes.entrySet()) {
+      JClassType type = oracle.findType(entry.getKey());
+      if (!(type instanceof JRealClassType)
+          || ((JRealClassType) type).getLastModifiedTime() != entry.getValue()) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the last modified time of every type the template was bound
+   * against, and of the parameter types of their methods and constructors,
+   * keyed by qualified source name. Visible for testing.
+   */
+  static Map<String, Long> getTypeLastModifiedTimes(JClassType interfaceType,
+      UiBinderWriter uiBinderWriter) {
+    Set<JClassType> roots = new HashSet<JClassType>();
+    roots.add(interfaceType);
+    roots.add(uiBinderWriter.getOwnerClass().getOwnerType());
+    for (FieldWriter field : uiBinderWriter.getFieldManager().getFields()) {
+      if (field.getAssignableType() != null) {
+        roots.add(field.getAssignableType());
+      }
+      if (field.getInstantiableType() != null) {
+        roots.add(field.getInstantiableType());
+      }
+    }
+    roots.addAll(uiBinderWriter.getResolvedTypes());
+    JClassType baseMessagesType = uiBinderWriter.getOracle().findType(
+        uiBinderWriter.getMessages().getBaseInterface());
+    if (baseMessagesType != null) {
+      roots.add(baseMessagesType);
+    }
+
+    Set<JClassType> types = new HashSet<JClassType>();
+    for (JClassType root : roots) {
+      types.addAll(root.getFlattenedSupertypeHierarchy());
+    }
+    Set<JClassType> parameterTypes = new HashSet<JClassType>();
+    for (JClassType type : types) {
+      for (JMethod method : type.getMethods()) {
+        addParameterTypes(parameterTypes, method);
+      }
+      for (JConstructor constructor : type.getConstructors()) {
+        addParameterTypes(parameterTypes, constructor);
+      }
+    }
+    types.addAll(parameterTypes);
+
+    Map<String, Long> lastModifiedTimes = new HashMap<String, Long>();
+    for (JClassType type : types) {
+      JClassType erased = type.getErasedType();
+      if (erased instanceof JRealClassType) {
+        lastModifiedTimes.put(erased.getQualifiedSourceName(),
+            ((JRealClassType) erased).getLastModifiedTime());
+      }
+    }
+    return lastModifiedTimes;
+  }
+
+  /**
+   * Adds the class type of each parameter of <code>method</code>, or of its
+   * array elements, to <code>types</code>.
+   */
+  private static void addParameterTypes(Set<JClassType> types, JAbstractMethod method) {
+    for (JParameter parameter : method.getParameters()) {
+      JType type = parameter.getType();
+      while (type.isArray() != null) {
+        type = type.isArray().getComponentType();
+      }
+      if (type.isClassOrInterface() != null) {
+        types.add(type.isClassOrInterface());
+      }
+    }
+  }
+
   /**
    * Given a UiBinder interface, return the path to its ui.xml file, suitable
    * for any classloader to find it as a resource.
@@ -91,6 +209,15 @@ public class UiBinderGenerator extends Generator {
     return templateName;
   }
 
+  private static String hashUrl(MortalLogger logger, URL url)
+      throws UnableToCompleteException {
+    byte[] contents = Util.readURLAsBytes(url);
+    if (contents == null) {
+      logger.die("Unable to read resource: " + url.toExternalForm());
+    }
+    return Util.computeStrongName(contents);
+  }
+
   private static String slashify(String s) {
     return s.replace(".", "/").replace("$", ".");
   }
@@ -98,7 +225,7 @@ public class UiBinderGenerator extends Generator {
   private final UiBinderContext uiBinderCtx = new UiBinderContext();
 
   @Override
-  public String generate(TreeLogger logger, GeneratorContext genCtx,
+  public RebindResult generateIncrementally(TreeLogger logger, GeneratorContext genCtx,
       String fqInterfaceName) throws UnableToCompleteException {
     TypeOracle oracle = genCtx.getTypeOracle();
     ResourceOracle resourceOracle = genCtx.getResourcesOracle();
@@ -121,15 +248,104 @@ public class UiBinderGenerator extends Generator {
     implName = designTime.getImplName(implName);
 
     String packageName = interfaceType.getPackage().getName();
+    String qualifiedImplName = packageName + "." + implName;
+
+    MortalLogger mortalLogger = new MortalLogger(logger);
+    String templatePath = deduceTemplateFile(mortalLogger, interfaceType);
+    String templateContent = getTemplateContent(mortalLogger, designTime, resourceOracle,
+        templatePath);
+    String templateHash = Util.computeStrongName(Util.getBytes(templateContent));
+    PropertyOracle propertyOracle = genCtx.getPropertyOracle();
+    boolean useSafeHtmlTemplates = useSafeHtmlTemplates(mortalLogger, propertyOracle);
+    boolean useLazyWidgetBuilders =
+        useLazyWidgetBuilders(mortalLogger, propertyOracle) && !designTime.isDesignTime();
+    String configuration = "safeHtml=" + useSafeHtmlTemplates + ",lazy=" + useLazyWidgetBuilders;
+
+    boolean cacheable = genCtx.isGeneratorResultCachingEnabled() && !designTime.isDesignTime();
+    if (cacheable && checkCachedResult(logger, genCtx, templateHash, configuration)) {
+      logger.log(TreeLogger.TRACE, "Reusing cached UiBinder implementation for "
+          + fqInterfaceName);
+      return new RebindResult(RebindMode.USE_ALL_CACHED, qualifiedImplName);
+    }
+
     PrintWriterManager writers = new PrintWriterManager(genCtx, logger,
         packageName);
     PrintWriter printWriter = writers.tryToMakePrintWriterFor(implName);
 
-    if (printWriter != null) {
-      generateOnce(interfaceType, implName, printWriter, logger, oracle,
-          resourceOracle, genCtx.getPropertyOracle(), writers, designTime);
+    if (printWriter == null) {
+      return new RebindResult(RebindMode.USE_ALL_NEW_WITH_NO_CACHING, qualifiedImplName);
     }
-    return packageName + "." + implName;
+
+    UiBinderWriter uiBinderWriter = generateOnce(interfaceType, implName, printWriter,
+        mortalLogger, oracle, resourceOracle, templatePath, templateContent, writers,
+        designTime, useSafeHtmlTemplates, useLazyWidgetBuilders);
+    if (!cacheable) {
+      return new RebindResult(RebindMode.USE_ALL_NEW_WITH_NO_CACHING, qualifiedImplName);
+    }
+
+    RebindResult result = new RebindResult(RebindMode.USE_ALL_NEW, qualifiedImplName);
+    result.putClientData(CACHED_TEMPLATE_HASH, templateHash);
+    result.putClientData(CACHED_CONFIGURATION, configuration);
+    result.putClientData(CACHED_CSS_INFORMATION,
+        (Serializable) getExternalCssHashes(mortalLogger, uiBinderWriter));
+    result.putClientData(CACHED_TYPE_INFORMATION,
+        (Serializable) getTypeLastModifiedTimes(interfaceType, uiBinderWriter));
+    return result;
+  }
+
+  @Override
+  public long getVersionId() {
+    return GENERATOR_VERSION_ID;
+  }
+
+  /**
+   * Returns <code>true</code> if the previous result for this binder was built
+   * from the same template, configuration, stylesheets and types.
+   */
+  private boolean checkCachedResult(TreeLogger logger, GeneratorContext genCtx,
+      String templateHash, String configuration) {
+    CachedGeneratorResult lastResult = genCtx.getCachedGeneratorResult();
+    if (lastResult == null) {
+      return false;
+    }
+    if (!templateHash.equals(lastResult.getClientData(CACHED_TEMPLATE_HASH))) {
+      logger.log(TreeLogger.TRACE, "Template has changed");
+      return false;
+    }
+    if (!configuration.equals(lastResult.getClientData(CACHED_CONFIGURATION))) {
+      logger.log(TreeLogger.TRACE, "Configuration has changed");
+      return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> cssHashes =
+        (Map<String, String>) lastResult.getClientData(CACHED_CSS_INFORMATION);
+    @SuppressWarnings("unchecked")
+    Map<String, Long> typeLastModifiedTimes =
+        (Map<String, Long>) lastResult.getClientData(CACHED_TYPE_INFORMATION);
+    if (cssHashes == null || typeLastModifiedTimes == null) {
+      return false;
+    }
+
+    for (Map.Entry<String, String> entry : cssHashes.entrySet()) {
+      byte[] contents;
+      try {
+        contents = Util.readURLAsBytes(new URL(entry.getKey()));
+      } catch (IOException e) {
+        contents = null;
+      }
+      if (contents == null || !Util.computeStrongName(contents).equals(entry.getValue())) {
+        logger.log(TreeLogger.TRACE, "Found stylesheet that has changed: " + entry.getKey());
+        return false;
+      }
+    }
+
+    String changedType = findChangedType(genCtx.getTypeOracle(), typeLastModifiedTimes);
+    if (changedType != null) {
+      logger.log(TreeLogger.TRACE, "Found dependent type that has changed: " + changedType);
+      return false;
+    }
+    return true;
   }
 
   private Boolean extractConfigProperty(MortalLogger logger,
@@ -152,26 +368,23 @@ public class UiBinderGenerator extends Generator {
     return Boolean.valueOf(value);
   }
 
-  private void generateOnce(JClassType interfaceType, String implName,
-      PrintWriter binderPrintWriter, TreeLogger treeLogger, TypeOracle oracle,
-      ResourceOracle resourceOracle, PropertyOracle propertyOracle,
-      PrintWriterManager writerManager,  DesignTimeUtils designTime)
+  private UiBinderWriter generateOnce(JClassType interfaceType, String implName,
+      PrintWriter binderPrintWriter, MortalLogger logger, TypeOracle oracle,
+      ResourceOracle resourceOracle, String templatePath, String templateContent,
+      PrintWriterManager writerManager, DesignTimeUtils designTime,
+      boolean useSafeHtmlTemplates, boolean useLazyWidgetBuilders)
   throws UnableToCompleteException {
 
-    MortalLogger logger = new MortalLogger(treeLogger);
-    String templatePath = deduceTemplateFile(logger, interfaceType);
     MessagesWriter messages = new MessagesWriter(oracle, BINDER_URI, logger,
         templatePath, interfaceType.getPackage().getName(), implName);
 
-    boolean useLazyWidgetBuilders =
-        useLazyWidgetBuilders(logger, propertyOracle) && !designTime.isDesignTime();
     FieldManager fieldManager = new FieldManager(oracle, logger, useLazyWidgetBuilders);
 
     UiBinderWriter uiBinderWriter = new UiBinderWriter(interfaceType, implName,
         templatePath, oracle, logger, fieldManager, messages, designTime, uiBinderCtx,
-        useSafeHtmlTemplates(logger, propertyOracle), useLazyWidgetBuilders, BINDER_URI);
+        useSafeHtmlTemplates, useLazyWidgetBuilders, BINDER_URI);
 
-    Document doc = getW3cDoc(logger, designTime, resourceOracle, templatePath);
+    Document doc = getW3cDoc(logger, resourceOracle, templatePath, templateContent);
     designTime.rememberPathForElements(doc);
 
     uiBinderWriter.parseDocument(doc, binderPrintWriter);
@@ -184,27 +397,50 @@ public class UiBinderGenerator extends Generator {
     new BundleWriter(bundleClass, writerManager, oracle, logger).write();
 
     writerManager.commit();
+    return uiBinderWriter;
+  }
+
+  /**
+   * Returns a strong hash of each external stylesheet used by the template,
+   * keyed by URL.
+   */
+  private Map<String, String> getExternalCssHashes(MortalLogger logger,
+      UiBinderWriter uiBinderWriter) throws UnableToCompleteException {
+    Map<String, String> hashes = new HashMap<String, String>();
+    for (ImplicitCssResource css : uiBinderWriter.getBundleClass().getCssMethods()) {
+      for (URL url : css.getExternalCssUrls()) {
+        hashes.put(url.toExternalForm(), hashUrl(logger, url));
+      }
+    }
+    return hashes;
   }
 
-  private Document getW3cDoc(MortalLogger logger, DesignTimeUtils designTime,
+  private String getTemplateContent(MortalLogger logger, DesignTimeUtils designTime,
       ResourceOracle resourceOracle, String templatePath)
       throws UnableToCompleteException {
-
     Resource resource = resourceOracle.getResourceMap().get(templatePath);
     if (null == resource) {
       logger.die("Unable to find resource: " + templatePath);
     }
 
-    Document doc = null;
+    String content = designTime.getTemplateContent(templatePath);
+    if (content != null) {
+      return content;
+    }
     try {
-      String content = designTime.getTemplateContent(templatePath);
-      if (content == null) {
-        content = Util.readStreamAsString(resource.openContents());
-      }
-      doc = new W3cDomHelper(logger.getTreeLogger(), resourceOracle).documentFor(
-          content, resource.getPath());
+      return Util.readStreamAsString(resource.openContents());
     } catch (IOException iex) {
       logger.die("Error opening resource:" + resource.getLocation(), iex);
+      return null;
+    }
+  }
+
+  private Document getW3cDoc(MortalLogger logger, ResourceOracle resourceOracle,
+      String templatePath, String content) throws UnableToCompleteException {
+    Document doc = null;
+    try {
+      doc = new W3cDomHelper(logger.getTreeLogger(), resourceOracle).documentFor(
+          content, templatePath);
     } catch (SAXParseException e) {
       logger.die(
           "Error parsing XML (line " + e.getLineNumber() + "): "
@@ -237,6 +237,7 @@ public class UiBinderParser {
     if (enclosingType == null) {
       writer.die(elem, "Unable to locate type %s", enclosingName);
     }
+    writer.recordResolvedType(enclosingType);
 
     if ("*".equals(constantName)) {
       for (JField field : enclosingType.getFields()) {
@@ -434,11 +435,14 @@ public class UiBinderParser {
 
     String name = elem.consumeRawAttribute(FIELD_ATTRIBUTE, "style");
     JClassType publicType = consumeCssResourceType(elem);
+    writer.recordResolvedType(publicType);
 
     String[] importTypeNames = elem.consumeRawArrayAttribute(IMPORT_ATTRIBUTE);
     LinkedHashSet<JClassType> importTypes = new LinkedHashSet<JClassType>();
     for (String type : importTypeNames) {
-      importTypes.add(findCssResourceType(elem, type));
+      JClassType importType = findCssResourceType(elem, type);
+      importTypes.add(importType);
+      writer.recordResolvedType(importType);
     }
 
     ImplicitCssResource cssMethod = bundleClass.createCssResource(name, source,
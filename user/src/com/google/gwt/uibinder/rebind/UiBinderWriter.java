@@ -70,6 +70,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Writer for UiBinder generated classes.
@@ -336,6 +337,13 @@ public class UiBinderWriter implements Statements {
   private int renderableStamper = 0;
 
   private String rendered;
+
+  /**
+   * Types named by the template that are not the type of any field, such as
+   * the enclosing types of <code>ui:import</code> constants.
+   */
+  private final Set<JClassType> resolvedTypes = new HashSet<JClassType>();
+
   /**
    * Stack of element variable names that have been attached.
    */
@@ -824,6 +832,13 @@ public class UiBinderWriter implements Statements {
     return ownerClass;
   }
 
+  /**
+   * Returns the types recorded by {@link #recordResolvedType}.
+   */
+  public Set<JClassType> getResolvedTypes() {
+    return resolvedTypes;
+  }
+
   public String getUiFieldAttributeName() {
     return gwtPrefix + ":field";
   }
@@ -938,6 +953,14 @@ public class UiBinderWriter implements Statements {
     return field;
   }
 
+  /**
+   * Records a type the template depends on that is not the type of a field, so
+   * that a cached binder is regenerated when it changes.
+   */
+  public void recordResolvedType(JClassType type) {
+    resolvedTypes.add(type);
+  }
+
   /**
    * Gives the writer the initializer to use for this field instead of the
    * default GWT.create call.
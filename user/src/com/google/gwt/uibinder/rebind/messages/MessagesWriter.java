@@ -212,6 +212,14 @@ public class MessagesWriter {
     }
   }
 
+  /**
+   * Returns the qualified name of the interface the generated Messages
+   * interface extends.
+   */
+  public String getBaseInterface() {
+    return baseInterface;
+  }
+
   /**
    * Returns the expression that will instantiate the Messages interface.
    */
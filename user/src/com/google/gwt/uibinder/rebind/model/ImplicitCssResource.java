@@ -106,6 +106,16 @@ public class ImplicitCssResource {
     return cssClassNames;
   }
 
+  /**
+   * Returns the URLs of the external .css files named by this resource, not
+   * including its inline body.
+   *
+   * @throws UnableToCompleteException if one of them can't be found
+   */
+  public List<URL> getExternalCssUrls() throws UnableToCompleteException {
+    return getExternalCss();
+  }
+
   /**
    * Returns the public interface that this CssResource implements.
    */
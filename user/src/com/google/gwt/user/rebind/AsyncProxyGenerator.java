@@ -19,6 +19,7 @@ import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.RunAsyncCallback;
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.ThreadSafeGenerator;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
@@ -41,7 +42,7 @@ import java.util.Iterator;
 /**
  * Generates implementation of AsyncProxy interfaces.
  */
-public class AsyncProxyGenerator extends Generator {
+public class AsyncProxyGenerator extends Generator implements ThreadSafeGenerator {
 
   @Override
   public String generate(TreeLogger logger, GeneratorContext generatorContext,
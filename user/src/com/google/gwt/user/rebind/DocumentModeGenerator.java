@@ -21,6 +21,7 @@ import com.google.gwt.core.ext.ConfigurationProperty;
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.PropertyOracle;
+import com.google.gwt.core.ext.ThreadSafeGenerator;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
@@ -36,7 +37,7 @@ import java.util.List;
 /**
  * Generator for {@link com.google.gwt.user.client.DocumentModeAsserter}.
  */
-public class DocumentModeGenerator extends Generator {
+public class DocumentModeGenerator extends Generator implements ThreadSafeGenerator {
 
   @Override
   public String generate(TreeLogger logger, GeneratorContext context, String typeName)
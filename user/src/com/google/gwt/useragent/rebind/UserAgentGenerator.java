@@ -22,6 +22,7 @@ import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.PropertyOracle;
 import com.google.gwt.core.ext.SelectionProperty;
+import com.google.gwt.core.ext.ThreadSafeGenerator;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.JClassType;
@@ -35,7 +36,7 @@ import java.io.PrintWriter;
 /**
  * Generator for {@link com.google.gwt.useragent.client.UserAgentAsserter}.
  */
-public class UserAgentGenerator extends Generator {
+public class UserAgentGenerator extends Generator implements ThreadSafeGenerator {
   static final String PROPERTY_USER_AGENT = "user.agent";
 
   static final String PROPERTY_USER_AGENT_RUNTIME_WARNING = "user.agent.runtimeWarning";
@@ -15,6 +15,7 @@
  */
 package com.google.gwt.junit.client.impl;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.EntryPoint;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.Scheduler;
@@ -157,6 +158,11 @@ public class GWTRunner implements EntryPoint {
    */
   private int currentTestIndex = 0;
 
+  /**
+   * When the current test started running.
+   */
+  private Duration currentTestDuration;
+
   /**
    * Results for all test cases in the current block.
    */
@@ -241,6 +247,10 @@ public class GWTRunner implements EntryPoint {
       RuntimeException ex = new RuntimeException(failureMessage);
       result.setException(ex);
     }
+    if (currentTestDuration != null) {
+      result.setDuration(currentTestDuration.elapsedMillis());
+      currentTestDuration = null;
+    }
     TestInfo currentTest = getCurrentTest();
     currentResults.put(currentTest, result);
     ++currentTestIndex;
@@ -335,6 +345,8 @@ public class GWTRunner implements EntryPoint {
   }
 
   private void runTest() {
+    currentTestDuration = new Duration();
+
     // Dynamically create a new test case.
     TestInfo currentTest = getCurrentTest();
     GWTTestCase testCase = null;
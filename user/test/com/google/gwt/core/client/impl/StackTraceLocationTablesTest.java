@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.gwt.core.client.impl;
+
+/**
+ * Tests that stack traces work properly with
+ * <code>compiler.emulatedStack.useLocationTables</code> turned on.
+ */
+public class StackTraceLocationTablesTest extends StackTraceLineNumbersTest {
+
+  /**
+   * The line of <code>b[1]</code> in {@link #readInBranch}.
+   */
+  private static final int ELSE_BRANCH_LINE = 34;
+
+  private static int readInBranch(boolean first, int[] a, int[] b) {
+    if (first) {
+      return a[0];
+    } else {
+      return b[1];
+    }
+  }
+
+  @Override
+  public String getModuleName() {
+    return "com.google.gwt.core.StackTraceLocationTablesTest";
+  }
+
+  /**
+   * A failure that is not at a call site must be reported at its own line when
+   * the sites before it, in source order, did not run.
+   */
+  public void testLocationOfFirstSiteThatRuns() {
+    try {
+      readInBranch(false, new int[1], null);
+      fail("Expected an exception");
+    } catch (Throwable e) {
+      for (StackTraceElement element : e.getStackTrace()) {
+        if (element.getLineNumber() == ELSE_BRANCH_LINE
+            && element.getFileName() != null
+            && element.getFileName().endsWith("StackTraceLocationTablesTest.java")) {
+          return;
+        }
+      }
+      fail("No frame at line " + ELSE_BRANCH_LINE);
+    }
+  }
+}
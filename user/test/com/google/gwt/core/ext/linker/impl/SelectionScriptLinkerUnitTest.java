@@ -30,6 +30,7 @@ import com.google.gwt.dev.Permutation;
 import com.google.gwt.dev.cfg.BindingProperty;
 import com.google.gwt.dev.cfg.StaticPropertyOracle;
 import com.google.gwt.dev.jjs.PermutationResult;
+import com.google.gwt.dev.util.Util;
 
 import junit.framework.TestCase;
 
@@ -37,6 +38,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -46,9 +48,22 @@ import java.util.TreeSet;
  */
 public class SelectionScriptLinkerUnitTest extends TestCase {
   private static class MockLinkerContext implements LinkerContext {
+    private final SortedSet<ConfigurationProperty> configProps =
+        new TreeSet<ConfigurationProperty>(new Comparator<ConfigurationProperty>() {
+          public int compare(ConfigurationProperty a, ConfigurationProperty b) {
+            return a.getName().compareTo(b.getName());
+          }
+        });
+
+    public void addConfigurationProperty(String name, String value) {
+      com.google.gwt.dev.cfg.ConfigurationProperty prop =
+          new com.google.gwt.dev.cfg.ConfigurationProperty(name);
+      prop.setValue(value);
+      configProps.add(new StandardConfigurationProperty(prop));
+    }
 
     public SortedSet<ConfigurationProperty> getConfigurationProperties() {
-      return new TreeSet<ConfigurationProperty>();
+      return configProps;
     }
 
     public String getModuleFunctionName() {
@@ -169,6 +184,21 @@ public class SelectionScriptLinkerUnitTest extends TestCase {
       NonShardableSelectionScriptLinker {
   }
 
+  @Shardable
+  private static class SharedFragmentsSelectionScriptLinker extends
+      NonShardableSelectionScriptLinker {
+    @Override
+    protected String getModulePrefix(TreeLogger logger, LinkerContext context,
+        String strongName) throws UnableToCompleteException {
+      return "MODULE_PREFIX(" + getDeferredFragmentPathJs(logger, context, "frag") + ")";
+    }
+
+    @Override
+    protected boolean supportsSharedFragments() {
+      return true;
+    }
+  }
+
   private static final long MOCK_MODULE_LAST_MODIFIED = 1234;
 
   private static final String MOCK_MODULE_NAME = "test";
@@ -199,6 +229,31 @@ public class SelectionScriptLinkerUnitTest extends TestCase {
     assertEquals(1, selectionInfos.size());
   }
 
+  /**
+   * Test that shared deferred fragments are emitted under content-derived names
+   * that the primary fragment refers to.
+   */
+  public void testSharedFragments() throws UnableToCompleteException {
+    MockLinkerContext context = new MockLinkerContext();
+    context.addConfigurationProperty("iframe.linker.deferredjs.subdir", "deferredjs");
+    context.addConfigurationProperty("iframe.linker.deferredjs.shared", "true");
+    StandardCompilationResult result = createCompilationResult();
+    ArtifactSet artifacts = new ArtifactSet();
+    artifacts.add(result);
+    ArtifactSet updated = new SharedFragmentsSelectionScriptLinker().link(
+        TreeLogger.NULL, context, artifacts, true);
+
+    String fragmentName = Util.computeStrongName(getBytes("code for fragment 1"));
+    assertNotNull(findEmittedArtifact(updated, "deferredjs/" + fragmentName + ".cache.js"));
+    assertNull(findEmittedArtifact(updated, "deferredjs/" + result.getStrongName()
+        + "/1.cache.js"));
+
+    EmittedArtifact primary = findEmittedArtifact(updated, result.getStrongName() + ".js");
+    String primaryJs = Util.readStreamAsString(primary.getContents(TreeLogger.NULL));
+    assertTrue(primaryJs.contains(
+        "MODULE_PREFIX('deferredjs/' + ['','" + fragmentName + "'][frag] + '.cache.js')"));
+  }
+
   /**
    * Test timestamps on the selection script. For Development Mode, it should match
    * the module's timestamp. For Production Mode, it should be current.
@@ -31,6 +31,19 @@ import java.util.Map;
  */
 public class MessageFormatParserTest extends TestCase {
 
+  public void testCachedTemplateChunks() throws ParseException {
+    String str = "Hello {0}, you have {1,number} new '{messages}'";
+    List<TemplateChunk> cached = MessageCatalogCache.getTemplateChunks(str);
+    assertSame(cached, MessageCatalogCache.getTemplateChunks(new String(str)));
+    assertEquals(MessageFormatParser.assemble(MessageFormatParser.parse(str)),
+        MessageFormatParser.assemble(cached));
+    try {
+      cached.clear();
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
   public void testList() throws ParseException {
     String str = "{0,list:max=3,number:curcode=1:space,currency}";
     List<TemplateChunk> parsed = MessageFormatParser.parse(str);
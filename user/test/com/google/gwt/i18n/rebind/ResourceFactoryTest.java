@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.i18n.rebind;
+
+import com.google.gwt.core.ext.GeneratorContext;
+import com.google.gwt.core.ext.StubGeneratorContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.TypeOracle;
+import com.google.gwt.dev.javac.TypeOracleTestingUtils;
+import com.google.gwt.dev.javac.testing.impl.MockJavaResource;
+import com.google.gwt.dev.javac.testing.impl.MockResource;
+import com.google.gwt.dev.resource.Resource;
+import com.google.gwt.dev.shell.FailErrorLogger;
+import com.google.gwt.i18n.rebind.AbstractResource.ResourceList;
+import com.google.gwt.i18n.rebind.ResourceFactory.ClassHierarchy;
+import com.google.gwt.i18n.server.GwtLocaleFactoryImpl;
+import com.google.gwt.i18n.shared.GwtLocaleFactory;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests how {@link ResourceFactory} caches class hierarchies and parsed
+ * resource files.
+ */
+public class ResourceFactoryTest extends TestCase {
+
+  private static final MockJavaResource PARENT = new MockJavaResource("foo.Parent") {
+    @Override
+    public CharSequence getContent() {
+      StringBuffer code = new StringBuffer();
+      code.append("package foo;\n");
+      code.append("public interface Parent { }\n");
+      return code;
+    }
+  };
+
+  private static final MockJavaResource TEST = new MockJavaResource("foo.Test") {
+    @Override
+    public CharSequence getContent() {
+      StringBuffer code = new StringBuffer();
+      code.append("package foo;\n");
+      code.append("public interface Test extends Parent { }\n");
+      return code;
+    }
+  };
+
+  private static MockResource createProperties(String path, final String contents) {
+    return new MockResource(path) {
+      @Override
+      public CharSequence getContent() {
+        return contents;
+      }
+    };
+  }
+
+  /**
+   * Returns the resource in <code>resources</code> that was loaded from
+   * <code>path</code>.
+   */
+  private static AbstractResource findResource(ResourceList resources, String path) {
+    for (AbstractResource resource : resources) {
+      if (path.equals(resource.getPath())) {
+        return resource;
+      }
+    }
+    fail("No resource loaded from " + path);
+    return null;
+  }
+
+  private GwtLocaleFactory factory;
+
+  private TreeLogger logger;
+
+  private Map<String, Resource> resourceMap;
+
+  private JClassType test;
+
+  /**
+   * Tests that the class hierarchy of a type is walked once per generator
+   * context and kept apart for constants and messages.
+   */
+  public void testClassHierarchyCache() {
+    GeneratorContext genCtx = new StubGeneratorContext() { };
+    ResourceFactoryContext localizableCtx = ResourceFactory.getResourceFactoryContext(genCtx);
+    assertNull(localizableCtx.getClassHierarchy(test, false));
+
+    ResourceFactory.getBundle(logger, test, factory.fromString("fr"), false, resourceMap,
+        genCtx);
+    ClassHierarchy hierarchy = localizableCtx.getClassHierarchy(test, false);
+    assertNotNull(hierarchy);
+    assertEquals(test, hierarchy.classes.get(0));
+    assertTrue(hierarchy.classes.contains(test.getImplementedInterfaces()[0]));
+    assertNull(localizableCtx.getClassHierarchy(test, true));
+
+    ResourceFactory.getBundle(logger, test, factory.fromString("de"), false, resourceMap,
+        genCtx);
+    assertSame(hierarchy, localizableCtx.getClassHierarchy(test, false));
+    assertNull(localizableCtx.getClassHierarchy(test, true));
+
+    ResourceFactory.getBundle(logger, test, factory.fromString("fr"), true, resourceMap, genCtx);
+    assertNotNull(localizableCtx.getClassHierarchy(test, true));
+    assertNotSame(hierarchy, localizableCtx.getClassHierarchy(test, true));
+
+    GeneratorContext otherCtx = new StubGeneratorContext() { };
+    ResourceFactory.getBundle(logger, test, factory.fromString("fr"), false, resourceMap,
+        otherCtx);
+    assertNotSame(hierarchy, ResourceFactory.getResourceFactoryContext(otherCtx)
+        .getClassHierarchy(test, false));
+  }
+
+  /**
+   * Tests that a resource file is parsed once for every locale and generator
+   * context that reads it, as long as its contents do not change.
+   */
+  public void testParsedResourcesAreShared() {
+    ResourceList fr = ResourceFactory.getBundle(logger, test, factory.fromString("fr"), false,
+        resourceMap, new StubGeneratorContext() { });
+    ResourceList frCa = ResourceFactory.getBundle(logger, test, factory.fromString("fr_CA"),
+        false, resourceMap, new StubGeneratorContext() { });
+    AbstractResource parsed = findResource(fr, "foo/Test_fr.properties");
+    assertSame(parsed, findResource(frCa, "foo/Test_fr.properties"));
+    assertEquals("Bonjour", fr.getString("hello"));
+    assertEquals("Bonjour", frCa.getString("hello"));
+
+    resourceMap.put("foo/Test_fr.properties",
+        createProperties("foo/Test_fr.properties", "hello=Salut\n"));
+    ResourceList changed = ResourceFactory.getBundle(logger, test, factory.fromString("fr"),
+        false, resourceMap, new StubGeneratorContext() { });
+    assertNotSame(parsed, findResource(changed, "foo/Test_fr.properties"));
+    assertEquals("Salut", changed.getString("hello"));
+    assertEquals("Bonjour", fr.getString("hello"));
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    logger = new FailErrorLogger();
+    factory = new GwtLocaleFactoryImpl();
+    TypeOracle typeOracle = TypeOracleTestingUtils.buildStandardTypeOracleWith(logger,
+        PARENT, TEST);
+    test = typeOracle.getType("foo.Test");
+    resourceMap = new HashMap<String, Resource>();
+    resourceMap.put("foo/Test_fr.properties",
+        createProperties("foo/Test_fr.properties", "hello=Bonjour\n"));
+  }
+}
@@ -15,14 +15,19 @@
  */
 package com.google.gwt.junit;
 
+import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.junit.client.GWTTestCase;
 import com.google.gwt.junit.client.GWTTestCase.TestModuleInfo;
 import com.google.gwt.junit.client.impl.JUnitHost.TestInfo;
 
 import junit.framework.TestCase;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -88,6 +93,48 @@ public class BatchingStrategyTest extends TestCase {
     testBatchingStrategy(strategy, testBlocks);
   }
 
+  public void testDurationBatchingStrategy() throws IOException {
+    File historyFile = File.createTempFile("BatchingStrategyTest", ".properties");
+    try {
+      // Without any history, the whole module is one batch.
+      historyFile.delete();
+      DurationBatchingStrategy strategy = new DurationBatchingStrategy(historyFile, 2);
+      assertFalse(strategy.isSingleTestOnly());
+      List<TestInfo[]> testBlocks = new ArrayList<TestInfo[]>();
+      testBlocks.add(new TestInfo[] {
+          TEST_INFO_0_0, TEST_INFO_0_1, TEST_INFO_1_2, TEST_INFO_1_3,
+          TEST_INFO_1_4, TEST_INFO_2_5});
+      testBatchingStrategy(strategy, testBlocks);
+
+      // Test 1_3 has no duration and is assumed to take the mean.
+      Map<TestInfo, Long> durations = new HashMap<TestInfo, Long>();
+      durations.put(TEST_INFO_0_0, 100L);
+      durations.put(TEST_INFO_0_1, 100L);
+      durations.put(TEST_INFO_1_2, 400L);
+      durations.put(TEST_INFO_1_4, 100L);
+      durations.put(TEST_INFO_2_5, 300L);
+      strategy.onTestsFinished(TreeLogger.NULL, durations);
+
+      strategy = new DurationBatchingStrategy(historyFile, 2);
+      testBlocks = new ArrayList<TestInfo[]>();
+      testBlocks.add(new TestInfo[] {TEST_INFO_0_0, TEST_INFO_0_1, TEST_INFO_1_2});
+      testBlocks.add(new TestInfo[] {TEST_INFO_1_3, TEST_INFO_1_4, TEST_INFO_2_5});
+      testBatchingStrategy(strategy, testBlocks);
+
+      // Never more batches than tests.
+      testBlocks = new ArrayList<TestInfo[]>();
+      testBlocks.add(new TestInfo[] {TEST_INFO_0_0});
+      testBlocks.add(new TestInfo[] {TEST_INFO_0_1});
+      testBlocks.add(new TestInfo[] {TEST_INFO_1_2});
+      testBlocks.add(new TestInfo[] {TEST_INFO_1_3});
+      testBlocks.add(new TestInfo[] {TEST_INFO_1_4});
+      testBlocks.add(new TestInfo[] {TEST_INFO_2_5});
+      testBatchingStrategy(new DurationBatchingStrategy(historyFile, 10), testBlocks);
+    } finally {
+      historyFile.delete();
+    }
+  }
+
   public void testModuleBatchingStrategy() {
     BatchingStrategy strategy = new ModuleBatchingStrategy();
     assertFalse(strategy.isSingleTestOnly());
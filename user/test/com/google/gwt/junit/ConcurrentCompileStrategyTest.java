@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.junit;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.dev.cfg.ModuleDef;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests of {@link ConcurrentCompileStrategy}.
+ */
+public class ConcurrentCompileStrategyTest extends TestCase {
+
+  /**
+   * Records how many compiles, and how many permutation workers, run at once.
+   */
+  private static class MockConcurrentCompileStrategy extends ConcurrentCompileStrategy {
+    private int activeCompiles;
+    private final List<String> compiled = new ArrayList<String>();
+    private final String failingModuleName;
+    private int localWorkers;
+    private int maxActiveCompiles;
+    private int maxActiveWorkers;
+    private final List<Integer> workersPerCompile = new ArrayList<Integer>();
+
+    public MockConcurrentCompileStrategy(int localWorkers, String failingModuleName) {
+      super(null);
+      this.localWorkers = localWorkers;
+      this.failingModuleName = failingModuleName;
+    }
+
+    @Override
+    void compileForWebMode(ModuleDef moduleDef) throws UnableToCompleteException {
+      synchronized (this) {
+        ++activeCompiles;
+        maxActiveCompiles = Math.max(maxActiveCompiles, activeCompiles);
+        maxActiveWorkers = Math.max(maxActiveWorkers, activeCompiles * localWorkers);
+        workersPerCompile.add(localWorkers);
+      }
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      synchronized (this) {
+        --activeCompiles;
+        compiled.add(moduleDef.getName());
+      }
+      if (moduleDef.getName().equals(failingModuleName)) {
+        throw new UnableToCompleteException();
+      }
+    }
+
+    @Override
+    synchronized int getLocalWorkers() {
+      return localWorkers;
+    }
+
+    @Override
+    synchronized void setLocalWorkers(int localWorkers) {
+      this.localWorkers = localWorkers;
+    }
+  }
+
+  private static List<ModuleDef> createModules(int count) {
+    List<ModuleDef> modules = new ArrayList<ModuleDef>();
+    for (int i = 0; i < count; i++) {
+      modules.add(new ModuleDef("com.example.Module" + i));
+    }
+    return modules;
+  }
+
+  public void testFewerModulesThanWorkers() throws UnableToCompleteException {
+    MockConcurrentCompileStrategy strategy = new MockConcurrentCompileStrategy(5, null);
+    strategy.compileAll(TreeLogger.NULL, createModules(2));
+    assertEquals(2, strategy.compiled.size());
+    // Each compile gets two of the five workers.
+    assertEquals(Arrays.asList(2, 2), strategy.workersPerCompile);
+    assertTrue(strategy.maxActiveWorkers <= 4);
+    assertEquals(5, strategy.getLocalWorkers());
+  }
+
+  public void testMoreModulesThanWorkers() throws UnableToCompleteException {
+    MockConcurrentCompileStrategy strategy = new MockConcurrentCompileStrategy(4, null);
+    strategy.compileAll(TreeLogger.NULL, createModules(10));
+    assertEquals(10, strategy.compiled.size());
+    assertTrue(strategy.maxActiveCompiles <= 4);
+    for (int workers : strategy.workersPerCompile) {
+      assertEquals(1, workers);
+    }
+    assertTrue(strategy.maxActiveWorkers <= 4);
+    assertEquals(4, strategy.getLocalWorkers());
+  }
+
+  public void testWaitsForAllCompilesWhenOneFails() {
+    MockConcurrentCompileStrategy strategy =
+        new MockConcurrentCompileStrategy(2, "com.example.Module0");
+    try {
+      strategy.compileAll(TreeLogger.NULL, createModules(6));
+      fail("Expected UnableToCompleteException");
+    } catch (UnableToCompleteException expected) {
+    }
+    assertEquals(6, strategy.compiled.size());
+    assertEquals(0, strategy.activeCompiles);
+    assertEquals(2, strategy.getLocalWorkers());
+  }
+}
@@ -265,6 +265,51 @@ public class JUnitMessageQueueTest extends TestCase {
     }
   }
 
+  public void testGetTestDurations() {
+    final long timeout = System.currentTimeMillis() + 15;
+    JUnitMessageQueue queue = createQueue(2, 1, 2);
+    TestInfo[] testBlock0 = queue.getTestBlocks().get(0);
+    assertTrue(queue.getTestDurations().isEmpty());
+
+    // Each test keeps the time its client measured; untimed results are ignored.
+    Map<TestInfo, JUnitResult> results = createTestResults(2);
+    results.get(testBlock0[0]).setDuration(30);
+    queue.getTestBlock(createClientInfo(0, "ie6"), 0, timeout);
+    queue.reportResults(createClientInfo(0, "ie6"), results);
+    Map<TestInfo, Long> durations = queue.getTestDurations();
+    assertEquals(1, durations.size());
+    assertEquals(Long.valueOf(30), durations.get(testBlock0[0]));
+
+    // The longest time any client took is kept.
+    results = createTestResults(2);
+    results.get(testBlock0[0]).setDuration(10);
+    results.get(testBlock0[1]).setDuration(50);
+    queue.getTestBlock(createClientInfo(1, "ie6"), 0, timeout);
+    queue.reportResults(createClientInfo(1, "ie6"), results);
+    durations = queue.getTestDurations();
+    assertEquals(2, durations.size());
+    assertEquals(Long.valueOf(30), durations.get(testBlock0[0]));
+    assertEquals(Long.valueOf(50), durations.get(testBlock0[1]));
+  }
+
+  public void testHasAllResults() {
+    final long timeout = System.currentTimeMillis() + 15;
+    JUnitMessageQueue queue = new JUnitMessageQueue(1);
+    List<TestInfo[]> testBlocks = createTestBlocks(2, 1);
+    queue.addTestBlocks(testBlocks.subList(0, 1), false);
+    queue.getTestBlock(createClientInfo(0, "ie6"), 0, timeout);
+    queue.reportResults(createClientInfo(0, "ie6"), createTestResults(1));
+    assertFalse(queue.hasAllResults());
+
+    queue.addTestBlocks(testBlocks.subList(1, 2), true);
+    assertFalse(queue.hasAllResults());
+    queue.getTestBlock(createClientInfo(0, "ie6"), 1, timeout);
+    Map<TestInfo, JUnitResult> results = new HashMap<TestInfo, JUnitResult>();
+    results.put(testBlocks.get(1)[0], new JUnitResult());
+    queue.reportResults(createClientInfo(0, "ie6"), results);
+    assertTrue(queue.hasAllResults());
+  }
+
   public void testGetUserAgents() {
     final long timeout = System.currentTimeMillis() + 15;
     JUnitMessageQueue queue = createQueue(15, 1, 1);
@@ -448,6 +493,36 @@ public class JUnitMessageQueueTest extends TestCase {
     }
   }
 
+  public void testShardedClients() {
+    final long timeout = System.currentTimeMillis() + 15;
+    JUnitMessageQueue queue = new JUnitMessageQueue(2, 2);
+    queue.addTestBlocks(createTestBlocks(3, 1), true);
+    ClientInfoExt ie0 = new ClientInfoExt(0, "ie6", "ie");
+    ClientInfoExt ie1 = new ClientInfoExt(1, "ie6", "ie");
+    ClientInfoExt gecko = new ClientInfoExt(2, "gecko1_8", "gecko");
+
+    // Shards of a client take different blocks; other clients are unaffected.
+    assertEquals(0, queue.getTestBlock(ie0, 0, timeout).getIndex());
+    assertEquals(1, queue.getTestBlock(ie1, 0, timeout).getIndex());
+    assertEquals(0, queue.getTestBlock(gecko, 0, timeout).getIndex());
+
+    // Asking again for the assigned block, as after a module change, gets it.
+    assertEquals(1, queue.getTestBlock(ie1, 1, timeout).getIndex());
+
+    // Each test is run by one shard per client.
+    TestInfo test0 = queue.getTestBlocks().get(0)[0];
+    Map<TestInfo, JUnitResult> results = new HashMap<TestInfo, JUnitResult>();
+    results.put(test0, new JUnitResult());
+    queue.reportResults(ie0, results);
+    assertFalse(queue.hasResults(test0));
+    queue.reportResults(gecko, results);
+    assertTrue(queue.hasResults(test0));
+
+    // The next block is the first one no shard has taken.
+    assertEquals(2, queue.getTestBlock(ie0, 1, timeout).getIndex());
+    assertNull(queue.getTestBlock(ie1, 2, timeout));
+  }
+
   public void testRemove() {
     JUnitMessageQueue queue = createQueue(TWO_CLIENTS, ONE_BLOCK,
         ONE_TEST_PER_BLOCK);
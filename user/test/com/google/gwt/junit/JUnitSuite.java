@@ -52,6 +52,7 @@ public class JUnitSuite {
 
     // suite.addTestSuite(RunStyleSeleniumTest.class);
 
+    suite.addTestSuite(ConcurrentCompileStrategyTest.class);
     suite.addTestSuite(FakeCssMakerTest.class);
     suite.addTestSuite(FakeMessagesMakerTest.class);
     suite.addTestSuite(FakeSafeHtmlTemplatesMakerTest.class);
@@ -24,11 +24,13 @@ import com.google.gwt.core.ext.linker.EmittedArtifact;
 import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
 import com.google.gwt.core.ext.linker.SelectionProperty;
 import com.google.gwt.core.ext.linker.SyntheticArtifact;
+import com.google.gwt.dev.util.Util;
 
 import junit.framework.TestCase;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -84,8 +86,15 @@ public class PrecompressLinkerTest extends TestCase {
 
   private class MockLinkerContext implements LinkerContext {
     public SortedSet<ConfigurationProperty> getConfigurationProperties() {
-      return new TreeSet<ConfigurationProperty>(Arrays.asList(
-          propLeaveOriginals, propPathRegexes));
+      SortedSet<ConfigurationProperty> props = new TreeSet<ConfigurationProperty>(
+          Arrays.asList(propLeaveOriginals, propPathRegexes));
+      if (propCacheDir != null) {
+        props.add(propCacheDir);
+      }
+      if (propCompressionLevel != null) {
+        props.add(propCompressionLevel);
+      }
+      return props;
     }
 
     public String getModuleFunctionName() {
@@ -224,6 +233,10 @@ public class PrecompressLinkerTest extends TestCase {
   private ArtifactSet artifacts;
   private LinkerContext context = new MockLinkerContext();
 
+  private MockConfigurationProperty propCacheDir;
+
+  private MockConfigurationProperty propCompressionLevel;
+
   private MockConfigurationProperty propLeaveOriginals;
 
   private MockConfigurationProperty propPathRegexes;
@@ -251,6 +264,69 @@ public class PrecompressLinkerTest extends TestCase {
         uncompressibleGz);
   }
 
+  /**
+   * Test that compressed contents are written to the cache directory.
+   */
+  public void testCacheDir() throws UnableToCompleteException, IOException {
+    File cacheDir = File.createTempFile("precompress", "");
+    cacheDir.delete();
+    try {
+      propCacheDir = new MockConfigurationProperty("precompress.cache.dir", false);
+      propCacheDir.setValue(cacheDir.getAbsolutePath());
+      propCompressionLevel = new MockConfigurationProperty(
+          "precompress.compression.level", false);
+      propCompressionLevel.setValue("8");
+      ArtifactSet updated = linkArtifacts();
+      byte[] compressed = contents(findArtifact(updated, "foo.js.gz"));
+
+      // foo.js and uncompressible.js each have a cache entry
+      File[] cached = cacheDir.listFiles();
+      assertEquals(2, cached.length);
+      File fooCached = null;
+      for (File file : cached) {
+        assertTrue(file.getName().endsWith("-8.gz"));
+        if (Arrays.equals(compressed, Util.readFileAsBytes(file))) {
+          fooCached = file;
+        }
+      }
+      assertNotNull(fooCached);
+    } finally {
+      Util.recursiveDelete(cacheDir, false);
+    }
+  }
+
+  /**
+   * Test that artifacts with identical contents get identical compressed
+   * artifacts.
+   */
+  public void testIdenticalContents() throws UnableToCompleteException,
+      IOException {
+    ArtifactSet withCopy = new ArtifactSet(artifacts);
+    withCopy.add(emit("copy.js", fooFileContents()));
+    withCopy.freeze();
+    artifacts = withCopy;
+    ArtifactSet updated = linkArtifacts();
+
+    EmittedArtifact fooGz = findArtifact(updated, "foo.js.gz");
+    EmittedArtifact copyGz = findArtifact(updated, "copy.js.gz");
+    assertNotNull(copyGz);
+    assertEqualBytes(contents(fooGz), contents(copyGz));
+  }
+
+  /**
+   * Test that an invalid compression level is reported.
+   */
+  public void testInvalidCompressionLevel() {
+    propCompressionLevel = new MockConfigurationProperty(
+        "precompress.compression.level", false);
+    propCompressionLevel.setValue("11");
+    try {
+      linkArtifacts();
+      fail("Expected UnableToCompleteException");
+    } catch (UnableToCompleteException expected) {
+    }
+  }
+
   /**
    * Test that the blacklist takes effect.
    */
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.css;
+
+import com.google.gwt.resources.css.ast.CssProperty;
+import com.google.gwt.resources.css.ast.CssRule;
+import com.google.gwt.resources.rg.CssResourceGenerator;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests {@link PropertyConflictIndex} against
+ * {@link CssResourceGenerator#haveCommonProperties}.
+ */
+public class PropertyConflictIndexTest extends TestCase {
+
+  private static final String[] NAMES = {
+      "border", "border-top", "border-top-width", "border-left", "color",
+      "font", "font-size", "font-family", "margin", "margin-left", "margin-top",
+      "-webkit-box", "-webkit-box-shadow", "background", "background-color"};
+
+  private static CssRule rule(String... names) {
+    CssRule rule = new CssRule();
+    for (String name : names) {
+      rule.getProperties().add(new CssProperty(name,
+          new CssProperty.IdentValue("x"), false));
+    }
+    return rule;
+  }
+
+  public void testMatchesPairwiseComparison() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 200; trial++) {
+      PropertyConflictIndex index = new PropertyConflictIndex();
+      List<CssRule> rules = new ArrayList<CssRule>();
+      for (int i = 0; i < 20; i++) {
+        String[] names = new String[random.nextInt(3)];
+        for (int j = 0; j < names.length; j++) {
+          names[j] = NAMES[random.nextInt(NAMES.length)];
+        }
+        CssRule rule = rule(names);
+        rules.add(rule);
+        index.add(rule);
+      }
+
+      CssRule candidate = rule(NAMES[random.nextInt(NAMES.length)]);
+      for (int i = 0; i < rules.size(); i++) {
+        boolean expected = false;
+        for (CssRule later : rules.subList(i + 1, rules.size())) {
+          expected |= CssResourceGenerator.haveCommonProperties(later, candidate);
+        }
+        assertEquals(expected, index.hasConflictAfter(rules.get(i), candidate));
+      }
+    }
+  }
+
+  public void testAddedPropertiesAreIndexed() {
+    CssRule first = rule("color");
+    CssRule second = rule("font-size");
+    CssRule third = rule();
+
+    PropertyConflictIndex index = new PropertyConflictIndex();
+    index.add(first);
+    index.add(second);
+    index.add(third);
+    assertFalse(index.hasConflictAfter(first, rule("margin")));
+
+    CssRule merged = rule("margin-left");
+    third.getProperties().addAll(merged.getProperties());
+    index.addProperties(third, merged.getProperties());
+    assertTrue(index.hasConflictAfter(first, rule("margin")));
+    assertFalse(index.hasConflictAfter(third, rule("margin")));
+  }
+
+  public void testNestedRulesFollowOuterRules() {
+    CssRule outer = rule("color");
+    PropertyConflictIndex nested = new PropertyConflictIndex();
+    nested.add(rule("font"));
+
+    PropertyConflictIndex index = new PropertyConflictIndex();
+    index.add(outer);
+    index.addAll(nested);
+    assertTrue(index.hasConflictAfter(outer, rule("font-size")));
+  }
+}
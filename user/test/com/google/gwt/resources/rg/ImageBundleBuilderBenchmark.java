@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.rg;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.resources.rg.ImageBundleBuilder.BestFitArranger;
+import com.google.gwt.resources.rg.ImageBundleBuilder.ImageRect;
+import com.google.gwt.resources.rg.ImageBundleBuilder.Size;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Times packing and encoding of large image bundles, and a persistent sprite
+ * cache hit for comparison. Not part of the test suites; run it by hand:
+ *
+ * <pre>
+ * java -cp ... com.google.gwt.resources.rg.ImageBundleBuilderBenchmark [images...]
+ * </pre>
+ */
+public class ImageBundleBuilderBenchmark {
+
+  private static final int ITERATIONS = 5;
+
+  public static void main(String[] args) throws IOException {
+    int[] counts = {1000, 3000, 10000};
+    if (args.length > 0) {
+      counts = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        counts[i] = Integer.parseInt(args[i]);
+      }
+    }
+    for (int count : counts) {
+      run(count);
+    }
+  }
+
+  private static List<ImageRect> createRects(int count, long seed) {
+    Random random = new Random(seed);
+    List<ImageRect> rects = new ArrayList<ImageRect>(count);
+    for (int i = 0; i < count; i++) {
+      int width = 1 + random.nextInt(32);
+      int height = 1 + random.nextInt(32);
+      BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          image.setRGB(x, y, random.nextInt());
+        }
+      }
+      rects.add(new ImageRect("image" + i, image));
+    }
+    return rects;
+  }
+
+  private static BufferedImage draw(List<ImageRect> rects, Size size) {
+    BufferedImage bundle = new BufferedImage(size.getWidth(), size.getHeight(),
+        BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2d = bundle.createGraphics();
+    for (ImageRect rect : rects) {
+      g2d.drawImage(rect.getImage(), rect.getLeft(), rect.getTop(), null);
+    }
+    g2d.dispose();
+    return bundle;
+  }
+
+  private static void report(String what, int count, long startNanos) {
+    long micros = (System.nanoTime() - startNanos) / 1000 / ITERATIONS;
+    System.out.println(count + " images: " + what + " " + micros + "us");
+  }
+
+  private static void run(int count) throws IOException {
+    List<ImageRect> rects = createRects(count, count);
+
+    // Arranging positions the rects, so time it on fresh copies.
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      List<ImageRect> copies = new ArrayList<ImageRect>(count);
+      for (ImageRect rect : rects) {
+        copies.add(new ImageRect(rect.getName(), rect.getImages()));
+      }
+      new BestFitArranger().arrangeImages(copies);
+    }
+    report("arrange", count, start);
+    Size size = new BestFitArranger().arrangeImages(rects);
+
+    BufferedImage bundle = draw(rects, size);
+    byte[] png = new PngEncoder(PngEncoder.DEFAULT_COMPRESSION_LEVEL).encode(bundle);
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      png = new PngEncoder(PngEncoder.DEFAULT_COMPRESSION_LEVEL).encode(bundle);
+    }
+    report("PngEncoder (" + png.length + " bytes)", count, start);
+
+    ByteArrayOutputStream imageIoPng = new ByteArrayOutputStream();
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      imageIoPng.reset();
+      ImageIO.write(bundle, "png", imageIoPng);
+    }
+    report("ImageIO (" + imageIoPng.size() + " bytes)", count, start);
+
+    File dir = File.createTempFile("spriteCache", "");
+    dir.delete();
+    try {
+      int[] positions = new int[2 * count];
+      for (int i = 0; i < count; i++) {
+        positions[2 * i] = rects.get(i).getLeft();
+        positions[2 * i + 1] = rects.get(i).getTop();
+      }
+      new SpriteCache(dir).put(TreeLogger.NULL, "bundle", new SpriteCache.Entry(png, positions));
+      start = System.nanoTime();
+      for (int i = 0; i < ITERATIONS; i++) {
+        new SpriteCache(dir).find(TreeLogger.NULL, "bundle");
+      }
+      report("persistent cache hit", count, start);
+    } finally {
+      Util.recursiveDelete(dir, false);
+    }
+  }
+}
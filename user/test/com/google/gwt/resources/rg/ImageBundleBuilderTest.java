@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.resources.rg;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.dev.util.Util;
+import com.google.gwt.resources.rg.ImageBundleBuilder.BestFitArranger;
+import com.google.gwt.resources.rg.ImageBundleBuilder.ImageRect;
+import com.google.gwt.resources.rg.ImageBundleBuilder.Size;
+
+import junit.framework.TestCase;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Tests the packing, encoding and caching used by {@link ImageBundleBuilder}.
+ */
+public class ImageBundleBuilderTest extends TestCase {
+
+  private static final int LARGE_INPUT_SIZE = 3000;
+
+  private static List<ImageRect> createRects(int count, long seed) {
+    Random random = new Random(seed);
+    List<ImageRect> rects = new ArrayList<ImageRect>(count);
+    for (int i = 0; i < count; i++) {
+      BufferedImage image = new BufferedImage(1 + random.nextInt(32), 1 + random.nextInt(32),
+          BufferedImage.TYPE_INT_ARGB);
+      rects.add(new ImageRect("image" + i, image));
+    }
+    return rects;
+  }
+
+  private static BufferedImage createImage(int width, int height, boolean opaque, long seed) {
+    Random random = new Random(seed);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int rgb = random.nextInt() & 0xffffff;
+        int alpha = opaque ? 0xff : random.nextInt(256);
+        image.setRGB(x, y, (alpha << 24) | rgb);
+      }
+    }
+    return image;
+  }
+
+  public void testBestFitArrangerIsDeterministicForLargeInputs() {
+    List<ImageRect> first = createRects(LARGE_INPUT_SIZE, 42);
+    List<ImageRect> second = createRects(LARGE_INPUT_SIZE, 42);
+    // Arrange in a different input order; the layout must not depend on it.
+    List<ImageRect> reversed = new ArrayList<ImageRect>(second);
+    Collections.reverse(reversed);
+
+    Size firstSize = new BestFitArranger().arrangeImages(first);
+    Size secondSize = new BestFitArranger().arrangeImages(reversed);
+    assertEquals(firstSize.getWidth(), secondSize.getWidth());
+    assertEquals(firstSize.getHeight(), secondSize.getHeight());
+
+    for (int i = 0; i < LARGE_INPUT_SIZE; i++) {
+      ImageRect a = first.get(i);
+      ImageRect b = second.get(i);
+      assertTrue(a.hasBeenPositioned());
+      assertEquals(a.getName(), a.getLeft(), b.getLeft());
+      assertEquals(a.getName(), a.getTop(), b.getTop());
+      assertTrue(a.getLeft() + a.getWidth() <= firstSize.getWidth());
+      assertTrue(a.getTop() + a.getHeight() <= firstSize.getHeight());
+    }
+  }
+
+  public void testBestFitArrangerDoesNotOverlap() {
+    List<ImageRect> rects = createRects(300, 7);
+    Size size = new BestFitArranger().arrangeImages(rects);
+
+    int[] owner = new int[size.getWidth() * size.getHeight()];
+    Arrays.fill(owner, -1);
+    for (int i = 0; i < rects.size(); i++) {
+      ImageRect rect = rects.get(i);
+      for (int y = rect.getTop(); y < rect.getTop() + rect.getHeight(); y++) {
+        for (int x = rect.getLeft(); x < rect.getLeft() + rect.getWidth(); x++) {
+          int index = y * size.getWidth() + x;
+          assertEquals("Overlap at " + x + "," + y, -1, owner[index]);
+          owner[index] = i;
+        }
+      }
+    }
+  }
+
+  public void testPngEncoderRoundTrip() throws IOException {
+    for (boolean opaque : new boolean[] {true, false}) {
+      BufferedImage image = createImage(37, 23, opaque, 3);
+      for (int level = 0; level <= 9; level += 9) {
+        byte[] png = new PngEncoder(level).encode(image);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(image.getWidth(), decoded.getWidth());
+        assertEquals(image.getHeight(), decoded.getHeight());
+        assertEquals(opaque, !decoded.getColorModel().hasAlpha());
+        for (int y = 0; y < image.getHeight(); y++) {
+          for (int x = 0; x < image.getWidth(); x++) {
+            assertEquals(image.getRGB(x, y), decoded.getRGB(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  public void testPngEncoderRejectsBadLevel() {
+    try {
+      new PngEncoder(10);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testSpriteCachePersistsEntries() throws IOException {
+    File dir = File.createTempFile("spriteCache", "");
+    dir.delete();
+    try {
+      byte[] bytes = {1, 2, 3};
+      new SpriteCache(dir).put(TreeLogger.NULL, "key", new SpriteCache.Entry(bytes,
+          new int[] {4, 5, 6, 7}));
+
+      SpriteCache.Entry entry = new SpriteCache(dir).find(TreeLogger.NULL, "key");
+      assertNotNull(entry);
+      assertTrue(Arrays.equals(bytes, entry.getImageBytes()));
+      assertEquals(2, entry.getImageCount());
+      assertEquals(6, entry.getLeft(1));
+      assertEquals(7, entry.getTop(1));
+
+      assertNull(new SpriteCache(dir).find(TreeLogger.NULL, "missing"));
+    } finally {
+      Util.recursiveDelete(dir, false);
+    }
+  }
+}
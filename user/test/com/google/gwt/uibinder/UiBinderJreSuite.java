@@ -54,6 +54,7 @@ import com.google.gwt.uibinder.rebind.GwtResourceEntityResolverTest;
 import com.google.gwt.uibinder.rebind.HandlerEvaluatorTest;
 import com.google.gwt.uibinder.rebind.TokenatorTest;
 import com.google.gwt.uibinder.rebind.TypeOracleUtilsTest;
+import com.google.gwt.uibinder.rebind.UiBinderGeneratorTest;
 import com.google.gwt.uibinder.rebind.UiBinderParserUiWithTest;
 import com.google.gwt.uibinder.rebind.UiRendererEventValidationTest;
 import com.google.gwt.uibinder.rebind.UiRendererValidationTest;
@@ -83,6 +84,7 @@ public class UiBinderJreSuite {
     suite.addTestSuite(XMLElementTest.class);
     suite.addTestSuite(DesignTimeUtilsTest.class);
     suite.addTestSuite(TypeOracleUtilsTest.class);
+    suite.addTestSuite(UiBinderGeneratorTest.class);
     suite.addTestSuite(UiBinderParserUiWithTest.class);
     suite.addTestSuite(UiRendererEventValidationTest.class);
     suite.addTestSuite(UiRendererValidationTest.class);
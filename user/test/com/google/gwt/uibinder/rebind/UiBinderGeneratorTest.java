@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.uibinder.rebind;
+
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.TypeOracle;
+import com.google.gwt.dev.javac.CompilationStateBuilder;
+import com.google.gwt.dev.javac.testing.impl.MockJavaResource;
+import com.google.gwt.dev.javac.testing.impl.MockResourceOracle;
+import com.google.gwt.dev.resource.Resource;
+import com.google.gwt.dev.util.collect.HashSet;
+import com.google.gwt.uibinder.attributeparsers.AttributeParsers;
+import com.google.gwt.uibinder.rebind.messages.MessagesWriter;
+import com.google.gwt.uibinder.test.UiJavaResources;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests which type changes make {@link UiBinderGenerator} discard a cached
+ * binder.
+ */
+public class UiBinderGeneratorTest extends TestCase {
+
+  private static final String BINDER_URI = "urn:ui:com.google.gwt.uibinder";
+
+  private static final W3cDomHelper docHelper = new W3cDomHelper(TreeLogger.NULL,
+      new MockResourceOracle());
+
+  /**
+   * Returns a resource for the owner of the binder, with a field whose type has
+   * a setter taking an enum.
+   */
+  private static MockJavaResource createBinder() {
+    return new MockJavaResource("binder.OwnerClass") {
+      @Override
+      public CharSequence getContent() {
+        StringBuffer code = new StringBuffer();
+        code.append("package binder;\n");
+        code.append("import com.google.gwt.uibinder.client.UiBinder;\n");
+        code.append("import com.google.gwt.uibinder.client.UiField;\n");
+        code.append("public class OwnerClass {");
+        code.append("  public interface Binder");
+        code.append("      extends UiBinder<java.lang.String, OwnerClass> {");
+        code.append("  }");
+        code.append("  @UiField foo.Gauge gauge;");
+        code.append("}");
+        return code;
+      }
+    };
+  }
+
+  /**
+   * Returns a resource for a class whose constant the template imports.
+   */
+  private static MockJavaResource createConstants(final String label) {
+    return new MockJavaResource("foo.Constants") {
+      @Override
+      public CharSequence getContent() {
+        StringBuffer code = new StringBuffer();
+        code.append("package foo;");
+        code.append("public class Constants {");
+        code.append("  public static final String LABEL = \"" + label + "\";");
+        code.append("}");
+        return code;
+      }
+    };
+  }
+
+  private static MockJavaResource createGauge() {
+    return new MockJavaResource("foo.Gauge") {
+      @Override
+      public CharSequence getContent() {
+        StringBuffer code = new StringBuffer();
+        code.append("package foo;");
+        code.append("public class Gauge {");
+        code.append("  public void setUnit(Unit unit) { }");
+        code.append("}");
+        return code;
+      }
+    };
+  }
+
+  /**
+   * Returns a resource for the enum taken by the field's setter.
+   */
+  private static MockJavaResource createUnit(final String constants) {
+    return new MockJavaResource("foo.Unit") {
+      @Override
+      public CharSequence getContent() {
+        StringBuffer code = new StringBuffer();
+        code.append("package foo;");
+        code.append("public enum Unit {");
+        code.append(constants);
+        code.append("}");
+        return code;
+      }
+    };
+  }
+
+  private MockJavaResource binder;
+  private MockJavaResource constants;
+  private MockJavaResource gauge;
+  private MockJavaResource unit;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    binder = createBinder();
+    constants = createConstants("Speed");
+    gauge = createGauge();
+    unit = createUnit("KPH, MPH");
+  }
+
+  public void testEditedImportedConstantIsAChange() throws Exception {
+    Map<String, Long> times = bindTemplate();
+    assertNull(UiBinderGenerator.findChangedType(buildTypeOracle(), times));
+
+    constants = createConstants("Velocity");
+    assertEquals("foo.Constants", UiBinderGenerator.findChangedType(buildTypeOracle(), times));
+  }
+
+  public void testEditedSetterEnumIsAChange() throws Exception {
+    Map<String, Long> times = bindTemplate();
+    assertNull(UiBinderGenerator.findChangedType(buildTypeOracle(), times));
+
+    unit = createUnit("KPH, MPH, KNOTS");
+    assertEquals("foo.Unit", UiBinderGenerator.findChangedType(buildTypeOracle(), times));
+  }
+
+  /**
+   * Binds a template that imports <code>foo.Constants.LABEL</code> and has a
+   * <code>foo.Gauge</code> field, and returns the types it depends on.
+   */
+  private Map<String, Long> bindTemplate() throws Exception {
+    TypeOracle types = buildTypeOracle();
+    MockMortalLogger logger = new MockMortalLogger();
+    FieldManager fieldManager = new FieldManager(types, logger, true);
+    MessagesWriter messages = new MessagesWriter(types, BINDER_URI, logger,
+        binder.getPath(), "binder", "OwnerClass_BinderImpl");
+    JClassType binderType = types.findType("binder.OwnerClass.Binder");
+    UiBinderWriter writer = new UiBinderWriter(binderType, "OwnerClass_BinderImpl", "", types,
+        logger, fieldManager, messages, DesignTimeUtilsStub.EMPTY, new UiBinderContext(), true,
+        true, BINDER_URI);
+    UiBinderParser parser = new UiBinderParser(writer, messages, fieldManager, types, null,
+        BINDER_URI, new UiBinderContext());
+    fieldManager.registerField(types.findType("foo.Gauge"), "gauge");
+
+    Document doc = docHelper.documentFor(
+        "<doc><import field=\"foo.Constants.LABEL\"/></doc>", binder.getPath());
+    Element item = (Element) doc.getDocumentElement().getElementsByTagName("import").item(0);
+    XMLElement elem = new XMLElementProviderImpl(new AttributeParsers(types, fieldManager,
+        logger), types, logger, DesignTimeUtilsStub.EMPTY).get(item);
+    UiBinderParser.Resource.IMPORT.create(parser, elem);
+
+    Map<String, Long> times = UiBinderGenerator.getTypeLastModifiedTimes(binderType, writer);
+    assertTrue(times.containsKey("foo.Constants"));
+    assertTrue(times.containsKey("foo.Unit"));
+    return times;
+  }
+
+  private TypeOracle buildTypeOracle() throws UnableToCompleteException {
+    Set<Resource> resources = new HashSet<Resource>();
+    resources.addAll(UiJavaResources.getUiResources());
+    resources.add(binder);
+    resources.add(constants);
+    resources.add(gauge);
+    resources.add(unit);
+    return CompilationStateBuilder.buildFrom(TreeLogger.NULL, resources).getTypeOracle();
+  }
+}